@@ -0,0 +1,480 @@
+package org.databiosphere.workspacedataservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.databiosphere.workspacedataservice.service.RelationUtils;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.databiosphere.workspacedataservice.shared.model.attributes.JsonAttribute;
+import org.databiosphere.workspacedataservice.tsv.TsvDeserializer;
+import org.postgresql.util.PGobject;
+
+/**
+ * Deterministic fixtures for benchmarks, shaped like real workspace data: wide tables mixing every
+ * common data type, PFB records with nested objects and relations, and many-column Parquet rows.
+ * Every fixture is generated from a fixed seed, so runs are comparable across commits.
+ */
+public final class Fixtures {
+
+  public static final String PRIMARY_KEY = "sample_id";
+  public static final RecordType RECORD_TYPE = RecordType.valueOf("sample");
+  public static final RecordType RELATED_TYPE = RecordType.valueOf("participant");
+
+  private static final long SEED = 20240501L;
+
+  private static final ObjectMapper OBJECT_MAPPER = new JsonConfig().objectMapper();
+
+  private Fixtures() {}
+
+  /** Kinds of column in the wide fixtures, cycled through in order. */
+  public enum ColumnKind {
+    TEXT(DataTypeMapping.STRING),
+    INTEGER(DataTypeMapping.NUMBER),
+    DECIMAL(DataTypeMapping.NUMBER),
+    BOOLEAN(DataTypeMapping.BOOLEAN),
+    DATE(DataTypeMapping.DATE),
+    DATE_TIME(DataTypeMapping.DATE_TIME),
+    JSON(DataTypeMapping.JSON),
+    RELATION(DataTypeMapping.RELATION),
+    FILE(DataTypeMapping.STRING),
+    ARRAY_OF_NUMBER(DataTypeMapping.ARRAY_OF_NUMBER),
+    ARRAY_OF_STRING(DataTypeMapping.ARRAY_OF_STRING),
+    SPARSE_TEXT(DataTypeMapping.STRING);
+
+    private final DataTypeMapping dataType;
+
+    ColumnKind(DataTypeMapping dataType) {
+      this.dataType = dataType;
+    }
+
+    public DataTypeMapping dataType() {
+      return dataType;
+    }
+
+    /** Array columns, which the fake ResultSet can't produce. */
+    boolean isArray() {
+      return dataType.isArrayType();
+    }
+  }
+
+  public static String columnName(int column) {
+    return "attribute_%03d".formatted(column);
+  }
+
+  public static ColumnKind columnKind(int column) {
+    return ColumnKind.values()[column % ColumnKind.values().length];
+  }
+
+  /** Schema of a wide table, excluding the primary key, in column order. */
+  public static Map<String, DataTypeMapping> wideSchema(int columns) {
+    Map<String, DataTypeMapping> schema = new LinkedHashMap<>();
+    for (int column = 0; column < columns; column++) {
+      schema.put(columnName(column), columnKind(column).dataType());
+    }
+    return schema;
+  }
+
+  /**
+   * Rows of a wide TSV, as the strings the CSV reader produces for each cell. The first cell of
+   * each row is the primary key.
+   */
+  public static List<String[]> wideTsvRows(int rows, int columns) {
+    Random random = new Random(SEED);
+    List<String[]> result = new ArrayList<>(rows);
+    for (int row = 0; row < rows; row++) {
+      String[] cells = new String[columns + 1];
+      cells[0] = "sample_%06d".formatted(row);
+      for (int column = 0; column < columns; column++) {
+        cells[column + 1] = tsvCell(columnKind(column), random);
+      }
+      result.add(cells);
+    }
+    return result;
+  }
+
+  /** Records uploaded as a wide TSV, with attribute values as TsvDeserializer converts them. */
+  public static List<Record> wideTsvRecords(TsvDeserializer deserializer, int rows, int columns) {
+    List<Record> records = new ArrayList<>(rows);
+    for (String[] cells : wideTsvRows(rows, columns)) {
+      RecordAttributes attributes = RecordAttributes.empty();
+      for (int column = 0; column < columns; column++) {
+        attributes.putAttribute(
+            columnName(column), deserializer.cellToAttribute(cells[column + 1]));
+      }
+      records.add(new Record(cells[0], RECORD_TYPE, attributes));
+    }
+    return records;
+  }
+
+  /**
+   * Records read from a wide table, with attribute values as RecordRowMapper converts them. Like
+   * {@link #wideResultSet}, these have no array attributes.
+   */
+  public static List<Record> wideStoredRecords(int rows, int columns) {
+    ResultSetFixture fixture = wideResultSet(rows, columns);
+    Map<String, DataTypeMapping> schema = wideSchema(columns);
+    List<Record> records = new ArrayList<>(rows);
+    for (Object[] values : fixture.rows()) {
+      RecordAttributes attributes = RecordAttributes.empty(PRIMARY_KEY);
+      for (int i = 0; i < values.length; i++) {
+        String name = fixture.columnNames().get(i);
+        Object value = values[i];
+        if (value instanceof Date date) {
+          value = date.toLocalDate();
+        } else if (value instanceof Timestamp timestamp) {
+          value = timestamp.toLocalDateTime();
+        } else if (value instanceof PGobject json) {
+          value = new JsonAttribute(readJson(json.toString()));
+        } else if (value != null && schema.get(name) == DataTypeMapping.RELATION) {
+          value = RelationUtils.createRelationString(RELATED_TYPE, value.toString());
+        }
+        attributes.putAttribute(name, value);
+      }
+      records.add(new Record((String) values[0], RECORD_TYPE, attributes));
+    }
+    return records;
+  }
+
+  private static JsonNode readJson(String json) {
+    try {
+      return OBJECT_MAPPER.readTree(json);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String tsvCell(ColumnKind kind, Random random) {
+    return switch (kind) {
+      case TEXT -> "value " + Integer.toString(random.nextInt(1_000_000), 36);
+      case INTEGER -> Integer.toString(random.nextInt(100_000));
+      case DECIMAL -> BigDecimal.valueOf(random.nextInt(1_000_000), 3).toPlainString();
+      case BOOLEAN -> Boolean.toString(random.nextBoolean());
+      case DATE -> date(random).toString();
+      case DATE_TIME -> dateTime(random).toString();
+      case JSON -> "{\"assay\":\"wgs\",\"depth\":%d,\"qc\":{\"passed\":%b,\"scores\":[%d,%d]}}"
+          .formatted(
+              random.nextInt(100),
+              random.nextBoolean(),
+              random.nextInt(100),
+              random.nextInt(100));
+      case RELATION -> relation(random);
+      case FILE -> "gs://fc-bucket-%d/sequencing/run_%d/reads.bam"
+          .formatted(random.nextInt(10), random.nextInt(10_000));
+      case ARRAY_OF_NUMBER -> "[%d,%d,%d]"
+          .formatted(random.nextInt(100), random.nextInt(100), random.nextInt(100));
+      case ARRAY_OF_STRING -> "[\"lane_%d\",\"lane_%d\"]"
+          .formatted(random.nextInt(8), random.nextInt(8));
+      case SPARSE_TEXT -> random.nextInt(4) == 0 ? "note " + random.nextInt(1000) : "";
+    };
+  }
+
+  /**
+   * Column names and values of a wide table as the Postgres JDBC driver returns them, for {@link
+   * #resultSet}. Array columns are left out, since the driver's array type can't be constructed
+   * outside a connection.
+   */
+  public static ResultSetFixture wideResultSet(int rows, int columns) {
+    Random random = new Random(SEED);
+    List<String> names = new ArrayList<>();
+    names.add(PRIMARY_KEY);
+    for (int column = 0; column < columns; column++) {
+      if (!columnKind(column).isArray()) {
+        names.add(columnName(column));
+      }
+    }
+    List<Object[]> values = new ArrayList<>(rows);
+    for (int row = 0; row < rows; row++) {
+      Object[] rowValues = new Object[names.size()];
+      rowValues[0] = "sample_%06d".formatted(row);
+      int position = 1;
+      for (int column = 0; column < columns; column++) {
+        ColumnKind kind = columnKind(column);
+        if (!kind.isArray()) {
+          rowValues[position++] = jdbcValue(kind, random);
+        }
+      }
+      values.add(rowValues);
+    }
+    return new ResultSetFixture(names, values);
+  }
+
+  private static Object jdbcValue(ColumnKind kind, Random random) {
+    return switch (kind) {
+      case TEXT, FILE, SPARSE_TEXT -> {
+        String cell = tsvCell(kind, random);
+        yield cell.isEmpty() ? null : cell;
+      }
+      case INTEGER -> BigDecimal.valueOf(random.nextInt(100_000));
+      case DECIMAL -> BigDecimal.valueOf(random.nextInt(1_000_000), 3);
+      case BOOLEAN -> random.nextBoolean();
+      case DATE -> Date.valueOf(date(random));
+      case DATE_TIME -> Timestamp.valueOf(dateTime(random));
+      case JSON -> jsonb(tsvCell(kind, random));
+      // relation columns hold the related record's id
+      case RELATION -> "participant_%05d".formatted(random.nextInt(10_000));
+      case ARRAY_OF_NUMBER, ARRAY_OF_STRING -> throw new IllegalArgumentException();
+    };
+  }
+
+  private static PGobject jsonb(String value) {
+    PGobject json = new PGobject();
+    try {
+      json.setType("jsonb");
+      json.setValue(value);
+    } catch (java.sql.SQLException e) {
+      throw new IllegalStateException(e);
+    }
+    return json;
+  }
+
+  /** Column names and rows for a fake, forward-only ResultSet. */
+  public record ResultSetFixture(List<String> columnNames, List<Object[]> rows) {}
+
+  /**
+   * A forward-only ResultSet over a fixture, supporting what RecordRowMapper uses: next(),
+   * getMetaData() with column count and names, and getString/getObject by index or name.
+   */
+  public static ResultSet resultSet(ResultSetFixture fixture) {
+    ResultSetMetaData metaData =
+        (ResultSetMetaData)
+            Proxy.newProxyInstance(
+                Fixtures.class.getClassLoader(),
+                new Class<?>[] {ResultSetMetaData.class},
+                (proxy, method, args) ->
+                    switch (method.getName()) {
+                      case "getColumnCount" -> fixture.columnNames().size();
+                      case "getColumnName", "getColumnLabel" ->
+                          fixture.columnNames().get((int) args[0] - 1);
+                      default -> throw new UnsupportedOperationException(method.getName());
+                    });
+    // like the Postgres driver, look up columns by name with a map, first match winning
+    Map<String, Integer> indexByName = new HashMap<>();
+    for (int i = fixture.columnNames().size(); i >= 1; i--) {
+      indexByName.put(fixture.columnNames().get(i - 1), i);
+    }
+    int[] row = {-1};
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            Fixtures.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) ->
+                switch (method.getName()) {
+                  case "next" -> ++row[0] < fixture.rows().size();
+                  case "getRow" -> row[0] + 1;
+                  case "getMetaData" -> metaData;
+                  case "getObject" -> fixture.rows().get(row[0])[columnIndex(args[0], indexByName)];
+                  case "getString" -> {
+                    Object value = fixture.rows().get(row[0])[columnIndex(args[0], indexByName)];
+                    yield value == null ? null : value.toString();
+                  }
+                  case "close" -> null;
+                  case "hashCode" -> System.identityHashCode(proxy);
+                  case "equals" -> proxy == args[0];
+                  default -> throw new UnsupportedOperationException(method.getName());
+                });
+  }
+
+  // 0-based position of a column given by 1-based index or by name
+  private static int columnIndex(Object column, Map<String, Integer> indexByName) {
+    return column instanceof String name ? indexByName.get(name) - 1 : (int) column - 1;
+  }
+
+  /**
+   * PFB entity records: id, name, an object holding the entity's attributes, including nested
+   * records, enums, arrays and maps, and a relations array.
+   */
+  public static List<GenericRecord> nestedPfbRecords(int count) {
+    Schema qc =
+        SchemaBuilder.record("qc")
+            .fields()
+            .requiredBoolean("passed")
+            .requiredDouble("contamination")
+            .name("flags")
+            .type()
+            .array()
+            .items()
+            .stringType()
+            .noDefault()
+            .endRecord();
+    Schema assay = SchemaBuilder.enumeration("assay").symbols("WGS", "WES", "RNA_SEQ");
+    Schema timestamp = LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG));
+    Schema object =
+        SchemaBuilder.record("sample")
+            .fields()
+            .requiredString("submitter_id")
+            .requiredInt("read_length")
+            .requiredLong("read_count")
+            .requiredDouble("mean_coverage")
+            .name("collected_at")
+            .type(timestamp)
+            .noDefault()
+            .name("assay")
+            .type(assay)
+            .noDefault()
+            .name("lanes")
+            .type()
+            .array()
+            .items()
+            .intType()
+            .noDefault()
+            .name("qc")
+            .type(qc)
+            .noDefault()
+            .name("annotations")
+            .type()
+            .map()
+            .values()
+            .stringType()
+            .noDefault()
+            .optionalString("notes")
+            .endRecord();
+    Schema relation =
+        SchemaBuilder.record("relation")
+            .fields()
+            .requiredString("dst_id")
+            .requiredString("dst_name")
+            .endRecord();
+    Schema entity =
+        SchemaBuilder.record("entity")
+            .fields()
+            .requiredString("id")
+            .requiredString("name")
+            .name("object")
+            .type(object)
+            .noDefault()
+            .name("relations")
+            .type()
+            .array()
+            .items(relation)
+            .noDefault()
+            .endRecord();
+
+    Random random = new Random(SEED);
+    List<GenericRecord> records = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      GenericData.Record qcRecord = new GenericData.Record(qc);
+      qcRecord.put("passed", random.nextBoolean());
+      qcRecord.put("contamination", random.nextDouble());
+      qcRecord.put("flags", List.of(new Utf8("low_depth"), new Utf8("lane_" + random.nextInt(8))));
+
+      GenericData.Record objectRecord = new GenericData.Record(object);
+      objectRecord.put("submitter_id", new Utf8("SUB-" + random.nextInt(100_000)));
+      objectRecord.put("read_length", 100 + random.nextInt(200));
+      objectRecord.put("read_count", random.nextLong() & Long.MAX_VALUE);
+      objectRecord.put("mean_coverage", random.nextDouble() * 60);
+      objectRecord.put("collected_at", 1_600_000_000_000L + random.nextInt(1_000_000_000));
+      objectRecord.put(
+          "assay", new GenericData.EnumSymbol(assay, assay.getEnumSymbols().get(i % 3)));
+      objectRecord.put("lanes", List.of(random.nextInt(8), random.nextInt(8)));
+      objectRecord.put("qc", qcRecord);
+      objectRecord.put(
+          "annotations",
+          Map.of(new Utf8("center"), new Utf8("broad"), new Utf8("batch"), new Utf8("b" + i)));
+      objectRecord.put("notes", random.nextBoolean() ? new Utf8("resequenced") : null);
+
+      GenericData.Record relationRecord = new GenericData.Record(relation);
+      relationRecord.put("dst_id", new Utf8("participant_" + random.nextInt(10_000)));
+      relationRecord.put("dst_name", new Utf8(RELATED_TYPE.getName()));
+
+      GenericData.Record entityRecord = new GenericData.Record(entity);
+      entityRecord.put("id", new Utf8("sample_" + i));
+      entityRecord.put("name", new Utf8(RECORD_TYPE.getName()));
+      entityRecord.put("object", objectRecord);
+      entityRecord.put("relations", List.of(relationRecord));
+      records.add(entityRecord);
+    }
+    return records;
+  }
+
+  /**
+   * Rows of a many-column Parquet file as parquet-avro reads them: every column nullable, strings
+   * as Utf8, dates and timestamps as logical types over int and long.
+   */
+  public static List<GenericRecord> manyColumnParquetRecords(int count, int columns) {
+    Schema date = LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
+    Schema timestamp = LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+    SchemaBuilder.FieldAssembler<Schema> fields =
+        SchemaBuilder.record("snapshot_table").fields().requiredString(PRIMARY_KEY);
+    for (int column = 0; column < columns; column++) {
+      Schema type =
+          switch (column % 7) {
+            case 0 -> Schema.create(Schema.Type.STRING);
+            case 1 -> Schema.create(Schema.Type.LONG);
+            case 2 -> Schema.create(Schema.Type.DOUBLE);
+            case 3 -> Schema.create(Schema.Type.BOOLEAN);
+            case 4 -> date;
+            case 5 -> timestamp;
+            default -> Schema.createArray(Schema.create(Schema.Type.STRING));
+          };
+      fields =
+          fields
+              .name(columnName(column))
+              .type(Schema.createUnion(Schema.create(Schema.Type.NULL), type))
+              .withDefault(null);
+    }
+    Schema schema = fields.endRecord();
+
+    Random random = new Random(SEED);
+    List<GenericRecord> records = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      GenericData.Record record = new GenericData.Record(schema);
+      record.put(PRIMARY_KEY, new Utf8("sample_" + i));
+      for (int column = 0; column < columns; column++) {
+        // roughly one in ten cells is null, as in real snapshots
+        if (random.nextInt(10) == 0) {
+          continue;
+        }
+        Object value =
+            switch (column % 7) {
+              case 0 -> new Utf8("value " + random.nextInt(1_000_000));
+              case 1 -> random.nextLong() % 1_000_000_000L;
+              case 2 -> random.nextDouble() * 1000;
+              case 3 -> random.nextBoolean();
+              case 4 -> (int) date(random).toEpochDay();
+              case 5 -> 1_600_000_000_000_000L + random.nextInt(1_000_000_000);
+              default -> List.of(new Utf8("a" + random.nextInt(10)), new Utf8("b"));
+            };
+        record.put(columnName(column), value);
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static LocalDate date(Random random) {
+    return LocalDate.of(2000, 1, 1).plusDays(random.nextInt(9000));
+  }
+
+  private static LocalDateTime dateTime(Random random) {
+    return LocalDateTime.of(2020, 1, 1, 0, 0).plusSeconds(random.nextInt(100_000_000));
+  }
+
+  private static String relation(Random random) {
+    return RelationUtils.createRelationString(
+        RELATED_TYPE, "participant_%05d".formatted(random.nextInt(10_000)));
+  }
+}
@@ -0,0 +1,6 @@
+@NonNullApi
+@NonNullFields
+package org.databiosphere.workspacedataservice.benchmark;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -0,0 +1,74 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.service.DataTypeInferer;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordColumn;
+import org.databiosphere.workspacedataservice.tsv.TsvDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Converting records uploaded as a wide TSV into JDBC arguments for a batch insert; one operation
+ * is one record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RecordDaoBenchmark {
+
+  @Param({"20", "200"})
+  int columns;
+
+  private RecordDao recordDao;
+  private List<Record> records;
+  private List<RecordColumn> insertColumns;
+  private int next;
+
+  @SuppressWarnings("DataFlowIssue") // the conversions under test don't touch the database
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new JsonConfig().objectMapper();
+    DataTypeInferer inferer = new DataTypeInferer(objectMapper);
+    recordDao = new RecordDao(null, null, inferer, objectMapper, null, null);
+    records =
+        Fixtures.wideTsvRecords(new TsvDeserializer(inferer, objectMapper), 1000, columns);
+    insertColumns = new ArrayList<>();
+    insertColumns.add(new RecordColumn(Fixtures.PRIMARY_KEY, DataTypeMapping.STRING));
+    Fixtures.wideSchema(columns)
+        .forEach((name, dataType) -> insertColumns.add(new RecordColumn(name, dataType)));
+  }
+
+  @Benchmark
+  public Object[] getInsertArgs() {
+    Record record = records.get(next);
+    next = (next + 1) % records.size();
+    return recordDao.getInsertArgs(record, insertColumns, Fixtures.PRIMARY_KEY);
+  }
+
+  @Benchmark
+  public void getValueForSql(Blackhole blackhole) {
+    Record record = records.get(next);
+    next = (next + 1) % records.size();
+    // skip the primary key, which getInsertArgs doesn't convert
+    for (int i = 1; i < insertColumns.size(); i++) {
+      RecordColumn column = insertColumns.get(i);
+      blackhole.consume(
+          recordDao.getValueForSql(
+              record.getAttributeValue(column.colName()), column.typeMapping()));
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures.ResultSetFixture;
+import org.databiosphere.workspacedataservice.service.DataTypeInferer;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.databiosphere.workspacedataservice.service.RelationUtils;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.Relation;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.databiosphere.workspacedataservice.shared.model.attributes.JsonAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.Nullable;
+
+/**
+ * Mapping the rows of a "select *" from a wide record type to Records. Results are per row.
+ *
+ * <p>{@link #perRowMetadataScan} keeps the mapping algorithm RecordRowMapper used before it built
+ * a column plan once per query, as a baseline for {@link #recordRowMapper}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RecordRowMapperBenchmark {
+
+  private static final int ROWS = 500;
+
+  @Param({"20", "200", "400"})
+  int columns;
+
+  private RecordDao recordDao;
+  private ObjectMapper objectMapper;
+  private ResultSetFixture fixture;
+  private RecordTypeMetadata metadata;
+  private Map<String, RecordType> relationColumns;
+  private final UUID collectionId = UUID.randomUUID();
+
+  @SuppressWarnings("DataFlowIssue") // the mapper under test doesn't touch the database
+  @Setup
+  public void setUp() {
+    objectMapper = new JsonConfig().objectMapper();
+    recordDao =
+        new RecordDao(null, null, new DataTypeInferer(objectMapper), objectMapper, null, null);
+    fixture = Fixtures.wideResultSet(ROWS, columns);
+
+    Map<String, DataTypeMapping> schema = new HashMap<>();
+    List<Relation> relations = new ArrayList<>();
+    relationColumns = new HashMap<>();
+    schema.put(Fixtures.PRIMARY_KEY, DataTypeMapping.STRING);
+    Fixtures.wideSchema(columns)
+        .forEach(
+            (name, dataType) -> {
+              schema.put(name, dataType);
+              if (dataType == DataTypeMapping.RELATION) {
+                relations.add(new Relation(name, Fixtures.RELATED_TYPE));
+                relationColumns.put(name, Fixtures.RELATED_TYPE);
+              }
+            });
+    metadata = new RecordTypeMetadata(Fixtures.PRIMARY_KEY, schema, relations, List.of());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void recordRowMapper(Blackhole blackhole) throws SQLException {
+    // a new mapper per query, as RecordDao creates them
+    RowMapper<Record> mapper =
+        recordDao.recordRowMapper(Fixtures.RECORD_TYPE, collectionId, metadata);
+    ResultSet rs = Fixtures.resultSet(fixture);
+    for (int rowNum = 0; rs.next(); rowNum++) {
+      blackhole.consume(mapper.mapRow(rs, rowNum));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void perRowMetadataScan(Blackhole blackhole) throws Exception {
+    ResultSet rs = Fixtures.resultSet(fixture);
+    while (rs.next()) {
+      blackhole.consume(mapRowWithMetadataScan(rs));
+    }
+  }
+
+  private Record mapRowWithMetadataScan(ResultSet rs) throws Exception {
+    ResultSetMetaData metaData = rs.getMetaData();
+    int primaryKeyColumnIndex = -1;
+    for (int columnIndex = 1; columnIndex <= metaData.getColumnCount(); columnIndex++) {
+      if (metaData.getColumnName(columnIndex).equals(Fixtures.PRIMARY_KEY)) {
+        primaryKeyColumnIndex = columnIndex;
+        break;
+      }
+    }
+    RecordAttributes attributes = RecordAttributes.empty(Fixtures.PRIMARY_KEY);
+    for (int columnIndex = 1; columnIndex <= metaData.getColumnCount(); columnIndex++) {
+      String columnName = metaData.getColumnName(columnIndex);
+      if (columnName.equals(Fixtures.PRIMARY_KEY)) {
+        attributes.putAttribute(columnName, rs.getString(columnIndex));
+        continue;
+      }
+      if (!relationColumns.isEmpty()
+          && relationColumns.containsKey(columnName)
+          && rs.getString(columnName) != null) {
+        attributes.putAttribute(
+            columnName,
+            RelationUtils.createRelationString(
+                relationColumns.get(columnName), rs.getString(columnIndex)));
+      } else {
+        attributes.putAttribute(
+            columnName,
+            toAttributeValue(rs.getObject(columnIndex), metadata.schema().get(columnName)));
+      }
+    }
+    return new Record(rs.getString(primaryKeyColumnIndex), Fixtures.RECORD_TYPE, attributes);
+  }
+
+  @Nullable
+  private Object toAttributeValue(@Nullable Object object, DataTypeMapping typeMapping)
+      throws Exception {
+    if (object == null) {
+      return null;
+    }
+    if (object instanceof java.sql.Date date && typeMapping == DataTypeMapping.DATE) {
+      return date.toLocalDate();
+    }
+    if (object instanceof java.sql.Timestamp ts && typeMapping == DataTypeMapping.DATE_TIME) {
+      return ts.toLocalDateTime();
+    }
+    if (typeMapping == DataTypeMapping.JSON) {
+      return new JsonAttribute(objectMapper.readTree(object.toString()));
+    }
+    return object;
+  }
+}
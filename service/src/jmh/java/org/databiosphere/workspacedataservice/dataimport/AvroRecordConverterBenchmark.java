@@ -0,0 +1,129 @@
+package org.databiosphere.workspacedataservice.dataimport;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.dataimport.pfb.PfbRecordConverter;
+import org.databiosphere.workspacedataservice.dataimport.tdr.ParquetRecordConverter;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.databiosphere.workspacedataservice.service.model.TdrManifestImportTable;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Converting Avro values, as read from PFB and Parquet files, to attribute values. One operation
+ * is one PFB entity or one Parquet row.
+ *
+ * <p>{@link #perFieldPfbBaseAttributes} and {@link #perFieldParquetBaseAttributes} keep the
+ * algorithm AvroRecordConverter used before it compiled a plan per schema, walking the schema and
+ * converting each value from its field, as a baseline for the whole-record benchmarks. They share
+ * today's conversion of nested records and maps, so understate the difference for PFB entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AvroRecordConverterBenchmark {
+
+  @Param({"50", "250"})
+  int parquetColumns;
+
+  private AvroRecordConverter converter;
+  private ParquetRecordConverter parquetConverter;
+  private List<GenericRecord> pfbRecords;
+  private List<GenericRecord> parquetRecords;
+  private int nextPfb;
+  private int nextParquet;
+
+  @Setup
+  public void setUp() {
+    converter = new PfbRecordConverter(new JsonConfig().objectMapper());
+    parquetConverter =
+        new ParquetRecordConverter(
+            new TdrManifestImportTable(
+                Fixtures.RECORD_TYPE, Fixtures.PRIMARY_KEY, List.of(), List.of()),
+            new JsonConfig().objectMapper());
+    pfbRecords = Fixtures.nestedPfbRecords(1000);
+    parquetRecords = Fixtures.manyColumnParquetRecords(1000, parquetColumns);
+  }
+
+  /** Each attribute of a nested PFB entity, including records, enums, arrays and maps. */
+  @Benchmark
+  public void convertAttributeTypePfb(Blackhole blackhole) {
+    GenericRecord object = (GenericRecord) nextPfb().get("object");
+    convertFields(object, blackhole);
+  }
+
+  /** Each column of a many-column Parquet row. */
+  @Benchmark
+  public void convertAttributeTypeParquet(Blackhole blackhole) {
+    convertFields(nextParquet(), blackhole);
+  }
+
+  /** A whole PFB entity, as the base-attributes pass of a PFB import converts it. */
+  @Benchmark
+  public Record convertPfbBaseAttributes() {
+    return converter.convert(nextPfb(), ImportMode.BASE_ATTRIBUTES);
+  }
+
+  /** A whole many-column Parquet row, as the base-attributes pass of a TDR import converts it. */
+  @Benchmark
+  public Record convertParquetBaseAttributes() {
+    return parquetConverter.convert(nextParquet(), ImportMode.BASE_ATTRIBUTES);
+  }
+
+  /** As {@link #convertPfbBaseAttributes}, converting each value from its field. */
+  @Benchmark
+  public RecordAttributes perFieldPfbBaseAttributes() {
+    return convertPerField((GenericRecord) nextPfb().get("object"));
+  }
+
+  /** As {@link #convertParquetBaseAttributes}, converting each value from its field. */
+  @Benchmark
+  public RecordAttributes perFieldParquetBaseAttributes() {
+    return convertPerField(nextParquet());
+  }
+
+  private RecordAttributes convertPerField(GenericRecord record) {
+    RecordAttributes attributes = RecordAttributes.empty();
+    for (Schema.Field field : record.getSchema().getFields()) {
+      Object value = record.get(field.name());
+      attributes.putAttribute(
+          field.name(),
+          value == null
+              ? null
+              : converter.convertAttributeType(
+                  converter.destructureElementList(value, field), field));
+    }
+    return attributes;
+  }
+
+  private void convertFields(GenericRecord record, Blackhole blackhole) {
+    for (Schema.Field field : record.getSchema().getFields()) {
+      blackhole.consume(converter.convertAttributeType(record.get(field.pos()), field));
+    }
+  }
+
+  private GenericRecord nextPfb() {
+    GenericRecord record = pfbRecords.get(nextPfb);
+    nextPfb = (nextPfb + 1) % pfbRecords.size();
+    return record;
+  }
+
+  private GenericRecord nextParquet() {
+    GenericRecord record = parquetRecords.get(nextParquet);
+    nextParquet = (nextParquet + 1) % parquetRecords.size();
+    return record;
+  }
+}
@@ -0,0 +1,102 @@
+package org.databiosphere.workspacedataservice.dataimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.LocalOutputFile;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.dataimport.tdr.ParquetRowGroups;
+import org.databiosphere.workspacedataservice.recordsource.ParquetRecordSource;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
+import org.databiosphere.workspacedataservice.recordsource.RowGroupParquetRecordSource;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.databiosphere.workspacedataservice.service.model.TdrManifestImportTable;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reading and converting a whole many-column Parquet file, as a TDR import does, on one thread
+ * and by row group on several. One operation is the whole file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ParquetDecodeBenchmark {
+
+  private static final int ROWS = 20_000;
+  private static final int COLUMNS = 50;
+  private static final int BATCH_SIZE = 5000;
+
+  /** 1 is the single-threaded {@link ParquetRecordSource}. */
+  @Param({"1", "2", "4"})
+  int threads;
+
+  private final ObjectMapper objectMapper = new JsonConfig().objectMapper();
+  private final TdrManifestImportTable table =
+      new TdrManifestImportTable(Fixtures.RECORD_TYPE, Fixtures.PRIMARY_KEY, List.of(), List.of());
+  private Path file;
+  private InputFile inputFile;
+  private ExecutorService workers;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = Files.createTempFile("parquet-decode-benchmark", ".parquet");
+    Files.delete(file);
+    List<GenericRecord> records = Fixtures.manyColumnParquetRecords(ROWS, COLUMNS);
+    // several row groups, as in a large snapshot export
+    try (ParquetWriter<GenericRecord> writer =
+        AvroParquetWriter.<GenericRecord>builder(new LocalOutputFile(file))
+            .withSchema(records.get(0).getSchema())
+            .withRowGroupSize(1024L * 1024L)
+            .build()) {
+      for (GenericRecord rec : records) {
+        writer.write(rec);
+      }
+    }
+    inputFile = new LocalInputFile(file);
+    workers = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    workers.shutdownNow();
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public void decodeFile(Blackhole blackhole) throws IOException {
+    ParquetRowGroups rowGroups = ParquetRowGroups.open(inputFile, null);
+    try (RecordSource source =
+        threads == 1
+            ? new ParquetRecordSource(
+                rowGroups.reader(), ImportMode.BASE_ATTRIBUTES, table, objectMapper)
+            : new RowGroupParquetRecordSource(
+                rowGroups, ImportMode.BASE_ATTRIBUTES, table, objectMapper, workers, threads)) {
+      List<Record> batch;
+      do {
+        batch = source.readRecords(BATCH_SIZE).records();
+        blackhole.consume(batch);
+      } while (!batch.isEmpty());
+    }
+  }
+}
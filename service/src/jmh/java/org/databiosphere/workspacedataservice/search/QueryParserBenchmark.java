@@ -0,0 +1,45 @@
+package org.databiosphere.workspacedataservice.search;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Parsing a search filter query against the schema of a wide record type. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class QueryParserBenchmark {
+
+  // columns in the fixture schema are attribute_000, attribute_001, ..., cycling through
+  // Fixtures.ColumnKind; these query a text, number, boolean, date and array-of-string column
+  @Param({
+    "attribute_000:sequencing",
+    "attribute_001:42",
+    "attribute_003:true",
+    "attribute_004:1979-06-25",
+    "attribute_010:lane_3"
+  })
+  String query;
+
+  private QueryParser queryParser;
+
+  @Setup
+  public void setUp() {
+    Map<String, DataTypeMapping> schema = Fixtures.wideSchema(200);
+    queryParser = new QueryParser(schema);
+  }
+
+  @Benchmark
+  public WhereClausePart parse() {
+    return queryParser.parse(query);
+  }
+}
@@ -0,0 +1,48 @@
+package org.databiosphere.workspacedataservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.tsv.TsvDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Inferring the schema of a batch of records uploaded as a wide TSV. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DataTypeInfererBenchmark {
+
+  @Param({"20", "200"})
+  int columns;
+
+  // records per batch; see twds.write.batch.size
+  @Param({"500"})
+  int batchSize;
+
+  private DataTypeInferer inferer;
+  private List<Record> batch;
+
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new JsonConfig().objectMapper();
+    inferer = new DataTypeInferer(objectMapper);
+    batch =
+        Fixtures.wideTsvRecords(new TsvDeserializer(inferer, objectMapper), batchSize, columns);
+  }
+
+  @Benchmark
+  public Map<String, DataTypeMapping> inferTypes() {
+    return inferer.inferTypes(batch);
+  }
+}
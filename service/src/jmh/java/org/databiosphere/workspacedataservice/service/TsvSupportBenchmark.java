@@ -0,0 +1,59 @@
+package org.databiosphere.workspacedataservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Writing a wide record type as a TSV download; one operation writes every record. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TsvSupportBenchmark {
+
+  @Param({"20", "200"})
+  int columns;
+
+  @Param({"1000"})
+  int rows;
+
+  private TsvSupport tsvSupport;
+  private List<Record> records;
+  private Map<String, DataTypeMapping> schema;
+  private List<String> headers;
+
+  @Setup
+  public void setUp() {
+    tsvSupport = new TsvSupport(new JsonConfig().objectMapper());
+    records = Fixtures.wideStoredRecords(rows, columns);
+    schema = Fixtures.wideSchema(columns);
+    schema.put(Fixtures.PRIMARY_KEY, DataTypeMapping.STRING);
+    // primary key first, as RecordOrchestratorService orders them
+    headers = new ArrayList<>();
+    headers.add(Fixtures.PRIMARY_KEY);
+    records.get(0).attributeSet().stream()
+        .map(Map.Entry::getKey)
+        .filter(name -> !name.equals(Fixtures.PRIMARY_KEY))
+        .forEach(headers::add);
+  }
+
+  @Benchmark
+  public void writeTsvToStream() throws IOException {
+    // writeTsvToStream removes the primary key from the headers it's given
+    tsvSupport.writeTsvToStream(
+        records.stream(), schema, OutputStream.nullOutputStream(), new ArrayList<>(headers));
+  }
+}
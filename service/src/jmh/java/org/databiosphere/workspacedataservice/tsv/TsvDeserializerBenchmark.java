@@ -0,0 +1,47 @@
+package org.databiosphere.workspacedataservice.tsv;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.databiosphere.workspacedataservice.benchmark.Fixtures;
+import org.databiosphere.workspacedataservice.service.DataTypeInferer;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Converting the cells of a wide TSV to attribute values; one operation is one row. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TsvDeserializerBenchmark {
+
+  @Param({"20", "200"})
+  int columns;
+
+  private TsvDeserializer deserializer;
+  private List<String[]> rows;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new JsonConfig().objectMapper();
+    deserializer = new TsvDeserializer(new DataTypeInferer(objectMapper), objectMapper);
+    rows = Fixtures.wideTsvRows(1000, columns);
+  }
+
+  @Benchmark
+  public void cellToAttribute(Blackhole blackhole) {
+    String[] row = rows.get(next);
+    next = (next + 1) % rows.size();
+    for (String cell : row) {
+      blackhole.consume(deserializer.cellToAttribute(cell));
+    }
+  }
+}
@@ -4,6 +4,7 @@ import static java.util.Arrays.stream;
 import static java.util.Collections.emptySet;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -12,6 +13,9 @@ import org.springframework.lang.Nullable;
 
 /** Properties that dictate how data import processes should behave. */
 public class DataImportProperties {
+  public static final Duration DEFAULT_DOWNLOAD_CONNECT_TIMEOUT = Duration.ofSeconds(30);
+  public static final Duration DEFAULT_DOWNLOAD_READ_TIMEOUT = Duration.ofMinutes(5);
+
   private String rawlsBucketName;
   private boolean succeedOnCompletion;
   private boolean enableTdrPermissionSync = false;
@@ -23,6 +27,13 @@ public class DataImportProperties {
   private List<ImportSourceConfig> sources;
   private boolean shouldAddImportMetadata = false;
   private boolean connectivityCheckEnabled = false;
+  private boolean bulkLoadEnabled = false;
+  private boolean deferTypeWideningEnabled = false;
+  private int parquetDecodeThreads = 1;
+  private int pfbDecodeThreads = 1;
+  @Nullable private String tempDir;
+  private Duration downloadConnectTimeout = DEFAULT_DOWNLOAD_CONNECT_TIMEOUT;
+  private Duration downloadReadTimeout = DEFAULT_DOWNLOAD_READ_TIMEOUT;
 
   /** Where to write Rawls JSON files after import. */
   @Nullable
@@ -129,6 +140,103 @@ public class DataImportProperties {
     this.connectivityCheckEnabled = connectivityCheckEnabled;
   }
 
+  /**
+   * Should WDS record sinks write upserts via Postgres' COPY protocol instead of batched inserts?
+   *
+   * @see org.databiosphere.workspacedataservice.recordsink.WdsRecordSink
+   */
+  public boolean isBulkLoadEnabled() {
+    return bulkLoadEnabled;
+  }
+
+  public void setBulkLoadEnabled(boolean bulkLoadEnabled) {
+    this.bulkLoadEnabled = bulkLoadEnabled;
+  }
+
+  /**
+   * Should WDS record sinks defer widening a column's type, when a later batch of a write needs it,
+   * until the write finishes? Widening rewrites the table, so deferring it rewrites the table once
+   * per write, rather than once per batch that widens a column.
+   *
+   * @see org.databiosphere.workspacedataservice.service.model.StagedColumn
+   */
+  public boolean isDeferTypeWideningEnabled() {
+    return deferTypeWideningEnabled;
+  }
+
+  public void setDeferTypeWideningEnabled(boolean deferTypeWideningEnabled) {
+    this.deferTypeWideningEnabled = deferTypeWideningEnabled;
+  }
+
+  /**
+   * How many threads decode TDR parquet files by row group, shared by all imports in this process;
+   * each file also decodes up to this many row groups ahead. At 1, each file is read and converted
+   * on the thread importing it.
+   *
+   * @see org.databiosphere.workspacedataservice.recordsource.RowGroupParquetRecordSource
+   */
+  public int getParquetDecodeThreads() {
+    return parquetDecodeThreads;
+  }
+
+  public void setParquetDecodeThreads(int parquetDecodeThreads) {
+    this.parquetDecodeThreads = parquetDecodeThreads;
+  }
+
+  /**
+   * How many threads, shared by all imports, decode PFBs, a split of a PFB's Avro blocks per
+   * thread; also how many splits each import decodes at once. At 1, the PFB is read and converted
+   * on the thread importing it.
+   *
+   * @see org.databiosphere.workspacedataservice.recordsource.BlockParallelPfbRecordSource
+   */
+  public int getPfbDecodeThreads() {
+    return pfbDecodeThreads;
+  }
+
+  public void setPfbDecodeThreads(int pfbDecodeThreads) {
+    this.pfbDecodeThreads = pfbDecodeThreads;
+  }
+
+  /**
+   * Directory for the temporary files an import writes, such as a downloaded PFB and its spilled
+   * relations. When unset, imports use the JVM's default temp directory.
+   *
+   * @see org.databiosphere.workspacedataservice.dataimport.pfb.PfbQuartzJob
+   */
+  @Nullable
+  public String getTempDir() {
+    return tempDir;
+  }
+
+  public void setTempDir(String tempDir) {
+    this.tempDir = tempDir;
+  }
+
+  /**
+   * How long to wait to connect to the server of a file being imported, such as a PFB or a TDR
+   * manifest's data file.
+   */
+  public Duration getDownloadConnectTimeout() {
+    return downloadConnectTimeout;
+  }
+
+  public void setDownloadConnectTimeout(Duration downloadConnectTimeout) {
+    this.downloadConnectTimeout = downloadConnectTimeout;
+  }
+
+  /**
+   * How long to wait for more of a file being imported before giving up on its download; the
+   * longest a stalled download can hold up an import.
+   */
+  public Duration getDownloadReadTimeout() {
+    return downloadReadTimeout;
+  }
+
+  public void setDownloadReadTimeout(Duration downloadReadTimeout) {
+    this.downloadReadTimeout = downloadReadTimeout;
+  }
+
   /** Dictates the sink where BatchWriteService should write records after import. */
   public enum RecordSinkMode {
     WDS("wds"),
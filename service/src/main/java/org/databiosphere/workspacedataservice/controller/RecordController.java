@@ -12,7 +12,9 @@ import org.databiosphere.workspacedataservice.service.model.RecordTypeSchema;
 import org.databiosphere.workspacedataservice.service.model.exception.MissingObjectException;
 import org.databiosphere.workspacedataservice.shared.model.BatchResponse;
 import org.databiosphere.workspacedataservice.shared.model.CollectionId;
+import org.databiosphere.workspacedataservice.shared.model.CountMode;
 import org.databiosphere.workspacedataservice.shared.model.RecordQueryResponse;
+import org.databiosphere.workspacedataservice.shared.model.RecordReference;
 import org.databiosphere.workspacedataservice.shared.model.RecordRequest;
 import org.databiosphere.workspacedataservice.shared.model.RecordResponse;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
@@ -76,6 +78,20 @@ public class RecordController {
     return new ResponseEntity<>(response, HttpStatus.OK);
   }
 
+  @GetMapping("/{instanceId}/records/{version}/{recordType}/{recordId}/referrers")
+  public ResponseEntity<List<RecordReference>> getReferringRecords(
+      @PathVariable("instanceId") UUID instanceId,
+      @PathVariable("version") String version,
+      @PathVariable("recordType") RecordType recordType,
+      @PathVariable("recordId") String recordId,
+      @RequestParam(name = "limit", required = false, defaultValue = "100") int limit) {
+    permissionService.requireReadPermission(CollectionId.of(instanceId));
+    List<RecordReference> response =
+        recordOrchestratorService.getReferringRecords(
+            instanceId, version, recordType, recordId, limit);
+    return new ResponseEntity<>(response, HttpStatus.OK);
+  }
+
   @PostMapping("/{instanceId}/tsv/{version}/{recordType}")
   public ResponseEntity<TsvUploadResponse> tsvUpload(
       @PathVariable("instanceId") UUID instanceId,
@@ -211,19 +227,24 @@ public class RecordController {
   public ResponseEntity<RecordTypeSchema> describeRecordType(
       @PathVariable("instanceId") UUID instanceId,
       @PathVariable("v") String version,
-      @PathVariable("type") RecordType recordType) {
+      @PathVariable("type") RecordType recordType,
+      @RequestParam(name = "count", required = false, defaultValue = "EXACT")
+          CountMode countMode) {
     permissionService.requireReadPermission(CollectionId.of(instanceId));
     RecordTypeSchema result =
-        recordOrchestratorService.describeRecordType(instanceId, version, recordType);
+        recordOrchestratorService.describeRecordType(instanceId, version, recordType, countMode);
     return new ResponseEntity<>(result, HttpStatus.OK);
   }
 
   @GetMapping("/{instanceId}/types/{v}")
   public ResponseEntity<List<RecordTypeSchema>> describeAllRecordTypes(
-      @PathVariable("instanceId") UUID instanceId, @PathVariable("v") String version) {
+      @PathVariable("instanceId") UUID instanceId,
+      @PathVariable("v") String version,
+      @RequestParam(name = "count", required = false, defaultValue = "EXACT")
+          CountMode countMode) {
     permissionService.requireReadPermission(CollectionId.of(instanceId));
     List<RecordTypeSchema> result =
-        recordOrchestratorService.describeAllRecordTypes(instanceId, version);
+        recordOrchestratorService.describeAllRecordTypes(instanceId, version, countMode);
     return new ResponseEntity<>(result, HttpStatus.OK);
   }
 
@@ -0,0 +1,105 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.StringJoiner;
+import org.springframework.lang.Nullable;
+
+/**
+ * Encodes values, as produced by {@link RecordDao}'s conversion of attribute values for SQL, into
+ * fields of Postgres' COPY text format. See https://www.postgresql.org/docs/current/sql-copy.html.
+ *
+ * <p>Values are rendered the same way Postgres would render them after an assignment cast, so a
+ * value written via COPY into a column of a wider type (e.g. a boolean into a text column) ends up
+ * identical to a value written by a parameterized insert.
+ */
+final class CopyTextEncoder {
+
+  static final String NULL = "\\N";
+  static final char DELIMITER = '\t';
+  static final char ROW_TERMINATOR = '\n';
+
+  // Postgres' own text output for timestamps: a space, not "T", between date and time
+  private static final DateTimeFormatter TIMESTAMP =
+      new DateTimeFormatterBuilder()
+          .append(DateTimeFormatter.ISO_LOCAL_DATE)
+          .appendLiteral(' ')
+          .append(DateTimeFormatter.ISO_LOCAL_TIME)
+          .toFormatter();
+
+  private CopyTextEncoder() {}
+
+  /** Encode a full row, including its terminating newline. */
+  static String encodeRow(Object[] values) {
+    StringBuilder row = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        row.append(DELIMITER);
+      }
+      row.append(encodeField(values[i]));
+    }
+    return row.append(ROW_TERMINATOR).toString();
+  }
+
+  /** Encode a single field, escaping it as necessary. */
+  static String encodeField(@Nullable Object value) {
+    if (value == null) {
+      return NULL;
+    }
+    String text = value instanceof Object[] array ? toArrayLiteral(array) : toText(value);
+    return escape(text);
+  }
+
+  private static String toText(Object value) {
+    if (value instanceof BigDecimal decimal) {
+      return decimal.toPlainString();
+    }
+    if (value instanceof LocalDateTime dateTime) {
+      return dateTime.format(TIMESTAMP);
+    }
+    if (value instanceof LocalDate date) {
+      return date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+    // Strings, Booleans and other Numbers all render as Postgres expects
+    return value.toString();
+  }
+
+  // array literal, e.g. {"a","b",NULL}; every non-null element is quoted
+  private static String toArrayLiteral(Object[] array) {
+    StringJoiner literal = new StringJoiner(",", "{", "}");
+    for (Object element : array) {
+      if (element == null) {
+        literal.add("NULL");
+      } else {
+        String text = toText(element).replace("\\", "\\\\").replace("\"", "\\\"");
+        literal.add("\"" + text + "\"");
+      }
+    }
+    return literal.toString();
+  }
+
+  private static String escape(String text) {
+    // fast path: the vast majority of values need no escaping
+    if (text.indexOf('\\') < 0
+        && text.indexOf('\t') < 0
+        && text.indexOf('\n') < 0
+        && text.indexOf('\r') < 0) {
+      return text;
+    }
+    StringBuilder escaped = new StringBuilder(text.length() + 8);
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '\\' -> escaped.append("\\\\");
+        case '\t' -> escaped.append("\\t");
+        case '\n' -> escaped.append("\\n");
+        case '\r' -> escaped.append("\\r");
+        default -> escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+}
@@ -0,0 +1,163 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Read/write the auth tokens of queued and running jobs via the sys_wds.job_token Postgres table.
+ *
+ * <p>Quartz persists job data in its own tables, where anyone with database access could read it,
+ * so tokens are kept out of job data. Instead, they are stored here encrypted with AES-GCM, under
+ * the key in twds.jobs.token-key. Every replica must share that key to run jobs created by others,
+ * so the key is required when Quartz's job store is clustered.
+ *
+ * <p>A single replica without a configured key generates one on first start and keeps it in the
+ * sys_wds.job_token_key table, so jobs it queued can still run after a restart. That key keeps
+ * tokens out of Quartz's tables, but anyone who can read both tables can read the tokens; set
+ * twds.jobs.token-key, from a secret, where that matters.
+ */
+@Repository
+public class JobTokenDao {
+  private static final Logger logger = LoggerFactory.getLogger(JobTokenDao.class);
+
+  private static final String CIPHER = "AES/GCM/NoPadding";
+  private static final int IV_BYTES = 12;
+  private static final int TAG_BITS = 128;
+  // the only row of sys_wds.job_token_key
+  private static final int STORED_KEY_ID = 1;
+
+  private final NamedParameterJdbcTemplate namedTemplate;
+  private final SecretKey key;
+  private final SecureRandom random = new SecureRandom();
+
+  public JobTokenDao(
+      NamedParameterJdbcTemplate namedTemplate,
+      @Value("${twds.jobs.token-key:}") String tokenKey,
+      @Value("${spring.quartz.properties.org.quartz.jobStore.isClustered:false}")
+          boolean clustered) {
+    if (tokenKey.isBlank() && clustered) {
+      throw new IllegalStateException(
+          "twds.jobs.token-key must be set when the Quartz job store is clustered, so that every "
+              + "replica can read the auth tokens of jobs created by the others");
+    }
+    this.namedTemplate = namedTemplate;
+    this.key = tokenKey.isBlank() ? storedKey() : decodeKey(tokenKey);
+  }
+
+  /** Save the auth token to use when running the given job. */
+  public void save(UUID jobId, String token) {
+    namedTemplate.update(
+        "insert into sys_wds.job_token(job_id, sealed_token) values (:jobId, :sealedToken) "
+            + "on conflict (job_id) do update set sealed_token = excluded.sealed_token",
+        new MapSqlParameterSource("jobId", jobId.toString()).addValue("sealedToken", seal(token)));
+  }
+
+  /**
+   * @return the auth token to use when running the given job, if one was saved and this replica
+   *     can decrypt it
+   */
+  public Optional<String> get(UUID jobId) {
+    List<byte[]> sealedTokens =
+        namedTemplate.queryForList(
+            "select sealed_token from sys_wds.job_token where job_id = :jobId",
+            new MapSqlParameterSource("jobId", jobId.toString()),
+            byte[].class);
+    if (sealedTokens.isEmpty()) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(unseal(sealedTokens.get(0)));
+    } catch (GeneralSecurityException e) {
+      logger.error(
+          "Could not decrypt the auth token for job {}; is twds.jobs.token-key the same on every "
+              + "replica?",
+          jobId);
+      return Optional.empty();
+    }
+  }
+
+  /** Delete the auth token for the given job, once it is no longer needed. */
+  public void delete(UUID jobId) {
+    namedTemplate.update(
+        "delete from sys_wds.job_token where job_id = :jobId",
+        new MapSqlParameterSource("jobId", jobId.toString()));
+  }
+
+  // iv || ciphertext-and-tag
+  @VisibleForTesting
+  byte[] seal(String token) {
+    byte[] iv = new byte[IV_BYTES];
+    random.nextBytes(iv);
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+      byte[] ciphertext = cipher.doFinal(token.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.allocate(iv.length + ciphertext.length).put(iv).put(ciphertext).array();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Could not encrypt auth token: " + e.getMessage(), e);
+    }
+  }
+
+  @VisibleForTesting
+  String unseal(byte[] sealedToken) throws GeneralSecurityException {
+    Cipher cipher = Cipher.getInstance(CIPHER);
+    cipher.init(
+        Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealedToken, 0, IV_BYTES));
+    byte[] token = cipher.doFinal(sealedToken, IV_BYTES, sealedToken.length - IV_BYTES);
+    return new String(token, StandardCharsets.UTF_8);
+  }
+
+  private static SecretKey decodeKey(String tokenKey) {
+    byte[] bytes = Base64.getDecoder().decode(tokenKey.trim());
+    if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+      throw new IllegalArgumentException(
+          "twds.jobs.token-key must be a base64-encoded 128, 192 or 256-bit AES key");
+    }
+    return new SecretKeySpec(bytes, "AES");
+  }
+
+  // the key generated on this database's first start, creating it if this is the first
+  private SecretKey storedKey() {
+    logger.info("twds.jobs.token-key is not set; using the key stored in sys_wds.job_token_key.");
+    MapSqlParameterSource params =
+        new MapSqlParameterSource("id", STORED_KEY_ID)
+            .addValue("tokenKey", generateKey().getEncoded());
+    // if a key is already stored, keep it; tokens saved before a restart were sealed with it
+    namedTemplate.update(
+        "insert into sys_wds.job_token_key(id, token_key) values (:id, :tokenKey) "
+            + "on conflict (id) do nothing",
+        params);
+    byte[] stored =
+        namedTemplate.queryForObject(
+            "select token_key from sys_wds.job_token_key where id = :id", params, byte[].class);
+    return new SecretKeySpec(stored, "AES");
+  }
+
+  private static SecretKey generateKey() {
+    try {
+      KeyGenerator generator = KeyGenerator.getInstance("AES");
+      generator.init(256);
+      return generator.generateKey();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Could not generate a token key: " + e.getMessage(), e);
+    }
+  }
+}
@@ -2,6 +2,8 @@ package org.databiosphere.workspacedataservice.dao;
 
 import static org.quartz.TriggerBuilder.newTrigger;
 
+import java.util.Optional;
+import java.util.UUID;
 import org.databiosphere.workspacedataservice.shared.model.Schedulable;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
@@ -16,20 +18,28 @@ import org.springframework.stereotype.Repository;
 public class QuartzSchedulerDao implements SchedulerDao {
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
   private final Scheduler scheduler; // the quartz scheduler
+  private final JobTokenDao jobTokenDao;
 
-  public QuartzSchedulerDao(Scheduler scheduler) {
+  public QuartzSchedulerDao(Scheduler scheduler, JobTokenDao jobTokenDao) {
     this.scheduler = scheduler;
+    this.jobTokenDao = jobTokenDao;
   }
 
   public void schedule(Schedulable schedulable) {
     JobDetail jobDetail = schedulable.getJobDetail();
     JobKey jobKey = jobDetail.getKey();
+    // the job's auth token is saved apart from its job data; JobTokenListener restores it
+    Optional<String> token = schedulable.getToken();
+    token.ifPresent(t -> jobTokenDao.save(UUID.fromString(jobKey.getName()), t));
     // tell Quartz to run the job: run only once, start immediately
     Trigger trigger = newTrigger().forJob(jobKey).startNow().build();
     try {
       scheduler.scheduleJob(jobDetail, trigger);
     } catch (SchedulerException e) {
       logger.error("Failed to schedule import job {}: {}", jobKey, e.getMessage());
+      if (token.isPresent()) {
+        jobTokenDao.delete(UUID.fromString(jobKey.getName()));
+      }
       throw new RuntimeException(e);
     }
   }
@@ -9,18 +9,27 @@ import static org.databiosphere.workspacedataservice.service.model.exception.Inv
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -30,15 +39,18 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringSubstitutor;
+import org.databiosphere.workspacedataservice.dao.RecordTypeMetadataDao.CollectionCatalog;
 import org.databiosphere.workspacedataservice.search.QueryParser;
 import org.databiosphere.workspacedataservice.search.WhereClause;
 import org.databiosphere.workspacedataservice.search.WhereClausePart;
@@ -48,6 +60,10 @@ import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
 import org.databiosphere.workspacedataservice.service.model.Relation;
 import org.databiosphere.workspacedataservice.service.model.RelationCollection;
 import org.databiosphere.workspacedataservice.service.model.RelationValue;
+import org.databiosphere.workspacedataservice.service.model.SchemaChangePlan;
+import org.databiosphere.workspacedataservice.service.model.SearchPageToken;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.BatchDeleteException;
 import org.databiosphere.workspacedataservice.service.model.exception.ConflictException;
 import org.databiosphere.workspacedataservice.service.model.exception.InvalidRelationException;
@@ -58,10 +74,13 @@ import org.databiosphere.workspacedataservice.shared.model.CollectionId;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
 import org.databiosphere.workspacedataservice.shared.model.RecordColumn;
+import org.databiosphere.workspacedataservice.shared.model.RecordReference;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
 import org.databiosphere.workspacedataservice.shared.model.SearchFilter;
 import org.databiosphere.workspacedataservice.shared.model.attributes.JsonAttribute;
 import org.jetbrains.annotations.NotNull;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 import org.postgresql.jdbc.PgArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,6 +93,8 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -87,6 +108,13 @@ public class RecordDao {
   private static final String COLLECTION_ID = "collectionId";
   private static final String RECORD_ID_PARAM = "recordId";
   private static final String RECORD_IDS_PARAM = "recordIds";
+  // how upserts refer to the existing record, when comparing it to the incoming one
+  private static final String UPSERT_TARGET_ALIAS = "existing";
+  // text of the sort attribute, selected alongside a page of search results; see RecordPage
+  private static final String PAGE_SORT_VALUE_COLUMN = "sys_page_sort_value";
+  // temp tables that copyUpsert streams batches into; see stagingTableName
+  private static final String STAGING_TABLE_PREFIX = RESERVED_NAME_PREFIX + "copy_staging_";
+  private static final int STAGING_HASH_CHARS = 16;
   private final NamedParameterJdbcTemplate namedTemplate;
 
   private final DataSource mainDb;
@@ -97,6 +125,13 @@ public class RecordDao {
 
   private final ObjectMapper objectMapper;
   private final PrimaryKeyDao primaryKeyDao;
+  private final RecordTypeMetadataDao recordTypeMetadataDao;
+
+  // staging table prefixes of record tables whose bulk writes have ended; each connection drops
+  // their staging tables the next time it runs a COPY. Kept for longer than a pooled connection
+  // lives, so that every connection that may hold one has had the chance.
+  private final Cache<String, Boolean> finishedStagingTables =
+      CacheBuilder.newBuilder().expireAfterWrite(Duration.ofHours(1)).build();
 
   @Value("${twds.streaming.fetch.size:5000}")
   int fetchSize;
@@ -138,12 +173,14 @@ public class RecordDao {
       NamedParameterJdbcTemplate namedTemplate,
       DataTypeInferer inf,
       ObjectMapper objectMapper,
-      PrimaryKeyDao primaryKeyDao) {
+      PrimaryKeyDao primaryKeyDao,
+      RecordTypeMetadataDao recordTypeMetadataDao) {
     this.mainDb = mainDb;
     this.namedTemplate = namedTemplate;
     this.inferer = inf;
     this.objectMapper = objectMapper;
     this.primaryKeyDao = primaryKeyDao;
+    this.recordTypeMetadataDao = recordTypeMetadataDao;
   }
 
   public boolean recordTypeExists(UUID collectionId, RecordType recordType) {
@@ -178,6 +215,7 @@ public class RecordDao {
                       ? ", " + getFkSql(relations.relations(), collectionId)
                       : "")
                   + ")");
+      recordTypeMetadataDao.schemaChanged(collectionId, recordType);
       for (Relation relationArray : relations.relationArrays()) {
         createRelationJoinTable(
             collectionId,
@@ -229,20 +267,30 @@ public class RecordDao {
     String fromCol = getFromColumnName(referringRecordType);
     String toCol = getToColumnName(referencedRecordType);
     String columnDefs = quote(fromCol) + " text, " + quote(toCol) + " text";
+    String joinTable = getQualifiedJoinTableName(collectionId, tableName, referringRecordType);
     try {
-      namedTemplate
-          .getJdbcTemplate()
-          .update(
-              "create table "
-                  + getQualifiedJoinTableName(collectionId, tableName, referringRecordType)
-                  + "( "
-                  + columnDefs
-                  + ", "
-                  + getFkSqlForJoin(
-                      new Relation(fromCol, referringRecordType),
-                      new Relation(toCol, referencedRecordType),
-                      collectionId)
-                  + ")");
+      JdbcTemplate jdbcTemplate = namedTemplate.getJdbcTemplate();
+      jdbcTemplate.update(
+          "create table "
+              + joinTable
+              + "( "
+              + columnDefs
+              + ", "
+              + getFkSqlForJoin(
+                  new Relation(fromCol, referringRecordType),
+                  new Relation(toCol, referencedRecordType),
+                  collectionId)
+              + ")");
+      // index both directions: (from, to) serves removeFromJoin and joins from the referring
+      // record; (to, from) serves getReferringRecords and the foreign key checks made when a
+      // referenced record is deleted. Arrays may repeat a relation, so neither can be unique.
+      // Postgres generates the index names, since a join table's name may already be near the
+      // identifier length limit.
+      jdbcTemplate.update(
+          "create index on " + joinTable + " (" + quote(fromCol) + ", " + quote(toCol) + ")");
+      jdbcTemplate.update(
+          "create index on " + joinTable + " (" + quote(toCol) + ", " + quote(fromCol) + ")");
+      recordTypeMetadataDao.schemaChanged(collectionId, referringRecordType);
     } catch (DataAccessException e) {
       if (e.getRootCause() instanceof SQLException sqlEx) {
         checkForMissingTable(sqlEx);
@@ -255,7 +303,6 @@ public class RecordDao {
     }
   }
 
-  @SuppressWarnings("squid:S2077")
   public List<Record> queryForRecords(
       RecordType recordType,
       int pageSize,
@@ -264,6 +311,46 @@ public class RecordDao {
       @Nullable String sortAttribute, // this comes from SearchRequest, which might not be provided
       Optional<SearchFilter> searchFilter,
       UUID collectionId) {
+    return queryForRecordPage(
+            recordType,
+            pageSize,
+            offset,
+            sortDirection,
+            sortAttribute,
+            searchFilter,
+            Optional.empty(),
+            collectionId)
+        .records();
+  }
+
+  /**
+   * A page of records from {@link #queryForRecordPage}.
+   *
+   * @param records the records
+   * @param lastSortValue the last record's value of the sort attribute, in Postgres' text
+   *     representation, for continuing the search after it. Null when sorting by primary key, or
+   *     when the last record has no value for the sort attribute.
+   */
+  public record RecordPage(List<Record> records, @Nullable String lastSortValue) {}
+
+  /**
+   * Query for a page of records. Records are ordered by the sort attribute, then by primary key, so
+   * that pages are stable even when many records share a value for the sort attribute.
+   *
+   * @param offset number of records to skip; ignored when pageAfter is present
+   * @param pageAfter if present, return the records that sort after this position (keyset
+   *     pagination). Its sort attribute and direction must match this query's.
+   */
+  @SuppressWarnings("squid:S2077")
+  public RecordPage queryForRecordPage(
+      RecordType recordType,
+      int pageSize,
+      int offset,
+      String sortDirection,
+      @Nullable String sortAttribute, // this comes from SearchRequest, which might not be provided
+      Optional<SearchFilter> searchFilter,
+      Optional<SearchPageToken> pageAfter,
+      UUID collectionId) {
     LOGGER.info("queryForRecords: {}", recordType.getName());
 
     // extract potential record ids from the `filter` param
@@ -273,32 +360,121 @@ public class RecordDao {
     // Return an empty list of Records.
     // Should this be a Bad Request instead?
     if (filterIds.isPresent() && filterIds.get().isEmpty()) {
-      return List.of();
+      return new RecordPage(List.of(), null);
     }
 
-    // find primary key column name
-    String pkColumn = primaryKeyDao.getPrimaryKeyColumn(recordType, collectionId);
-    // and the whole schema
-    Map<String, DataTypeMapping> schema = getExistingTableSchema(collectionId, recordType);
+    // find primary key column name and the whole schema
+    RecordTypeMetadata metadata = recordTypeMetadataDao.getMetadata(collectionId, recordType);
+    String pkColumn = primaryKeyOf(metadata, recordType, collectionId);
+    Map<String, DataTypeMapping> schema = metadata.schema();
 
     WhereClause where = generateQueryWhereClause(pkColumn, schema, searchFilter);
+    boolean ascending = "asc".equalsIgnoreCase(sortDirection);
+    if (pageAfter.isPresent()) {
+      where =
+          appendSeekPredicate(
+              where, pkColumn, schema, sortAttribute, ascending, pageAfter.get());
+    }
 
-    return namedTemplate.query(
-        "select * from "
-            + getQualifiedTableName(recordType, collectionId)
-            + where.sql()
-            + " order by "
-            + (sortAttribute == null
-                ? quote(primaryKeyDao.getPrimaryKeyColumn(recordType, collectionId))
-                : quote(sortAttribute))
-            + " "
-            + sortDirection
-            + " limit "
-            + pageSize
-            + " offset "
-            + offset,
-        where.params(),
-        new RecordRowMapper(recordType, objectMapper, collectionId));
+    // when sorting by an attribute, also select its text representation, so the next page can
+    // continue from the last record's value without looking that record up again
+    boolean bySortAttribute = sortAttribute != null && !sortAttribute.equals(pkColumn);
+    List<Record> records =
+        namedTemplate.query(
+            "select *"
+                + (bySortAttribute
+                    ? ", " + quote(sortAttribute) + "::text as " + PAGE_SORT_VALUE_COLUMN
+                    : "")
+                + " from "
+                + getQualifiedTableName(recordType, collectionId)
+                + where.sql()
+                + " order by "
+                + genOrderBy(pkColumn, sortAttribute, ascending)
+                + " limit "
+                + pageSize
+                + (pageAfter.isPresent() ? "" : " offset " + offset),
+            where.params(),
+            bySortAttribute
+                ? new RecordRowMapper(
+                    recordType,
+                    objectMapper,
+                    collectionId,
+                    Map.of(PAGE_SORT_VALUE_COLUMN, DataTypeMapping.STRING))
+                : new RecordRowMapper(recordType, objectMapper, collectionId, metadata));
+    String lastSortValue = null;
+    if (bySortAttribute) {
+      for (Record record : records) {
+        lastSortValue = (String) record.getAttributeValue(PAGE_SORT_VALUE_COLUMN);
+        record.getAttributes().removeAttribute(PAGE_SORT_VALUE_COLUMN);
+      }
+    }
+    return new RecordPage(records, lastSortValue);
+  }
+
+  // Postgres' default null ordering, made explicit because the seek predicate depends on it:
+  // nulls sort last when ascending and first when descending. The primary key breaks ties.
+  private static String genOrderBy(
+      String pkColumn, @Nullable String sortAttribute, boolean ascending) {
+    String direction = ascending ? " asc" : " desc";
+    if (sortAttribute == null || sortAttribute.equals(pkColumn)) {
+      return quote(pkColumn) + direction;
+    }
+    return quote(sortAttribute)
+        + direction
+        + (ascending ? " nulls last, " : " nulls first, ")
+        + quote(pkColumn)
+        + direction;
+  }
+
+  /**
+   * Add a predicate selecting only the records which sort after the given position, consistent
+   * with {@link #genOrderBy}. Values in the token are Postgres text representations, so are cast
+   * back to the column types for comparison.
+   */
+  @VisibleForTesting
+  static WhereClause appendSeekPredicate(
+      WhereClause where,
+      String pkColumn,
+      Map<String, DataTypeMapping> schema,
+      @Nullable String sortAttribute,
+      boolean ascending,
+      SearchPageToken pageAfter) {
+    MapSqlParameterSource params = where.params();
+    params.addValue("pageRecordId", pageAfter.lastRecordId());
+    String op = ascending ? " > " : " < ";
+    String pk = quote(pkColumn);
+    String pkValue = "cast(:pageRecordId as " + postgresTypeOf(schema, pkColumn) + ")";
+
+    String seek;
+    if (sortAttribute == null || sortAttribute.equals(pkColumn)) {
+      seek = pk + op + pkValue;
+    } else {
+      String col = quote(sortAttribute);
+      if (pageAfter.sortValue() == null) {
+        // the previous page ended within the nulls
+        seek =
+            ascending
+                ? col + " is null and " + pk + op + pkValue
+                : "(" + col + " is null and " + pk + op + pkValue + ") or " + col + " is not null";
+      } else {
+        params.addValue("pageSortValue", pageAfter.sortValue());
+        String sortValue = "cast(:pageSortValue as " + postgresTypeOf(schema, sortAttribute) + ")";
+        String rowComparison =
+            "(" + col + ", " + pk + ")" + op + "(" + sortValue + ", " + pkValue + ")";
+        seek = ascending ? rowComparison + " or " + col + " is null" : rowComparison;
+      }
+    }
+
+    String sql = where.sql().isEmpty() ? " where " + seek : where.sql() + " and (" + seek + ")";
+    return new WhereClause(sql, params);
+  }
+
+  private static String postgresTypeOf(Map<String, DataTypeMapping> schema, String column) {
+    DataTypeMapping dataType = schema.get(column);
+    if (dataType == null) {
+      throw new MissingObjectException("Requested sort attribute");
+    }
+    return dataType.getPostgresType();
   }
 
   /**
@@ -569,42 +745,33 @@ public class RecordDao {
     return attributeNames;
   }
 
+  // returns a mutable copy of the (possibly cached) schema
   public Map<String, DataTypeMapping> getExistingTableSchema(
       UUID collectionId, RecordType recordType) {
-    MapSqlParameterSource params =
-        new MapSqlParameterSource(COLLECTION_ID, collectionId.toString());
-    params.addValue("tableName", recordType.getName());
-    String sql =
-        "select column_name,coalesce(domain_name, udt_name::regtype::varchar) as data_type from INFORMATION_SCHEMA.COLUMNS "
-            + "where table_schema = :collectionId and table_name = :tableName";
-    return getTableSchema(sql, params);
-  }
-
-  private Map<String, DataTypeMapping> getTableSchema(String sql, MapSqlParameterSource params) {
-    return namedTemplate.query(
-        sql,
-        params,
-        rs -> {
-          Map<String, DataTypeMapping> result = new HashMap<>();
-          while (rs.next()) {
-            result.put(
-                rs.getString("column_name"),
-                DataTypeMapping.fromPostgresType(rs.getString("data_type")));
-          }
-          return result;
-        });
+    return new HashMap<>(recordTypeMetadataDao.getMetadata(collectionId, recordType).schema());
   }
 
   public Map<String, DataTypeMapping> getExistingTableSchemaLessPrimaryKey(
       UUID collectionId, RecordType recordType) {
-    MapSqlParameterSource params =
-        new MapSqlParameterSource(COLLECTION_ID, collectionId.toString());
-    params.addValue("tableName", recordType.getName());
-    params.addValue("primaryKey", primaryKeyDao.getPrimaryKeyColumn(recordType, collectionId));
-    String sql =
-        "select column_name, coalesce(domain_name, udt_name::regtype::varchar) as data_type from INFORMATION_SCHEMA.COLUMNS where table_schema = :collectionId "
-            + "and table_name = :tableName and column_name != :primaryKey";
-    return getTableSchema(sql, params);
+    return getSchemaLessPrimaryKey(
+        recordTypeMetadataDao.getMetadata(collectionId, recordType), recordType, collectionId);
+  }
+
+  private Map<String, DataTypeMapping> getSchemaLessPrimaryKey(
+      RecordTypeMetadata metadata, RecordType recordType, UUID collectionId) {
+    Map<String, DataTypeMapping> schema = new HashMap<>(metadata.schema());
+    schema.remove(primaryKeyOf(metadata, recordType, collectionId));
+    return schema;
+  }
+
+  // the primary key from metadata, falling back to PrimaryKeyDao's error handling if the record
+  // type does not exist
+  private String primaryKeyOf(
+      RecordTypeMetadata metadata, RecordType recordType, UUID collectionId) {
+    String primaryKey = metadata.primaryKey();
+    return primaryKey != null
+        ? primaryKey
+        : primaryKeyDao.getPrimaryKeyColumn(recordType, collectionId);
   }
 
   public void addColumn(
@@ -632,6 +799,7 @@ public class RecordDao {
                   + (referencedType != null
                       ? " references " + getQualifiedTableName(referencedType, collectionId)
                       : ""));
+      recordTypeMetadataDao.schemaChanged(collectionId, recordType);
     } catch (DataAccessException e) {
       if (e.getRootCause() instanceof SQLException sqlEx) {
         checkForMissingTable(sqlEx);
@@ -640,6 +808,41 @@ public class RecordDao {
     }
   }
 
+  /**
+   * Add a staging column for a column whose widening is deferred; see {@link StagedColumn}. Unlike
+   * {@link #addColumn}, this accepts only staging column names, which are reserved names.
+   */
+  @SuppressWarnings("squid:S2077")
+  public void addStagingColumn(
+      UUID collectionId, RecordType recordType, String stagingColumn, DataTypeMapping stagingType) {
+    try {
+      namedTemplate
+          .getJdbcTemplate()
+          .update(
+              "alter table "
+                  + getQualifiedTableName(recordType, collectionId)
+                  + " add column "
+                  + quoteStagingColumn(stagingColumn)
+                  + " "
+                  + stagingType.getPostgresType());
+      recordTypeMetadataDao.schemaChanged(collectionId, recordType);
+    } catch (DataAccessException e) {
+      if (e.getRootCause() instanceof SQLException sqlEx) {
+        checkForMissingTable(sqlEx);
+      }
+      throw e;
+    }
+  }
+
+  // staging columns are named by WDS rather than users, with reserved names that user columns
+  // are not allowed
+  private static String quoteStagingColumn(String stagingColumn) {
+    if (!StagedColumn.isStagingColumnName(stagingColumn)) {
+      throw new IllegalArgumentException("Not a staging column: " + stagingColumn);
+    }
+    return quote(stagingColumn);
+  }
+
   @SuppressWarnings("squid:S2077")
   public void changeColumn(
       UUID collectionId, RecordType recordType, String columnName, DataTypeMapping newColType) {
@@ -652,6 +855,123 @@ public class RecordDao {
                 + quote(SqlUtils.validateSqlString(columnName, ATTRIBUTE))
                 + " TYPE "
                 + newColType.getPostgresType());
+    recordTypeMetadataDao.schemaChanged(collectionId, recordType);
+  }
+
+  /**
+   * Apply all the column changes planned for a record type: additions and type changes in a single
+   * ALTER TABLE statement, so that Postgres rewrites the table at most once, then any join tables
+   * for new relation-array columns.
+   */
+  @SuppressWarnings("squid:S2077")
+  public void applySchemaChanges(UUID collectionId, RecordType recordType, SchemaChangePlan plan) {
+    if (plan.isEmpty()) {
+      return;
+    }
+    List<String> clauses = new ArrayList<>();
+    plan.additions()
+        .forEach(
+            (column, addition) ->
+                clauses.add(
+                    "add column "
+                        + quote(SqlUtils.validateSqlString(column, ATTRIBUTE))
+                        + " "
+                        + addition.dataType().getPostgresType()
+                        + (addition.referencedRecordType() != null
+                            ? " references "
+                                + getQualifiedTableName(
+                                    addition.referencedRecordType(), collectionId)
+                            : "")));
+    plan.typeChanges()
+        .forEach(
+            (column, change) ->
+                clauses.add(
+                    "alter column "
+                        + quote(SqlUtils.validateSqlString(column, ATTRIBUTE))
+                        + " TYPE "
+                        + change.newDataType().getPostgresType()));
+    if (!clauses.isEmpty()) {
+      try {
+        namedTemplate
+            .getJdbcTemplate()
+            .update(
+                "alter table "
+                    + getQualifiedTableName(recordType, collectionId)
+                    + " "
+                    + String.join(", ", clauses));
+        recordTypeMetadataDao.schemaChanged(collectionId, recordType);
+      } catch (DataAccessException e) {
+        if (e.getRootCause() instanceof SQLException sqlEx) {
+          checkForMissingTable(sqlEx);
+        }
+        throw e;
+      }
+    }
+    plan.joinTables()
+        .forEach(
+            (column, referencedType) ->
+                createRelationJoinTable(collectionId, column, recordType, referencedType));
+  }
+
+  /**
+   * Convert columns whose widening was deferred to their final types, merging in the values written
+   * to their staging columns since, then drop the staging columns. All the columns are converted in
+   * a single ALTER TABLE statement, so that Postgres rewrites the table once.
+   */
+  @SuppressWarnings("squid:S2077")
+  public void applyStagedColumns(
+      UUID collectionId, RecordType recordType, List<StagedColumn> stagedColumns) {
+    if (stagedColumns.isEmpty()) {
+      return;
+    }
+    String tableName = getQualifiedTableName(recordType, collectionId);
+    // a staged value is newer than the column's own value; the column is null wherever one exists
+    String conversions =
+        stagedColumns.stream()
+            .map(
+                staged ->
+                    "alter column "
+                        + quote(SqlUtils.validateSqlString(staged.column(), ATTRIBUTE))
+                        + " type "
+                        + staged.finalType().getPostgresType()
+                        + " using coalesce("
+                        + getTypeConversionExpression(
+                            quoteStagingColumn(staged.stagingColumn()),
+                            staged.stagingType(),
+                            staged.finalType())
+                        + ", "
+                        + getPostgresTypeConversionExpression(
+                            staged.column(), storedAs(staged.columnType()), staged.finalType())
+                        + ")")
+            .collect(Collectors.joining(", "));
+    // dropped separately, since ALTER TABLE drops columns before converting any
+    String drops =
+        stagedColumns.stream()
+            .map(staged -> "drop column " + quoteStagingColumn(staged.stagingColumn()))
+            .collect(Collectors.joining(", "));
+    JdbcTemplate jdbcTemplate = namedTemplate.getJdbcTemplate();
+    jdbcTemplate.update("alter table " + tableName + " " + conversions);
+    jdbcTemplate.update("alter table " + tableName + " " + drops);
+    recordTypeMetadataDao.schemaChanged(collectionId, recordType);
+  }
+
+  /**
+   * Whether {@link #getPostgresTypeConversionExpression} can convert a column of one type to
+   * another without changing whether it holds arrays, which it can't do without changing values.
+   */
+  public boolean canConvertColumn(DataTypeMapping dataType, DataTypeMapping newDataType) {
+    DataTypeMapping stored = storedAs(dataType);
+    return stored.isArrayType() == newDataType.isArrayType()
+        && isDataTypeConversionSupported(stored, newDataType);
+  }
+
+  // columns inferred as all-null or all-empty-array are stored as text, or text arrays
+  private static DataTypeMapping storedAs(DataTypeMapping dataType) {
+    return switch (dataType) {
+      case NULL -> DataTypeMapping.STRING;
+      case EMPTY_ARRAY -> DataTypeMapping.ARRAY_OF_STRING;
+      default -> dataType;
+    };
   }
 
   private String genColumnDefs(Map<String, DataTypeMapping> tableInfo, String primaryKeyCol) {
@@ -699,6 +1019,270 @@ public class RecordDao {
     }
   }
 
+  /**
+   * Upsert a batch of records using Postgres' COPY protocol, for use by bulk imports. The batch is
+   * streamed via COPY into a temporary staging table shaped like the record table, then merged into
+   * the record table with a single insert ... on conflict statement. Compared to {@link
+   * #batchUpsert(UUID, RecordType, List, Map, String)}, this avoids binding every value as a
+   * statement parameter; the temporary table is not WAL-logged.
+   *
+   * <p>The staging table is created once per connection and record table shape, and reused by
+   * later batches on that connection. It is created "on commit delete rows", so it is empty at the
+   * start of every transaction; outside a transaction, each batch runs in a transaction of its own.
+   * Before each batch, the connection drops its staging tables for earlier shapes of the record
+   * table, and for record tables whose writes have ended; see {@link #dropStagingTables}.
+   *
+   * <p>As with batchUpsert, the expectation is that the record type already matches the schema.
+   * If the batch contains the same record id more than once, the last occurrence wins.
+   *
+   * @return how many records were inserted, updated, or left unchanged since they matched the
+   *     existing record exactly
+   */
+  public UpsertCounts copyUpsert(
+      UUID collectionId,
+      RecordType recordType,
+      List<Record> records,
+      Map<String, DataTypeMapping> schema,
+      String primaryKeyColumn) {
+    List<RecordColumn> schemaAsList = getSchemaWithRowId(schema, primaryKeyColumn);
+    String qualifiedTable = getQualifiedTableName(recordType, collectionId);
+    String stagingTable =
+        stagingTableName(
+            qualifiedTable,
+            schemaAsList,
+            recordTypeMetadataDao.getSchemaVersion(collectionId, recordType));
+    // this table is being written again
+    finishedStagingTables.invalidate(stagingTablePrefix(qualifiedTable));
+
+    // a single insert ... on conflict cannot affect the same row twice
+    Map<String, Record> lastById = new LinkedHashMap<>();
+    records.forEach(rec -> lastById.put(rec.getId(), rec));
+
+    try {
+      return namedTemplate
+          .getJdbcTemplate()
+          .execute(
+              (ConnectionCallback<UpsertCounts>)
+                  conn -> {
+                    if (!conn.getAutoCommit()) {
+                      // earlier batches in this transaction may have left rows behind
+                      return copyAndMerge(
+                          conn,
+                          collectionId,
+                          recordType,
+                          stagingTable,
+                          lastById,
+                          schemaAsList,
+                          primaryKeyColumn,
+                          true);
+                    }
+                    // COPY and merge must share a transaction, or "on commit delete rows" would
+                    // empty the staging table between them
+                    conn.setAutoCommit(false);
+                    try {
+                      UpsertCounts counts =
+                          copyAndMerge(
+                              conn,
+                              collectionId,
+                              recordType,
+                              stagingTable,
+                              lastById,
+                              schemaAsList,
+                              primaryKeyColumn,
+                              false);
+                      conn.commit();
+                      return counts;
+                    } catch (SQLException | RuntimeException e) {
+                      conn.rollback();
+                      throw e;
+                    } finally {
+                      conn.setAutoCommit(true);
+                    }
+                  });
+    } catch (DataAccessException e) {
+      if (e.getRootCause() instanceof SQLException sqlEx) {
+        checkForMissingRecord(sqlEx);
+      }
+      throw e;
+    }
+  }
+
+  @SuppressWarnings("squid:S2077")
+  private UpsertCounts copyAndMerge(
+      Connection conn,
+      UUID collectionId,
+      RecordType recordType,
+      String stagingTableName,
+      Map<String, Record> lastById,
+      List<RecordColumn> schemaAsList,
+      String primaryKeyColumn,
+      boolean truncateFirst)
+      throws SQLException {
+    List<String> colNames = schemaAsList.stream().map(RecordColumn::colName).toList();
+    String qualifiedTable = getQualifiedTableName(recordType, collectionId);
+    String stagingTable = quote(stagingTableName);
+    try (Statement stmt = conn.createStatement()) {
+      dropStaleStagingTables(stmt, stagingTableName);
+      stmt.execute(
+          "create temp table if not exists "
+              + stagingTable
+              + " (like "
+              + qualifiedTable
+              + ") on commit delete rows");
+      if (truncateFirst) {
+        stmt.execute("truncate " + stagingTable);
+      }
+      copyIntoStaging(
+          conn,
+          "copy " + stagingTable + " (" + getInsertColList(colNames) + ") from stdin",
+          lastById.values(),
+          schemaAsList,
+          primaryKeyColumn);
+      try (ResultSet merged =
+          stmt.executeQuery(
+              genMergeStatement(
+                  collectionId, recordType, stagingTable, colNames, primaryKeyColumn))) {
+        merged.next();
+        int inserted = merged.getInt("inserted");
+        int updated = merged.getInt("updated");
+        return new UpsertCounts(inserted, updated, lastById.size() - inserted - updated);
+      }
+    }
+  }
+
+  /**
+   * Drop the staging tables of a record table whose bulk write has ended: now from this
+   * connection, and from each other connection before its next COPY.
+   */
+  public void dropStagingTables(UUID collectionId, RecordType recordType) {
+    finishedStagingTables.put(
+        stagingTablePrefix(getQualifiedTableName(recordType, collectionId)), true);
+    namedTemplate
+        .getJdbcTemplate()
+        .execute(
+            (ConnectionCallback<Void>)
+                conn -> {
+                  try (Statement stmt = conn.createStatement()) {
+                    dropStaleStagingTables(stmt, null);
+                  }
+                  return null;
+                });
+  }
+
+  // drop this connection's staging tables for other shapes of the current one's record table, and
+  // for record tables whose writes have ended
+  @SuppressWarnings("squid:S2077")
+  private void dropStaleStagingTables(Statement stmt, @Nullable String currentStagingTable)
+      throws SQLException {
+    List<String> stale = new ArrayList<>();
+    try (ResultSet staging =
+        stmt.executeQuery(
+            "select relname from pg_class where relnamespace = pg_my_temp_schema() "
+                + "and relname like '"
+                + STAGING_TABLE_PREFIX.replace("_", "\\_")
+                + "%'")) {
+      while (staging.next()) {
+        String name = staging.getString(1);
+        if (name.equals(currentStagingTable)) {
+          continue;
+        }
+        String prefix = stagingTablePrefixOf(name);
+        if ((currentStagingTable != null && currentStagingTable.startsWith(prefix))
+            || finishedStagingTables.getIfPresent(prefix) != null) {
+          stale.add(name);
+        }
+      }
+    }
+    for (String name : stale) {
+      stmt.execute("drop table if exists " + quote(name));
+    }
+  }
+
+  /**
+   * Staging tables outlive the batch, so their name reflects the record table, the columns they
+   * were created with, and the record table's schema version; a record type whose columns or
+   * schema change gets a new staging table. The name begins with {@link #stagingTablePrefix}.
+   */
+  @VisibleForTesting
+  static String stagingTableName(
+      String qualifiedTable, List<RecordColumn> cols, long schemaVersion) {
+    Hasher hasher = Hashing.sha256().newHasher().putLong(schemaVersion);
+    cols.forEach(
+        col ->
+            hasher
+                .putString(col.colName(), StandardCharsets.UTF_8)
+                .putString(col.typeMapping().name(), StandardCharsets.UTF_8));
+    return stagingTablePrefix(qualifiedTable)
+        + hasher.hash().toString().substring(0, STAGING_HASH_CHARS);
+  }
+
+  // identifies the record table a staging table is for
+  @VisibleForTesting
+  static String stagingTablePrefix(String qualifiedTable) {
+    String tableHash =
+        Hashing.sha256()
+            .hashString(qualifiedTable, StandardCharsets.UTF_8)
+            .toString()
+            .substring(0, STAGING_HASH_CHARS);
+    return STAGING_TABLE_PREFIX + tableHash + "_";
+  }
+
+  private static String stagingTablePrefixOf(String stagingTableName) {
+    int prefixLength = STAGING_TABLE_PREFIX.length() + STAGING_HASH_CHARS + 1;
+    return stagingTableName.length() < prefixLength
+        ? stagingTableName
+        : stagingTableName.substring(0, prefixLength);
+  }
+
+  private void copyIntoStaging(
+      Connection conn,
+      String copySql,
+      Iterable<Record> records,
+      List<RecordColumn> cols,
+      String primaryKeyColumn)
+      throws SQLException {
+    CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+    try {
+      for (Record rec : records) {
+        Object[] values = getInsertArgs(rec, cols, primaryKeyColumn);
+        byte[] row = CopyTextEncoder.encodeRow(values).getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(row, 0, row.length);
+      }
+      copyIn.endCopy();
+    } finally {
+      if (copyIn.isActive()) {
+        copyIn.cancelCopy();
+      }
+    }
+  }
+
+  private String genMergeStatement(
+      UUID collectionId,
+      RecordType recordType,
+      String stagingTable,
+      List<String> colNames,
+      String recordTypeIdentifier) {
+    String colList = getInsertColList(colNames);
+    // xmax is 0 only for rows this statement inserted, rather than updated
+    return "with merged as (insert into "
+        + getQualifiedTableName(recordType, collectionId)
+        + " as "
+        + UPSERT_TARGET_ALIAS
+        + " ("
+        + colList
+        + ") select "
+        + colList
+        + " from "
+        + stagingTable
+        + " on conflict ("
+        + quote(recordTypeIdentifier)
+        + ") "
+        + genConflictAction(colNames, recordTypeIdentifier)
+        + " returning xmax = 0 as inserted)"
+        + " select count(*) filter (where inserted) as inserted,"
+        + " count(*) filter (where not inserted) as updated from merged";
+  }
+
   public void insertIntoJoin(
       UUID collectionId, Relation column, RecordType recordType, List<RelationValue> relations) {
     try {
@@ -715,6 +1299,37 @@ public class RecordDao {
     }
   }
 
+  /**
+   * The records that the given records refer to in a relation-array column, as recorded in its join
+   * table.
+   *
+   * @return the ids of the referenced records, by the id of the record referring to them; a record
+   *     that refers to nothing is absent
+   */
+  public Map<String, List<String>> getJoinValues(
+      UUID collectionId, Relation column, RecordType fromType, Collection<String> recordIds) {
+    Map<String, List<String>> joinValues = new HashMap<>();
+    if (recordIds.isEmpty()) {
+      return joinValues;
+    }
+    String fromCol = quote(getFromColumnName(fromType));
+    namedTemplate.query(
+        "select "
+            + fromCol
+            + ", "
+            + quote(getToColumnName(column.relationRecordType()))
+            + " from "
+            + getQualifiedJoinTableName(collectionId, column.relationColName(), fromType)
+            + " where "
+            + fromCol
+            + " in (:recordIds)",
+        new MapSqlParameterSource(RECORD_IDS_PARAM, recordIds),
+        rs -> {
+          joinValues.computeIfAbsent(rs.getString(1), id -> new ArrayList<>()).add(rs.getString(2));
+        });
+    return joinValues;
+  }
+
   public void removeFromJoin(
       UUID collectionId, Relation column, RecordType fromType, List<String> recordIds) {
     namedTemplate.update(
@@ -832,6 +1447,7 @@ public class RecordDao {
               + "references "
               + getQualifiedTableName(referencedRecordType, collectionId);
       namedTemplate.getJdbcTemplate().execute(addFk);
+      recordTypeMetadataDao.schemaChanged(collectionId, recordType);
     } catch (DataAccessException e) {
       if (e.getRootCause() instanceof SQLException sqlEx) {
         checkForMissingTable(sqlEx);
@@ -957,56 +1573,13 @@ public class RecordDao {
   }
 
   public List<Relation> getRelationCols(UUID collectionId, RecordType recordType) {
-    return namedTemplate.query(
-        "SELECT kcu.column_name, ccu.table_name FROM information_schema.table_constraints tc JOIN information_schema.key_column_usage kcu "
-            + "ON tc.constraint_name = kcu.constraint_name AND tc.table_schema = kcu.table_schema "
-            + "JOIN information_schema.constraint_column_usage ccu ON ccu.constraint_name = tc.constraint_name AND ccu.table_schema = tc.table_schema "
-            + "WHERE tc.constraint_type = 'FOREIGN KEY' AND tc.table_schema = :workspace AND tc.table_name= :tableName",
-        Map.of("workspace", collectionId.toString(), "tableName", recordType.getName()),
-        (rs, rowNum) ->
-            new Relation(
-                rs.getString("column_name"), RecordType.valueOf(rs.getString("table_name"))));
+    return new ArrayList<>(
+        recordTypeMetadataDao.getMetadata(collectionId, recordType).relationCols());
   }
 
   public List<Relation> getRelationArrayCols(UUID collectionId, RecordType recordType) {
-    return namedTemplate.query(
-        "select kcu1.table_name, kcu1.column_name from information_schema.key_column_usage kcu1 join information_schema.key_column_usage kcu2 "
-            + "on kcu1.table_name = kcu2.table_name where kcu1.constraint_schema = :workspace and kcu2.constraint_name = :from_table_constraint"
-            + " and kcu2.constraint_name != kcu1.constraint_name",
-        Map.of(
-            "workspace",
-            collectionId.toString(),
-            "from_table_constraint",
-            "fk_from_" + recordType.getName() + "_key"),
-        new RelationRowMapper(recordType));
-  }
-
-  private static class RelationRowMapper implements RowMapper<Relation> {
-
-    private final RecordType recordType;
-
-    public RelationRowMapper(RecordType recordType) {
-      this.recordType = recordType;
-    }
-
-    @Override
-    public Relation mapRow(ResultSet rs, int rowNum) throws SQLException {
-      return new Relation(
-          getAttributeFromTableName(rs.getString("table_name")),
-          getRecordTypeFromConstraint(rs.getString("column_name")));
-    }
-
-    private RecordType getRecordTypeFromConstraint(String constraint) {
-      // constraint should be to_tablename_key
-      return RecordType.valueOf(
-          StringUtils.removeEnd(StringUtils.removeStart(constraint, "to_"), "_key"));
-    }
-
-    private String getAttributeFromTableName(String tableName) {
-      // table will be RESERVED_NAME_PREFIX_fromTable_attribute
-      return StringUtils.removeStart(
-          tableName, RESERVED_NAME_PREFIX + this.recordType.getName() + "_");
-    }
+    return new ArrayList<>(
+        recordTypeMetadataDao.getMetadata(collectionId, recordType).relationArrayCols());
   }
 
   @SuppressWarnings("squid:S2077")
@@ -1018,11 +1591,80 @@ public class RecordDao {
             Integer.class);
   }
 
-  private String genColUpsertUpdates(List<String> cols, String recordTypeRowIdentifier) {
-    return cols.stream()
-        .filter(c -> !recordTypeRowIdentifier.equals(c))
-        .map(c -> quote(c) + " = excluded." + quote(c))
-        .collect(Collectors.joining(", "));
+  /** Exact counts for several record types at once, with a single round trip. */
+  @SuppressWarnings("squid:S2077")
+  public Map<RecordType, Integer> countRecords(
+      UUID collectionId, Collection<RecordType> recordTypes) {
+    if (recordTypes.isEmpty()) {
+      return Map.of();
+    }
+    List<RecordType> types = List.copyOf(recordTypes);
+    // select 0 as idx, count(*) from "a" union all select 1, count(*) from "b" ...
+    String sql =
+        IntStream.range(0, types.size())
+            .mapToObj(
+                i ->
+                    "select "
+                        + i
+                        + " as idx, count(*) as cnt from "
+                        + getQualifiedTableName(types.get(i), collectionId))
+            .collect(Collectors.joining(" union all "));
+    Map<RecordType, Integer> counts = new HashMap<>();
+    namedTemplate
+        .getJdbcTemplate()
+        .query(sql, (rs, rowNum) -> Map.entry(types.get(rs.getInt("idx")), rs.getInt("cnt")))
+        .forEach(entry -> counts.put(entry.getKey(), entry.getValue()));
+    return counts;
+  }
+
+  /** Catalog metadata for a record type, from cache if still current. */
+  public RecordTypeMetadata getRecordTypeMetadata(UUID collectionId, RecordType recordType) {
+    return recordTypeMetadataDao.getMetadata(collectionId, recordType);
+  }
+
+  /** Metadata and estimated counts for all record types in a collection. */
+  public CollectionCatalog getCollectionCatalog(UUID collectionId) {
+    return recordTypeMetadataDao.getCollectionCatalog(collectionId);
+  }
+
+  /**
+   * Estimate the number of records in a record type from Postgres' planner statistics, which are
+   * maintained by autovacuum/analyze. Constant cost regardless of table size, but may be stale.
+   *
+   * @return the estimate, or empty if the table has never been analyzed
+   */
+  public Optional<Integer> estimateRecordCount(UUID collectionId, RecordType recordType) {
+    // reltuples is -1 for a table which has never been vacuumed or analyzed
+    Long estimate =
+        namedTemplate.queryForObject(
+            "select reltuples::bigint from pg_class where oid = to_regclass(:tableName)",
+            new MapSqlParameterSource("tableName", getQualifiedTableName(recordType, collectionId)),
+            Long.class);
+    if (estimate == null || estimate < 0) {
+      return Optional.empty();
+    }
+    return Optional.of((int) Math.min(estimate, Integer.MAX_VALUE));
+  }
+
+  /**
+   * The "on conflict" action of an upsert. Existing records are only updated if a value differs, so
+   * re-writing unchanged records creates no new row versions, and so no WAL or dead tuples.
+   */
+  private String genConflictAction(List<String> cols, String recordTypeRowIdentifier) {
+    List<String> updatedCols =
+        cols.stream().filter(c -> !recordTypeRowIdentifier.equals(c)).map(SqlUtils::quote).toList();
+    if (updatedCols.isEmpty()) {
+      return "do nothing";
+    }
+    return "do update set "
+        + updatedCols.stream().map(c -> c + " = excluded." + c).collect(Collectors.joining(", "))
+        + " where ("
+        + updatedCols.stream()
+            .map(c -> UPSERT_TARGET_ALIAS + "." + c)
+            .collect(Collectors.joining(", "))
+        + ") is distinct from ("
+        + updatedCols.stream().map(c -> "excluded." + c).collect(Collectors.joining(", "))
+        + ")";
   }
 
   private List<Object[]> getInsertBatchArgs(
@@ -1030,7 +1672,9 @@ public class RecordDao {
     return records.stream().map(r -> getInsertArgs(r, cols, recordTypeRowIdentifier)).toList();
   }
 
-  private Object getValueForSql(Object attVal, DataTypeMapping typeMapping) {
+  @VisibleForTesting
+  @Nullable
+  Object getValueForSql(@Nullable Object attVal, DataTypeMapping typeMapping) {
     if (Objects.isNull(attVal)) {
       return null;
     }
@@ -1132,7 +1776,8 @@ public class RecordDao {
     return typesMatch && typeCheckPredicate.test(attVal);
   }
 
-  private Object[] getInsertArgs(
+  @VisibleForTesting
+  Object[] getInsertArgs(
       Record toInsert, List<RecordColumn> cols, String recordTypeRowIdentifier) {
     Object[] row = new Object[cols.size()];
     int i = 0;
@@ -1162,7 +1807,9 @@ public class RecordDao {
     List<DataTypeMapping> colTypes = schema.stream().map(RecordColumn::typeMapping).toList();
     return "insert into "
         + getQualifiedTableName(recordType, collectionId)
-        + "("
+        + " as "
+        + UPSERT_TARGET_ALIAS
+        + " ("
         + getInsertColList(colNames)
         + ") values ("
         + getInsertParamList(colTypes)
@@ -1170,9 +1817,7 @@ public class RecordDao {
         + "on conflict ("
         + quote(recordTypeIdenifier)
         + ") "
-        + (schema.size() == 1
-            ? "do nothing"
-            : "do update set " + genColUpsertUpdates(colNames, recordTypeIdenifier));
+        + genConflictAction(colNames, recordTypeIdenifier);
   }
 
   private String genJoinInsertStatement(
@@ -1239,6 +1884,37 @@ public class RecordDao {
     }
   }
 
+  /** A RowMapper for "select *" from the given record type, described by the given metadata. */
+  @VisibleForTesting
+  RowMapper<Record> recordRowMapper(
+      RecordType recordType, UUID collectionId, RecordTypeMetadata metadata) {
+    return new RecordRowMapper(recordType, objectMapper, collectionId, metadata);
+  }
+
+  /** Reads one column of the current row, converting it to an attribute value. */
+  @FunctionalInterface
+  private interface ColumnReader {
+    @Nullable
+    Object read(ResultSet rs, int columnIndex) throws SQLException, JsonProcessingException;
+  }
+
+  /**
+   * How to map each column of a query's results to a record attribute, with columns in attribute
+   * order.
+   *
+   * @param names attribute name for each column
+   * @param columnIndexes 1-based ResultSet index of each column
+   * @param readers reader for each column
+   * @param primaryKeyPosition position of the primary key within these arrays
+   * @param presorted whether names are already in RecordAttributes order
+   */
+  private record ColumnPlan(
+      String[] names,
+      int[] columnIndexes,
+      ColumnReader[] readers,
+      int primaryKeyPosition,
+      boolean presorted) {}
+
   private class RecordRowMapper implements RowMapper<Record> {
 
     private final RecordType recordType;
@@ -1251,14 +1927,28 @@ public class RecordDao {
 
     private final String primaryKeyColumn;
 
+    // built from the first row of each query; see planFor
+    @Nullable private ColumnPlan columnPlan;
+
     public RecordRowMapper(RecordType recordType, ObjectMapper objectMapper, UUID collectionId) {
+      this(
+          recordType,
+          objectMapper,
+          collectionId,
+          recordTypeMetadataDao.getMetadata(collectionId, recordType));
+    }
+
+    public RecordRowMapper(
+        RecordType recordType,
+        ObjectMapper objectMapper,
+        UUID collectionId,
+        RecordTypeMetadata metadata) {
       this.recordType = recordType;
       this.objectMapper = objectMapper;
-      this.schema = RecordDao.this.getExistingTableSchemaLessPrimaryKey(collectionId, recordType);
-      this.primaryKeyColumn = primaryKeyDao.getPrimaryKeyColumn(recordType, collectionId);
+      this.schema = RecordDao.this.getSchemaLessPrimaryKey(metadata, recordType, collectionId);
+      this.primaryKeyColumn = RecordDao.this.primaryKeyOf(metadata, recordType, collectionId);
       this.referenceColToTable =
-          RecordDao.this.getRelationColumnsByName(
-              RecordDao.this.getRelationCols(collectionId, recordType));
+          RecordDao.this.getRelationColumnsByName(metadata.relationCols());
     }
 
     public RecordRowMapper(
@@ -1272,66 +1962,99 @@ public class RecordDao {
 
     @Override
     public Record mapRow(ResultSet rs, int rowNum) throws SQLException {
-      ResultSetMetaData metaData = rs.getMetaData();
+      ColumnPlan plan = planFor(rs, rowNum);
+      Object[] values = new Object[plan.readers().length];
+      try {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = plan.readers()[i].read(rs, plan.columnIndexes()[i]);
+        }
+      } catch (JsonProcessingException e) {
+        throw new RuntimeException(e);
+      }
+      RecordAttributes attributes;
+      if (plan.presorted()) {
+        attributes = RecordAttributes.fromSorted(primaryKeyColumn, plan.names(), values);
+      } else {
+        attributes = RecordAttributes.empty(primaryKeyColumn);
+        for (int i = 0; i < values.length; i++) {
+          attributes.putAttribute(plan.names()[i], values[i]);
+        }
+      }
+      return new Record((String) values[plan.primaryKeyPosition()], recordType, attributes);
+    }
 
+    // the plan depends only on the query's columns, so is built once per query, on its first row
+    // (row 0); a mapper reused for another query starts again at row 0, and so replans
+    private ColumnPlan planFor(ResultSet rs, int rowNum) throws SQLException {
+      if (columnPlan == null || rowNum == 0) {
+        columnPlan = buildPlan(rs.getMetaData());
+      }
+      return columnPlan;
+    }
+
+    private ColumnPlan buildPlan(ResultSetMetaData metaData) throws SQLException {
       // ResultSet's getter methods (getString, etc.) do not respect case of column names.
       // If multiple columns have the same name differing only in case (for example, "attr" vs
-      // "Attr"),
-      // then getter methods will return the value of the first matching column.
+      // "Attr"), then getter methods will return the value of the first matching column.
       // Because of this, we must get values by column index instead of name.
-      int primaryKeyColumnIndex = -1;
-      for (int columnIndex = 1; columnIndex <= metaData.getColumnCount(); columnIndex++) {
-        String columnName = metaData.getColumnName(columnIndex);
-        if (columnName.equals(primaryKeyColumn)) {
-          primaryKeyColumnIndex = columnIndex;
-          break;
+      int columnCount = metaData.getColumnCount();
+      List<String> columnNames = new ArrayList<>(columnCount);
+      for (int columnIndex = 1; columnIndex <= columnCount; columnIndex++) {
+        columnNames.add(metaData.getColumnName(columnIndex));
+      }
+
+      // order columns as RecordAttributes will, so rows can be added without sorting
+      AttributeComparator comparator = new AttributeComparator(primaryKeyColumn);
+      List<Integer> order =
+          IntStream.range(0, columnCount)
+              .boxed()
+              .sorted((a, b) -> comparator.compare(columnNames.get(a), columnNames.get(b)))
+              .toList();
+
+      String[] names = new String[columnCount];
+      int[] columnIndexes = new int[columnCount];
+      ColumnReader[] readers = new ColumnReader[columnCount];
+      int primaryKeyPosition = -1;
+      boolean presorted = true;
+      for (int position = 0; position < columnCount; position++) {
+        int columnIndex = order.get(position) + 1;
+        String columnName = columnNames.get(columnIndex - 1);
+        names[position] = columnName;
+        columnIndexes[position] = columnIndex;
+        if (columnName.equals(primaryKeyColumn) && primaryKeyPosition == -1) {
+          primaryKeyPosition = position;
+          readers[position] = ResultSet::getString;
+        } else {
+          readers[position] = readerFor(columnName);
+        }
+        // names the collator considers equal would collapse into one attribute; don't presort
+        if (position > 0 && comparator.compare(names[position - 1], columnName) == 0) {
+          presorted = false;
         }
       }
-      if (primaryKeyColumnIndex == -1) {
+      if (primaryKeyPosition == -1) {
         throw new RuntimeException(
             "Primary key column \"%s\" not found".formatted(primaryKeyColumn));
       }
-
-      try {
-        return new Record(rs.getString(primaryKeyColumnIndex), recordType, getAttributes(rs));
-      } catch (JsonProcessingException e) {
-        throw new RuntimeException(e);
-      }
+      return new ColumnPlan(names, columnIndexes, readers, primaryKeyPosition, presorted);
     }
 
-    private RecordAttributes getAttributes(ResultSet rs) throws JsonProcessingException {
-      try {
-        ResultSetMetaData metaData = rs.getMetaData();
-        RecordAttributes attributes = RecordAttributes.empty(primaryKeyColumn);
-
-        // ResultSet's getter methods (getString, etc.) do not respect case of column names.
-        // If multiple columns have the same name differing only in case (for example, "attr" vs
-        // "Attr"),
-        // then getter methods will return the value of the first matching column.
-        // Because of this, we must get values by column index instead of name.
-        for (int columnIndex = 1; columnIndex <= metaData.getColumnCount(); columnIndex++) {
-          String columnName = metaData.getColumnName(columnIndex);
-          if (columnName.equals(primaryKeyColumn)) {
-            attributes.putAttribute(primaryKeyColumn, rs.getString(columnIndex));
-            continue;
-          }
-          if (!referenceColToTable.isEmpty()
-              && referenceColToTable.containsKey(columnName)
-              && rs.getString(columnName) != null) {
-            attributes.putAttribute(
-                columnName,
-                RelationUtils.createRelationString(
-                    referenceColToTable.get(columnName), rs.getString(columnIndex)));
-          } else {
-            attributes.putAttribute(
-                columnName,
-                getAttributeValueForType(rs.getObject(columnIndex), schema.get(columnName)));
-          }
-        }
-        return attributes;
-      } catch (SQLException e) {
-        throw new RuntimeException(e);
+    private ColumnReader readerFor(String columnName) {
+      RecordType relationTarget = referenceColToTable.get(columnName);
+      if (relationTarget != null) {
+        return (rs, columnIndex) -> {
+          String relatedId = rs.getString(columnIndex);
+          return relatedId == null
+              ? null
+              : RelationUtils.createRelationString(relationTarget, relatedId);
+        };
       }
+      DataTypeMapping typeMapping = schema.get(columnName);
+      if (typeMapping == null) {
+        return ResultSet::getObject;
+      }
+      return (rs, columnIndex) ->
+          getAttributeValueForType(rs.getObject(columnIndex), typeMapping);
     }
 
     private Object getAttributeValueForType(Object object, DataTypeMapping typeMapping)
@@ -1428,6 +2151,88 @@ public class RecordDao {
             Boolean.class));
   }
 
+  /**
+   * Find the records which reference the given record, via either a relation or a relation-array
+   * attribute, in a single query. Relation arrays are looked up with the (to, from) index on their
+   * join tables.
+   *
+   * <p>Results are ordered by referring record type, then attribute, then referring record id. Each
+   * branch of the query is limited too, so that it can stop reading as soon as it has enough rows.
+   *
+   * @param collectionId the collection
+   * @param recordType type of the referenced record
+   * @param recordId id of the referenced record
+   * @param limit maximum number of references to return
+   * @return references to the record, up to limit
+   */
+  public List<RecordReference> getReferringRecords(
+      UUID collectionId, RecordType recordType, String recordId, int limit) {
+    MapSqlParameterSource params =
+        new MapSqlParameterSource(RECORD_ID_PARAM, recordId).addValue("limit", limit);
+    List<String> branches = new ArrayList<>();
+    recordTypeMetadataDao
+        .getCollectionCatalog(collectionId)
+        .metadata()
+        .forEach(
+            (referringType, metadata) -> {
+              String referringPk = quote(Objects.requireNonNull(metadata.primaryKey()));
+              // relation and relation-array attributes share a namespace, so sort them together
+              Map<String, String> branchesByAttribute = new TreeMap<>();
+              for (Relation relation : metadata.relationCols()) {
+                if (relation.relationRecordType().equals(recordType)) {
+                  branchesByAttribute.put(
+                      relation.relationColName(),
+                      "select %s as referring_id from %s where %s = :recordId order by %s"
+                          .formatted(
+                              referringPk,
+                              getQualifiedTableName(referringType, collectionId),
+                              quote(relation.relationColName()),
+                              referringPk));
+                }
+              }
+              for (Relation relation : metadata.relationArrayCols()) {
+                if (relation.relationRecordType().equals(recordType)) {
+                  String fromCol = quote(getFromColumnName(referringType));
+                  branchesByAttribute.put(
+                      relation.relationColName(),
+                      "select %s as referring_id from %s where %s = :recordId order by %s"
+                          .formatted(
+                              fromCol,
+                              getQualifiedJoinTableName(
+                                  collectionId, relation.relationColName(), referringType),
+                              quote(getToColumnName(recordType)),
+                              fromCol));
+                }
+              }
+              branchesByAttribute.forEach(
+                  (attribute, branch) -> {
+                    int index = branches.size();
+                    params
+                        .addValue("type" + index, referringType.getName())
+                        .addValue("attribute" + index, attribute);
+                    branches.add(
+                        ("(select cast(:type%1$d as text) as referring_type,"
+                                + " cast(:attribute%1$d as text) as attribute, referring_id"
+                                + " from (%2$s limit :limit) branch%1$d)")
+                            .formatted(index, branch));
+                  });
+            });
+    if (branches.isEmpty()) {
+      return List.of();
+    }
+    // union all does not guarantee the order of its results, so order them explicitly
+    return namedTemplate.query(
+        "select referring_type, attribute, referring_id from ("
+            + String.join(" union all ", branches)
+            + ") refs order by referring_type, attribute, referring_id limit :limit",
+        params,
+        (rs, rowNum) ->
+            new RecordReference(
+                RecordType.valueOf(rs.getString("referring_type")),
+                rs.getString("referring_id"),
+                rs.getString("attribute")));
+  }
+
   public List<RecordType> getAllRecordTypes(UUID collectionId) {
     return namedTemplate.queryForList(
         "select tablename from pg_tables WHERE schemaname = :workspaceSchema and tablename not like 'sys_%' order by tablename",
@@ -1439,8 +2244,6 @@ public class RecordDao {
         .collect(Collectors.toMap(Relation::relationColName, Relation::relationRecordType));
   }
 
-  // AJ-1242: if/when we re-enable caching for primary key values, this method should gain a
-  // @CacheEvict annotation
   public void deleteRecordType(UUID collectionId, RecordType recordType) {
     List<Relation> relationArrayCols = getRelationArrayCols(collectionId, recordType);
     for (Relation rel : relationArrayCols) {
@@ -1457,6 +2260,7 @@ public class RecordDao {
       namedTemplate
           .getJdbcTemplate()
           .update("drop table " + getQualifiedTableName(recordType, collectionId));
+      recordTypeMetadataDao.schemaChanged(collectionId, recordType);
     } catch (DataAccessException e) {
       if (e.getRootCause() instanceof SQLException sqlEx) {
         checkForTableRelation(sqlEx);
@@ -1476,6 +2280,7 @@ public class RecordDao {
                 + quote(SqlUtils.validateSqlString(attribute, ATTRIBUTE))
                 + " to "
                 + quote(SqlUtils.validateSqlString(newAttributeName, ATTRIBUTE)));
+    recordTypeMetadataDao.schemaChanged(collectionId, recordType);
   }
 
   public void updateAttributeDataType(
@@ -1495,6 +2300,7 @@ public class RecordDao {
                   + newDataType.getPostgresType()
                   + " using "
                   + getPostgresTypeConversionExpression(attribute, currentDataType, newDataType));
+      recordTypeMetadataDao.schemaChanged(collectionId, recordType);
     } catch (DataIntegrityViolationException e) {
       if (e.getRootCause() instanceof SQLException sqlEx && sqlEx.getSQLState() != null) {
         if (expectedDataTypeConversionErrorCodes.contains(sqlEx.getSQLState())) {
@@ -1522,6 +2328,13 @@ public class RecordDao {
   @VisibleForTesting
   String getPostgresTypeConversionExpression(
       String attribute, DataTypeMapping dataType, DataTypeMapping newDataType) {
+    return getTypeConversionExpression(
+        quote(SqlUtils.validateSqlString(attribute, ATTRIBUTE)), dataType, newDataType);
+  }
+
+  // converts the value of an already-quoted column
+  private String getTypeConversionExpression(
+      String quotedColumn, DataTypeMapping dataType, DataTypeMapping newDataType) {
     // Some data types are not yet supported.
     // Some conversions don't make sense / are invalid.
     if (!isDataTypeConversionSupported(dataType, newDataType)) {
@@ -1535,7 +2348,7 @@ public class RecordDao {
       throw new IllegalArgumentException("Unable to convert array type to scalar type");
     }
 
-    String expression = quote(SqlUtils.validateSqlString(attribute, ATTRIBUTE));
+    String expression = quotedColumn;
 
     // Unable to cast numbers to dates or timestamps.
     // Convert number to timestamp using to_timestamp.
@@ -1597,5 +2410,6 @@ public class RecordDao {
                 + getQualifiedTableName(recordType, collectionId)
                 + " drop column "
                 + quote(SqlUtils.validateSqlString(attribute, ATTRIBUTE)));
+    recordTypeMetadataDao.schemaChanged(collectionId, recordType);
   }
 }
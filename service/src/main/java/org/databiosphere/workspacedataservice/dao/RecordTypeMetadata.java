@@ -0,0 +1,44 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.Relation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Catalog metadata for a single record type: its primary key column, its columns and their data
+ * types, and its relation and relation-array columns. Instances are immutable and may be shared
+ * between threads via {@link RecordTypeMetadataDao}'s cache; callers that need to modify any of
+ * these collections must copy them first.
+ *
+ * @param primaryKey name of the primary key column, or null if the record type does not exist
+ * @param schema all columns, including the primary key, and their data types
+ * @param relationCols relation columns, i.e. columns with a foreign key to another record type
+ * @param relationArrayCols relation-array columns, i.e. columns backed by a join table
+ */
+public record RecordTypeMetadata(
+    @Nullable String primaryKey,
+    Map<String, DataTypeMapping> schema,
+    List<Relation> relationCols,
+    List<Relation> relationArrayCols) {
+
+  public RecordTypeMetadata {
+    // not Map.copyOf: columns of unrecognized Postgres types map to a null DataTypeMapping
+    schema = Collections.unmodifiableMap(new HashMap<>(schema));
+    relationCols = List.copyOf(relationCols);
+    relationArrayCols = List.copyOf(relationArrayCols);
+  }
+
+  /** Metadata for a record type that does not exist in the collection. */
+  static RecordTypeMetadata missing() {
+    return new RecordTypeMetadata(null, Map.of(), List.of(), List.of());
+  }
+
+  /** Does the record type described by this metadata exist? */
+  public boolean exists() {
+    return primaryKey != null;
+  }
+}
@@ -0,0 +1,373 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import static org.databiosphere.workspacedataservice.service.model.ReservedNames.RESERVED_NAME_PREFIX;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.Relation;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+/**
+ * DAO to look up, and cache, the catalog metadata for a record type: primary key, column data
+ * types, relation columns and relation-array columns. Without caching, a single read of records
+ * needs several INFORMATION_SCHEMA and pg_catalog queries before it reads any data.
+ *
+ * <p>AJ-1242: a plain in-memory cache returns stale results in a multi-replica deployment, since a
+ * replica never learns that another replica changed a table. Therefore, every statement that
+ * changes a record type's schema must also call {@link #schemaChanged(UUID, RecordType)}, which
+ * stores a new version for that record type in sys_wds.record_type_schema_version. Cached entries
+ * remember the version they were loaded at, and each lookup compares that to the current version
+ * with a single primary-key read. Versions come from a sequence and are never reused, so a version
+ * written by a transaction that later rolls back can never match a committed schema.
+ *
+ * <p>Callers must invoke {@link #schemaChanged(UUID, RecordType)} <em>after</em> the DDL statement
+ * it describes, and must not read the record type's metadata in between.
+ */
+@Repository
+public class RecordTypeMetadataDao {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RecordTypeMetadataDao.class);
+
+  private static final String COLLECTION_ID = "collectionId";
+  private static final String RECORD_TYPE = "recordType";
+
+  private final NamedParameterJdbcTemplate namedTemplate;
+
+  private final Cache<MetadataKey, VersionedMetadata> cache;
+
+  public RecordTypeMetadataDao(
+      NamedParameterJdbcTemplate namedTemplate,
+      @Value("${twds.metadata-cache.max-size:2000}") long maxSize) {
+    this.namedTemplate = namedTemplate;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  private record MetadataKey(UUID collectionId, RecordType recordType) {}
+
+  private record VersionedMetadata(long version, RecordTypeMetadata metadata) {}
+
+  /**
+   * Returns metadata for the given record type, from cache if the cached entry is still current.
+   * If the record type does not exist, returns {@link RecordTypeMetadata#missing()}; this result is
+   * never cached.
+   */
+  public RecordTypeMetadata getMetadata(UUID collectionId, RecordType recordType) {
+    MetadataKey key = new MetadataKey(collectionId, recordType);
+    // read the version before the catalog, so no entry is ever older than its cached version
+    long version = getSchemaVersion(collectionId, recordType);
+    VersionedMetadata cached = cache.getIfPresent(key);
+    if (cached != null && cached.version() == version) {
+      return cached.metadata();
+    }
+
+    LOGGER.debug(
+        "Loading metadata for {}.{} at schema version {}", collectionId, recordType, version);
+    RecordTypeMetadata metadata = loadMetadata(collectionId, recordType);
+    if (metadata.exists()) {
+      cache.put(key, new VersionedMetadata(version, metadata));
+    } else {
+      cache.invalidate(key);
+    }
+    return metadata;
+  }
+
+  /**
+   * Record that the schema of the given record type has changed: columns added, removed, renamed
+   * or retyped, relations added, or the record type created or dropped. This invalidates cached
+   * metadata for the record type on every replica once the current transaction commits.
+   */
+  public void schemaChanged(UUID collectionId, RecordType recordType) {
+    namedTemplate.update(
+        """
+        insert into sys_wds.record_type_schema_version(collection_id, record_type, version)
+        values (:collectionId, :recordType, nextval('sys_wds.record_type_schema_version_seq'))
+        on conflict (collection_id, record_type) do update set version = excluded.version""",
+        new MapSqlParameterSource(COLLECTION_ID, collectionId)
+            .addValue(RECORD_TYPE, recordType.getName()));
+    cache.invalidate(new MetadataKey(collectionId, recordType));
+  }
+
+  /** Discard all schema versions, and cached metadata, for a collection being deleted. */
+  public void collectionDeleted(UUID collectionId) {
+    namedTemplate.update(
+        "delete from sys_wds.record_type_schema_version where collection_id = :collectionId",
+        new MapSqlParameterSource(COLLECTION_ID, collectionId));
+    cache.asMap().keySet().removeIf(key -> key.collectionId().equals(collectionId));
+  }
+
+  /**
+   * Load metadata for every record type in a collection, along with each record type's estimated
+   * row count, with a single pg_catalog query rather than several queries per record type. The
+   * loaded metadata also refreshes the cache.
+   */
+  public CollectionCatalog getCollectionCatalog(UUID collectionId) {
+    // read versions before the catalog, so no entry is ever older than its cached version
+    Map<RecordType, Long> versions = getSchemaVersions(collectionId);
+
+    // keyed by table name, for ordering
+    Map<String, CatalogBuilder> builders = new TreeMap<>();
+    namedTemplate.query(
+        COLLECTION_CATALOG_SQL,
+        new MapSqlParameterSource(COLLECTION_ID, collectionId.toString()),
+        rs -> {
+          CatalogBuilder builder =
+              builders.computeIfAbsent(rs.getString("table_name"), table -> new CatalogBuilder());
+          String name = rs.getString("name");
+          String detail = rs.getString("detail");
+          switch (rs.getString("kind")) {
+            case "column" -> builder.schema.put(name, DataTypeMapping.fromPostgresType(detail));
+            case "primary_key" -> builder.primaryKey = name;
+            case "relation" -> builder.relationCols.add(
+                new Relation(name, RecordType.valueOf(detail)));
+            case "relation_array" -> builder.relationArrayCols.add(
+                new Relation(name, RecordType.valueOf(detail)));
+            case "estimated_count" -> builder.estimatedCount = Long.parseLong(detail);
+            default -> throw new IllegalStateException("Unexpected catalog row");
+          }
+        });
+
+    Map<RecordType, RecordTypeMetadata> metadata = new LinkedHashMap<>();
+    Map<RecordType, Long> estimatedCounts = new HashMap<>();
+    builders.forEach(
+        (tableName, builder) -> {
+          RecordType recordType = RecordType.valueOf(tableName);
+          RecordTypeMetadata typeMetadata =
+              new RecordTypeMetadata(
+                  builder.primaryKey,
+                  builder.schema,
+                  builder.relationCols,
+                  builder.relationArrayCols);
+          metadata.put(recordType, typeMetadata);
+          // reltuples is -1 for a table which has never been vacuumed or analyzed
+          if (builder.estimatedCount >= 0) {
+            estimatedCounts.put(recordType, builder.estimatedCount);
+          }
+          if (typeMetadata.exists()) {
+            cache.put(
+                new MetadataKey(collectionId, recordType),
+                new VersionedMetadata(versions.getOrDefault(recordType, 0L), typeMetadata));
+          }
+        });
+    return new CollectionCatalog(metadata, estimatedCounts);
+  }
+
+  /**
+   * Metadata for all record types in a collection.
+   *
+   * @param metadata metadata for each record type, ordered by record type name
+   * @param estimatedCounts row count estimates from Postgres' planner statistics, for each record
+   *     type which has them
+   */
+  public record CollectionCatalog(
+      Map<RecordType, RecordTypeMetadata> metadata, Map<RecordType, Long> estimatedCounts) {}
+
+  private static class CatalogBuilder {
+    @Nullable String primaryKey;
+    final Map<String, DataTypeMapping> schema = new HashMap<>();
+    final List<Relation> relationCols = new ArrayList<>();
+    final List<Relation> relationArrayCols = new ArrayList<>();
+    long estimatedCount = -1;
+  }
+
+  // One row per column, primary key, relation column, relation-array column and row estimate of
+  // each record type in the collection. Column types are rendered the same way as
+  // INFORMATION_SCHEMA's coalesce(domain_name, udt_name::regtype), as in queryTableSchema. Join
+  // tables for relation arrays are named sys_<fromType>_<attribute>, with a from_<fromType>_key
+  // column referencing the record type and a to_<toType>_key column referencing the target.
+  private static final String COLLECTION_CATALOG_SQL =
+      """
+      with tables as (
+        select c.oid, c.relname, c.reltuples
+        from pg_class c join pg_namespace n on n.oid = c.relnamespace
+        where n.nspname = :collectionId and c.relkind = 'r'
+      ), record_tables as (
+        select * from tables where relname not like 'sys_%'
+      )
+      select 'column' as kind, t.relname as table_name, a.attname as name,
+        case when ty.typtype = 'd' then ty.typname else format_type(a.atttypid, null) end as detail
+      from record_tables t
+      join pg_attribute a on a.attrelid = t.oid and a.attnum > 0 and not a.attisdropped
+      join pg_type ty on ty.oid = a.atttypid
+      union all
+      select 'primary_key', t.relname, a.attname, null
+      from record_tables t
+      join pg_index i on i.indrelid = t.oid and i.indisprimary
+      join pg_attribute a on a.attrelid = t.oid and a.attnum = any(i.indkey)
+      union all
+      select 'relation', t.relname, a.attname, target.relname
+      from record_tables t
+      join pg_constraint fk on fk.conrelid = t.oid and fk.contype = 'f'
+      join pg_attribute a on a.attrelid = t.oid and a.attnum = fk.conkey[1]
+      join pg_class target on target.oid = fk.confrelid
+      union all
+      select 'relation_array', from_table.relname,
+        substr(j.relname, length('sys_' || from_table.relname || '_') + 1), to_table.relname
+      from tables j
+      join pg_constraint from_fk on from_fk.conrelid = j.oid and from_fk.contype = 'f'
+      join pg_attribute from_col on from_col.attrelid = j.oid
+        and from_col.attnum = from_fk.conkey[1] and from_col.attname like 'from\\_%'
+      join pg_class from_table on from_table.oid = from_fk.confrelid
+      join pg_constraint to_fk on to_fk.conrelid = j.oid and to_fk.contype = 'f'
+      join pg_attribute to_col on to_col.attrelid = j.oid
+        and to_col.attnum = to_fk.conkey[1] and to_col.attname like 'to\\_%'
+      join pg_class to_table on to_table.oid = to_fk.confrelid
+      where left(j.relname, length('sys_' || from_table.relname || '_'))
+        = 'sys_' || from_table.relname || '_'
+      union all
+      select 'estimated_count', t.relname, null, t.reltuples::bigint::text
+      from record_tables t""";
+
+  private Map<RecordType, Long> getSchemaVersions(UUID collectionId) {
+    Map<RecordType, Long> versions = new HashMap<>();
+    namedTemplate.query(
+        "select record_type, version from sys_wds.record_type_schema_version "
+            + "where collection_id = :collectionId",
+        new MapSqlParameterSource(COLLECTION_ID, collectionId),
+        rs -> {
+          versions.put(RecordType.valueOf(rs.getString("record_type")), rs.getLong("version"));
+        });
+    return versions;
+  }
+
+  @VisibleForTesting
+  long getSchemaVersion(UUID collectionId, RecordType recordType) {
+    Long version =
+        namedTemplate.queryForObject(
+            """
+            select coalesce(
+              (select version from sys_wds.record_type_schema_version
+               where collection_id = :collectionId and record_type = :recordType), 0)""",
+            new MapSqlParameterSource(COLLECTION_ID, collectionId)
+                .addValue(RECORD_TYPE, recordType.getName()),
+            Long.class);
+    return version == null ? 0 : version;
+  }
+
+  private RecordTypeMetadata loadMetadata(UUID collectionId, RecordType recordType) {
+    Map<String, DataTypeMapping> schema = queryTableSchema(collectionId, recordType);
+    // every record type has at least its primary key column
+    if (schema.isEmpty()) {
+      return RecordTypeMetadata.missing();
+    }
+    return new RecordTypeMetadata(
+        queryPrimaryKeyColumn(recordType, collectionId),
+        schema,
+        queryRelationCols(collectionId, recordType),
+        queryRelationArrayCols(collectionId, recordType));
+  }
+
+  /**
+   * Query Postgres directly for the primary key column of a record type, bypassing the cache. This
+   * throws if the record type does not exist.
+   */
+  String queryPrimaryKeyColumn(RecordType recordType, UUID collectionId) {
+    MapSqlParameterSource params =
+        new MapSqlParameterSource(
+            "qTableName", SqlUtils.getQualifiedTableName(recordType, collectionId));
+
+    // see https://wiki.postgresql.org/wiki/Retrieve_primary_key_columns for this query
+    // for commentary, see also:
+    // https://stackoverflow.com/questions/1214576/how-do-i-get-the-primary-keys-of-a-table-from-postgres-via-plpgsql
+    return namedTemplate.queryForObject(
+        """
+                      SELECT a.attname
+                      FROM   pg_index i
+                      JOIN   pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)
+                      WHERE  i.indrelid = :qTableName::regclass
+                      AND    i.indisprimary;""",
+        params,
+        String.class);
+  }
+
+  private Map<String, DataTypeMapping> queryTableSchema(UUID collectionId, RecordType recordType) {
+    MapSqlParameterSource params =
+        new MapSqlParameterSource(COLLECTION_ID, collectionId.toString());
+    params.addValue("tableName", recordType.getName());
+    return namedTemplate.query(
+        "select column_name,coalesce(domain_name, udt_name::regtype::varchar) as data_type from INFORMATION_SCHEMA.COLUMNS "
+            + "where table_schema = :collectionId and table_name = :tableName",
+        params,
+        rs -> {
+          Map<String, DataTypeMapping> result = new HashMap<>();
+          while (rs.next()) {
+            result.put(
+                rs.getString("column_name"),
+                DataTypeMapping.fromPostgresType(rs.getString("data_type")));
+          }
+          return result;
+        });
+  }
+
+  private List<Relation> queryRelationCols(UUID collectionId, RecordType recordType) {
+    return namedTemplate.query(
+        "SELECT kcu.column_name, ccu.table_name FROM information_schema.table_constraints tc JOIN information_schema.key_column_usage kcu "
+            + "ON tc.constraint_name = kcu.constraint_name AND tc.table_schema = kcu.table_schema "
+            + "JOIN information_schema.constraint_column_usage ccu ON ccu.constraint_name = tc.constraint_name AND ccu.table_schema = tc.table_schema "
+            + "WHERE tc.constraint_type = 'FOREIGN KEY' AND tc.table_schema = :workspace AND tc.table_name= :tableName",
+        Map.of("workspace", collectionId.toString(), "tableName", recordType.getName()),
+        (rs, rowNum) ->
+            new Relation(
+                rs.getString("column_name"), RecordType.valueOf(rs.getString("table_name"))));
+  }
+
+  private List<Relation> queryRelationArrayCols(UUID collectionId, RecordType recordType) {
+    return namedTemplate.query(
+        "select kcu1.table_name, kcu1.column_name from information_schema.key_column_usage kcu1 join information_schema.key_column_usage kcu2 "
+            + "on kcu1.table_name = kcu2.table_name where kcu1.constraint_schema = :workspace and kcu2.constraint_name = :from_table_constraint"
+            + " and kcu2.constraint_name != kcu1.constraint_name",
+        Map.of(
+            "workspace",
+            collectionId.toString(),
+            "from_table_constraint",
+            "fk_from_" + recordType.getName() + "_key"),
+        new RelationRowMapper(recordType));
+  }
+
+  private static class RelationRowMapper implements RowMapper<Relation> {
+
+    private final RecordType recordType;
+
+    public RelationRowMapper(RecordType recordType) {
+      this.recordType = recordType;
+    }
+
+    @Override
+    public Relation mapRow(ResultSet rs, int rowNum) throws SQLException {
+      return new Relation(
+          getAttributeFromTableName(rs.getString("table_name")),
+          getRecordTypeFromConstraint(rs.getString("column_name")));
+    }
+
+    private RecordType getRecordTypeFromConstraint(String constraint) {
+      // constraint should be to_tablename_key
+      return RecordType.valueOf(
+          StringUtils.removeEnd(StringUtils.removeStart(constraint, "to_"), "_key"));
+    }
+
+    private String getAttributeFromTableName(String tableName) {
+      // table will be RESERVED_NAME_PREFIX_fromTable_attribute
+      return StringUtils.removeStart(
+          tableName, RESERVED_NAME_PREFIX + this.recordType.getName() + "_");
+    }
+  }
+}
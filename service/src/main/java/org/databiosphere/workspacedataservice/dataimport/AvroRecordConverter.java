@@ -2,21 +2,28 @@ package org.databiosphere.workspacedataservice.dataimport;
 
 import static bio.terra.pfb.PfbReader.convertEnum;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.avro.Conversions;
 import org.apache.avro.LogicalType;
 import org.apache.avro.LogicalTypes;
@@ -24,7 +31,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.IndexedRecord;
 import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
 import org.databiosphere.workspacedataservice.service.model.exception.DataImportException;
 import org.databiosphere.workspacedataservice.shared.model.Record;
@@ -39,11 +48,42 @@ public abstract class AvroRecordConverter {
   private static final Logger LOGGER = LoggerFactory.getLogger(AvroRecordConverter.class);
 
   private final ObjectMapper objectMapper;
+  private final boolean floatsAsBigDecimals;
+  // conversion plans, by the schema of the records they convert
+  private final Map<Schema, RecordPlan> plans = new ConcurrentHashMap<>();
 
   public AvroRecordConverter(ObjectMapper objectMapper) {
     this.objectMapper = objectMapper;
+    this.floatsAsBigDecimals =
+        objectMapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
   }
 
+  /** Converts one non-null Avro value to a WDS attribute value. */
+  @FunctionalInterface
+  private interface ValueConverter {
+    @Nullable
+    Object convert(Object value);
+  }
+
+  /**
+   * How to convert one field of a record.
+   *
+   * @param pos the field's index in the record
+   * @param name the field's name, and so the attribute's
+   * @param structuredList whether the field is a Parquet structured list; see {@link
+   *     #isStructuredList}
+   * @param converter converts the field's non-null values
+   */
+  private record FieldPlan(
+      int pos, String name, boolean structuredList, ValueConverter converter) {}
+
+  /**
+   * How to convert every record with a given schema: a plan for each field not ignored. Compiled
+   * once per schema, so that the schema's fields, their logical types and which converter each
+   * needs are not looked up again for every record.
+   */
+  private record RecordPlan(Set<String> ignoreAttributes, List<FieldPlan> fields) {}
+
   /**
    * Converts an Avro record to a WDS record. In {@link ImportMode#BASE_ATTRIBUTES} mode, this will
    * call {@link #convertBaseAttributes(GenericRecord)} with the intention of creating a Record
@@ -87,26 +127,112 @@ public abstract class AvroRecordConverter {
    */
   protected RecordAttributes extractBaseAttributes(
       GenericRecord objectAttributes, Set<String> ignoreAttributes) {
-    // loop over all Avro fields and add to the record's attributes
-    Schema schema = objectAttributes.getSchema();
-    List<Schema.Field> fields = schema.getFields();
+    RecordPlan plan = planFor(objectAttributes.getSchema(), ignoreAttributes);
     RecordAttributes attributes = RecordAttributes.empty();
-    for (Schema.Field field : fields) {
-      String fieldName = field.name();
+    for (FieldPlan field : plan.fields()) {
+      Object value = objectAttributes.get(field.pos());
+      if (value != null && field.structuredList()) {
+        value = destructureStructuredList(value);
+      }
+      attributes.putAttribute(
+          field.name(), value == null ? null : field.converter().convert(value));
+    }
+    return attributes;
+  }
+
+  private RecordPlan planFor(Schema schema, Set<String> ignoreAttributes) {
+    RecordPlan plan = plans.get(schema);
+    if (plan == null || !plan.ignoreAttributes().equals(ignoreAttributes)) {
+      plan = compilePlan(schema, ignoreAttributes);
+      plans.put(schema, plan);
+    }
+    return plan;
+  }
+
+  private RecordPlan compilePlan(Schema schema, Set<String> ignoreAttributes) {
+    List<FieldPlan> fields = new ArrayList<>(schema.getFields().size());
+    for (Field field : schema.getFields()) {
       // if this attribute is marked as ignorable, skip it
-      if (ignoreAttributes.contains(fieldName)) {
+      if (ignoreAttributes.contains(field.name())) {
         continue;
       }
+      boolean structuredList = isStructuredList(field);
+      LogicalType logicalType = getLogicalTypeForValues(field);
+      // a structured list's values are destructured before conversion; see destructureElementList
+      ValueConverter converter =
+          structuredList
+              ? arrayConverter(
+                  compileConverter(
+                      nonNull(field.schema().getElementType().getFields().get(0).schema()),
+                      logicalType))
+              : compileConverter(nonNull(field.schema()), logicalType);
+      fields.add(new FieldPlan(field.pos(), field.name(), structuredList, converter));
+    }
+    return new RecordPlan(Set.copyOf(ignoreAttributes), List.copyOf(fields));
+  }
+
+  /**
+   * Compiles a converter for values of the given schema. Each converts values of the Java type
+   * that schema reads as directly, and any other value as {@link #convertAttributeType} would.
+   *
+   * @param schema the schema of the values
+   * @param logicalType the logical type of the field's values, as {@link #getLogicalTypeForValues}
+   *     finds it; for arrays, that of their elements
+   */
+  private ValueConverter compileConverter(Schema schema, @Nullable LogicalType logicalType) {
+    return switch (schema.getType()) {
+      case STRING ->
+          value ->
+              value instanceof CharSequence charSequence
+                  ? charSequence.toString()
+                  : convertValue(value, logicalType);
+      case INT ->
+          value ->
+              value instanceof Integer intValue
+                  ? convertInteger(intValue, logicalType)
+                  : convertValue(value, logicalType);
+      case LONG ->
+          value ->
+              value instanceof Long longValue
+                  ? convertLong(longValue, logicalType)
+                  : convertValue(value, logicalType);
+      case BOOLEAN ->
+          value -> value instanceof Boolean ? value : convertValue(value, logicalType);
+      case ARRAY -> arrayConverter(compileConverter(nonNull(schema.getElementType()), logicalType));
+      case RECORD, MAP ->
+          value ->
+              value instanceof GenericRecord || value instanceof Map<?, ?>
+                  ? createJsonAttribute(value)
+                  : convertValue(value, logicalType);
+      default -> value -> convertValue(value, logicalType);
+    };
+  }
 
-      Object value =
-          objectAttributes.get(fieldName) == null
-              ? null
-              : convertAttributeType(
-                  destructureElementList(objectAttributes.get(fieldName), field), field);
+  private ValueConverter arrayConverter(ValueConverter elementConverter) {
+    return value -> {
+      if (value instanceof Collection<?> collection) {
+        List<Object> converted = new ArrayList<>(collection.size());
+        for (Object element : collection) {
+          converted.add(element == null ? null : elementConverter.convert(element));
+        }
+        return converted;
+      }
+      return elementConverter.convert(value);
+    };
+  }
 
-      attributes.putAttribute(fieldName, value);
+  // the non-null type of a nullable union, or else the schema itself
+  private static Schema nonNull(Schema schema) {
+    if (Schema.Type.UNION.equals(schema.getType())) {
+      List<Schema> nonNullTypes =
+          schema.getTypes().stream()
+              .filter(type -> !Schema.Type.NULL.equals(type.getType()))
+              .toList();
+      if (nonNullTypes.size() == 1) {
+        return nonNullTypes.get(0);
+      }
     }
-    return attributes;
+    return schema;
   }
 
   /**
@@ -118,23 +244,21 @@ public abstract class AvroRecordConverter {
   @VisibleForTesting
   @Nullable
   public Object convertAttributeType(@Nullable Object attribute, Field field) {
-
     if (attribute == null) {
       return null;
     }
+    return convertValue(attribute, getLogicalTypeForValues(field));
+  }
 
+  // converts a value of any type; the fallback for values a compiled converter doesn't expect
+  @Nullable
+  private Object convertValue(Object attribute, @Nullable LogicalType logicalType) {
     // For list of Avro types - see
     // https://avro.apache.org/docs/current/api/java/org/apache/avro/generic/package-summary.html#package_description
 
-    // Avro records
-    if (attribute instanceof GenericRecord recordAttr) {
-      // According to its Javadoc, GenericData#toString() renders the given datum as JSON
-      // However, it may contribute to numeric precision loss (see:
-      // https://broadworkbench.atlassian.net/browse/AJ-1292)
-      // If that's the case, then it may be necessary to traverse the record recursively and do a
-      // less lossy conversion process.
-      String serialized = GenericData.get().toString(recordAttr);
-      return createJsonAttribute(serialized);
+    // Avro records and maps
+    if (attribute instanceof GenericRecord || attribute instanceof Map<?, ?>) {
+      return createJsonAttribute(attribute);
     }
 
     // Avro enums
@@ -145,18 +269,14 @@ public abstract class AvroRecordConverter {
     // Avro arrays
     if (attribute instanceof Collection<?> collAttr) {
       // recurse
-      return collAttr.stream().map(value -> this.convertAttributeType(value, field)).toList();
-    }
-
-    // Avro maps
-    if (attribute instanceof Map<?, ?> mapAttr) {
-      String serialized = convertToString(mapAttr);
-      return createJsonAttribute(serialized);
+      return collAttr.stream()
+          .map(value -> value == null ? null : convertValue(value, logicalType))
+          .toList();
     }
 
     // Avro fixed
     if (attribute instanceof GenericData.Fixed fixedAttr) {
-      return convertFixed(fixedAttr, getLogicalTypeForValues(field));
+      return convertFixed(fixedAttr, logicalType);
     }
 
     // Avro strings
@@ -173,12 +293,12 @@ public abstract class AvroRecordConverter {
 
     // Avro ints
     if (attribute instanceof Integer intAttr) {
-      return convertInteger(intAttr, getLogicalTypeForValues(field));
+      return convertInteger(intAttr, logicalType);
     }
 
     // Avro longs
     if (attribute instanceof Long longAttr) {
-      return convertLong(longAttr, getLogicalTypeForValues(field));
+      return convertLong(longAttr, logicalType);
     }
 
     // Avro floats
@@ -221,7 +341,16 @@ public abstract class AvroRecordConverter {
   @Nullable
   protected Object destructureElementList(@Nullable Object attrValue, Field field) {
     // if this is a structured parquet list, destructure it
-    if (attrValue instanceof Collection<?> collAttr && isStructuredList(field)) {
+    if (attrValue != null && isStructuredList(field)) {
+      return destructureStructuredList(attrValue);
+    } else {
+      return attrValue;
+    }
+  }
+
+  // the elements of a value of a field known to be a structured list
+  private static Object destructureStructuredList(Object attrValue) {
+    if (attrValue instanceof Collection<?> collAttr) {
       return collAttr.stream()
           .map(
               element -> {
@@ -230,9 +359,8 @@ public abstract class AvroRecordConverter {
                 return elementRecord.get(0); // get is safe due to isStructuredList condition
               })
           .toList();
-    } else {
-      return attrValue;
     }
+    return attrValue;
   }
 
   /**
@@ -340,24 +468,80 @@ public abstract class AvroRecordConverter {
     return BigDecimal.valueOf(longAttr);
   }
 
-  private JsonAttribute createJsonAttribute(String serialized) {
-    try {
-      return new JsonAttribute(objectMapper.readTree(serialized));
-    } catch (JsonProcessingException e) {
+  /**
+   * Converts an Avro record or map to a JSON attribute. The value is written straight into a
+   * buffer of JSON tokens, which is then read as a tree, rather than rendered as a JSON string and
+   * parsed again. It is rendered as {@link GenericData#toString(Object)} would render it.
+   */
+  private JsonAttribute createJsonAttribute(Object value) {
+    try (TokenBuffer buffer = new TokenBuffer(objectMapper, false)) {
+      writeJson(value, buffer);
+      try (JsonParser parser = buffer.asParser(objectMapper)) {
+        return new JsonAttribute(objectMapper.readTree(parser));
+      }
+    } catch (IOException e) {
       throw new DataImportException("Unable to convert to JsonAttribute: " + e.getMessage(), e);
     }
   }
 
-  private String convertToString(Object attribute) {
-    try {
-      return objectMapper.writeValueAsString(attribute);
-    } catch (JsonProcessingException e) {
-      LOGGER.warn(
-          String.format(
-              "Unable to convert attribute \"%s\" to JSON string, falling back to toString()",
-              attribute),
-          e);
-      return attribute.toString();
+  private void writeJson(@Nullable Object value, JsonGenerator generator) throws IOException {
+    if (value == null) {
+      generator.writeNull();
+    } else if (value instanceof IndexedRecord indexedRecord) {
+      generator.writeStartObject();
+      for (Field field : indexedRecord.getSchema().getFields()) {
+        generator.writeFieldName(field.name());
+        writeJson(indexedRecord.get(field.pos()), generator);
+      }
+      generator.writeEndObject();
+    } else if (value instanceof Collection<?> collection) {
+      generator.writeStartArray();
+      for (Object element : collection) {
+        writeJson(element, generator);
+      }
+      generator.writeEndArray();
+    } else if (value instanceof Map<?, ?> map) {
+      generator.writeStartObject();
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        generator.writeFieldName(String.valueOf(entry.getKey()));
+        writeJson(entry.getValue(), generator);
+      }
+      generator.writeEndObject();
+    } else if (value instanceof CharSequence || value instanceof GenericEnumSymbol<?>) {
+      generator.writeString(value.toString());
+    } else if (value instanceof ByteBuffer bytes) {
+      generator.writeString(StandardCharsets.ISO_8859_1.decode(bytes.duplicate()).toString());
+    } else if (value instanceof Integer intValue) {
+      generator.writeNumber(intValue);
+    } else if (value instanceof Long longValue) {
+      // as the same number, parsed from JSON, would be
+      if (longValue == longValue.intValue()) {
+        generator.writeNumber(longValue.intValue());
+      } else {
+        generator.writeNumber(longValue);
+      }
+    } else if (value instanceof Float || value instanceof Double) {
+      double doubleValue = ((Number) value).doubleValue();
+      if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+        // JSON has no NaN or Infinity
+        generator.writeString(value.toString());
+      } else if (floatsAsBigDecimals) {
+        // the decimal the value prints as, as the same number, parsed from JSON, would be
+        generator.writeNumber(new BigDecimal(value.toString()));
+      } else {
+        generator.writeNumber(Double.parseDouble(value.toString()));
+      }
+    } else if (value instanceof Boolean booleanValue) {
+      generator.writeBoolean(booleanValue);
+    } else if (value instanceof GenericFixed fixed) {
+      // GenericData renders fixed values as the array of their bytes
+      generator.writeStartArray();
+      for (byte b : fixed.bytes()) {
+        generator.writeNumber((int) b);
+      }
+      generator.writeEndArray();
+    } else {
+      generator.writeString(value.toString());
     }
   }
 }
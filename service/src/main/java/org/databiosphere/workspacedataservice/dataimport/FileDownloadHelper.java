@@ -2,14 +2,21 @@ package org.databiosphere.workspacedataservice.dataimport;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import org.apache.commons.io.FileUtils;
 import org.databiosphere.workspacedataservice.service.model.exception.TdrManifestImportException;
@@ -21,21 +28,47 @@ public class FileDownloadHelper {
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
   private final Path tempFileDir;
   private final Multimap<String, File> fileMap;
+  private final Duration connectTimeout;
+  private final Duration readTimeout;
   private final FileAttribute<Set<PosixFilePermission>> permissions =
       PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"));
 
-  public FileDownloadHelper(String dirName) throws IOException {
+  /**
+   * @param dirName prefix of the temp directory to download into
+   * @param connectTimeout how long to wait to connect to a file's server
+   * @param readTimeout how long to wait for more of a file before failing its download
+   */
+  public FileDownloadHelper(String dirName, Duration connectTimeout, Duration readTimeout)
+      throws IOException {
     this.tempFileDir = Files.createTempDirectory(dirName, permissions);
-    this.fileMap = HashMultimap.create();
+    this.connectTimeout = connectTimeout;
+    this.readTimeout = readTimeout;
+    // downloads may run concurrently; see ParallelFileDownloader
+    this.fileMap = Multimaps.synchronizedMultimap(HashMultimap.create());
   }
 
-  public void downloadFileFromURL(String tableName, URL pathToRemoteFile) {
+  /**
+   * Download a remote file into this helper's temp directory and record it under the given table.
+   *
+   * @return the downloaded file, or empty if the remote file had no content
+   */
+  public Optional<File> downloadFileFromURL(String tableName, URL pathToRemoteFile) {
+    Path tempFilePath = null;
+    URLConnection connection = null;
     try {
-      Path tempFilePath =
+      tempFilePath =
           Files.createTempFile(
               tempFileDir, /* prefix= */ "tdr-", /* suffix= */ "download", permissions);
       logger.debug("downloading to temp file {} ...", tempFilePath);
-      FileUtils.copyURLToFile(pathToRemoteFile, tempFilePath.toFile());
+      connection = pathToRemoteFile.openConnection();
+      connection.setConnectTimeout(Math.toIntExact(connectTimeout.toMillis()));
+      connection.setReadTimeout(Math.toIntExact(readTimeout.toMillis()));
+      if (connection instanceof HttpURLConnection httpConnection
+          && httpConnection.getResponseCode() >= 400) {
+        closeErrorStream(httpConnection);
+        throw new HttpStatusException(httpConnection.getResponseCode());
+      }
+      FileUtils.copyInputStreamToFile(connection.getInputStream(), tempFilePath.toFile());
       // In the TDR manifest, for Azure snapshots only,
       // the first file in the list will always be a directory.
       // Attempting to import that directory
@@ -44,12 +77,33 @@ public class FileDownloadHelper {
       if (tempFilePath.toFile().length() == 0) {
         logger.debug("Empty file in parquet, skipping");
         Files.delete(tempFilePath);
-      } else {
-        // Once the remote file has been copied to the temp file, make it read-only
-        fileMap.put(tableName, tempFilePath.toFile());
+        return Optional.empty();
       }
+      // Once the remote file has been copied to the temp file, make it read-only
+      fileMap.put(tableName, tempFilePath.toFile());
+      return Optional.of(tempFilePath.toFile());
     } catch (IOException e) {
+      // don't leave a partial download behind for a retry to trip over
+      if (tempFilePath != null) {
+        FileUtils.deleteQuietly(tempFilePath.toFile());
+      }
       throw new TdrManifestImportException(e.getMessage(), e);
+    } finally {
+      if (connection instanceof HttpURLConnection httpConnection) {
+        httpConnection.disconnect();
+      }
+    }
+  }
+
+  // release the error response's body, which the connection holds until it is read or closed
+  private void closeErrorStream(HttpURLConnection connection) {
+    try {
+      InputStream errorStream = connection.getErrorStream();
+      if (errorStream != null) {
+        errorStream.close();
+      }
+    } catch (IOException e) {
+      logger.debug("Error closing error stream: {}", e.getMessage());
     }
   }
 
@@ -65,4 +119,25 @@ public class FileDownloadHelper {
   public Multimap<String, File> getFileMap() {
     return fileMap;
   }
+
+  /** Snapshot of the files downloaded so far for the given table. */
+  public List<File> getFiles(String tableName) {
+    synchronized (fileMap) {
+      return List.copyOf(fileMap.get(tableName));
+    }
+  }
+
+  /** A download failed because the server responded with an HTTP error status. */
+  public static class HttpStatusException extends IOException {
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode) {
+      super("Server responded with HTTP status " + statusCode);
+      this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+      return statusCode;
+    }
+  }
 }
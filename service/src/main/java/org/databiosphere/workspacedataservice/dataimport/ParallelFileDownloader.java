@@ -0,0 +1,262 @@
+package org.databiosphere.workspacedataservice.dataimport;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import org.databiosphere.workspacedataservice.dataimport.FileDownloadHelper.HttpStatusException;
+import org.databiosphere.workspacedataservice.service.model.exception.TdrManifestImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Downloads files for import concurrently, into a {@link FileDownloadHelper}'s temp directory.
+ *
+ * <p>A single worker pool, shared by all import jobs in this process, bounds the total number of
+ * concurrent downloads. A per-host limit keeps one import from opening too many connections to the
+ * same storage host; downloads over that limit are queued per host, without taking a worker. Failed
+ * downloads are retried with exponential backoff, if the failure is one that a retry might fix.
+ */
+@Component
+public class ParallelFileDownloader {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParallelFileDownloader.class);
+
+  private final ExecutorService workers;
+  private final int perHostConcurrency;
+  private final int maxAttempts;
+  private final Duration initialBackoff;
+  private final ConcurrentMap<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+
+  private final DistributionSummary bytesSummary;
+  private final DistributionSummary throughputSummary;
+  private final Timer durationTimer;
+
+  public ParallelFileDownloader(
+      MeterRegistry meterRegistry,
+      @Value("${twds.data-import.download.max-concurrency:8}") int maxConcurrency,
+      @Value("${twds.data-import.download.per-host-concurrency:4}") int perHostConcurrency,
+      @Value("${twds.data-import.download.max-attempts:3}") int maxAttempts,
+      @Value("${twds.data-import.download.initial-backoff:1s}") Duration initialBackoff) {
+    this.workers =
+        Executors.newFixedThreadPool(
+            maxConcurrency,
+            new ThreadFactoryBuilder()
+                .setNameFormat("import-download-%d")
+                .setDaemon(true)
+                .build());
+    this.perHostConcurrency = perHostConcurrency;
+    this.maxAttempts = maxAttempts;
+    this.initialBackoff = initialBackoff;
+
+    this.bytesSummary =
+        DistributionSummary.builder("wds.import.download.bytes")
+            .baseUnit("bytes")
+            .description("Size of each file downloaded for import")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+    this.throughputSummary =
+        DistributionSummary.builder("wds.import.download.throughput")
+            .baseUnit("bytes_per_second")
+            .description("Throughput of each file downloaded for import")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+    this.durationTimer =
+        Timer.builder("wds.import.download.duration")
+            .description("Time to download each file for import, including retries")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    workers.shutdownNow();
+  }
+
+  /**
+   * Start downloading the given files into the given helper's temp directory, grouped by table.
+   * Returns immediately; use the returned {@link Downloads} to wait for each table.
+   */
+  public Downloads startDownloads(
+      FileDownloadHelper helper, ListMultimap<String, URL> urlsByTable) {
+    ListMultimap<String, Future<?>> futures =
+        Multimaps.synchronizedListMultimap(ArrayListMultimap.create());
+    urlsByTable.forEach(
+        (tableName, url) -> {
+          FutureTask<Void> task =
+              new FutureTask<>(() -> download(helper, tableName, url), /* result= */ null);
+          futures.put(tableName, task);
+          hostQueues.computeIfAbsent(url.getHost(), host -> new HostQueue()).submit(task);
+        });
+    return new Downloads(futures);
+  }
+
+  /**
+   * Downloads from one host, at most perHostConcurrency at a time. Downloads over that limit wait
+   * here until one of the host's downloads finishes, rather than holding a worker thread.
+   */
+  private final class HostQueue {
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+
+    synchronized void submit(Runnable task) {
+      if (running < perHostConcurrency) {
+        running++;
+        execute(task);
+      } else {
+        waiting.add(task);
+      }
+    }
+
+    private void execute(Runnable task) {
+      workers.execute(
+          () -> {
+            try {
+              task.run();
+            } finally {
+              next();
+            }
+          });
+    }
+
+    private synchronized void next() {
+      Runnable task = waiting.poll();
+      if (task == null) {
+        running--;
+      } else {
+        execute(task);
+      }
+    }
+  }
+
+  private void download(FileDownloadHelper helper, String tableName, URL url) {
+    try {
+      downloadWithRetry(helper, tableName, url);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TdrManifestImportException("Interrupted while downloading file", e);
+    }
+  }
+
+  private void downloadWithRetry(FileDownloadHelper helper, String tableName, URL url)
+      throws InterruptedException {
+    Duration backoff = initialBackoff;
+    long start = System.nanoTime();
+    for (int attempt = 1; ; attempt++) {
+      try {
+        Optional<File> file = helper.downloadFileFromURL(tableName, url);
+        recordMetrics(file.map(File::length).orElse(0L), System.nanoTime() - start);
+        return;
+      } catch (TdrManifestImportException e) {
+        if (attempt >= maxAttempts || !isRetryable(e)) {
+          throw e;
+        }
+        LOGGER.warn(
+            "Download attempt {}/{} for table {} failed, retrying in {}: {}",
+            attempt,
+            maxAttempts,
+            tableName,
+            backoff,
+            e.getMessage());
+        Thread.sleep(backoff.toMillis());
+        backoff = backoff.multipliedBy(2);
+      }
+    }
+  }
+
+  /**
+   * Whether a failed download might succeed if retried: after an I/O error, or a 5xx or 429
+   * response. Other HTTP errors, and missing files, fail the same way every time.
+   */
+  @VisibleForTesting
+  static boolean isRetryable(TdrManifestImportException e) {
+    if (e.getCause() instanceof HttpStatusException httpStatus) {
+      return httpStatus.getStatusCode() >= 500 || httpStatus.getStatusCode() == 429;
+    }
+    return e.getCause() instanceof IOException && !(e.getCause() instanceof FileNotFoundException);
+  }
+
+  private void recordMetrics(long bytes, long elapsedNanos) {
+    bytesSummary.record(bytes);
+    durationTimer.record(Duration.ofNanos(elapsedNanos));
+    if (elapsedNanos > 0) {
+      throughputSummary.record(bytes * 1_000_000_000d / elapsedNanos);
+    }
+  }
+
+  /** Handle to in-progress downloads, started by {@link #startDownloads}. */
+  public static class Downloads {
+    private final ListMultimap<String, Future<?>> futures;
+
+    @VisibleForTesting
+    Downloads(ListMultimap<String, Future<?>> futures) {
+      this.futures = futures;
+    }
+
+    /**
+     * Wait until all files for the given table have been downloaded.
+     *
+     * @throws TdrManifestImportException if any of the table's files failed to download
+     */
+    public void awaitTable(String tableName) {
+      List<Future<?>> tableFutures;
+      synchronized (futures) {
+        tableFutures = List.copyOf(futures.get(tableName));
+      }
+      for (Future<?> future : tableFutures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new TdrManifestImportException("Interrupted while waiting for downloads", e);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof TdrManifestImportException importException) {
+            throw importException;
+          }
+          throw new TdrManifestImportException(e.getCause().getMessage(), e.getCause());
+        } catch (CancellationException e) {
+          throw new TdrManifestImportException("Download was cancelled", e);
+        }
+      }
+    }
+
+    /** Wait until all files for all tables have been downloaded. */
+    public void awaitAll() {
+      List<String> tableNames;
+      synchronized (futures) {
+        tableNames = List.copyOf(futures.keySet());
+      }
+      tableNames.forEach(this::awaitTable);
+    }
+
+    /** Cancel any downloads which have not yet completed. */
+    public void cancel() {
+      synchronized (futures) {
+        futures.values().forEach(future -> future.cancel(/* mayInterruptIfRunning= */ true));
+      }
+    }
+  }
+}
@@ -1,16 +1,25 @@
 package org.databiosphere.workspacedataservice.dataimport.pfb;
 
+import static java.util.Objects.requireNonNullElse;
+import static org.databiosphere.workspacedataservice.config.DataImportProperties.DEFAULT_DOWNLOAD_CONNECT_TIMEOUT;
+import static org.databiosphere.workspacedataservice.config.DataImportProperties.DEFAULT_DOWNLOAD_READ_TIMEOUT;
 import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbRecordConverter.ID_FIELD;
 import static org.databiosphere.workspacedataservice.generated.ImportRequestServerModel.TypeEnum.PFB;
-import static org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode.BASE_ATTRIBUTES;
-import static org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode.RELATIONS;
 import static org.databiosphere.workspacedataservice.shared.model.Schedulable.ARG_URL;
 import static org.databiosphere.workspacedataservice.shared.model.job.JobType.DATA_IMPORT;
 
 import bio.terra.pfb.PfbReader;
+import com.google.common.annotations.VisibleForTesting;
 import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -22,6 +31,7 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.FileUtils;
 import org.databiosphere.workspacedataservice.activitylog.ActivityLogger;
 import org.databiosphere.workspacedataservice.config.DataImportProperties;
 import org.databiosphere.workspacedataservice.dao.JobDao;
@@ -38,11 +48,12 @@ import org.databiosphere.workspacedataservice.metrics.ImportMetrics;
 import org.databiosphere.workspacedataservice.recordsink.RawlsAttributePrefixer.PrefixStrategy;
 import org.databiosphere.workspacedataservice.recordsink.RecordSink;
 import org.databiosphere.workspacedataservice.recordsink.RecordSinkFactory;
-import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource;
 import org.databiosphere.workspacedataservice.recordsource.RecordSourceFactory;
 import org.databiosphere.workspacedataservice.service.BatchWriteService;
 import org.databiosphere.workspacedataservice.service.DrsService;
 import org.databiosphere.workspacedataservice.service.model.BatchWriteResult;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.DataImportException;
 import org.databiosphere.workspacedataservice.service.model.exception.PfbImportException;
 import org.databiosphere.workspacedataservice.service.model.exception.PfbParsingException;
@@ -72,6 +83,10 @@ public class PfbQuartzJob extends QuartzJob {
   private final DrsService drsService;
   private final ProtectedDataSupport protectedDataSupport;
   private final ImportRequirementsFactory importRequirementsFactory;
+  private final Path tempDir;
+  private final Duration downloadConnectTimeout;
+  private final Duration downloadReadTimeout;
+  private final int pfbDecodeThreads;
 
   public PfbQuartzJob(
       JobDao jobDao,
@@ -98,6 +113,17 @@ public class PfbQuartzJob extends QuartzJob {
     this.protectedDataSupport = protectedDataSupport;
     this.importRequirementsFactory =
         new ImportRequirementsFactory(dataImportProperties.getSources());
+    this.pfbDecodeThreads = dataImportProperties.getPfbDecodeThreads();
+    String configuredTempDir = dataImportProperties.getTempDir();
+    this.tempDir =
+        Path.of(
+            configuredTempDir == null ? System.getProperty("java.io.tmpdir") : configuredTempDir);
+    this.downloadConnectTimeout =
+        requireNonNullElse(
+            dataImportProperties.getDownloadConnectTimeout(), DEFAULT_DOWNLOAD_CONNECT_TIMEOUT);
+    this.downloadReadTimeout =
+        requireNonNullElse(
+            dataImportProperties.getDownloadReadTimeout(), DEFAULT_DOWNLOAD_READ_TIMEOUT);
   }
 
   @Override
@@ -119,17 +145,33 @@ public class PfbQuartzJob extends QuartzJob {
 
     ImportDetails details = importDetailsRetriever.fetch(jobId, jobData, PrefixStrategy.PFB);
 
-    // Early PFB content inspection to determine if auth domains should be applied
-    // This is HTTP connection #0 to the PFB.
+    // Download the PFB once; every pass below reads the local copy.
+    // This is the only HTTP connection to the PFB.
+    Path downloaded = isLocalFile(uri) ? null : downloadPfb(uri);
+    URI pfbUri = downloaded == null ? uri : downloaded.toUri();
+    try {
+      importPfb(pfbUri, uri, details);
+    } finally {
+      if (downloaded != null) {
+        FileUtils.deleteQuietly(downloaded.toFile());
+      }
+    }
+
+    // TODO(AJ-1453): save the result of importTables and persist them to the job
+  }
+
+  private void importPfb(URI pfbUri, URI sourceUri, ImportDetails details) {
+    // Early PFB content inspection to determine if auth domains should be applied.
+    // This is pass #1 over the PFB; it must complete before any records are written.
     logger.info("Inspecting PFB content for auth domain requirements...");
-    Set<UUID> snapshotIds = withPfbStream(uri, this::findSnapshots);
+    PfbContents contents = withPfbStream(pfbUri, this::inspectContents);
+    Set<UUID> snapshotIds = contents.snapshotIds();
     logger.info("Found {} unique snapshot IDs in PFB", snapshotIds.size());
-    boolean hasNresConsent = false;
+    boolean hasNresConsent = snapshotIds.isEmpty() && contents.hasNresConsentGroup();
     if (snapshotIds.isEmpty()) {
-      hasNresConsent = withPfbStream(uri, this::hasNresConsentGroup);
       logger.info("NRES consent group present in PFB: {}", hasNresConsent);
     }
-    ImportRequirements requirements = importRequirementsFactory.getRequirementsForImport(uri);
+    ImportRequirements requirements = importRequirementsFactory.getRequirementsForImport(sourceUri);
 
     // If we skipped auth domains earlier, but now there is neither an NRES consent group nor any
     // snapshots,
@@ -143,28 +185,39 @@ public class PfbQuartzJob extends QuartzJob {
           details.workspaceId(), requirements.requiredAuthDomainGroups());
     }
 
-    // Find all the snapshot ids in the PFB, then create or verify references from the
-    // workspace to the snapshot for each of those snapshot ids.
+    // Create or verify references from the workspace to the snapshot for each of the snapshot ids
+    // found above.
     // This will throw an exception if there are policy conflicts between the workspace
     // and the snapshots.
-    //
-    // This is HTTP connection #1 to the PFB (reusing snapshotIds from earlier).
     logger.info("Linking snapshots...");
     linkSnapshots(snapshotIds, details.workspaceId());
 
     // Import all the tables and rows inside the PFB.
-    try (RecordSink recordSink = recordSinkFactory.buildRecordSink(details)) {
-      // This is HTTP connection #2 to the PFB.
+    try (RecordSink recordSink = recordSinkFactory.buildRecordSink(details);
+        PfbRelationSpill relationSpill = PfbRelationSpill.create(tempDir)) {
+      // This is pass #2 over the PFB. It writes base attributes, and spills relations to a local
+      // file to be replayed below.
       logger.info("Importing tables and rows from this PFB...");
       BatchWriteResult result =
-          withPfbStream(uri, stream -> importTables(stream, recordSink, BASE_ATTRIBUTES));
-
-      // This is HTTP connection #3 to the PFB.
+          pfbDecodeThreads > 1
+              ? importTablesInParallel(pfbUri, relationSpill, recordSink)
+              : withPfbStream(
+                  pfbUri,
+                  stream ->
+                      importTables(recordSourceFactory.forPfb(stream, relationSpill), recordSink));
+      UpsertCounts counts = result.getTotalUpsertCounts();
+      logger.info(
+          "Wrote base attributes: {} records inserted, {} updated, {} unchanged",
+          counts.inserted(),
+          counts.updated(),
+          counts.unchanged());
+
+      // The RELATIONS pass replays the spill rather than reading the PFB again.
       logger.info("Updating tables and rows from this PFB with relations...");
       // TODO: merging batch results may have unexpected behavior until BatchWriteResult can
       //   group its merged results under import mode; most notably, relations will be double
       //   counted
-      result.merge(withPfbStream(uri, stream -> importTables(stream, recordSink, RELATIONS)));
+      result.merge(importTables(relationSpill.replay(), recordSink));
       // complete the RecordSink
 
       importMetrics
@@ -175,9 +228,45 @@ public class PfbQuartzJob extends QuartzJob {
       recordSink.success();
     } catch (DataImportException e) {
       throw new PfbImportException(e.getMessage(), e);
+    } catch (IOException e) {
+      throw new PfbImportException("Error spilling PFB relations: " + e.getMessage(), e);
     }
+  }
 
-    // TODO(AJ-1453): save the result of importTables and persist them to the job
+  private static boolean isLocalFile(URI uri) {
+    return "file".equalsIgnoreCase(uri.getScheme());
+  }
+
+  /**
+   * Copy a remote PFB to a temp file in the configured temp directory, readable only by this
+   * process, within the configured download timeouts. The temp file is deleted if the download
+   * fails.
+   */
+  @VisibleForTesting
+  Path downloadPfb(URI uri) {
+    try {
+      Files.createDirectories(tempDir);
+      Path localFile =
+          Files.createTempFile(
+              tempDir,
+              /* prefix= */ "pfb-",
+              /* suffix= */ ".avro",
+              PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+      logger.info("Downloading PFB to local temp file {} ...", localFile);
+      try {
+        FileUtils.copyURLToFile(
+            uri.toURL(),
+            localFile.toFile(),
+            Math.toIntExact(downloadConnectTimeout.toMillis()),
+            Math.toIntExact(downloadReadTimeout.toMillis()));
+      } catch (IOException | RuntimeException e) {
+        FileUtils.deleteQuietly(localFile.toFile());
+        throw e;
+      }
+      return localFile;
+    } catch (IOException e) {
+      throw new PfbParsingException("Error downloading PFB: " + e.getMessage(), e);
+    }
   }
 
   /**
@@ -205,17 +294,30 @@ public class PfbQuartzJob extends QuartzJob {
   }
 
   /**
-   * Given a DataFileStream representing a PFB, import all the tables and rows inside that PFB.
+   * As the base-attributes pass of {@link #importPfb}, but decodes the local PFB's blocks on
+   * pfbDecodeThreads threads.
+   */
+  private BatchWriteResult importTablesInParallel(
+      URI pfbUri, PfbRelationSpill relationSpill, RecordSink recordSink) {
+    try (RecordSource recordSource =
+        recordSourceFactory.forPfb(Path.of(pfbUri), relationSpill, pfbDecodeThreads)) {
+      return importTables(recordSource, recordSink);
+    } catch (Exception e) {
+      throw new PfbParsingException("Error processing PFB: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Import all the tables and rows from a source representing a PFB.
    *
-   * @param dataStream stream representing the PFB.
+   * @param recordSource source of the PFB's records; its import mode determines whether to import
+   *     all data in the tables or only the relations
    * @param recordSink the {@link RecordSink} which directs the records to their destination
-   * @param importMode indicating whether to import all data in the tables or only the relations
    */
-  BatchWriteResult importTables(
-      DataFileStream<GenericRecord> dataStream, RecordSink recordSink, ImportMode importMode) {
+  BatchWriteResult importTables(RecordSource recordSource, RecordSink recordSink) {
     BatchWriteResult result =
         batchWriteService.batchWrite(
-            recordSourceFactory.forPfb(dataStream, importMode),
+            recordSource,
             recordSink,
             /* recordType= */ null, // record type is determined later
             /* primaryKey= */ ID_FIELD); // PFBs currently only use ID_FIELD as primary key
@@ -233,6 +335,30 @@ public class PfbQuartzJob extends QuartzJob {
     return result;
   }
 
+  /** What {@link #inspectContents} found in a PFB. */
+  record PfbContents(Set<UUID> snapshotIds, boolean hasNresConsentGroup) {}
+
+  /**
+   * In a single pass over a DataFileStream representing a PFB, find both its unique snapshot ids,
+   * as per {@link #findSnapshots}, and whether it has an NRES consent group, as per {@link
+   * #hasNresConsentGroup}.
+   */
+  PfbContents inspectContents(DataFileStream<GenericRecord> dataStream) {
+    Set<UUID> snapshotIds = new HashSet<>();
+    List<Object> consentGroups = new ArrayList<>();
+    for (GenericRecord rec : dataStream) {
+      UUID snapshotId = findSnapshotId(rec);
+      if (snapshotId != null) {
+        snapshotIds.add(snapshotId);
+      }
+      Object consentGroup = findConsentGroup(rec);
+      if (consentGroup != null) {
+        consentGroups.add(consentGroup);
+      }
+    }
+    return new PfbContents(snapshotIds, allNres(consentGroups));
+  }
+
   /**
    * Given a DataFileStream representing a PFB, find all the unique snapshot ids in the PFB by
    * looking in the "source_datarepo_snapshot_id" column of each row in the PFB
@@ -248,17 +374,24 @@ public class PfbQuartzJob extends QuartzJob {
 
     // process the stream into a list of unique snapshotIds
     return recordStream
-        .map(rec -> rec.get("object")) // Records in a pfb are stored under the key "object"
-        .filter(GenericRecord.class::isInstance) // which we expect to be a GenericRecord
-        .map(GenericRecord.class::cast)
-        .filter(obj -> obj.hasField(SNAPSHOT_ID_IDENTIFIER)) // avoid exception if field nonexistent
-        .map(obj -> obj.get(SNAPSHOT_ID_IDENTIFIER)) // get the source_datarepo_snapshot_id value
-        .filter(Objects::nonNull) // expect source_datarepo_snapshot_id to be non-null
-        .map(obj -> maybeUuid(obj.toString()))
+        .map(this::findSnapshotId)
         .filter(Objects::nonNull) // find only the unique snapshotids
         .collect(Collectors.toSet());
   }
 
+  @Nullable
+  private UUID findSnapshotId(GenericRecord rec) {
+    // Records in a pfb are stored under the key "object", which we expect to be a GenericRecord.
+    // Check hasField to avoid an exception if the field is nonexistent, and expect the
+    // source_datarepo_snapshot_id value to be non-null.
+    if (rec.get("object") instanceof GenericRecord obj
+        && obj.hasField(SNAPSHOT_ID_IDENTIFIER)
+        && obj.get(SNAPSHOT_ID_IDENTIFIER) != null) {
+      return maybeUuid(obj.get(SNAPSHOT_ID_IDENTIFIER).toString());
+    }
+    return null;
+  }
+
   /**
    * Given a list of snapshot ids, create references from the workspace to the snapshot for each id
    * that does not already have a reference.
@@ -301,24 +434,31 @@ public class PfbQuartzJob extends QuartzJob {
 
     // Collect all consent groups from anvil_dataset records
     List<Object> consentGroups =
-        recordStream
-            .filter(rec -> "anvil_dataset".equals(rec.get("name").toString()))
-            .map(rec -> rec.get("object"))
-            .filter(GenericRecord.class::isInstance)
-            .map(GenericRecord.class::cast)
-            .filter(anvilDataset -> anvilDataset.hasField("consent_group"))
-            .map(anvilDataset -> anvilDataset.get("consent_group"))
-            .filter(Objects::nonNull)
-            .filter(
-                consentGroup -> {
-                  if (consentGroup instanceof java.util.Collection) {
-                    return !((java.util.Collection<?>) consentGroup).isEmpty();
-                  } else {
-                    return !consentGroup.toString().isEmpty();
-                  }
-                })
-            .toList();
+        recordStream.map(this::findConsentGroup).filter(Objects::nonNull).toList();
+
+    return allNres(consentGroups);
+  }
+
+  /** The non-empty consent group of an anvil_dataset record, or null if there is none. */
+  @Nullable
+  private Object findConsentGroup(GenericRecord rec) {
+    if (!"anvil_dataset".equals(rec.get("name").toString())
+        || !(rec.get("object") instanceof GenericRecord anvilDataset)
+        || !anvilDataset.hasField("consent_group")) {
+      return null;
+    }
+    Object consentGroup = anvilDataset.get("consent_group");
+    if (consentGroup == null) {
+      return null;
+    }
+    boolean isEmpty =
+        consentGroup instanceof java.util.Collection<?> collection
+            ? collection.isEmpty()
+            : consentGroup.toString().isEmpty();
+    return isEmpty ? null : consentGroup;
+  }
 
+  private static boolean allNres(List<Object> consentGroups) {
     // Must have at least one consent group AND all must be NRES
     if (consentGroups.isEmpty()) {
       return false;
@@ -0,0 +1,151 @@
+package org.databiosphere.workspacedataservice.dataimport.pfb;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource;
+import org.databiosphere.workspacedataservice.shared.model.OperationType;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.databiosphere.workspacedataservice.shared.model.attributes.RelationAttribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local temp file which buffers the relation-only projection of PFB records, as produced by {@link
+ * PfbRecordConverter} in {@link RecordSource.ImportMode#RELATIONS} mode. The BASE_ATTRIBUTES pass
+ * over a PFB writes to this spill, and the RELATIONS pass replays it via {@link #replay()}, so the
+ * PFB itself only needs to be decoded once for both passes.
+ *
+ * <p>Records without any relations are not spilled; the RELATIONS pass would skip them anyway.
+ */
+public class PfbRelationSpill implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PfbRelationSpill.class);
+
+  private final Path file;
+  private final DataOutputStream out;
+  private long recordCount = 0;
+
+  private PfbRelationSpill(Path file) throws IOException {
+    this.file = file;
+    this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+  }
+
+  /** Create an empty spill in a new file in the given directory. */
+  public static PfbRelationSpill create(Path directory) throws IOException {
+    return new PfbRelationSpill(
+        Files.createTempFile(
+            directory,
+            /* prefix= */ "pfb-relations-",
+            /* suffix= */ ".spill",
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))));
+  }
+
+  /** Append a record's relation attributes to the spill. Non-relation attributes are ignored. */
+  public void write(Record relationsRecord) throws IOException {
+    List<Map.Entry<String, RelationAttribute>> relations = new ArrayList<>();
+    for (Map.Entry<String, Object> attribute : relationsRecord.attributeSet()) {
+      if (attribute.getValue() instanceof RelationAttribute relation) {
+        relations.add(Map.entry(attribute.getKey(), relation));
+      }
+    }
+    if (relations.isEmpty()) {
+      return;
+    }
+    writeString(relationsRecord.getRecordTypeName());
+    writeString(relationsRecord.getId());
+    out.writeInt(relations.size());
+    for (Map.Entry<String, RelationAttribute> relation : relations) {
+      writeString(relation.getKey());
+      writeString(relation.getValue().getTargetType().getName());
+      writeString(relation.getValue().getTargetId());
+    }
+    recordCount++;
+  }
+
+  /** How many records have been spilled so far. */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Finish writing the spill and return a {@link RecordSource} which replays it in {@link
+   * RecordSource.ImportMode#RELATIONS} mode. Nothing may be written after calling this.
+   */
+  public RecordSource replay() throws IOException {
+    out.close();
+    LOGGER.info("Replaying {} spilled records with relations", recordCount);
+    return new ReplaySource(
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file))), recordCount);
+  }
+
+  /** Delete the spill file. */
+  @Override
+  public void close() throws IOException {
+    out.close();
+    Files.deleteIfExists(file);
+  }
+
+  // length-prefixed rather than DataOutputStream.writeUTF, which is limited to 64KB
+  private void writeString(String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static class ReplaySource implements RecordSource {
+    private final DataInputStream in;
+    private long remaining;
+
+    ReplaySource(DataInputStream in, long recordCount) {
+      this.in = in;
+      this.remaining = recordCount;
+    }
+
+    @Override
+    public WriteStreamInfo readRecords(int numRecords) throws IOException {
+      List<Record> records = new ArrayList<>((int) Math.min(numRecords, remaining));
+      while (remaining > 0 && records.size() < numRecords) {
+        RecordType recordType = RecordType.valueOf(readString(in));
+        String id = readString(in);
+        RecordAttributes attributes = RecordAttributes.empty();
+        for (int i = in.readInt(); i > 0; i--) {
+          String attributeName = readString(in);
+          RecordType targetType = RecordType.valueOf(readString(in));
+          attributes.putAttribute(attributeName, new RelationAttribute(targetType, readString(in)));
+        }
+        records.add(new Record(id, recordType, attributes));
+        remaining--;
+      }
+      return new WriteStreamInfo(records, OperationType.UPSERT);
+    }
+
+    @Override
+    public ImportMode importMode() {
+      return ImportMode.RELATIONS;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -3,9 +3,9 @@ package org.databiosphere.workspacedataservice.dataimport.tdr;
 import bio.terra.datarepo.model.RelationshipModel;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
 import org.databiosphere.workspacedataservice.dataimport.AvroRecordConverter;
@@ -20,12 +20,18 @@ public class ParquetRecordConverter extends AvroRecordConverter {
   private final RecordType recordType;
   private final String idField;
   private final List<RelationshipModel> relationshipModels;
+  // for base attributes, skip all relations
+  private final Set<String> relationColumns;
 
   public ParquetRecordConverter(TdrManifestImportTable table, ObjectMapper objectMapper) {
     super(objectMapper);
     this.recordType = table.recordType();
     this.idField = table.primaryKey();
     this.relationshipModels = table.relations();
+    this.relationColumns =
+        relationshipModels.stream()
+            .map(r -> r.getFrom().getColumn())
+            .collect(Collectors.toUnmodifiableSet());
   }
 
   private Record createEmptyRecord(GenericRecord genericRecord) {
@@ -35,12 +41,7 @@ public class ParquetRecordConverter extends AvroRecordConverter {
   @Override
   protected final Record convertBaseAttributes(GenericRecord genericRecord) {
     Record record = createEmptyRecord(genericRecord);
-    // for base attributes, skip all relations
-    List<String> relationNames =
-        relationshipModels.stream().map(r -> r.getFrom().getColumn()).toList();
-    Set<String> allIgnores = new HashSet<>(relationNames);
-
-    record.setAttributes(extractBaseAttributes(genericRecord, allIgnores));
+    record.setAttributes(extractBaseAttributes(genericRecord, relationColumns));
 
     return record;
   }
@@ -0,0 +1,100 @@
+package org.databiosphere.workspacedataservice.dataimport.tdr;
+
+import static org.apache.parquet.avro.AvroReadSupport.AVRO_REQUESTED_PROJECTION;
+import static org.apache.parquet.avro.AvroReadSupport.READ_INT96_AS_FIXED;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroSchemaConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.springframework.lang.Nullable;
+
+/**
+ * A parquet file, as described by its footer: its row groups, each of which can be read
+ * independently of the others, and optionally a projection of its columns to read.
+ */
+public class ParquetRowGroups {
+  private final InputFile inputFile;
+  private final List<BlockMetaData> rowGroups;
+  @Nullable private final Schema projection;
+
+  private ParquetRowGroups(
+      InputFile inputFile, List<BlockMetaData> rowGroups, @Nullable Schema projection) {
+    this.inputFile = inputFile;
+    this.rowGroups = rowGroups;
+    this.projection = projection;
+  }
+
+  /**
+   * Reads a parquet file's footer.
+   *
+   * @param inputFile the file
+   * @param columns if not null, the top-level columns to read; any not in the file are ignored
+   * @throws IOException on problem reading the footer
+   */
+  public static ParquetRowGroups open(InputFile inputFile, @Nullable Set<String> columns)
+      throws IOException {
+    ParquetMetadata footer;
+    try (ParquetFileReader fileReader = ParquetFileReader.open(inputFile)) {
+      footer = fileReader.getFooter();
+    }
+    Schema projection =
+        columns == null ? null : projectionFor(footer.getFileMetaData().getSchema(), columns);
+    return new ParquetRowGroups(inputFile, footer.getBlocks(), projection);
+  }
+
+  /** The number of row groups in the file. */
+  public int size() {
+    return rowGroups.size();
+  }
+
+  /** Creates a reader for the whole file. Only call from within a try-with-resources. */
+  public ParquetReader<GenericRecord> reader() throws IOException {
+    return readerBuilder().build();
+  }
+
+  /** Creates a reader for one row group. Only call from within a try-with-resources. */
+  public ParquetReader<GenericRecord> reader(int rowGroup) throws IOException {
+    BlockMetaData block = rowGroups.get(rowGroup);
+    // the reader reads those row groups whose midpoint falls within the range; just this one
+    return readerBuilder()
+        .withFileRange(block.getStartingPos(), block.getStartingPos() + block.getCompressedSize())
+        .build();
+  }
+
+  private AvroParquetReader.Builder<GenericRecord> readerBuilder() {
+    AvroParquetReader.Builder<GenericRecord> builder =
+        AvroParquetReader.<GenericRecord>builder(inputFile).set(READ_INT96_AS_FIXED, "true");
+    if (projection != null) {
+      builder.set(AVRO_REQUESTED_PROJECTION, projection.toString());
+    }
+    return builder;
+  }
+
+  // the Avro schema of the given columns, or null if that's every column. Parquet stores each
+  // column separately, so the other columns are neither fetched nor decoded.
+  @Nullable
+  private static Schema projectionFor(MessageType fileSchema, Set<String> columns) {
+    List<Type> projectedFields =
+        fileSchema.getFields().stream().filter(field -> columns.contains(field.getName())).toList();
+    if (projectedFields.size() == fileSchema.getFieldCount()) {
+      return null;
+    }
+    // convert with the same settings the reader would use to convert the whole file's schema
+    Configuration conf = new Configuration();
+    conf.setBoolean(READ_INT96_AS_FIXED, true);
+    return new AvroSchemaConverter(conf)
+        .convert(new MessageType(fileSchema.getName(), projectedFields));
+  }
+}
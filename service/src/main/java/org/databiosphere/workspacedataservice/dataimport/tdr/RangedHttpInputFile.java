@@ -0,0 +1,254 @@
+package org.databiosphere.workspacedataservice.dataimport.tdr;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Parquet {@link InputFile} which reads a remote file with HTTP range requests, instead of first
+ * copying it to local disk. Intended for signed URLs to cloud storage, as found in TDR manifests.
+ *
+ * <p>Parquet reads the footer from the end of the file, then reads whole column chunks; it rarely
+ * reads the same bytes twice. So each stream keeps a single read-ahead buffer, which absorbs the
+ * many small reads Parquet makes while decoding the footer and page headers. Reads larger than the
+ * buffer go straight to the server.
+ */
+public class RangedHttpInputFile implements InputFile {
+
+  static final int DEFAULT_READ_AHEAD_BYTES = 1024 * 1024;
+
+  // e.g. "bytes 0-0/1234", or "bytes */1234" in response to an unsatisfiable range
+  private static final Pattern CONTENT_RANGE_LENGTH = Pattern.compile("^bytes [^/]+/(\\d+)$");
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+  private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+  private final URL url;
+  private final int readAheadBytes;
+  private final long length;
+
+  private RangedHttpInputFile(URL url, int readAheadBytes, long length) {
+    this.url = url;
+    this.readAheadBytes = readAheadBytes;
+    this.length = length;
+  }
+
+  /**
+   * Open a remote file, determining its length. Only http and https URLs are supported.
+   *
+   * @throws IOException if the length cannot be determined
+   */
+  public static RangedHttpInputFile open(URL url) throws IOException {
+    return open(url, DEFAULT_READ_AHEAD_BYTES);
+  }
+
+  static RangedHttpInputFile open(URL url, int readAheadBytes) throws IOException {
+    if (!isSupported(url)) {
+      throw new IOException("Ranged reads require an http(s) URL");
+    }
+    return new RangedHttpInputFile(url, readAheadBytes, fetchLength(url));
+  }
+
+  /** Whether the given URL can be read with range requests. */
+  public static boolean isSupported(URL url) {
+    return "https".equals(url.getProtocol()) || "http".equals(url.getProtocol());
+  }
+
+  @Override
+  public long getLength() {
+    return length;
+  }
+
+  @Override
+  public SeekableInputStream newStream() {
+    return new RangedStream();
+  }
+
+  @Override
+  public String toString() {
+    // don't log query strings; they contain the signature for signed URLs
+    return url.getProtocol() + "://" + url.getHost() + url.getPath();
+  }
+
+  // Signed URLs are often signed for GET only, so use a one-byte GET rather than a HEAD request.
+  private static long fetchLength(URL url) throws IOException {
+    HttpURLConnection conn = openConnection(url);
+    try {
+      conn.setRequestProperty(HttpHeaders.RANGE, "bytes=0-0");
+      int code = conn.getResponseCode();
+      if (code == HttpStatus.PARTIAL_CONTENT.value()
+          || code == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+        // 416 is the expected response for a zero-length file
+        String contentRange = conn.getHeaderField(HttpHeaders.CONTENT_RANGE);
+        Matcher matcher =
+            CONTENT_RANGE_LENGTH.matcher(contentRange == null ? "" : contentRange.trim());
+        if (matcher.matches()) {
+          return Long.parseLong(matcher.group(1));
+        }
+        throw new IOException("Unexpected Content-Range in response: " + contentRange);
+      }
+      if (code == HttpStatus.OK.value()) {
+        // the server ignored the range; fall back to the length of the full response
+        long contentLength = conn.getContentLengthLong();
+        if (contentLength >= 0) {
+          return contentLength;
+        }
+      }
+      throw new IOException("Unable to determine length of remote file, status " + code);
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  private static HttpURLConnection openConnection(URL url) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+    conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+    return conn;
+  }
+
+  /** Read exactly {@code len} bytes starting at {@code position} into {@code dest}. */
+  private void readRange(long position, byte[] dest, int offset, int len) throws IOException {
+    if (len == 0) {
+      return;
+    }
+    HttpURLConnection conn = openConnection(url);
+    try {
+      conn.setRequestProperty(
+          HttpHeaders.RANGE, "bytes=%d-%d".formatted(position, position + len - 1));
+      int code = conn.getResponseCode();
+      if (code != HttpStatus.PARTIAL_CONTENT.value()) {
+        throw new IOException("Range request failed with status " + code);
+      }
+      try (InputStream in = conn.getInputStream()) {
+        int read = in.readNBytes(dest, offset, len);
+        if (read < len) {
+          throw new EOFException(
+              "Expected %d bytes at position %d, got %d".formatted(len, position, read));
+        }
+      }
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  private class RangedStream extends SeekableInputStream {
+    private long pos = 0;
+
+    // read-ahead buffer, holding bytes [bufferStart, bufferStart + bufferLength) of the file
+    private final byte[] buffer = new byte[(int) Math.min(readAheadBytes, length)];
+    private long bufferStart = 0;
+    private int bufferLength = 0;
+
+    @Override
+    public long getPos() {
+      return pos;
+    }
+
+    @Override
+    public void seek(long newPos) throws IOException {
+      if (newPos < 0 || newPos > length) {
+        throw new EOFException("Cannot seek to %d in file of length %d".formatted(newPos, length));
+      }
+      pos = newPos;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (pos >= length) {
+        return -1;
+      }
+      byte[] one = new byte[1];
+      readFully(one, 0, 1);
+      return one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (pos >= length) {
+        return -1;
+      }
+      int toRead = (int) Math.min(len, length - pos);
+      readFully(bytes, off, toRead);
+      return toRead;
+    }
+
+    @Override
+    public void readFully(byte[] bytes) throws IOException {
+      readFully(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void readFully(byte[] bytes, int start, int len) throws IOException {
+      if (pos + len > length) {
+        throw new EOFException(
+            "Cannot read %d bytes at %d in file of length %d".formatted(len, pos, length));
+      }
+      int copied = copyFromBuffer(bytes, start, len);
+      int remaining = len - copied;
+      if (remaining > 0) {
+        if (remaining >= buffer.length) {
+          // large reads, e.g. whole column chunks, bypass the buffer
+          readRange(pos, bytes, start + copied, remaining);
+          pos += remaining;
+        } else {
+          fillBuffer();
+          copyFromBuffer(bytes, start + copied, remaining);
+        }
+      }
+    }
+
+    @Override
+    public int read(ByteBuffer buf) throws IOException {
+      if (!buf.hasRemaining()) {
+        return 0;
+      }
+      if (pos >= length) {
+        return -1;
+      }
+      int toRead = (int) Math.min(buf.remaining(), length - pos);
+      byte[] bytes = new byte[toRead];
+      readFully(bytes, 0, toRead);
+      buf.put(bytes);
+      return toRead;
+    }
+
+    @Override
+    public void readFully(ByteBuffer buf) throws IOException {
+      byte[] bytes = new byte[buf.remaining()];
+      readFully(bytes, 0, bytes.length);
+      buf.put(bytes);
+    }
+
+    // copy as many of the requested bytes as are available in the buffer, advancing pos
+    private int copyFromBuffer(byte[] dest, int offset, int len) {
+      long bufferEnd = bufferStart + bufferLength;
+      if (pos < bufferStart || pos >= bufferEnd) {
+        return 0;
+      }
+      int available = (int) Math.min(len, bufferEnd - pos);
+      System.arraycopy(buffer, (int) (pos - bufferStart), dest, offset, available);
+      pos += available;
+      return available;
+    }
+
+    private void fillBuffer() throws IOException {
+      int toRead = (int) Math.min(buffer.length, length - pos);
+      readRange(pos, buffer, 0, toRead);
+      bufferStart = pos;
+      bufferLength = toRead;
+    }
+  }
+}
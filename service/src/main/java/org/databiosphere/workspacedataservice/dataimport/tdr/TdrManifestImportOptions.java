@@ -7,12 +7,23 @@ import org.databiosphere.workspacedataservice.dataimport.ImportOptions;
 public record TdrManifestImportOptions(
     // (De)serialize using the old option name for backwards compatibility with jobs stored in the
     // database.
-    @JsonProperty("tdrSyncPermissions") boolean syncPermissions) implements ImportOptions {
+    @JsonProperty("tdrSyncPermissions") boolean syncPermissions,
+    // read parquet files directly from remote storage instead of downloading them first
+    @JsonProperty("tdrStreamDataFiles") boolean streamDataFiles)
+    implements ImportOptions {
   public static final String OPTION_TDR_SYNC_PERMISSIONS = "tdrSyncPermissions";
+  public static final String OPTION_TDR_STREAM_DATA_FILES = "tdrStreamDataFiles";
+
+  public TdrManifestImportOptions(boolean syncPermissions) {
+    this(syncPermissions, /* streamDataFiles= */ false);
+  }
 
   public static TdrManifestImportOptions from(Map<String, Object> options) {
     boolean syncPermissions =
         Boolean.parseBoolean(options.getOrDefault(OPTION_TDR_SYNC_PERMISSIONS, "false").toString());
-    return new TdrManifestImportOptions(syncPermissions);
+    boolean streamDataFiles =
+        Boolean.parseBoolean(
+            options.getOrDefault(OPTION_TDR_STREAM_DATA_FILES, "false").toString());
+    return new TdrManifestImportOptions(syncPermissions, streamDataFiles);
   }
 }
@@ -1,6 +1,9 @@
 package org.databiosphere.workspacedataservice.dataimport.tdr;
 
+import static java.util.Objects.requireNonNullElse;
 import static org.apache.parquet.avro.AvroReadSupport.READ_INT96_AS_FIXED;
+import static org.databiosphere.workspacedataservice.config.DataImportProperties.DEFAULT_DOWNLOAD_CONNECT_TIMEOUT;
+import static org.databiosphere.workspacedataservice.config.DataImportProperties.DEFAULT_DOWNLOAD_READ_TIMEOUT;
 import static org.databiosphere.workspacedataservice.generated.ImportRequestServerModel.TypeEnum.TDRMANIFEST;
 import static org.databiosphere.workspacedataservice.sam.SamAuthorizationDao.WORKSPACE_ROLES;
 import static org.databiosphere.workspacedataservice.shared.model.Schedulable.ARG_URL;
@@ -11,6 +14,8 @@ import bio.terra.datarepo.model.SnapshotExportResponseModel;
 import bio.terra.datarepo.model.SnapshotExportResponseModelFormatParquetLocationTables;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import io.micrometer.observation.Observation;
@@ -20,12 +25,15 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.InstantSource;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -34,7 +42,6 @@ import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.UnaryOperator;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.hadoop.conf.Configuration;
 import org.apache.parquet.avro.AvroParquetReader;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.hadoop.util.HadoopInputFile;
@@ -46,6 +53,8 @@ import org.databiosphere.workspacedataservice.dataimport.FileDownloadHelper;
 import org.databiosphere.workspacedataservice.dataimport.ImportDetails;
 import org.databiosphere.workspacedataservice.dataimport.ImportDetailsRetriever;
 import org.databiosphere.workspacedataservice.dataimport.ImportJobInput;
+import org.databiosphere.workspacedataservice.dataimport.ParallelFileDownloader;
+import org.databiosphere.workspacedataservice.dataimport.ParallelFileDownloader.Downloads;
 import org.databiosphere.workspacedataservice.dataimport.snapshotsupport.MultiCloudSnapshotSupportFactory;
 import org.databiosphere.workspacedataservice.dataimport.snapshotsupport.SnapshotSupport;
 import org.databiosphere.workspacedataservice.jobexec.JobDataMapReader;
@@ -63,6 +72,7 @@ import org.databiosphere.workspacedataservice.sam.SamDao;
 import org.databiosphere.workspacedataservice.service.BatchWriteService;
 import org.databiosphere.workspacedataservice.service.model.BatchWriteResult;
 import org.databiosphere.workspacedataservice.service.model.TdrManifestImportTable;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.RestException;
 import org.databiosphere.workspacedataservice.service.model.exception.TdrManifestImportException;
 import org.databiosphere.workspacedataservice.shared.model.Record;
@@ -91,6 +101,10 @@ public class TdrManifestQuartzJob extends QuartzJob {
   private final InstantSource instantSource;
   private final boolean shouldAddImportMetadata;
   private final ImportMetrics importMetrics;
+  private final ParallelFileDownloader fileDownloader;
+  private final int parquetDecodeThreads;
+  private final Duration downloadConnectTimeout;
+  private final Duration downloadReadTimeout;
 
   public TdrManifestQuartzJob(
       JobDao jobDao,
@@ -105,7 +119,8 @@ public class TdrManifestQuartzJob extends QuartzJob {
       MultiCloudSnapshotSupportFactory snapshotSupportFactory,
       SamDao samDao,
       ImportDetailsRetriever importDetailsRetriever,
-      InstantSource instantSource) {
+      InstantSource instantSource,
+      ParallelFileDownloader fileDownloader) {
     super(jobDao, observationRegistry, dataImportProperties);
     this.recordSinkFactory = recordSinkFactory;
     this.recordSourceFactory = recordSourceFactory;
@@ -119,6 +134,14 @@ public class TdrManifestQuartzJob extends QuartzJob {
     this.instantSource = instantSource;
     this.shouldAddImportMetadata = dataImportProperties.shouldAddImportMetadata();
     this.importMetrics = importMetrics;
+    this.fileDownloader = fileDownloader;
+    this.parquetDecodeThreads = dataImportProperties.getParquetDecodeThreads();
+    this.downloadConnectTimeout =
+        requireNonNullElse(
+            dataImportProperties.getDownloadConnectTimeout(), DEFAULT_DOWNLOAD_CONNECT_TIMEOUT);
+    this.downloadReadTimeout =
+        requireNonNullElse(
+            dataImportProperties.getDownloadReadTimeout(), DEFAULT_DOWNLOAD_READ_TIMEOUT);
   }
 
   @Override
@@ -162,26 +185,37 @@ public class TdrManifestQuartzJob extends QuartzJob {
     List<TdrManifestImportTable> tdrManifestImportTables =
         extractTableInfo(snapshotExportResponseModel, details.workspaceId());
 
-    // get all the parquet files from the manifests
-
-    FileDownloadHelper fileDownloadHelper = getFilesForImport(tdrManifestImportTables);
-    try (RecordSink recordSink = recordSinkFactory.buildRecordSink(details)) {
+    // either read the parquet files straight from remote storage, or start downloading them all
+    // in the background, importing each table as soon as its own files are available.
+    // DataFiles are closed after the RecordSink, which deletes any temp files.
+    try (DataFiles dataFiles =
+            options.streamDataFiles()
+                ? new StreamedDataFiles()
+                : new DownloadedDataFiles(tdrManifestImportTables);
+        RecordSink recordSink = recordSinkFactory.buildRecordSink(details)) {
       // loop through the tables to be imported and upsert base attributes
       logger.info("Job {} starting write of base attributes  ...", jobId);
       var result =
           importTables(
               tdrManifestImportTables,
-              fileDownloadHelper.getFileMap(),
+              dataFiles,
               ImportMode.BASE_ATTRIBUTES,
               recordSink,
               maybeMapRecord);
+      UpsertCounts counts = result.getTotalUpsertCounts();
+      logger.info(
+          "Job {} wrote base attributes: {} records inserted, {} updated, {} unchanged",
+          jobId,
+          counts.inserted(),
+          counts.updated(),
+          counts.unchanged());
 
       // add relations to the existing base attributes
       logger.info("Job {} starting write of relations ...", jobId);
       result.merge(
           importTables(
               tdrManifestImportTables,
-              fileDownloadHelper.getFileMap(),
+              dataFiles,
               ImportMode.RELATIONS,
               recordSink,
               Optional.empty()));
@@ -213,10 +247,6 @@ public class TdrManifestQuartzJob extends QuartzJob {
       recordSink.success();
     } catch (Exception e) {
       throw new TdrManifestImportException(e.getMessage(), e);
-    } finally {
-      // delete temp files after everything else is completed
-      // Any failed deletions will be removed if/when pod restarts
-      fileDownloadHelper.deleteFileDirectory();
     }
   }
 
@@ -236,8 +266,14 @@ public class TdrManifestQuartzJob extends QuartzJob {
       RecordSink recordSink,
       ImportMode importMode,
       Optional<UnaryOperator<Record>> maybeMapRecord) {
+    if (parquetDecodeThreads > 1) {
+      return importTableByRowGroup(inputFile, table, recordSink, importMode, maybeMapRecord);
+    }
     // upsert this parquet file's contents
-    try (ParquetReader<GenericRecord> avroParquetReader = readerForFile(inputFile)) {
+    try (ParquetReader<GenericRecord> avroParquetReader =
+        importMode == ImportMode.RELATIONS
+            ? readerForColumns(inputFile, relationsColumns(table))
+            : readerForFile(inputFile)) {
       logger.debug(
           "batch-writing records for file in table {} with mode {} ...",
           table.recordType().getName(),
@@ -245,17 +281,49 @@ public class TdrManifestQuartzJob extends QuartzJob {
 
       RecordSource recordSource =
           recordSourceFactory.forTdrImport(avroParquetReader, table, importMode);
-      if (maybeMapRecord.isPresent()) {
-        recordSource = new MappedRecordSource(recordSource, maybeMapRecord.get());
-      }
+      return writeRecords(recordSource, table, recordSink, maybeMapRecord);
+    } catch (Throwable t) {
+      throw new TdrManifestImportException(t.getMessage(), t);
+    }
+  }
 
-      return batchWriteService.batchWrite(
-          recordSource, recordSink, table.recordType(), table.primaryKey());
+  // as importTable, but decodes the file's row groups on parquetDecodeThreads threads
+  private BatchWriteResult importTableByRowGroup(
+      InputFile inputFile,
+      TdrManifestImportTable table,
+      RecordSink recordSink,
+      ImportMode importMode,
+      Optional<UnaryOperator<Record>> maybeMapRecord) {
+    try {
+      ParquetRowGroups rowGroups =
+          ParquetRowGroups.open(
+              inputFile, importMode == ImportMode.RELATIONS ? relationsColumns(table) : null);
+      logger.debug(
+          "batch-writing records for file in table {} with mode {}, {} row groups at a time ...",
+          table.recordType().getName(),
+          importMode.name(),
+          parquetDecodeThreads);
+
+      RecordSource recordSource =
+          recordSourceFactory.forTdrImport(rowGroups, table, importMode, parquetDecodeThreads);
+      return writeRecords(recordSource, table, recordSink, maybeMapRecord);
     } catch (Throwable t) {
       throw new TdrManifestImportException(t.getMessage(), t);
     }
   }
 
+  private BatchWriteResult writeRecords(
+      RecordSource recordSource,
+      TdrManifestImportTable table,
+      RecordSink recordSink,
+      Optional<UnaryOperator<Record>> maybeMapRecord) {
+    if (maybeMapRecord.isPresent()) {
+      recordSource = new MappedRecordSource(recordSource, maybeMapRecord.get());
+    }
+    return batchWriteService.batchWrite(
+        recordSource, recordSink, table.recordType(), table.primaryKey());
+  }
+
   /**
    * Creates an AvroParquetReader for a given input file. This should only be called from within a
    * try-with-resources. It exists as a standalone method to allow unit tests to work with the same
@@ -272,16 +340,40 @@ public class TdrManifestQuartzJob extends QuartzJob {
         .build();
   }
 
+  /**
+   * As {@link #readerForFile}, but reads only the given top-level columns. Parquet stores each
+   * column separately, so the other columns are neither fetched nor decoded.
+   *
+   * @param inputFile the file to read
+   * @param columns the columns to read; any not in the file are ignored
+   * @return the reader
+   * @throws IOException on problem reading the file's schema or creating the reader
+   */
+  @VisibleForTesting
+  static ParquetReader<GenericRecord> readerForColumns(InputFile inputFile, Set<String> columns)
+      throws IOException {
+    return ParquetRowGroups.open(inputFile, columns).reader();
+  }
+
+  /** The columns the RELATIONS pass reads: the primary key, and the table's relation columns. */
+  private static Set<String> relationsColumns(TdrManifestImportTable table) {
+    Set<String> columns = new HashSet<>();
+    columns.add(table.primaryKey());
+    table.relations().forEach(relation -> columns.add(relation.getFrom().getColumn()));
+    return columns;
+  }
+
   /**
    * Given the list of tables/data files to be imported, loop through and import each one
    *
    * @param importTables tables to be imported
+   * @param dataFiles provides the parquet files for each table
    * @param importMode mode for this invocation
    * @param recordSink {@link RecordSink} that directs the records to their destination
    */
   private BatchWriteResult importTables(
       List<TdrManifestImportTable> importTables,
-      Multimap<String, File> fileMap,
+      DataFiles dataFiles,
       ImportMode importMode,
       RecordSink recordSink,
       Optional<UnaryOperator<Record>> maybeMapRecord) {
@@ -299,7 +391,14 @@ public class TdrManifestQuartzJob extends QuartzJob {
               numTables,
               importTable.recordType().getName());
 
-          Collection<File> files = fileMap.get(importTable.recordType().getName());
+          // the RELATIONS pass would write nothing for this table
+          if (importMode == ImportMode.RELATIONS && importTable.relations().isEmpty()) {
+            logger.info(
+                "No relations to import for table '{}'", importTable.recordType().getName());
+            return;
+          }
+
+          List<InputFile> files = dataFiles.forTable(importTable);
 
           if (files.isEmpty()) {
             logger.info("Nothing to import for table '{}'", importTable.recordType().getName());
@@ -311,65 +410,153 @@ public class TdrManifestQuartzJob extends QuartzJob {
 
           // loop through each parquet file
           files.forEach(
-              file -> {
+              inputFile -> {
                 logger.info(
                     "file {}/{} for '{}' ...",
                     fileIdx.incrementAndGet(),
                     numFiles,
                     importTable.recordType().getName());
-                try {
-                  org.apache.hadoop.fs.Path hadoopFilePath =
-                      new org.apache.hadoop.fs.Path(file.toString());
-                  Configuration configuration = new Configuration();
-
-                  // generate the HadoopInputFile
-                  InputFile inputFile = HadoopInputFile.fromPath(hadoopFilePath, configuration);
-                  var result =
-                      importTable(inputFile, importTable, recordSink, importMode, maybeMapRecord);
-                  combinedResult.merge(result);
-                } catch (IOException e) {
-                  throw new TdrManifestImportException(e.getMessage(), e);
-                }
+                var result =
+                    importTable(inputFile, importTable, recordSink, importMode, maybeMapRecord);
+                combinedResult.merge(result);
               });
         });
     return combinedResult;
   }
 
+  /** Source of the parquet files to import for each table. */
+  private interface DataFiles extends AutoCloseable {
+    /** The non-empty parquet files for the given table, waiting for them if necessary. */
+    List<InputFile> forTable(TdrManifestImportTable importTable);
+
+    @Override
+    void close();
+  }
+
+  /** Parquet files downloaded to local temp files, in the background. */
+  private class DownloadedDataFiles implements DataFiles {
+    private final FileDownloadHelper fileDownloadHelper;
+    private final Downloads downloads;
+
+    DownloadedDataFiles(List<TdrManifestImportTable> importTables) {
+      this.fileDownloadHelper = createFileDownloadHelper();
+      this.downloads = startDownloads(fileDownloadHelper, importTables);
+    }
+
+    @Override
+    public List<InputFile> forTable(TdrManifestImportTable importTable) {
+      String tableName = importTable.recordType().getName();
+      downloads.awaitTable(tableName);
+      return fileDownloadHelper.getFiles(tableName).stream()
+          .map(TdrManifestQuartzJob::toHadoopInputFile)
+          .toList();
+    }
+
+    @Override
+    public void close() {
+      // stop any downloads still in flight, e.g. if an earlier table failed to import
+      downloads.cancel();
+      // delete temp files after everything else is completed
+      // Any failed deletions will be removed if/when pod restarts
+      fileDownloadHelper.deleteFileDirectory();
+    }
+  }
+
+  /** Parquet files read directly from remote storage with range requests; nothing on disk. */
+  private class StreamedDataFiles implements DataFiles {
+    // both import passes read the same files; only look up each file's length once
+    private final Map<RecordType, List<InputFile>> filesByTable = new HashMap<>();
+
+    @Override
+    public List<InputFile> forTable(TdrManifestImportTable importTable) {
+      return filesByTable.computeIfAbsent(
+          importTable.recordType(),
+          recordType -> {
+            logger.info(
+                "Streaming {} files for table '{}' ...",
+                importTable.dataFiles().size(),
+                recordType.getName());
+            return importTable.dataFiles().stream()
+                .map(TdrManifestQuartzJob::openRemoteFile)
+                // Azure manifests list an empty directory entry first; see FileDownloadHelper
+                .filter(inputFile -> inputFile.getLength() > 0)
+                .toList();
+          });
+    }
+
+    @Override
+    public void close() {
+      // nothing to clean up
+    }
+  }
+
+  private static InputFile toHadoopInputFile(File file) {
+    try {
+      return HadoopInputFile.fromPath(
+          new org.apache.hadoop.fs.Path(file.toString()), new Configuration());
+    } catch (IOException e) {
+      throw new TdrManifestImportException(e.getMessage(), e);
+    }
+  }
+
+  private static InputFile openRemoteFile(URL url) {
+    if (!RangedHttpInputFile.isSupported(url)) {
+      throw new TdrManifestImportException(
+          "Data file %s cannot be streamed; only http(s) URLs are supported"
+              .formatted(url.getProtocol()));
+    }
+    try {
+      return RangedHttpInputFile.open(url);
+    } catch (IOException e) {
+      throw new TdrManifestImportException(e.getMessage(), e);
+    }
+  }
+
   /**
-   * Given the list of tables/data files to be imported, loop through and download each one to a
-   * temporary file
+   * Given the list of tables/data files to be imported, download each one to a temporary file,
+   * waiting for all downloads to complete.
    *
    * @param importTables tables to be imported
    * @return path for the directory where downloaded files are located
    */
   @VisibleForTesting
   FileDownloadHelper getFilesForImport(List<TdrManifestImportTable> importTables) {
+    FileDownloadHelper fileDownloadHelper = createFileDownloadHelper();
+    Downloads downloads = startDownloads(fileDownloadHelper, importTables);
     try {
-      FileDownloadHelper fileDownloadHelper = new FileDownloadHelper("tempParquetDir");
-
-      // loop through the tables that have data files.
-      importTables.forEach(
-          importTable -> {
-            // find all Parquet files for this table
-            List<URL> paths = importTable.dataFiles();
-            logger.info(
-                "Fetching {} files for table '{}' ...",
-                paths.size(),
-                importTable.recordType().getName());
-
-            // loop through each parquet file
-            paths.forEach(
-                path ->
-                    fileDownloadHelper.downloadFileFromURL(
-                        importTable.recordType().getName(), path));
-          });
+      downloads.awaitAll();
+    } finally {
+      downloads.cancel();
+    }
+    return fileDownloadHelper;
+  }
 
-      return fileDownloadHelper;
+  private FileDownloadHelper createFileDownloadHelper() {
+    try {
+      return new FileDownloadHelper("tempParquetDir", downloadConnectTimeout, downloadReadTimeout);
     } catch (IOException e) {
       throw new TdrManifestImportException("Error downloading temporary files", e);
     }
   }
 
+  /**
+   * Start downloading the data files for all tables to be imported, in the order they appear in
+   * the manifest.
+   */
+  private Downloads startDownloads(
+      FileDownloadHelper fileDownloadHelper, List<TdrManifestImportTable> importTables) {
+    ListMultimap<String, URL> urlsByTable = ArrayListMultimap.create();
+    importTables.forEach(
+        importTable -> {
+          logger.info(
+              "Fetching {} files for table '{}' ...",
+              importTable.dataFiles().size(),
+              importTable.recordType().getName());
+          urlsByTable.putAll(importTable.recordType().getName(), importTable.dataFiles());
+        });
+    return fileDownloader.startDownloads(fileDownloadHelper, urlsByTable);
+  }
+
   /**
    * Read the manifest from the user-specified URL into a SnapshotExportResponseModel java object
    *
@@ -0,0 +1,141 @@
+package org.databiosphere.workspacedataservice.jobexec;
+
+import static org.databiosphere.workspacedataservice.shared.model.Schedulable.ARG_COLLECTION;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.Date;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.quartz.JobExecutionContext;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits how many jobs for the same collection run at once, across all replicas. When a job's
+ * collection is already at the limit, the job is vetoed and scheduled to run again after a delay;
+ * it stays QUEUED meanwhile, and whichever replica has a free worker thread then picks it up.
+ *
+ * <p>Running jobs are read from Quartz's fired-triggers table, so the limit only applies with the
+ * JDBC job store. Quartz records a job as executing before asking listeners whether to veto it, so
+ * each job ranks itself among its collection's executing jobs, oldest first, and only jobs ranked
+ * past the limit are vetoed. Every job sees the same ranking, so when many jobs fire at once the
+ * first ones still run. Deferred jobs are retried after the deferral plus a random jitter of up to
+ * the same again, so that they do not all fire together again.
+ */
+@Component
+public class CollectionConcurrencyLimiter implements TriggerListener {
+  private static final Logger logger = LoggerFactory.getLogger(CollectionConcurrencyLimiter.class);
+
+  private final NamedParameterJdbcTemplate namedTemplate;
+  private final InstantSource instantSource;
+  private final int maxConcurrentPerCollection;
+  private final Duration deferral;
+  private final Counter deferred;
+
+  public CollectionConcurrencyLimiter(
+      NamedParameterJdbcTemplate namedTemplate,
+      InstantSource instantSource,
+      MeterRegistry meterRegistry,
+      @Value("${twds.jobs.max-concurrent-per-collection:0}") int maxConcurrentPerCollection,
+      @Value("${twds.jobs.deferral:30s}") Duration deferral) {
+    this.namedTemplate = namedTemplate;
+    this.instantSource = instantSource;
+    this.maxConcurrentPerCollection = maxConcurrentPerCollection;
+    this.deferral = deferral;
+    this.deferred =
+        Counter.builder("wds.job.deferred")
+            .description("Jobs deferred because their collection was running too many jobs")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public String getName() {
+    return "collectionConcurrencyLimiter";
+  }
+
+  @Override
+  public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+    String collectionId = context.getMergedJobDataMap().getString(ARG_COLLECTION);
+    if (maxConcurrentPerCollection <= 0 || collectionId == null) {
+      return false;
+    }
+    try {
+      OptionalInt position = positionAmongRunning(context.getFireInstanceId(), collectionId);
+      if (position.isEmpty() || position.getAsInt() <= maxConcurrentPerCollection) {
+        return false;
+      }
+      // run the job again later; its current trigger is deleted once this veto completes
+      long jitterMillis = ThreadLocalRandom.current().nextLong(deferral.toMillis() + 1);
+      Date retryAt = Date.from(instantSource.instant().plus(deferral).plusMillis(jitterMillis));
+      context
+          .getScheduler()
+          .scheduleJob(newTrigger().forJob(trigger.getJobKey()).startAt(retryAt).build());
+      deferred.increment();
+      logger.info(
+          "Deferring job {} until {}: collection {} is already running {} jobs",
+          trigger.getJobKey(),
+          retryAt,
+          collectionId,
+          maxConcurrentPerCollection);
+      return true;
+    } catch (DataAccessException | IllegalArgumentException | SchedulerException e) {
+      // better to exceed the limit than to lose the job
+      logger.warn(
+          "Could not apply the concurrency limit to job {}: {}",
+          trigger.getJobKey(),
+          e.getMessage());
+      return false;
+    }
+  }
+
+  // 1-based position of the given firing among the jobs executing for the collection on any
+  // replica, ordered by when they fired; empty if the firing is not in the fired-triggers table
+  private OptionalInt positionAmongRunning(String fireInstanceId, String collectionId) {
+    List<Integer> positions =
+        namedTemplate.queryForList(
+            "select position from ("
+                + "select ft.entry_id, "
+                + "row_number() over (order by ft.fired_time, ft.entry_id) as position "
+                + "from sys_wds.qrtz_fired_triggers ft "
+                + "join sys_wds.job j on j.id = ft.job_name "
+                + "where ft.state = 'EXECUTING' and j.collection_id = :collectionId"
+                + ") ranked where entry_id = :entryId",
+            new MapSqlParameterSource("collectionId", UUID.fromString(collectionId))
+                .addValue("entryId", fireInstanceId),
+            Integer.class);
+    return positions.isEmpty() ? OptionalInt.empty() : OptionalInt.of(positions.get(0));
+  }
+
+  @Override
+  public void triggerFired(Trigger trigger, JobExecutionContext context) {
+    // noop
+  }
+
+  @Override
+  public void triggerMisfired(Trigger trigger) {
+    // noop
+  }
+
+  @Override
+  public void triggerComplete(
+      Trigger trigger,
+      JobExecutionContext context,
+      CompletedExecutionInstruction triggerInstructionCode) {
+    // noop
+  }
+}
@@ -0,0 +1,66 @@
+package org.databiosphere.workspacedataservice.jobexec;
+
+import static org.databiosphere.workspacedataservice.shared.model.Schedulable.ARG_TOKEN;
+
+import java.util.Optional;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.dao.JobTokenDao;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Restores each job's auth token, which {@link JobTokenDao} keeps out of Quartz's persisted job
+ * data, to the job's merged data when the job runs, so that {@link QuartzJob} can read it as
+ * before. Deletes the token once the job has run.
+ */
+@Component
+public class JobTokenListener implements JobListener {
+  private static final Logger logger = LoggerFactory.getLogger(JobTokenListener.class);
+
+  private final JobTokenDao jobTokenDao;
+
+  public JobTokenListener(JobTokenDao jobTokenDao) {
+    this.jobTokenDao = jobTokenDao;
+  }
+
+  @Override
+  public String getName() {
+    return "jobTokenListener";
+  }
+
+  @Override
+  public void jobToBeExecuted(JobExecutionContext context) {
+    if (context.getMergedJobDataMap().containsKey(ARG_TOKEN)) {
+      return;
+    }
+    jobId(context)
+        .flatMap(jobTokenDao::get)
+        .ifPresentOrElse(
+            token -> context.getMergedJobDataMap().put(ARG_TOKEN, token),
+            () -> logger.warn("No auth token found for job {}", context.getJobDetail().getKey()));
+  }
+
+  @Override
+  public void jobExecutionVetoed(JobExecutionContext context) {
+    // the job will run later; keep its token
+  }
+
+  @Override
+  public void jobWasExecuted(
+      JobExecutionContext context, @Nullable org.quartz.JobExecutionException jobException) {
+    jobId(context).ifPresent(jobTokenDao::delete);
+  }
+
+  // WDS job ids are the names of their Quartz jobs
+  private static Optional<UUID> jobId(JobExecutionContext context) {
+    try {
+      return Optional.of(UUID.fromString(context.getJobDetail().getKey().getName()));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package org.databiosphere.workspacedataservice.jobexec;
+
+import org.springframework.boot.autoconfigure.quartz.SchedulerFactoryBeanCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Registers WDS's listeners with the Quartz scheduler configured by Spring Boot. */
+@Configuration
+public class QuartzConfig {
+
+  @Bean
+  public SchedulerFactoryBeanCustomizer jobListenersCustomizer(
+      JobTokenListener jobTokenListener, CollectionConcurrencyLimiter concurrencyLimiter) {
+    return schedulerFactoryBean -> {
+      schedulerFactoryBean.setGlobalJobListeners(jobTokenListener);
+      schedulerFactoryBean.setGlobalTriggerListeners(concurrencyLimiter);
+    };
+  }
+}
@@ -0,0 +1,36 @@
+package org.databiosphere.workspacedataservice.recordsink;
+
+import java.util.List;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.service.model.exception.DataImportException;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+
+/**
+ * A {@link RecordSink}'s support for deferring the widening of a column's type until the end of a
+ * stream of batches, staging the column's new values meanwhile.
+ *
+ * @see RecordSink#columnStaging()
+ * @see StagedColumn
+ */
+public interface ColumnStaging {
+  /** Whether widening a column from one type to another can be deferred. */
+  boolean canDeferWidening(DataTypeMapping columnType, DataTypeMapping newType);
+
+  /**
+   * Add an empty column in which to stage a widening column's new values.
+   *
+   * @throws DataImportException if an error occurs adding the column
+   */
+  void addStagingColumn(RecordType recordType, String stagingColumn, DataTypeMapping stagingType)
+      throws DataImportException;
+
+  /**
+   * Convert columns whose widening was deferred to their final types, merging in their staged
+   * values, and drop their staging columns.
+   *
+   * @throws DataImportException if an error occurs converting the columns
+   */
+  void applyStagedColumns(RecordType recordType, List<StagedColumn> stagedColumns)
+      throws DataImportException;
+}
@@ -2,6 +2,7 @@ package org.databiosphere.workspacedataservice.recordsink;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.NotImplementedException;
+import org.databiosphere.workspacedataservice.config.DataImportProperties;
 import org.databiosphere.workspacedataservice.dao.RecordDao;
 import org.databiosphere.workspacedataservice.dataimport.ImportDetails;
 import org.databiosphere.workspacedataservice.pubsub.PubSub;
@@ -19,6 +20,7 @@ import org.springframework.stereotype.Component;
 public class MultiCloudRecordSinkFactory implements RecordSinkFactory {
 
   private final CollectionService collectionService;
+  private final DataImportProperties dataImportProperties;
   private final DataTypeInferer dataTypeInferer;
   private final GcsStorage storage;
   private final ObjectMapper mapper;
@@ -29,6 +31,7 @@ public class MultiCloudRecordSinkFactory implements RecordSinkFactory {
 
   public MultiCloudRecordSinkFactory(
       CollectionService collectionService,
+      DataImportProperties dataImportProperties,
       DataTypeInferer dataTypeInferer,
       GcsStorage storage,
       ObjectMapper mapper,
@@ -37,6 +40,7 @@ public class MultiCloudRecordSinkFactory implements RecordSinkFactory {
       RecordService recordService,
       WorkspaceService workspaceService) {
     this.collectionService = collectionService;
+    this.dataImportProperties = dataImportProperties;
     this.dataTypeInferer = dataTypeInferer;
     this.storage = storage;
     this.mapper = mapper;
@@ -58,7 +62,12 @@ public class MultiCloudRecordSinkFactory implements RecordSinkFactory {
       case RAWLS -> RawlsRecordSink.create(mapper, storage, pubSub, importDetails);
       case WDS ->
           new WdsRecordSink(
-              recordService, recordDao, dataTypeInferer, importDetails.collectionId());
+              recordService,
+              recordDao,
+              dataTypeInferer,
+              importDetails.collectionId(),
+              dataImportProperties.isBulkLoadEnabled(),
+              dataImportProperties.isDeferTypeWideningEnabled());
     };
   }
 
@@ -75,7 +84,14 @@ public class MultiCloudRecordSinkFactory implements RecordSinkFactory {
       case RAWLS ->
           throw new NotImplementedException(
               "MultiCloudRecordSinkFactory does not support building a RawlsRecordSink from a CollectionId");
-      case WDS -> new WdsRecordSink(recordService, recordDao, dataTypeInferer, collectionId);
+      case WDS ->
+          new WdsRecordSink(
+              recordService,
+              recordDao,
+              dataTypeInferer,
+              collectionId,
+              dataImportProperties.isBulkLoadEnabled(),
+              dataImportProperties.isDeferTypeWideningEnabled());
     };
   }
 }
@@ -11,6 +11,7 @@ import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Stream;
 import org.databiosphere.workspacedataservice.dataimport.ImportDetails;
 import org.databiosphere.workspacedataservice.dataimport.rawlsjson.RawlsJsonQuartzJob;
@@ -26,6 +27,7 @@ import org.databiosphere.workspacedataservice.recordsink.RawlsModel.Entity;
 import org.databiosphere.workspacedataservice.recordsink.RawlsModel.EntityReference;
 import org.databiosphere.workspacedataservice.recordsink.RawlsModel.RemoveAttribute;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.DataImportException;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
@@ -87,13 +89,15 @@ public class RawlsRecordSink implements RecordSink {
   }
 
   @Override
-  public void upsertBatch(
+  public Optional<UpsertCounts> upsertBatch(
       RecordType recordType,
       Map<String, DataTypeMapping> schema, // ignored
       List<Record> records,
       String primaryKey // ignored
       ) {
     records.stream().map(this::toEntity).forEach(jsonWriter::writeEntity);
+    // Rawls applies the upserts later, so can't say what they change
+    return Optional.empty();
   }
 
   @Override
@@ -2,7 +2,9 @@ package org.databiosphere.workspacedataservice.recordsink;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.DataImportException;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
@@ -27,9 +29,10 @@ public interface RecordSink extends AutoCloseable {
   /**
    * Upsert the given batch of records.
    *
+   * @return how many records were inserted, updated or left unchanged, if this sink can tell
    * @throws DataImportException if an error occurs while upserting the records
    */
-  void upsertBatch(
+  Optional<UpsertCounts> upsertBatch(
       RecordType recordType,
       Map<String, DataTypeMapping> schema,
       List<Record> records,
@@ -43,6 +46,15 @@ public interface RecordSink extends AutoCloseable {
    */
   void deleteBatch(RecordType recordType, List<Record> records) throws DataImportException;
 
+  /**
+   * This sink's support for deferring column widening until the end of a stream of batches, if it
+   * has any. Without it, BatchWriteService widens columns through {@link
+   * #createOrModifyRecordType} instead.
+   */
+  default Optional<ColumnStaging> columnStaging() {
+    return Optional.empty();
+  }
+
   /**
    * Callback always invoked at the end of a series of batch operations. This should execute any
    * code to run on both success and failure, such as closing open files.
@@ -1,36 +1,56 @@
 package org.databiosphere.workspacedataservice.recordsink;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import org.databiosphere.workspacedataservice.dao.RecordDao;
 import org.databiosphere.workspacedataservice.service.DataTypeInferer;
 import org.databiosphere.workspacedataservice.service.RecordService;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.DataImportException;
 import org.databiosphere.workspacedataservice.shared.model.CollectionId;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 
 /**
  * {@link RecordSink} implementation that records batches of writes/deletes to the Workspace Data
- * Service storage, adjusting the schema as needed.
+ * Service storage, adjusting the schema as needed. In bulk-load mode, upserts are streamed to
+ * Postgres via COPY instead of batched inserts; see {@link RecordDao#copyUpsert}. With deferred
+ * type widening, columns whose type must widen mid-stream are converted once, at the end of the
+ * stream; see {@link StagedColumn}.
  */
-public class WdsRecordSink implements RecordSink {
+public class WdsRecordSink implements RecordSink, ColumnStaging {
+  private static final Logger LOGGER = LoggerFactory.getLogger(WdsRecordSink.class);
 
   private final RecordService recordService;
   private final RecordDao recordDao;
   private final DataTypeInferer inferer;
   private final CollectionId collectionId;
+  private final boolean bulkLoad;
+  private final boolean deferTypeWidening;
+  // record types written via COPY, whose staging tables to drop when the stream ends
+  private final Set<RecordType> bulkLoadedTypes = new HashSet<>();
 
   WdsRecordSink(
       RecordService recordService,
       RecordDao recordDao,
       DataTypeInferer inferer,
-      CollectionId collectionId) {
+      CollectionId collectionId,
+      boolean bulkLoad,
+      boolean deferTypeWidening) {
     this.recordService = recordService;
     this.recordDao = recordDao;
     this.inferer = inferer;
     this.collectionId = collectionId;
+    this.bulkLoad = bulkLoad;
+    this.deferTypeWidening = deferTypeWidening;
   }
 
   @Override
@@ -58,12 +78,16 @@ public class WdsRecordSink implements RecordSink {
   }
 
   @Override
-  public void upsertBatch(
+  public Optional<UpsertCounts> upsertBatch(
       RecordType recordType,
       Map<String, DataTypeMapping> schema,
       List<Record> records,
       String primaryKey) {
-    recordService.batchUpsert(collectionId.id(), recordType, records, schema, primaryKey);
+    if (bulkLoad) {
+      bulkLoadedTypes.add(recordType);
+    }
+    return recordService.batchUpsert(
+        collectionId.id(), recordType, records, schema, primaryKey, bulkLoad);
   }
 
   @Override
@@ -71,6 +95,42 @@ public class WdsRecordSink implements RecordSink {
     recordDao.batchDelete(collectionId.id(), recordType, records);
   }
 
+  @Override
+  public Optional<ColumnStaging> columnStaging() {
+    return deferTypeWidening ? Optional.of(this) : Optional.empty();
+  }
+
+  @Override
+  public boolean canDeferWidening(DataTypeMapping columnType, DataTypeMapping newType) {
+    // both the column and its staged values must be convertible to the new type
+    return recordDao.canConvertColumn(columnType, newType)
+        && recordDao.canConvertColumn(StagedColumn.stagingTypeFor(newType), newType);
+  }
+
+  @Override
+  public void addStagingColumn(
+      RecordType recordType, String stagingColumn, DataTypeMapping stagingType) {
+    recordDao.addStagingColumn(collectionId.id(), recordType, stagingColumn, stagingType);
+  }
+
+  @Override
+  public void applyStagedColumns(RecordType recordType, List<StagedColumn> stagedColumns) {
+    recordService.applyStagedColumns(collectionId.id(), recordType, stagedColumns);
+  }
+
+  @Override
+  public void close() {
+    for (RecordType recordType : bulkLoadedTypes) {
+      try {
+        recordDao.dropStagingTables(collectionId.id(), recordType);
+      } catch (DataAccessException e) {
+        // the records are written; connections drop leftover staging tables before their next COPY
+        LOGGER.warn("Could not drop staging tables for {}: {}", recordType, e.getMessage());
+      }
+    }
+    bulkLoadedTypes.clear();
+  }
+
   @Override
   public void success() throws DataImportException {
     // noop
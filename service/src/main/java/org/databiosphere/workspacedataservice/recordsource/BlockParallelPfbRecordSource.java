@@ -0,0 +1,236 @@
+package org.databiosphere.workspacedataservice.recordsource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.SeekableFileInput;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.databiosphere.workspacedataservice.dataimport.pfb.PfbRecordConverter;
+import org.databiosphere.workspacedataservice.dataimport.pfb.PfbRelationSpill;
+import org.databiosphere.workspacedataservice.shared.model.OperationType;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+
+/**
+ * As {@link PfbRecordSource} with a relation spill, but decodes a local PFB file in parallel.
+ *
+ * <p>A PFB is an Avro object container file, whose blocks are separated by sync markers. The file
+ * is cut into splits of {@code splitBytes}; each split is decompressed, decoded and converted on
+ * one of the worker threads shared by all imports, which seeks to the first sync marker in the
+ * split and reads every block that starts within it. Records are returned, and relations spilled,
+ * in file order.
+ *
+ * <p>At most {@code parallelism} splits are decoded, or held decoded, ahead of the caller. Each
+ * split being decoded uses a reader and converter from a pool of at most that many, so the file's
+ * header is parsed, and each schema's conversion plan compiled, once per reader rather than once
+ * per split.
+ */
+public class BlockParallelPfbRecordSource implements RecordSource {
+
+  /** The smallest split {@link #splitBytesFor} chooses. */
+  public static final long MIN_SPLIT_BYTES = 4L * 1024L * 1024L;
+
+  /** The largest split {@link #splitBytesFor} chooses; its records must fit easily in memory. */
+  public static final long MAX_SPLIT_BYTES = 32L * 1024L * 1024L;
+
+  // aim for this many splits per worker, so that workers finishing early are not left idle
+  private static final int SPLITS_PER_WORKER = 4;
+
+  private final Path pfbFile;
+  private final ObjectMapper objectMapper;
+  private final PfbRelationSpill relationSpill;
+  private final int parallelism;
+  private final long splitBytes;
+  private final long fileLength;
+  private final ExecutorService workers;
+
+  // splits submitted to the workers, in file order
+  private final Deque<Future<DecodedSplit>> decoding = new ArrayDeque<>();
+  // readers not decoding a split right now; guarded by this
+  private final Deque<SplitReader> idleReaders = new ArrayDeque<>();
+  private boolean closed;
+  private long nextSplitStart;
+  // the records of the split being returned, and the position within them
+  private List<Record> current = List.of();
+  private int position;
+
+  // a split's base-attribute records, and the relations to spill for them
+  private record DecodedSplit(List<Record> records, List<Record> relations) {}
+
+  // reads any split of the file; used by one worker at a time
+  private record SplitReader(DataFileReader<GenericRecord> reader, PfbRecordConverter converter) {}
+
+  /**
+   * @param pfbFile the local PFB file
+   * @param objectMapper the object mapper to use when converting PFB records to WDS records
+   * @param relationSpill where to write relations, for the RELATIONS pass
+   * @param workers the threads to decode splits on; shared, so not shut down by this source
+   * @param parallelism how many splits to decode at once
+   * @param splitBytes the size of each split; see {@link #splitBytesFor}
+   * @throws IOException on problem reading the file's size
+   */
+  public BlockParallelPfbRecordSource(
+      Path pfbFile,
+      ObjectMapper objectMapper,
+      PfbRelationSpill relationSpill,
+      ExecutorService workers,
+      int parallelism,
+      long splitBytes)
+      throws IOException {
+    this.pfbFile = pfbFile;
+    this.objectMapper = objectMapper;
+    this.relationSpill = relationSpill;
+    this.workers = workers;
+    this.parallelism = parallelism;
+    this.splitBytes = splitBytes;
+    this.fileLength = Files.size(pfbFile);
+  }
+
+  /**
+   * A split size giving each of {@code parallelism} workers a few splits of the file, within
+   * {@link #MIN_SPLIT_BYTES} and {@link #MAX_SPLIT_BYTES}.
+   */
+  public static long splitBytesFor(long fileLength, int parallelism) {
+    long perSplit = fileLength / ((long) Math.max(1, parallelism) * SPLITS_PER_WORKER);
+    return Math.min(Math.max(perSplit, MIN_SPLIT_BYTES), MAX_SPLIT_BYTES);
+  }
+
+  @Override
+  public WriteStreamInfo readRecords(int numRecords) throws IOException {
+    List<Record> records = new ArrayList<>(numRecords);
+    while (records.size() < numRecords) {
+      if (position == current.size()) {
+        submitSplits();
+        if (decoding.isEmpty()) {
+          // end of the PFB
+          break;
+        }
+        DecodedSplit split = await(decoding.removeFirst());
+        for (Record relations : split.relations()) {
+          relationSpill.write(relations);
+        }
+        current = split.records();
+        position = 0;
+        continue;
+      }
+      int end = Math.min(current.size(), position + numRecords - records.size());
+      records.addAll(current.subList(position, end));
+      position = end;
+    }
+    if (position == current.size()) {
+      // release the split's records as soon as they've all been returned
+      current = List.of();
+      position = 0;
+    }
+    return new WriteStreamInfo(records, OperationType.UPSERT);
+  }
+
+  // keep every worker busy, without decoding more than parallelism splits ahead
+  private void submitSplits() {
+    while (decoding.size() < parallelism && nextSplitStart < fileLength) {
+      long start = nextSplitStart;
+      long end = Math.min(start + splitBytes, fileLength);
+      nextSplitStart = end;
+      decoding.addLast(workers.submit(() -> decode(start, end)));
+    }
+  }
+
+  private DecodedSplit decode(long start, long end) throws IOException {
+    SplitReader splitReader = takeReader();
+    boolean reusable = false;
+    try {
+      DataFileReader<GenericRecord> reader = splitReader.reader();
+      PfbRecordConverter converter = splitReader.converter();
+      List<Record> records = new ArrayList<>();
+      List<Record> relations = new ArrayList<>();
+      // the first block of this split is the first after a sync marker at or after its start;
+      // the blocks of the previous split end where this one's begin
+      reader.sync(start);
+      while (reader.hasNext() && !reader.pastSync(end)) {
+        GenericRecord genericRecord = reader.next();
+        records.add(converter.convert(genericRecord, ImportMode.BASE_ATTRIBUTES));
+        relations.add(converter.convert(genericRecord, ImportMode.RELATIONS));
+      }
+      reusable = true;
+      return new DecodedSplit(records, relations);
+    } finally {
+      // a reader that failed part way may be in any state; don't reuse it
+      releaseReader(splitReader, reusable);
+    }
+  }
+
+  private SplitReader takeReader() throws IOException {
+    synchronized (this) {
+      if (!idleReaders.isEmpty()) {
+        return idleReaders.removeFirst();
+      }
+    }
+    return new SplitReader(
+        new DataFileReader<>(new SeekableFileInput(pfbFile.toFile()), new GenericDatumReader<>()),
+        new PfbRecordConverter(objectMapper));
+  }
+
+  private void releaseReader(SplitReader splitReader, boolean reusable) throws IOException {
+    synchronized (this) {
+      if (reusable && !closed) {
+        idleReaders.addLast(splitReader);
+        return;
+      }
+    }
+    splitReader.reader().close();
+  }
+
+  @VisibleForTesting
+  synchronized int idleReaderCount() {
+    return idleReaders.size();
+  }
+
+  private static DecodedSplit await(Future<DecodedSplit> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while decoding PFB");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IOException("Failed to decode PFB", e.getCause());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    decoding.forEach(future -> future.cancel(true));
+    decoding.clear();
+    List<SplitReader> toClose;
+    synchronized (this) {
+      closed = true;
+      toClose = new ArrayList<>(idleReaders);
+      idleReaders.clear();
+    }
+    // readers still decoding a cancelled split are closed when it finishes
+    for (SplitReader splitReader : toClose) {
+      splitReader.reader().close();
+    }
+  }
+
+  @Override
+  public ImportMode importMode() {
+    return ImportMode.BASE_ATTRIBUTES;
+  }
+}
@@ -16,8 +16,7 @@ public class ParquetRecordSource implements RecordSource {
   private final ParquetReader<GenericRecord> parquetReader;
   private final ImportMode importMode;
 
-  private final TdrManifestImportTable table;
-  private final ObjectMapper objectMapper;
+  private final ParquetRecordConverter converter;
 
   public ParquetRecordSource(
       ParquetReader<GenericRecord> parquetReader,
@@ -26,8 +25,8 @@ public class ParquetRecordSource implements RecordSource {
       ObjectMapper objectMapper) {
     this.parquetReader = parquetReader;
     this.importMode = importMode;
-    this.table = table;
-    this.objectMapper = objectMapper;
+    // one converter for the whole file, so it compiles its conversion plan once
+    this.converter = new ParquetRecordConverter(table, objectMapper);
   }
 
   @Override
@@ -44,7 +43,6 @@ public class ParquetRecordSource implements RecordSource {
     }
 
     // convert avro generic records to WDS records
-    ParquetRecordConverter converter = new ParquetRecordConverter(table, objectMapper);
     List<Record> records =
         genericRecords.stream().map(gr -> converter.convert(gr, importMode)).toList();
 
@@ -2,22 +2,23 @@ package org.databiosphere.workspacedataservice.recordsource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Spliterator;
-import java.util.Spliterators;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericRecord;
 import org.databiosphere.workspacedataservice.dataimport.pfb.PfbRecordConverter;
+import org.databiosphere.workspacedataservice.dataimport.pfb.PfbRelationSpill;
 import org.databiosphere.workspacedataservice.shared.model.OperationType;
 import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.springframework.lang.Nullable;
 
 public class PfbRecordSource implements RecordSource {
 
   private final DataFileStream<GenericRecord> inputStream;
   private final ImportMode importMode;
-  private final ObjectMapper objectMapper;
+  private final PfbRecordConverter pfbRecordConverter;
+  @Nullable private final PfbRelationSpill relationSpill;
 
   /**
    * Create a new PfbRecordSource and specify the expected schemas for the PFB.
@@ -28,26 +29,59 @@ public class PfbRecordSource implements RecordSource {
    */
   public PfbRecordSource(
       DataFileStream<GenericRecord> inputStream, ImportMode importMode, ObjectMapper objectMapper) {
+    this(inputStream, importMode, objectMapper, null);
+  }
+
+  /**
+   * Create a new PfbRecordSource which reads base attributes, and also writes the relations of each
+   * record it reads to the given spill, for a later RELATIONS pass via {@link
+   * PfbRelationSpill#replay()}.
+   *
+   * @param inputStream the PFB stream
+   * @param objectMapper the object mapper to use when converting PFB records to WDS records
+   * @param relationSpill where to write relations
+   */
+  public PfbRecordSource(
+      DataFileStream<GenericRecord> inputStream,
+      ObjectMapper objectMapper,
+      PfbRelationSpill relationSpill) {
+    this(inputStream, ImportMode.BASE_ATTRIBUTES, objectMapper, relationSpill);
+  }
+
+  private PfbRecordSource(
+      DataFileStream<GenericRecord> inputStream,
+      ImportMode importMode,
+      ObjectMapper objectMapper,
+      @Nullable PfbRelationSpill relationSpill) {
     this.inputStream = inputStream;
     this.importMode = importMode;
-    this.objectMapper = objectMapper;
+    this.pfbRecordConverter = new PfbRecordConverter(objectMapper);
+    this.relationSpill = relationSpill;
   }
 
   public WriteStreamInfo readRecords(int numRecords) {
-    // pull the next `numRecords` rows from the inputStream and translate to a Java Stream
-    Stream<GenericRecord> pfbBatch =
-        StreamSupport.stream(
-                Spliterators.spliteratorUnknownSize(inputStream, Spliterator.ORDERED), false)
-            .limit(numRecords);
-
-    // convert the PFB GenericRecord objects into WDS Record objects
-    PfbRecordConverter pfbRecordConverter = new PfbRecordConverter(objectMapper);
-    List<Record> records =
-        pfbBatch.map(rec -> pfbRecordConverter.convert(rec, importMode)).toList();
+    // pull the next `numRecords` rows from the inputStream and convert the PFB GenericRecord
+    // objects into WDS Record objects
+    List<Record> records = new ArrayList<>();
+    while (records.size() < numRecords && inputStream.hasNext()) {
+      GenericRecord genericRecord = inputStream.next();
+      records.add(pfbRecordConverter.convert(genericRecord, importMode));
+      if (relationSpill != null) {
+        spillRelations(relationSpill, genericRecord);
+      }
+    }
 
     return new WriteStreamInfo(records, OperationType.UPSERT);
   }
 
+  private void spillRelations(PfbRelationSpill spill, GenericRecord genericRecord) {
+    try {
+      spill.write(pfbRecordConverter.convert(genericRecord, ImportMode.RELATIONS));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error writing PFB relations to local spill file", e);
+    }
+  }
+
   @Override
   public void close() throws IOException {
     inputStream.close();
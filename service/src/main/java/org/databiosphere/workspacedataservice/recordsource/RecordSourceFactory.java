@@ -2,12 +2,22 @@ package org.databiosphere.workspacedataservice.recordsource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.avro.file.DataFileStream;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.parquet.hadoop.ParquetReader;
+import org.databiosphere.workspacedataservice.config.DataImportProperties;
+import org.databiosphere.workspacedataservice.dataimport.pfb.PfbRelationSpill;
+import org.databiosphere.workspacedataservice.dataimport.tdr.ParquetRowGroups;
 import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
 import org.databiosphere.workspacedataservice.service.model.TdrManifestImportTable;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
@@ -18,10 +28,42 @@ public class RecordSourceFactory {
 
   private final ObjectMapper objectMapper;
   private final ObjectReader objectReader;
+  // decodes parquet row groups for every import in this process; see RowGroupParquetRecordSource
+  private final ThreadPoolExecutor parquetDecodeWorkers;
+  // decodes PFB splits for every import in this process; see BlockParallelPfbRecordSource
+  private final ThreadPoolExecutor pfbDecodeWorkers;
 
-  public RecordSourceFactory(ObjectMapper objectMapper, ObjectReader objectReader) {
+  public RecordSourceFactory(
+      ObjectMapper objectMapper,
+      ObjectReader objectReader,
+      DataImportProperties dataImportProperties) {
     this.objectMapper = objectMapper;
     this.objectReader = objectReader;
+    this.parquetDecodeWorkers =
+        decodeWorkers(dataImportProperties.getParquetDecodeThreads(), "parquet-decode-%d");
+    this.pfbDecodeWorkers =
+        decodeWorkers(dataImportProperties.getPfbDecodeThreads(), "pfb-decode-%d");
+  }
+
+  private static ThreadPoolExecutor decodeWorkers(int threads, String nameFormat) {
+    int decodeThreads = Math.max(1, threads);
+    ThreadPoolExecutor workers =
+        new ThreadPoolExecutor(
+            decodeThreads,
+            decodeThreads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+    // only keep threads while imports are decoding
+    workers.allowCoreThreadTimeOut(true);
+    return workers;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    parquetDecodeWorkers.shutdownNow();
+    pfbDecodeWorkers.shutdownNow();
   }
 
   public RecordSource forJson(InputStream inputStream) throws IOException {
@@ -43,7 +85,40 @@ public class RecordSourceFactory {
     return new ParquetRecordSource(parquetReader, importMode, table, objectMapper);
   }
 
+  /**
+   * As above, but decodes up to {@code parallelism} of the file's row groups ahead, on the decode
+   * threads shared by all imports.
+   */
+  public RecordSource forTdrImport(
+      ParquetRowGroups rowGroups,
+      TdrManifestImportTable table,
+      ImportMode importMode,
+      int parallelism) {
+    return new RowGroupParquetRecordSource(
+        rowGroups, importMode, table, objectMapper, parquetDecodeWorkers, parallelism);
+  }
+
   public RecordSource forPfb(DataFileStream<GenericRecord> inputStream, ImportMode importMode) {
     return new PfbRecordSource(inputStream, importMode, objectMapper);
   }
+
+  public RecordSource forPfb(
+      DataFileStream<GenericRecord> inputStream, PfbRelationSpill relationSpill) {
+    return new PfbRecordSource(inputStream, objectMapper, relationSpill);
+  }
+
+  /**
+   * As above, but decodes up to {@code parallelism} splits of the local PFB file at once, on the
+   * decode threads shared by all imports.
+   */
+  public RecordSource forPfb(Path pfbFile, PfbRelationSpill relationSpill, int parallelism)
+      throws IOException {
+    return new BlockParallelPfbRecordSource(
+        pfbFile,
+        objectMapper,
+        relationSpill,
+        pfbDecodeWorkers,
+        parallelism,
+        BlockParallelPfbRecordSource.splitBytesFor(Files.size(pfbFile), parallelism));
+  }
 }
@@ -0,0 +1,133 @@
+package org.databiosphere.workspacedataservice.recordsource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.databiosphere.workspacedataservice.dataimport.tdr.ParquetRecordConverter;
+import org.databiosphere.workspacedataservice.dataimport.tdr.ParquetRowGroups;
+import org.databiosphere.workspacedataservice.service.model.TdrManifestImportTable;
+import org.databiosphere.workspacedataservice.shared.model.OperationType;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+
+/**
+ * As {@link ParquetRecordSource}, but reads and converts a parquet file's row groups in parallel,
+ * each on a worker thread with its own reader and converter. Records are returned in file order.
+ *
+ * <p>At most {@code parallelism} row groups are decoded, or held decoded, ahead of the caller, so
+ * memory use is bounded by the size of that many row groups' records. The workers are shared with
+ * other imports, and are not shut down when this source is closed.
+ */
+public class RowGroupParquetRecordSource implements RecordSource {
+
+  private final ParquetRowGroups rowGroups;
+  private final ImportMode importMode;
+  private final TdrManifestImportTable table;
+  private final ObjectMapper objectMapper;
+  private final int parallelism;
+  private final ExecutorService workers;
+
+  // row groups submitted to the workers, in file order
+  private final Deque<Future<List<Record>>> decoding = new ArrayDeque<>();
+  private int nextRowGroup;
+  // the records of the row group being returned, and the position within them
+  private List<Record> current = List.of();
+  private int position;
+
+  public RowGroupParquetRecordSource(
+      ParquetRowGroups rowGroups,
+      ImportMode importMode,
+      TdrManifestImportTable table,
+      ObjectMapper objectMapper,
+      ExecutorService workers,
+      int parallelism) {
+    this.rowGroups = rowGroups;
+    this.importMode = importMode;
+    this.table = table;
+    this.objectMapper = objectMapper;
+    this.workers = workers;
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public WriteStreamInfo readRecords(int numRecords) throws IOException {
+    List<Record> records = new ArrayList<>(numRecords);
+    while (records.size() < numRecords) {
+      if (position == current.size()) {
+        submitRowGroups();
+        if (decoding.isEmpty()) {
+          // end of the parquet input
+          break;
+        }
+        current = await(decoding.removeFirst());
+        position = 0;
+        continue;
+      }
+      int end = Math.min(current.size(), position + numRecords - records.size());
+      records.addAll(current.subList(position, end));
+      position = end;
+    }
+    if (position == current.size()) {
+      // release the row group's records as soon as they've all been returned
+      current = List.of();
+      position = 0;
+    }
+    return new WriteStreamInfo(records, OperationType.UPSERT);
+  }
+
+  // decode up to parallelism row groups ahead
+  private void submitRowGroups() {
+    while (decoding.size() < parallelism && nextRowGroup < rowGroups.size()) {
+      int rowGroup = nextRowGroup++;
+      decoding.addLast(workers.submit(() -> decode(rowGroup)));
+    }
+  }
+
+  private List<Record> decode(int rowGroup) throws IOException {
+    ParquetRecordConverter converter = new ParquetRecordConverter(table, objectMapper);
+    List<Record> records = new ArrayList<>();
+    try (ParquetReader<GenericRecord> reader = rowGroups.reader(rowGroup)) {
+      GenericRecord genericRecord;
+      while ((genericRecord = reader.read()) != null) {
+        records.add(converter.convert(genericRecord, importMode));
+      }
+    }
+    return records;
+  }
+
+  private static List<Record> await(Future<List<Record>> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while decoding parquet row group");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IOException("Failed to decode parquet row group", e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    decoding.forEach(future -> future.cancel(true));
+    decoding.clear();
+  }
+
+  @Override
+  public ImportMode importMode() {
+    return importMode;
+  }
+}
@@ -0,0 +1,132 @@
+package org.databiosphere.workspacedataservice.retry;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for a single REST target, over a rolling window of its most recent calls.
+ *
+ * <ul>
+ *   <li>CLOSED: calls are allowed. The breaker opens when, over at least {@code minimumCalls}
+ *       calls, the rate of failed calls or the rate of slow calls reaches its threshold.
+ *   <li>OPEN: calls are rejected until {@code openDuration} has passed.
+ *   <li>HALF_OPEN: a single probe call is allowed. The breaker closes if it succeeds, and opens
+ *       again if it fails or is slow.
+ * </ul>
+ */
+final class CircuitBreaker {
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final double slowCallRateThreshold;
+  private final long openNanos;
+  private final LongSupplier nanoClock;
+
+  // ring buffers of the most recent calls' outcomes
+  private final boolean[] failed;
+  private final boolean[] slow;
+  private int next;
+  private int calls;
+  private int failures;
+  private int slowCalls;
+
+  private State state = State.CLOSED;
+  private long openedAt;
+  private boolean probeInFlight;
+
+  CircuitBreaker(
+      int window,
+      int minimumCalls,
+      double failureRateThreshold,
+      double slowCallRateThreshold,
+      Duration openDuration,
+      LongSupplier nanoClock) {
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.nanoClock = nanoClock;
+    this.failed = new boolean[window];
+    this.slow = new boolean[window];
+  }
+
+  /**
+   * @return whether a call may be made now; if so, its outcome must be passed to {@link #record}
+   */
+  synchronized boolean tryAcquire() {
+    if (state == State.OPEN) {
+      if (nanoClock.getAsLong() - openedAt < openNanos) {
+        return false;
+      }
+      state = State.HALF_OPEN;
+      probeInFlight = false;
+    }
+    if (state == State.HALF_OPEN) {
+      if (probeInFlight) {
+        return false;
+      }
+      probeInFlight = true;
+    }
+    return true;
+  }
+
+  /**
+   * @param failure whether the target failed: a connection failure or a 5xx
+   * @param slowCall whether the call took longer than the slow-call duration
+   */
+  synchronized void record(boolean failure, boolean slowCall) {
+    switch (state) {
+      case HALF_OPEN -> {
+        probeInFlight = false;
+        if (failure || slowCall) {
+          open();
+        } else {
+          state = State.CLOSED;
+        }
+      }
+      case OPEN -> {
+        // a call made before the breaker opened; its outcome is already reflected
+      }
+      case CLOSED -> {
+        if (calls == failed.length) {
+          // the oldest outcome leaves the window
+          failures -= failed[next] ? 1 : 0;
+          slowCalls -= slow[next] ? 1 : 0;
+        } else {
+          calls++;
+        }
+        failed[next] = failure;
+        slow[next] = slowCall;
+        failures += failure ? 1 : 0;
+        slowCalls += slowCall ? 1 : 0;
+        next = (next + 1) % failed.length;
+
+        if (calls >= minimumCalls
+            && (failures >= failureRateThreshold * calls
+                || slowCalls >= slowCallRateThreshold * calls)) {
+          open();
+        }
+      }
+    }
+  }
+
+  synchronized State state() {
+    return state;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = nanoClock.getAsLong();
+    // start afresh once the target recovers
+    next = 0;
+    calls = 0;
+    failures = 0;
+    slowCalls = 0;
+  }
+}
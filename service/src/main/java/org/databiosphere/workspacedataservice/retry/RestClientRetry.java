@@ -14,7 +14,10 @@ import org.databiosphere.workspacedataservice.service.model.exception.RestRetrya
 import org.databiosphere.workspacedataservice.service.model.exception.RestServerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.retry.RetryContext;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.retry.support.RetrySynchronizationManager;
@@ -25,9 +28,22 @@ import org.springframework.web.client.HttpStatusCodeException;
 public class RestClientRetry {
   private static final Logger LOGGER = LoggerFactory.getLogger(RestClientRetry.class);
   private final ObservationRegistry observations;
+  private final RestResilience resilience;
+  private final int maxAttempts;
 
   public RestClientRetry(ObservationRegistry observations) {
+    // without resilience, retries are not budgeted, so maxAttempts does not matter here
+    this(observations, RestResilience.disabled(observations), Integer.MAX_VALUE);
+  }
+
+  @Autowired
+  public RestClientRetry(
+      ObservationRegistry observations,
+      RestResilience resilience,
+      @Value("${rest.retry.maxAttempts}") int maxAttempts) {
     this.observations = observations;
+    this.resilience = resilience;
+    this.maxAttempts = maxAttempts;
   }
 
   /**
@@ -52,11 +68,51 @@ public class RestClientRetry {
       listeners = {"retryLoggingListener"})
   public <T> T withRetryAndErrorHandling(RestCall<T> restCall, String loggerHint)
       throws RestException, AuthenticationException, AuthorizationException {
+    return attempt(restCall, loggerHint, false);
+  }
+
+  /**
+   * Perform an idempotent REST client request, such as a permission check, with logging and
+   * exception handling, and return the result of that request. If hedging is enabled, and the
+   * request is slow, an identical request is sent and whichever completes first is used; see
+   * {@link RestResilience}.
+   *
+   * @param restCall the REST client request to perform; must be safe to send more than once
+   * @param loggerHint short string to include for all log entries for this request
+   * @return the result of the REST client request
+   * @param <T> the return type of the REST client request
+   * @throws RestException on most exceptions thrown by the REST client request
+   * @throws AuthenticationException on a 401 from the REST client request
+   * @throws AuthorizationException on a 403 from the REST client request
+   */
+  @Retryable(
+      include = {RestRetryableException.class},
+      maxAttemptsExpression = "${rest.retry.maxAttempts}",
+      backoff =
+          @Backoff(
+              delayExpression = "${rest.retry.backoff.delay}",
+              multiplierExpression = "${rest.retry.backoff.multiplier}"),
+      listeners = {"retryLoggingListener"})
+  public <T> T withHedgedRetryAndErrorHandling(RestCall<T> restCall, String loggerHint)
+      throws RestException, AuthenticationException, AuthorizationException {
+    return attempt(restCall, loggerHint, true);
+  }
+
+  private <T> T attempt(RestCall<T> restCall, String loggerHint, boolean hedge) {
+    String target = RestResilience.target(loggerHint);
+    int retryCount =
+        Optional.ofNullable(RetrySynchronizationManager.getContext())
+            .map(RetryContext::getRetryCount)
+            .orElse(0);
+    // throws CircuitOpenException, which is not retryable, if the target is unavailable
+    long startNanos = resilience.beforeAttempt(target, retryCount == 0);
+    boolean targetFailure = false;
     Observation observation =
         Observation.start("wds.outbound", observations).lowCardinalityKeyValue("hint", loggerHint);
-    try {
+    // open a scope, so observations made by the REST client itself are children of this one
+    try (Observation.Scope ignored = observation.openScope()) {
       LOGGER.debug("Sending {} request to REST target ...", loggerHint);
-      T functionResult = restCall.run();
+      T functionResult = hedge ? resilience.hedged(target, restCall) : restCall.run();
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("{} REST request successful, result: {}", loggerHint, functionResult);
       } else {
@@ -70,6 +126,16 @@ public class RestClientRetry {
           .lowCardinalityKeyValue("responseCode", String.valueOf(exceptionHttpCode))
           .lowCardinalityKeyValue("outcome", "ERROR");
       observation.error(e);
+      targetFailure = isTargetFailure(exceptionHttpCode);
+      // only a retry that will actually be made is counted against the budget
+      boolean willRetry = targetFailure && retryCount + 1 < maxAttempts;
+      if (willRetry && !resilience.tryAcquireRetry(target)) {
+        LOGGER.warn(loggerHint + " REST request failed; retry budget exhausted", e);
+        HttpStatus status = HttpStatus.resolve(exceptionHttpCode);
+        throw new RestException(
+            status == null ? HttpStatus.SERVICE_UNAVAILABLE : status,
+            "Error from " + loggerHint + " REST target: " + e.getMessage()); // not retryable
+      }
       switch (exceptionHttpCode) {
         // retryable http codes
         case 0:
@@ -99,18 +165,23 @@ public class RestClientRetry {
               "Error from " + loggerHint + " REST target: " + e.getMessage()); // not retryable
       }
     } finally {
-      Optional.ofNullable(RetrySynchronizationManager.getContext())
-          .ifPresent(
-              context -> {
-                int retryCount = context.getRetryCount();
-                if (retryCount > 0) {
-                  observation.lowCardinalityKeyValue("retryCount", Integer.toString(retryCount));
-                }
-              });
+      resilience.afterAttempt(target, startNanos, targetFailure);
+      if (retryCount > 0) {
+        observation.lowCardinalityKeyValue("retryCount", Integer.toString(retryCount));
+      }
       observation.stop();
     }
   }
 
+  // connection failures and these server errors are retryable, and count against the target's
+  // circuit breaker
+  private static boolean isTargetFailure(int httpCode) {
+    return switch (httpCode) {
+      case 0, 500, 502, 503, 504 -> true;
+      default -> false;
+    };
+  }
+
   /**
    * Perform a REST client request with logging and exception handling, if that REST client request
    * returns void.
@@ -0,0 +1,357 @@
+package org.databiosphere.workspacedataservice.retry;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.databiosphere.workspacedataservice.jobexec.JobContextHolder;
+import org.databiosphere.workspacedataservice.retry.RestClientRetry.RestCall;
+import org.databiosphere.workspacedataservice.service.model.exception.CircuitOpenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Protects WDS from slow or failing REST targets, for use by {@link RestClientRetry}. A target is
+ * the service named by the first part of a logger hint, e.g. "Sam" for "Sam.getUserInfo".
+ *
+ * <ul>
+ *   <li>A {@link CircuitBreaker} per target rejects calls, without waiting, while that target has
+ *       recently been failing or slow.
+ *   <li>A {@link RetryBudget} per target caps retries and hedged requests as a fraction of
+ *       requests.
+ *   <li>Optionally, idempotent reads are hedged: if a call has not completed after the hedging
+ *       delay, an identical call is started, and whichever completes first is used. Hedged calls
+ *       run on a bounded pool of threads.
+ * </ul>
+ *
+ * <p>Exported meters, each tagged by target: "wds.outbound.circuit.state" (0 closed, 1 half-open,
+ * 2 open), "wds.outbound.circuit.rejected", "wds.outbound.retry.budget.exhausted", and
+ * "wds.outbound.hedge" tagged by result (sent or won).
+ */
+@Component
+public class RestResilience {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RestResilience.class);
+
+  /** Settings; see application.yml for descriptions and defaults. */
+  record Settings(
+      boolean circuitBreakerEnabled,
+      int window,
+      int minimumCalls,
+      double failureRateThreshold,
+      Duration slowCallDuration,
+      double slowCallRateThreshold,
+      Duration openDuration,
+      double retryBudgetRatio,
+      int retryBudgetMinPerSecond,
+      boolean hedgingEnabled,
+      Duration hedgingDelay,
+      int hedgingMaxThreads) {
+
+    /** No circuit breaking or hedging, and unlimited retries. */
+    static final Settings DISABLED =
+        new Settings(
+            false,
+            1,
+            1,
+            1,
+            Duration.ZERO,
+            1,
+            Duration.ZERO,
+            1,
+            Integer.MAX_VALUE / 10,
+            false,
+            Duration.ZERO,
+            1);
+  }
+
+  private final Settings settings;
+  private final MeterRegistry meterRegistry;
+  private final ObservationRegistry observations;
+  private final LongSupplier nanoClock;
+  @Nullable private final ExecutorService hedgingExecutor;
+
+  private final ConcurrentMap<String, TargetState> targets = new ConcurrentHashMap<>();
+
+  private final class TargetState {
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBudget retryBudget;
+    private final Counter rejected;
+    private final Counter budgetExhausted;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    private TargetState(String target) {
+      circuitBreaker =
+          new CircuitBreaker(
+              settings.window(),
+              settings.minimumCalls(),
+              settings.failureRateThreshold(),
+              settings.slowCallRateThreshold(),
+              settings.openDuration(),
+              nanoClock);
+      retryBudget =
+          new RetryBudget(
+              settings.retryBudgetRatio(), settings.retryBudgetMinPerSecond(), nanoClock);
+      Gauge.builder(
+              "wds.outbound.circuit.state",
+              circuitBreaker,
+              breaker ->
+                  switch (breaker.state()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                  })
+          .description("State of the circuit breaker: 0 closed, 1 half-open, 2 open")
+          .tag("target", target)
+          .register(meterRegistry);
+      rejected =
+          Counter.builder("wds.outbound.circuit.rejected")
+              .description("Calls rejected because the circuit breaker was open")
+              .tag("target", target)
+              .register(meterRegistry);
+      budgetExhausted =
+          Counter.builder("wds.outbound.retry.budget.exhausted")
+              .description("Retries or hedges not made because the retry budget was exhausted")
+              .tag("target", target)
+              .register(meterRegistry);
+      hedgesSent = hedgeCounter(target, "sent");
+      hedgesWon = hedgeCounter(target, "won");
+    }
+
+    private Counter hedgeCounter(String target, String result) {
+      return Counter.builder("wds.outbound.hedge")
+          .description("Hedged requests sent, and those that completed before the original")
+          .tag("target", target)
+          .tag("result", result)
+          .register(meterRegistry);
+    }
+  }
+
+  @Autowired
+  public RestResilience(
+      MeterRegistry meterRegistry,
+      ObservationRegistry observations,
+      @Value("${rest.circuitBreaker.enabled:true}") boolean circuitBreakerEnabled,
+      @Value("${rest.circuitBreaker.window:100}") int window,
+      @Value("${rest.circuitBreaker.minimumCalls:20}") int minimumCalls,
+      @Value("${rest.circuitBreaker.failureRateThreshold:0.5}") double failureRateThreshold,
+      @Value("${rest.circuitBreaker.slowCallDuration:5s}") Duration slowCallDuration,
+      @Value("${rest.circuitBreaker.slowCallRateThreshold:0.8}") double slowCallRateThreshold,
+      @Value("${rest.circuitBreaker.openDuration:30s}") Duration openDuration,
+      @Value("${rest.retry.budget.ratio:0.2}") double retryBudgetRatio,
+      @Value("${rest.retry.budget.minPerSecond:10}") int retryBudgetMinPerSecond,
+      @Value("${rest.hedging.enabled:false}") boolean hedgingEnabled,
+      @Value("${rest.hedging.delay:500ms}") Duration hedgingDelay,
+      @Value("${rest.hedging.maxThreads:32}") int hedgingMaxThreads) {
+    this(
+        new Settings(
+            circuitBreakerEnabled,
+            window,
+            minimumCalls,
+            failureRateThreshold,
+            slowCallDuration,
+            slowCallRateThreshold,
+            openDuration,
+            retryBudgetRatio,
+            retryBudgetMinPerSecond,
+            hedgingEnabled,
+            hedgingDelay,
+            hedgingMaxThreads),
+        meterRegistry,
+        observations,
+        System::nanoTime);
+  }
+
+  RestResilience(
+      Settings settings,
+      MeterRegistry meterRegistry,
+      ObservationRegistry observations,
+      LongSupplier nanoClock) {
+    this.settings = settings;
+    this.meterRegistry = meterRegistry;
+    this.observations = observations;
+    this.nanoClock = nanoClock;
+    // bounded, with no queue: when every thread is busy, calls run on the caller's thread instead,
+    // without a hedge
+    this.hedgingExecutor =
+        settings.hedgingEnabled()
+            ? new ThreadPoolExecutor(
+                0,
+                settings.hedgingMaxThreads(),
+                60,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("rest-hedge-%d").setDaemon(true).build())
+            : null;
+    LOGGER.info("REST resilience settings: {}", settings);
+  }
+
+  /** No circuit breaking or hedging, and unlimited retries. */
+  static RestResilience disabled(ObservationRegistry observations) {
+    return new RestResilience(
+        Settings.DISABLED, new SimpleMeterRegistry(), observations, System::nanoTime);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (hedgingExecutor != null) {
+      hedgingExecutor.shutdownNow();
+    }
+  }
+
+  /** The target named by a logger hint: "Sam" for "Sam.getUserInfo". */
+  static String target(String loggerHint) {
+    int dot = loggerHint.indexOf('.');
+    return dot > 0 ? loggerHint.substring(0, dot) : loggerHint;
+  }
+
+  private TargetState targetState(String target) {
+    return targets.computeIfAbsent(target, TargetState::new);
+  }
+
+  /**
+   * Called before each attempt at a call to the target, including retries.
+   *
+   * @param firstAttempt whether this is the first attempt, rather than a retry
+   * @return the start time of the attempt, to pass to {@link #afterAttempt}
+   * @throws CircuitOpenException if the target's circuit breaker is open
+   */
+  long beforeAttempt(String target, boolean firstAttempt) {
+    TargetState state = targetState(target);
+    if (firstAttempt) {
+      state.retryBudget.recordRequest();
+    }
+    if (settings.circuitBreakerEnabled() && !state.circuitBreaker.tryAcquire()) {
+      state.rejected.increment();
+      throw new CircuitOpenException(target);
+    }
+    return nanoClock.getAsLong();
+  }
+
+  /**
+   * Called after each attempt that {@link #beforeAttempt} allowed.
+   *
+   * @param targetFailure whether the target failed: a connection failure or a 5xx
+   */
+  void afterAttempt(String target, long startNanos, boolean targetFailure) {
+    if (settings.circuitBreakerEnabled()) {
+      boolean slow = nanoClock.getAsLong() - startNanos > settings.slowCallDuration().toNanos();
+      targetState(target).circuitBreaker.record(targetFailure, slow);
+    }
+  }
+
+  /**
+   * @return whether a failed attempt may be retried; if so, the retry is counted against the
+   *     target's retry budget
+   */
+  boolean tryAcquireRetry(String target) {
+    TargetState state = targetState(target);
+    if (state.retryBudget.tryAcquireRetry()) {
+      return true;
+    }
+    state.budgetExhausted.increment();
+    return false;
+  }
+
+  /**
+   * Run an idempotent call, hedging it if hedging is enabled: if it has not completed after the
+   * hedging delay, and the retry budget allows, start an identical call and use the result of
+   * whichever completes first. The caller's request, job and observation context is available to
+   * both calls.
+   */
+  <T> T hedged(String target, RestCall<T> restCall) throws Exception {
+    if (hedgingExecutor == null) {
+      return restCall.run();
+    }
+    Callable<T> inCallerContext = inCallerContext(restCall);
+    CompletionService<T> completion = new ExecutorCompletionService<>(hedgingExecutor);
+    List<Future<T>> calls = new ArrayList<>(2);
+    try {
+      calls.add(completion.submit(inCallerContext));
+    } catch (RejectedExecutionException e) {
+      return restCall.run();
+    }
+    try {
+      Future<T> done =
+          completion.poll(settings.hedgingDelay().toNanos(), TimeUnit.NANOSECONDS);
+      if (done == null && tryAcquireRetry(target)) {
+        try {
+          calls.add(completion.submit(inCallerContext));
+          targetState(target).hedgesSent.increment();
+        } catch (RejectedExecutionException e) {
+          // no thread free for the hedge; wait for the original call
+        }
+      }
+      // the first call to succeed wins; if every call fails, throw the first failure
+      Exception firstFailure = null;
+      for (int i = 0; i < calls.size(); i++) {
+        Future<T> next = done != null && i == 0 ? done : completion.take();
+        try {
+          T result = next.get();
+          if (next != calls.get(0)) {
+            targetState(target).hedgesWon.increment();
+          }
+          return result;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Error error) {
+            throw error;
+          }
+          if (firstFailure == null) {
+            firstFailure = (Exception) e.getCause();
+          }
+        }
+      }
+      throw firstFailure;
+    } finally {
+      calls.forEach(call -> call.cancel(true));
+    }
+  }
+
+  // make the caller's thread-local context available to the call on a hedging thread
+  private <T> Callable<T> inCallerContext(RestCall<T> restCall) {
+    RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+    Map<String, Object> jobAttributes = JobContextHolder.getAttributes();
+    Observation parent = observations.getCurrentObservation();
+    return () -> {
+      RequestContextHolder.setRequestAttributes(requestAttributes);
+      if (jobAttributes != null) {
+        JobContextHolder.init();
+        jobAttributes.forEach(JobContextHolder::setAttribute);
+      }
+      try (Observation.Scope ignored = parent != null ? parent.openScope() : null) {
+        return restCall.run();
+      } finally {
+        JobContextHolder.destroy();
+        RequestContextHolder.resetRequestAttributes();
+      }
+    };
+  }
+}
@@ -0,0 +1,79 @@
+package org.databiosphere.workspacedataservice.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the retries, and hedged requests, made to a single REST target to a fraction of the
+ * requests made to it over the last ten seconds. A floor of {@code minPerSecond} retries is always
+ * allowed, so that a target with little traffic can still be retried.
+ *
+ * <p>When a target is failing, retries multiply the load on it; the budget keeps that extra load
+ * in proportion to WDS's own traffic.
+ */
+final class RetryBudget {
+
+  // one-second buckets
+  private static final int BUCKETS = 10;
+
+  private final double ratio;
+  private final int minRetries;
+  private final LongSupplier nanoClock;
+
+  private final long[] bucketSecond = new long[BUCKETS];
+  private final long[] requests = new long[BUCKETS];
+  private final long[] retries = new long[BUCKETS];
+
+  /**
+   * @param ratio retries allowed per request
+   * @param minPerSecond retries allowed per second regardless of the number of requests
+   * @param nanoClock source of {@link System#nanoTime()}
+   */
+  RetryBudget(double ratio, int minPerSecond, LongSupplier nanoClock) {
+    this.ratio = ratio;
+    this.minRetries = minPerSecond * BUCKETS;
+    this.nanoClock = nanoClock;
+  }
+
+  /** Record a first attempt at a request. */
+  synchronized void recordRequest() {
+    requests[currentBucket(currentSecond())]++;
+  }
+
+  /**
+   * @return whether a retry may be made now; if so, it is counted against the budget
+   */
+  synchronized boolean tryAcquireRetry() {
+    long second = currentSecond();
+    int current = currentBucket(second);
+    long totalRequests = 0;
+    long totalRetries = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      // skip buckets last used longer ago than the window
+      if (second - bucketSecond[i] < BUCKETS) {
+        totalRequests += requests[i];
+        totalRetries += retries[i];
+      }
+    }
+    if (totalRetries >= Math.max(minRetries, ratio * totalRequests)) {
+      return false;
+    }
+    retries[current]++;
+    return true;
+  }
+
+  private long currentSecond() {
+    return TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong());
+  }
+
+  // the bucket for the given second, emptied if it was last used for an earlier second
+  private int currentBucket(long second) {
+    int index = (int) Math.floorMod(second, (long) BUCKETS);
+    if (bucketSecond[index] != second) {
+      bucketSecond[index] = second;
+      requests[index] = 0;
+      retries[index] = 0;
+    }
+    return index;
+  }
+}
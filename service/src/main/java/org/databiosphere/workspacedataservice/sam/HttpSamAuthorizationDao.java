@@ -16,12 +16,17 @@ public class HttpSamAuthorizationDao implements SamAuthorizationDao {
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpSamAuthorizationDao.class);
   private final RestClientRetry restClientRetry;
   private final WorkspaceId workspaceId;
+  private final SamPermissionCache permissionCache;
 
   HttpSamAuthorizationDao(
-      SamClientFactory samClientFactory, RestClientRetry restClientRetry, WorkspaceId workspaceId) {
+      SamClientFactory samClientFactory,
+      RestClientRetry restClientRetry,
+      WorkspaceId workspaceId,
+      SamPermissionCache permissionCache) {
     this.samClientFactory = samClientFactory;
     this.restClientRetry = restClientRetry;
     this.workspaceId = workspaceId;
+    this.permissionCache = permissionCache;
   }
 
   /**
@@ -45,15 +50,27 @@ public class HttpSamAuthorizationDao implements SamAuthorizationDao {
     return hasPermission(ACTION_READ, "Sam.hasReadWorkspacePermission");
   }
 
-  /** check for permission using the configured {@link WorkspaceId} */
+  /**
+   * check for permission using the configured {@link WorkspaceId}, asking Sam only if the decision
+   * is not in the {@link SamPermissionCache}
+   */
   private boolean hasPermission(String action, String loggerHint) {
-    LOGGER.debug(
-        "Checking Sam permission for {}/{}/{} ...", RESOURCE_NAME_WORKSPACE, workspaceId, action);
-    RestCall<Boolean> samFunction =
-        () ->
-            samClientFactory
-                .getResourcesApi()
-                .resourcePermissionV2(RESOURCE_NAME_WORKSPACE, workspaceId.toString(), action);
-    return restClientRetry.withRetryAndErrorHandling(samFunction, loggerHint);
+    return permissionCache.hasPermission(
+        workspaceId,
+        action,
+        () -> {
+          LOGGER.debug(
+              "Checking Sam permission for {}/{}/{} ...",
+              RESOURCE_NAME_WORKSPACE,
+              workspaceId,
+              action);
+          RestCall<Boolean> samFunction =
+              () ->
+                  samClientFactory
+                      .getResourcesApi()
+                      .resourcePermissionV2(
+                          RESOURCE_NAME_WORKSPACE, workspaceId.toString(), action);
+          return restClientRetry.withHedgedRetryAndErrorHandling(samFunction, loggerHint);
+        });
   }
 }
@@ -1,8 +1,13 @@
 package org.databiosphere.workspacedataservice.sam;
 
-import java.util.List;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import okhttp3.OkHttpClient;
-import okhttp3.Protocol;
 import org.apache.commons.lang3.StringUtils;
 import org.broadinstitute.dsde.workbench.client.sam.ApiClient;
 import org.broadinstitute.dsde.workbench.client.sam.api.GoogleApi;
@@ -17,25 +22,64 @@ import org.slf4j.LoggerFactory;
  * Implementation of SamClientFactory that creates a Sam ApiClient, initializes that client with the
  * url to Sam, adds the current user's access token to the client, and then returns the ResourcesApi
  * from that client. ResourcesApi is the part of the Sam client used by WDS.
+ *
+ * <p>Every ApiClient shares one OkHttpClient, and so one connection pool. The ApiClient and the
+ * API instances for each token are created once and reused for as long as the token is in use, so
+ * a request to Sam does not need to build a new client.
  */
 public class HttpSamClientFactory implements SamClientFactory {
 
+  // how many tokens' clients to keep, and for how long after each was last used
+  private static final long MAX_CACHED_TOKENS = 1000;
+  private static final Duration CLIENT_IDLE_EXPIRY = Duration.ofMinutes(5);
+
   private final String samUrl;
   private final OkHttpClient commonHttpClient;
+  // keyed by a hash of the token; tokens themselves are held only within their ApiClient
+  private final Cache<HashCode, SamApis> apisByToken =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_CACHED_TOKENS)
+          .expireAfterAccess(CLIENT_IDLE_EXPIRY)
+          .build();
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpSamClientFactory.class);
 
+  // the Sam APIs used by WDS, all sharing one ApiClient
+  private record SamApis(
+      ResourcesApi resourcesApi, StatusApi statusApi, UsersApi usersApi, GoogleApi googleApi) {}
+
+  /** Use the Sam client library's default OkHttpClient. */
   public HttpSamClientFactory(String samUrl) {
-    this.samUrl = samUrl;
     // IntelliJ has a false-positive error on the following line; see
     // https://youtrack.jetbrains.com/issue/KTIJ-26434
-    this.commonHttpClient =
-        new ApiClient().getHttpClient().newBuilder().protocols(List.of(Protocol.HTTP_1_1)).build();
+    this(samUrl, new ApiClient().getHttpClient());
+  }
+
+  /**
+   * @param samUrl the base url of Sam
+   * @param httpClient the OkHttpClient to use for every request to Sam; see {@link SamConfig}
+   */
+  public HttpSamClientFactory(String samUrl, OkHttpClient httpClient) {
+    this.samUrl = samUrl;
+    this.commonHttpClient = httpClient;
     // TODO AJ-1114: add tracing interceptor for distributed tracing to Sam.
     // this requires we import terra-common-lib
   }
 
-  private ApiClient getApiClient(BearerToken authToken) {
+  private SamApis getApis(BearerToken authToken) {
+    // use the parameter value or fall back to the current user's bearer token (see
+    // BearerTokenFilter)
+    BearerToken token = TokenContextUtil.getToken(authToken);
+    if (token.isEmpty()) {
+      LOGGER.warn("No access token found for Sam request.");
+    }
+    HashCode key =
+        Hashing.sha256()
+            .hashString(token.nonEmpty() ? token.getValue() : "", StandardCharsets.UTF_8);
+    return apisByToken.asMap().computeIfAbsent(key, ignored -> createApis(token));
+  }
+
+  private SamApis createApis(BearerToken token) {
     // create a new Sam client
     ApiClient apiClient = new ApiClient();
     apiClient.setHttpClient(commonHttpClient);
@@ -44,20 +88,22 @@ public class HttpSamClientFactory implements SamClientFactory {
       apiClient.setBasePath(samUrl);
     }
 
-    // use the parameter value or fall back to the current user's bearer token (see
-    // BearerTokenFilter)
-    BearerToken token = TokenContextUtil.getToken(authToken);
-
     // add the user's bearer token to the client
     if (token.nonEmpty()) {
-      LOGGER.debug("setting access token for Sam request");
+      LOGGER.debug("setting access token for Sam client");
       apiClient.setAccessToken(token.getValue());
-    } else {
-      LOGGER.warn("No access token found for Sam request.");
     }
 
-    // return the client
-    return apiClient;
+    return new SamApis(
+        new ResourcesApi(apiClient),
+        new StatusApi(apiClient),
+        new UsersApi(apiClient),
+        new GoogleApi(apiClient));
+  }
+
+  @VisibleForTesting
+  long cachedTokenCount() {
+    return apisByToken.size();
   }
 
   /**
@@ -67,10 +113,7 @@ public class HttpSamClientFactory implements SamClientFactory {
    * @return the usable Sam client
    */
   public ResourcesApi getResourcesApi() {
-    ApiClient apiClient = getApiClient(BearerToken.empty());
-    ResourcesApi resourcesApi = new ResourcesApi();
-    resourcesApi.setApiClient(apiClient);
-    return resourcesApi;
+    return getApis(BearerToken.empty()).resourcesApi();
   }
 
   /**
@@ -80,23 +123,14 @@ public class HttpSamClientFactory implements SamClientFactory {
    * @return the usable Sam client
    */
   public StatusApi getStatusApi(BearerToken token) {
-    ApiClient apiClient = getApiClient(token);
-    StatusApi statusApi = new StatusApi();
-    statusApi.setApiClient(apiClient);
-    return statusApi;
+    return getApis(token).statusApi();
   }
 
   public UsersApi getUsersApi(BearerToken token) {
-    ApiClient apiClient = getApiClient(token);
-    UsersApi usersApi = new UsersApi();
-    usersApi.setApiClient(apiClient);
-    return usersApi;
+    return getApis(token).usersApi();
   }
 
   public GoogleApi getGoogleApi(BearerToken token) {
-    ApiClient apiClient = getApiClient(token);
-    GoogleApi googleApi = new GoogleApi();
-    googleApi.setApiClient(apiClient);
-    return googleApi;
+    return getApis(token).googleApi();
   }
 }
@@ -47,7 +47,7 @@ public class HttpSamDao implements SamDao {
     LOGGER.debug("Resolving Sam token to UserStatusInfo ...");
     RestCall<UserStatusInfo> samFunction =
         () -> samClientFactory.getUsersApi(token).getUserStatusInfo();
-    return restClientRetry.withRetryAndErrorHandling(samFunction, "Sam.getUserInfo");
+    return restClientRetry.withHedgedRetryAndErrorHandling(samFunction, "Sam.getUserInfo");
   }
 
   /**
@@ -0,0 +1,63 @@
+package org.databiosphere.workspacedataservice.sam;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * OkHttp interceptor that measures each outbound HTTP call as a "wds.outbound.http" observation,
+ * with the HTTP method, response status and negotiated protocol (e.g. "h2" or "http/1.1"). When
+ * the call is made within {@link org.databiosphere.workspacedataservice.retry.RestClientRetry},
+ * the observation is a child of that call's "wds.outbound" observation, so each retry is measured
+ * separately.
+ */
+public class OutboundHttpObservationInterceptor implements Interceptor {
+
+  static final String OBSERVATION_NAME = "wds.outbound.http";
+
+  private final String client;
+  private final ObservationRegistry observations;
+
+  /**
+   * @param client the name of the service being called, e.g. "sam"
+   * @param observations where to record observations
+   */
+  public OutboundHttpObservationInterceptor(String client, ObservationRegistry observations) {
+    this.client = client;
+    this.observations = observations;
+  }
+
+  @NotNull
+  @Override
+  public Response intercept(@NotNull Chain chain) throws IOException {
+    Request request = chain.request();
+    // the current observation, if any, becomes this one's parent
+    Observation observation =
+        Observation.createNotStarted(OBSERVATION_NAME, observations)
+            .lowCardinalityKeyValue("client", client)
+            .lowCardinalityKeyValue("method", request.method())
+            .start();
+    try {
+      Response response = chain.proceed(request);
+      observation
+          .lowCardinalityKeyValue("status", String.valueOf(response.code()))
+          .lowCardinalityKeyValue("protocol", response.protocol().toString())
+          .lowCardinalityKeyValue("outcome", response.isSuccessful() ? "SUCCEEDED" : "ERROR");
+      return response;
+    } catch (IOException | RuntimeException e) {
+      // no response: connection failure, timeout, or cancellation
+      observation
+          .lowCardinalityKeyValue("status", "0")
+          .lowCardinalityKeyValue("protocol", "none")
+          .lowCardinalityKeyValue("outcome", "ERROR");
+      observation.error(e);
+      throw e;
+    } finally {
+      observation.stop();
+    }
+  }
+}
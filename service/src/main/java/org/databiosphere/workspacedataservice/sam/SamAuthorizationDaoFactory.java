@@ -14,11 +14,15 @@ public class SamAuthorizationDaoFactory {
 
   private final SamClientFactory samClientFactory;
   private final RestClientRetry restClientRetry;
+  private final SamPermissionCache permissionCache;
 
   public SamAuthorizationDaoFactory(
-      SamClientFactory samClientFactory, RestClientRetry restClientRetry) {
+      SamClientFactory samClientFactory,
+      RestClientRetry restClientRetry,
+      SamPermissionCache permissionCache) {
     this.samClientFactory = samClientFactory;
     this.restClientRetry = restClientRetry;
+    this.permissionCache = permissionCache;
   }
 
   public SamAuthorizationDao getSamAuthorizationDao(WorkspaceId workspaceId) {
@@ -27,6 +31,7 @@ public class SamAuthorizationDaoFactory {
         SamAuthorizationDao.RESOURCE_NAME_WORKSPACE,
         workspaceId,
         Set.of(ACTION_READ, ACTION_WRITE));
-    return new HttpSamAuthorizationDao(samClientFactory, restClientRetry, workspaceId);
+    return new HttpSamAuthorizationDao(
+        samClientFactory, restClientRetry, workspaceId, permissionCache);
   }
 }
@@ -1,5 +1,15 @@
 package org.databiosphere.workspacedataservice.sam;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.broadinstitute.dsde.workbench.client.sam.ApiClient;
 import org.databiosphere.workspacedataservice.retry.RestClientRetry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,9 +21,11 @@ import org.springframework.context.annotation.Configuration;
  * Bean creator for:
  *
  * <ul>
- *   <li>{@link SamClientFactory}, injecting the base url to Sam.
+ *   <li>{@link SamClientFactory}, injecting the base url to Sam and a shared, instrumented
+ *       OkHttpClient.
  *   <li>{@link SamDao} and {@link SamAuthorizationDaoFactory}, injecting the SamClientFactory and
  *       {@link RestClientRetry}.
+ *   <li>{@link SamPermissionCache}, shared by every {@link SamAuthorizationDao}.
  * </ul>
  */
 @Configuration
@@ -22,10 +34,21 @@ public class SamConfig {
   @Value("${samurl:}")
   private String samUrl;
 
+  // allow HTTP/2, which multiplexes concurrent requests over one connection, when Sam supports it
+  @Value("${sam.http2Enabled:true}")
+  private boolean http2Enabled;
+
+  @Value("${sam.connectionPool.maxIdle:20}")
+  private int maxIdleConnections;
+
+  @Value("${sam.connectionPool.keepAlive:5m}")
+  private Duration keepAlive;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(SamConfig.class);
 
   @Bean
-  SamClientFactory getSamClientFactory() {
+  SamClientFactory getSamClientFactory(
+      ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
     // TODO: AJ-898 what validation of the sam url should we do here?
     // - none
     // - check if the value is null/empty/whitespace
@@ -36,13 +59,55 @@ public class SamConfig {
     // - disable Sam integration, which could result in unauthorized access
     // - stop WDS, which would obviously prevent WDS from working at all
     LOGGER.info("Using Sam base url: '{}'", samUrl);
-    return new HttpSamClientFactory(samUrl);
+    return new HttpSamClientFactory(samUrl, samHttpClient(observationRegistry, meterRegistry));
+  }
+
+  // one OkHttpClient, and so one connection pool, for every request to Sam
+  private OkHttpClient samHttpClient(
+      ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+    ConnectionPool connectionPool =
+        new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+    Gauge.builder("wds.outbound.connections", connectionPool, ConnectionPool::connectionCount)
+        .description("Connections to Sam in the pool, in use or idle")
+        .tag("client", "sam")
+        .tag("state", "total")
+        .register(meterRegistry);
+    Gauge.builder("wds.outbound.connections", connectionPool, ConnectionPool::idleConnectionCount)
+        .description("Connections to Sam in the pool, in use or idle")
+        .tag("client", "sam")
+        .tag("state", "idle")
+        .register(meterRegistry);
+
+    // HTTP/2 is only negotiated over TLS; plain-http Sam urls use HTTP/1.1 regardless
+    List<Protocol> protocols =
+        http2Enabled ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1);
+    LOGGER.info("Sam client protocols: {}", protocols);
+
+    // IntelliJ has a false-positive error on the following line; see
+    // https://youtrack.jetbrains.com/issue/KTIJ-26434
+    return new ApiClient()
+        .getHttpClient()
+        .newBuilder()
+        .protocols(protocols)
+        .connectionPool(connectionPool)
+        .addInterceptor(new OutboundHttpObservationInterceptor("sam", observationRegistry))
+        .build();
+  }
+
+  @Bean
+  SamPermissionCache samPermissionCache(
+      @Value("${twds.sam.permission-cache.ttl:10s}") Duration ttl,
+      @Value("${twds.sam.permission-cache.max-size:10000}") long maxSize,
+      MeterRegistry meterRegistry) {
+    return new SamPermissionCache(ttl, maxSize, meterRegistry);
   }
 
   @Bean
   SamAuthorizationDaoFactory samAuthorizationDaoFactory(
-      SamClientFactory samClientFactory, RestClientRetry restClientRetry) {
-    return new SamAuthorizationDaoFactory(samClientFactory, restClientRetry);
+      SamClientFactory samClientFactory,
+      RestClientRetry restClientRetry,
+      SamPermissionCache samPermissionCache) {
+    return new SamAuthorizationDaoFactory(samClientFactory, restClientRetry, samPermissionCache);
   }
 
   @Bean
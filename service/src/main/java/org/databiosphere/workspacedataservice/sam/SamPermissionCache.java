@@ -0,0 +1,114 @@
+package org.databiosphere.workspacedataservice.sam;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import org.databiosphere.workspacedataservice.shared.model.BearerToken;
+import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Short-lived cache of Sam permission decisions, keyed by the current user's token, the workspace
+ * and the action. Without it, every record read or write asks Sam over HTTP; a client paging
+ * through records asks Sam once per page.
+ *
+ * <ul>
+ *   <li>Both grants and denials are cached, for the same TTL. A change to a user's permissions
+ *       therefore takes up to one TTL to be seen.
+ *   <li>Concurrent checks for the same key share a single request to Sam.
+ *   <li>Failures, including 401s and 403s from Sam, are never cached.
+ *   <li>Tokens are held only as a SHA-256 hash.
+ *   <li>Checks made without a token are never cached.
+ * </ul>
+ *
+ * <p>Hits and misses are exported as the "cache.gets" metrics for the "samPermissions" cache; the
+ * time taken by Sam to answer each miss is exported as "wds.sam.permission.duration".
+ */
+public class SamPermissionCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SamPermissionCache.class);
+
+  static final String CACHE_NAME = "samPermissions";
+
+  private final boolean enabled;
+  private final Cache<PermissionKey, Boolean> cache;
+  private final MeterRegistry meterRegistry;
+
+  private record PermissionKey(HashCode tokenHash, WorkspaceId workspaceId, String action) {}
+
+  /**
+   * @param ttl how long a decision is cached; zero disables caching
+   * @param maxSize the maximum number of cached decisions
+   * @param meterRegistry where to export hit, miss and latency metrics
+   */
+  public SamPermissionCache(Duration ttl, long maxSize, MeterRegistry meterRegistry) {
+    this.enabled = !ttl.isZero() && !ttl.isNegative() && maxSize > 0;
+    this.cache =
+        CacheBuilder.newBuilder()
+            .expireAfterWrite(enabled ? ttl : Duration.ZERO)
+            .maximumSize(enabled ? maxSize : 0)
+            .recordStats()
+            .build();
+    this.meterRegistry = meterRegistry;
+    GuavaCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    LOGGER.info("Sam permission decisions will be cached for {} (enabled: {})", ttl, enabled);
+  }
+
+  /**
+   * Return the cached decision for the current user, workspace and action, or ask Sam for it.
+   *
+   * @param workspaceId the workspace being checked
+   * @param action the Sam action being checked
+   * @param samCheck asks Sam for the decision; invoked at most once at a time per key
+   * @return true if the current user has permission
+   */
+  public boolean hasPermission(WorkspaceId workspaceId, String action, Supplier<Boolean> samCheck) {
+    BearerToken token = TokenContextUtil.getToken();
+    if (!enabled || token.isEmpty()) {
+      return timed(action, samCheck);
+    }
+    PermissionKey key =
+        new PermissionKey(
+            Hashing.sha256().hashString(token.getValue(), StandardCharsets.UTF_8),
+            workspaceId,
+            action);
+    try {
+      // Cache.get blocks concurrent callers for the same key until the first one's load completes,
+      // and does not cache a load that throws
+      return cache.get(key, () -> timed(action, samCheck));
+    } catch (UncheckedExecutionException | ExecutionError e) {
+      // rethrow the REST client's own exception, e.g. AuthorizationException, as-is
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    } catch (ExecutionException e) {
+      // the Sam check throws no checked exceptions
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private boolean timed(String action, Supplier<Boolean> samCheck) {
+    Timer timer =
+        Timer.builder("wds.sam.permission.duration")
+            .description("Time taken by Sam to answer a permission check, including retries")
+            .tag("action", action)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+    return timer.record(samCheck);
+  }
+}
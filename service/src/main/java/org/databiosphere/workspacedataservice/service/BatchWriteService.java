@@ -4,40 +4,119 @@ import static org.databiosphere.workspacedataservice.recordsource.RecordSource.I
 import static org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode.RELATIONS;
 
 import bio.terra.common.db.WriteTransaction;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Multimap;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import org.databiosphere.workspacedataservice.recordsink.ColumnStaging;
 import org.databiosphere.workspacedataservice.recordsink.RecordSink;
 import org.databiosphere.workspacedataservice.recordsource.RecordSource;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
 import org.databiosphere.workspacedataservice.recordsource.RecordSource.WriteStreamInfo;
 import org.databiosphere.workspacedataservice.service.model.BatchWriteResult;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.RelationCollection;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
 import org.databiosphere.workspacedataservice.service.model.exception.BadStreamingWriteRequestException;
 import org.databiosphere.workspacedataservice.shared.model.OperationType;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+/**
+ * Writes the records read from a {@link RecordSource} to a {@link RecordSink}, in batches.
+ *
+ * <p>Each batch goes through two stages: reading, in which the source decodes the batch and its
+ * schema is inferred, and writing, in which the sink updates the record type and upserts or
+ * deletes the records. By default, both stages run one after the other on the calling thread. When
+ * twds.write.pipeline.enabled is set, a reader thread reads batches ahead into a bounded queue
+ * while the calling thread writes, so that decoding overlaps with database work. Writing always
+ * stays on the calling thread, since that is where the transaction is bound.
+ *
+ * <p>The schema of each record type is tracked across the batches of a stream (see {@link
+ * StreamSchema}), so the sink is only asked to update a record type when a batch adds a column or
+ * relation, or widens a column's type. If the sink can defer widening a column, the column is
+ * instead staged, and converted once, to the widest type the stream needs, after the last batch.
+ *
+ * <p>Metrics report the time spent in each stage, the time each stage spends waiting for the
+ * other, and the number of batches queued between them. Imports whose writer waits on the reader
+ * are parse-bound; imports whose reader waits on the writer are database-bound.
+ */
 @Service
 public class BatchWriteService {
   private final DataTypeInferer inferer;
   private final int batchSize;
+  private final boolean pipelineEnabled;
+  private final int pipelineQueueCapacity;
+
+  private final Timer readTimer;
+  private final Timer writeTimer;
+  private final Timer readerWaitTimer;
+  private final Timer writerWaitTimer;
+  // batches read but not yet written, across all pipelined writes in progress
+  private final AtomicInteger queuedBatches = new AtomicInteger();
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BatchWriteService.class);
 
+  private static final long READER_JOIN_INTERVAL_MILLIS = 100;
+  private static final ThreadFactory READER_THREAD_FACTORY =
+      new ThreadFactoryBuilder().setNameFormat("batch-write-reader-%d").setDaemon(true).build();
+
   public BatchWriteService(
-      @Value("${twds.write.batch.size:5000}") int batchSize, DataTypeInferer inf) {
+      @Value("${twds.write.batch.size:5000}") int batchSize,
+      @Value("${twds.write.pipeline.enabled:false}") boolean pipelineEnabled,
+      @Value("${twds.write.pipeline.queue-capacity:2}") int pipelineQueueCapacity,
+      DataTypeInferer inf,
+      MeterRegistry meterRegistry) {
+    Preconditions.checkArgument(
+        pipelineQueueCapacity > 0, "twds.write.pipeline.queue-capacity must be positive");
     this.batchSize = batchSize;
+    this.pipelineEnabled = pipelineEnabled;
+    this.pipelineQueueCapacity = pipelineQueueCapacity;
     this.inferer = inf;
+    this.readTimer = stageTimer(meterRegistry, "read");
+    this.writeTimer = stageTimer(meterRegistry, "write");
+    this.readerWaitTimer = waitTimer(meterRegistry, "read");
+    this.writerWaitTimer = waitTimer(meterRegistry, "write");
+    Gauge.builder("wds.write.batch.queued", queuedBatches, AtomicInteger::get)
+        .description("Batches read ahead and waiting to be written")
+        .register(meterRegistry);
+  }
+
+  private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+    return Timer.builder("wds.write.batch.stage")
+        .description("Time spent reading or writing a batch of records")
+        .tag("stage", stage)
+        .register(meterRegistry);
+  }
+
+  private static Timer waitTimer(MeterRegistry meterRegistry, String stage) {
+    return Timer.builder("wds.write.batch.wait")
+        .description("Time the reader or writer of batches spent waiting for the other")
+        .tag("stage", stage)
+        .register(meterRegistry);
   }
 
   /**
@@ -56,7 +135,9 @@ public class BatchWriteService {
       @Nullable RecordType recordType,
       String primaryKey) {
     try (recordSource) {
-      return consumeWriteStream(recordSource, recordSink, recordType, primaryKey);
+      return pipelineEnabled
+          ? consumePipelined(recordSource, recordSink, recordType, primaryKey)
+          : consumeWriteStream(recordSource, recordSink, recordType, primaryKey);
     } catch (IOException e) {
       throw new BadStreamingWriteRequestException(e);
     }
@@ -72,54 +153,265 @@ public class BatchWriteService {
 
     // tracker to stash the schemas for the record types seen while processing this stream
     Map<RecordType, Map<String, DataTypeMapping>> typeSchemas = new HashMap<>();
+    // the schema each record type has reached so far, merged across batches
+    Map<RecordType, StreamSchema> streamSchemas = new HashMap<>();
 
     // loop through, in batches, the records provided by the RecordSource. This loops
     // until the RecordSource returns an empty batch.
-    for (WriteStreamInfo info = recordSource.readRecords(batchSize);
-        !info.records().isEmpty();
-        info = recordSource.readRecords(batchSize)) {
+    for (Optional<ReadBatch> batch = readBatch(recordSource, recordType);
+        batch.isPresent();
+        batch = readBatch(recordSource, recordType)) {
+      writeBatch(
+          batch.get(),
+          recordSource.importMode(),
+          recordSink,
+          primaryKey,
+          typeSchemas,
+          streamSchemas,
+          result);
+    }
+    applyStagedColumns(recordSink, streamSchemas);
+    return result;
+  }
+
+  /**
+   * As {@link #consumeWriteStream}, but reads batches on a separate thread, ahead of the batch
+   * being written.
+   */
+  private BatchWriteResult consumePipelined(
+      RecordSource recordSource,
+      RecordSink recordSink,
+      @Nullable RecordType recordType,
+      String primaryKey)
+      throws IOException {
+    BatchWriteResult result = BatchWriteResult.empty();
+    Map<RecordType, Map<String, DataTypeMapping>> typeSchemas = new HashMap<>();
+    Map<RecordType, StreamSchema> streamSchemas = new HashMap<>();
+
+    BlockingQueue<PipelineItem> queue = new ArrayBlockingQueue<>(pipelineQueueCapacity);
+    Map<String, String> mdc = MDC.getCopyOfContextMap();
+    Thread reader =
+        READER_THREAD_FACTORY.newThread(
+            () -> {
+              if (mdc != null) {
+                MDC.setContextMap(mdc);
+              }
+              readAhead(recordSource, recordType, queue);
+            });
+    reader.start();
+    try {
+      while (true) {
+        long waitStart = System.nanoTime();
+        PipelineItem item = queue.take();
+        writerWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        queuedBatches.decrementAndGet();
+        if (item.failure() != null) {
+          Throwables.throwIfInstanceOf(item.failure(), IOException.class);
+          Throwables.throwIfUnchecked(item.failure());
+          throw new IllegalStateException(item.failure());
+        }
+        if (item.batch() == null) {
+          applyStagedColumns(recordSink, streamSchemas);
+          return result;
+        }
+        writeBatch(
+            item.batch(),
+            recordSource.importMode(),
+            recordSink,
+            primaryKey,
+            typeSchemas,
+            streamSchemas,
+            result);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while writing records", e);
+    } finally {
+      // if writing failed, the reader may still be reading; stop it before the caller closes the
+      // record source
+      reader.interrupt();
+      stopReader(reader, queue);
+    }
+  }
+
+  /**
+   * Reads batches into the queue until the source is exhausted, then queues an end marker. A
+   * failure is queued in place of the end marker, so the writer can rethrow it.
+   */
+  private void readAhead(
+      RecordSource recordSource,
+      @Nullable RecordType recordType,
+      BlockingQueue<PipelineItem> queue) {
+    PipelineItem last;
+    try {
+      for (Optional<ReadBatch> batch = readBatch(recordSource, recordType);
+          batch.isPresent();
+          batch = readBatch(recordSource, recordType)) {
+        put(queue, new PipelineItem(batch.get(), null));
+      }
+      last = new PipelineItem(null, null);
+    } catch (InterruptedException e) {
+      // the writer has stopped; nobody is waiting for the rest of the stream
+      Thread.currentThread().interrupt();
+      return;
+    } catch (Throwable t) {
+      // anything else must reach the writer, which would otherwise wait forever
+      last = new PipelineItem(null, t);
+    }
+    try {
+      put(queue, last);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void put(BlockingQueue<PipelineItem> queue, PipelineItem item)
+      throws InterruptedException {
+    // count the item before the writer can take it, so the gauge never goes negative
+    queuedBatches.incrementAndGet();
+    long waitStart = System.nanoTime();
+    try {
+      queue.put(item);
+    } catch (InterruptedException e) {
+      queuedBatches.decrementAndGet();
+      throw e;
+    }
+    readerWaitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Waits for the reader to finish, discarding anything it queues meanwhile so that it cannot block
+   * on a full queue.
+   */
+  private void stopReader(Thread reader, BlockingQueue<PipelineItem> queue) {
+    List<PipelineItem> unwritten = new ArrayList<>();
+    boolean interrupted = false;
+    while (reader.isAlive()) {
+      queue.drainTo(unwritten);
+      try {
+        reader.join(READER_JOIN_INTERVAL_MILLIS);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    queue.drainTo(unwritten);
+    queuedBatches.addAndGet(-unwritten.size());
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * The read stage: reads a batch from the source, groups it by record type and, for upserts,
+   * infers each record type's schema. Touches neither the database nor the sink, so it is safe to
+   * run off the transaction's thread.
+   *
+   * @return the batch, or empty if the source is exhausted
+   */
+  private Optional<ReadBatch> readBatch(
+      RecordSource recordSource, @Nullable RecordType recordType) throws IOException {
+    Timer.Sample sample = Timer.start();
+    try {
+      WriteStreamInfo info = recordSource.readRecords(batchSize);
+      if (info.records().isEmpty()) {
+        return Optional.empty();
+      }
       // Group the incoming records by their record types. TDR and PFB inputs expect to have
       // multiple types within the same input stream. TSV and JSON are expected to have a single
       // record type, so this will result in a grouping of 1.
-      Multimap<RecordType, Record> groupedRecords =
+      ImmutableListMultimap<RecordType, Record> groupedRecords =
           Multimaps.index(info.records(), Record::getRecordType);
 
       // TSV and JSON inputs are validated against the recordType argument. PFB inputs pass
       // a null recordType argument so there is nothing to validate.
       assertRecordTypesMatch(recordType, groupedRecords.keySet());
 
-      // loop over all record types in this batch. For each record type, iff this is the first
-      // time we've seen this type, calculate a schema from its records and update the record type
-      // as necessary. Then, write the records into the table.
-      OperationType opType = info.operationType();
-      for (RecordType recType : groupedRecords.keySet()) {
-        // despite its name, copyOf avoids copying if possible
-        List<Record> records = ImmutableList.copyOf(groupedRecords.get(recType));
+      Map<RecordType, Map<String, DataTypeMapping>> inferredSchemas = new HashMap<>();
+      Map<RecordType, RelationCollection> inferredRelations = new HashMap<>();
+      if (info.operationType() == OperationType.UPSERT) {
+        for (RecordType recType : groupedRecords.keySet()) {
+          List<Record> records = groupedRecords.get(recType);
+          Map<String, DataTypeMapping> schema = inferer.inferTypes(records);
+          inferredSchemas.put(recType, schema);
+          inferredRelations.put(recType, inferer.findRelations(records, schema));
+        }
+      }
+      return Optional.of(
+          new ReadBatch(
+              info.operationType(), groupedRecords, inferredSchemas, inferredRelations));
+    } finally {
+      sample.stop(readTimer);
+    }
+  }
+
+  /**
+   * The write stage: updates each record type in the batch as necessary, then writes its records.
+   * Must run on the transaction's thread.
+   */
+  private void writeBatch(
+      ReadBatch batch,
+      ImportMode importMode,
+      RecordSink recordSink,
+      String primaryKey,
+      Map<RecordType, Map<String, DataTypeMapping>> typeSchemas,
+      Map<RecordType, StreamSchema> streamSchemas,
+      BatchWriteResult result) {
+    Timer.Sample sample = Timer.start();
+    try {
+      // loop over all record types in this batch. For each record type, update the record type as
+      // necessary using the schema inferred from its records, and save the resulting schema back
+      // to the `typeSchemas` map. Then, write the records into the table.
+      OperationType opType = batch.operationType();
+      for (RecordType recType : batch.records().keySet()) {
+        List<Record> records = batch.records().get(recType);
 
-        // infer and update this record type's schema, then save that schema back to the
-        // `typeSchemas` map
         if (opType == OperationType.UPSERT) {
-          Map<String, DataTypeMapping> inferredSchema = inferer.inferTypes(records);
-          Map<String, DataTypeMapping> finalSchema =
-              recordSink.createOrModifyRecordType(recType, inferredSchema, records, primaryKey);
-          typeSchemas.put(recType, finalSchema);
+          Map<String, DataTypeMapping> inferredSchema = batch.inferredSchemas().get(recType);
+          RelationCollection relations = batch.inferredRelations().get(recType);
+          StreamSchema streamSchema =
+              streamSchemas.computeIfAbsent(recType, type -> new StreamSchema());
+          StreamSchema.BatchPlan plan =
+              planBatch(recType, inferredSchema, relations, streamSchema, recordSink);
+          for (StagedColumn staged : streamSchema.stage(plan.staging())) {
+            // columns are only staged if the sink supports it
+            recordSink
+                .columnStaging()
+                .orElseThrow()
+                .addStagingColumn(recType, staged.stagingColumn(), staged.stagingType());
+          }
+          // only ask the sink to compare against, and possibly alter, the record type if this
+          // batch doesn't fit what earlier batches in the stream have already established
+          if (plan.needsSink()) {
+            Map<String, DataTypeMapping> finalSchema =
+                recordSink.createOrModifyRecordType(recType, plan.schema(), records, primaryKey);
+            streamSchema.merge(finalSchema, relations);
+            typeSchemas.put(recType, finalSchema);
+          } else {
+            typeSchemas.put(recType, plan.schema());
+          }
         }
 
         Map<String, DataTypeMapping> schema = typeSchemas.get(recType);
         // when updating relations only, do not update if there are no relations
-        if (recordSource.importMode() == BASE_ATTRIBUTES || !schema.isEmpty()) {
+        if (importMode == BASE_ATTRIBUTES || !schema.isEmpty()) {
           // For relations only, remove records that have no relations
-          var recordsToWrite =
-              recordSource.importMode() == RELATIONS ? excludeEmptyRecords(records) : records;
+          var recordsToWrite = importMode == RELATIONS ? excludeEmptyRecords(records) : records;
 
           switch (opType) {
             case UPSERT -> {
               LOGGER.info(
                   "Upserting {} records as {} for record type {}",
                   recordsToWrite.size(),
-                  recordSource.importMode().name(),
+                  importMode.name(),
                   recType.getName());
-              recordSink.upsertBatch(recType, schema, recordsToWrite, primaryKey);
+              StreamSchema streamSchema = streamSchemas.get(recType);
+              recordSink
+                  .upsertBatch(
+                      recType,
+                      streamSchema.withStagingColumns(schema),
+                      streamSchema.stageValues(recordsToWrite),
+                      primaryKey)
+                  .ifPresent(counts -> result.increaseUpsertCounts(recType, counts));
             }
             case DELETE -> recordSink.deleteBatch(recType, recordsToWrite);
             default ->
@@ -132,10 +424,67 @@ public class BatchWriteService {
           LOGGER.info("Nothing to import for this batch for record type {}", recType.getName());
         }
       }
+    } finally {
+      sample.stop(writeTimer);
     }
-    return result;
   }
 
+  /**
+   * Plans how to write a record type's records in a batch. If a column already staged must widen
+   * further than its staging column can hold, the staged columns are converted first.
+   */
+  private StreamSchema.BatchPlan planBatch(
+      RecordType recType,
+      Map<String, DataTypeMapping> inferredSchema,
+      RelationCollection relations,
+      StreamSchema streamSchema,
+      RecordSink recordSink) {
+    Optional<ColumnStaging> columnStaging = recordSink.columnStaging();
+    BiPredicate<DataTypeMapping, DataTypeMapping> canDeferWidening =
+        (columnType, newType) ->
+            columnStaging.isPresent() && columnStaging.get().canDeferWidening(columnType, newType);
+    Optional<StreamSchema.BatchPlan> plan =
+        streamSchema.plan(inferredSchema, relations, inferer, canDeferWidening);
+    if (plan.isEmpty()) {
+      // only staged columns leave no plan, and only sinks that support it stage columns
+      columnStaging.orElseThrow().applyStagedColumns(recType, streamSchema.unstageAll());
+      // with nothing staged, there is always a plan
+      plan = streamSchema.plan(inferredSchema, relations, inferer, canDeferWidening);
+    }
+    return plan.orElseThrow();
+  }
+
+  /** Converts any columns staged during the stream to their final types. */
+  private static void applyStagedColumns(
+      RecordSink recordSink, Map<RecordType, StreamSchema> streamSchemas) {
+    streamSchemas.forEach(
+        (recType, streamSchema) -> {
+          if (streamSchema.hasStaged()) {
+            recordSink
+                .columnStaging()
+                .orElseThrow()
+                .applyStagedColumns(recType, streamSchema.unstageAll());
+          }
+        });
+  }
+
+  /**
+   * A batch which has been through the read stage.
+   *
+   * @param operationType whether to upsert or delete the batch's records
+   * @param records the batch's records, grouped by record type
+   * @param inferredSchemas for upserts, the schema inferred from each record type's records
+   * @param inferredRelations for upserts, the relations found in each record type's records
+   */
+  private record ReadBatch(
+      OperationType operationType,
+      ImmutableListMultimap<RecordType, Record> records,
+      Map<RecordType, Map<String, DataTypeMapping>> inferredSchemas,
+      Map<RecordType, RelationCollection> inferredRelations) {}
+
+  /** An entry in the pipeline's queue: a batch, a failure, or, if both are null, the end. */
+  private record PipelineItem(@Nullable ReadBatch batch, @Nullable Throwable failure) {}
+
   private static void assertRecordTypesMatch(
       @Nullable RecordType recordType, Set<RecordType> recordTypes) {
     if (recordType != null && !Set.of(recordType).equals(recordTypes)) {
@@ -0,0 +1,273 @@
+package org.databiosphere.workspacedataservice.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Classifies the String value of a TSV cell, or of a String attribute, in a single scan of its
+ * characters. Classification neither throws nor allocates, so that the common case - a value which
+ * is plainly a string - costs no more than reading its first few characters.
+ *
+ * <p>Numbers, booleans, dates and datetimes are classified exactly: a value classified as {@link
+ * CellKind#INTEGER} is guaranteed to parse with {@link BigInteger#BigInteger(String)}, and so on.
+ * Json objects, arrays and files are only candidates; callers confirm them by parsing, which they
+ * need to do anyway to get the value, and must treat a failed parse as {@link CellKind#STRING}.
+ */
+public final class CellLexer {
+
+  private CellLexer() {}
+
+  public enum CellKind {
+    /** parses with {@link BigInteger#BigInteger(String)} */
+    INTEGER,
+    /** parses with {@link BigDecimal#BigDecimal(String)}, but is not an integer */
+    DECIMAL,
+    /** "true" or "false", in any case */
+    BOOLEAN,
+    /** parses with {@link DateTimeFormatter#ISO_LOCAL_DATE} */
+    DATE,
+    /** parses with {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} */
+    DATE_TIME,
+    /** begins with '{', after any json whitespace; may be a json object */
+    JSON_OBJECT,
+    /** begins with '[', after any json whitespace; may be a json array */
+    ARRAY,
+    /** begins with a drs: or https: scheme; may be a file */
+    FILE,
+    STRING;
+
+    public boolean isNumber() {
+      return this == INTEGER || this == DECIMAL;
+    }
+  }
+
+  public static CellKind classify(String val) {
+    if (val.isEmpty()) {
+      return CellKind.STRING;
+    }
+    char first = val.charAt(0);
+    switch (first) {
+      case 't', 'T', 'f', 'F' -> {
+        return val.equalsIgnoreCase("true") || val.equalsIgnoreCase("false")
+            ? CellKind.BOOLEAN
+            : CellKind.STRING;
+      }
+      case 'd', 'D', 'h', 'H' -> {
+        return val.regionMatches(true, 0, "drs:", 0, 4)
+                || val.regionMatches(true, 0, "https:", 0, 6)
+            ? CellKind.FILE
+            : CellKind.STRING;
+      }
+      case '{', '[', ' ', '\t', '\n', '\r' -> {
+        return classifyJson(val);
+      }
+      default -> {
+        if (first == '+' || first == '-' || first == '.' || isDigit(first)) {
+          CellKind kind = classifyNumber(val);
+          return kind == CellKind.STRING && first != '.' ? classifyTemporal(val) : kind;
+        }
+        return CellKind.STRING;
+      }
+    }
+  }
+
+  private static CellKind classifyJson(String val) {
+    // the same whitespace Jackson skips before the first token
+    for (int i = 0; i < val.length(); i++) {
+      switch (val.charAt(i)) {
+        case ' ', '\t', '\n', '\r' -> {
+          // keep looking for the first token
+        }
+        case '{' -> {
+          return CellKind.JSON_OBJECT;
+        }
+        case '[' -> {
+          return CellKind.ARRAY;
+        }
+        default -> {
+          return CellKind.STRING;
+        }
+      }
+    }
+    return CellKind.STRING;
+  }
+
+  // the grammar of BigDecimal(String): [sign] digits [. digits] [e|E [sign] digits], with at least
+  // one digit before the exponent
+  private static CellKind classifyNumber(String val) {
+    int length = val.length();
+    int pos = 0;
+    char c = val.charAt(pos);
+    if (c == '+' || c == '-') {
+      pos++;
+    }
+    int mantissaDigits = 0;
+    while (pos < length && isDigit(val.charAt(pos))) {
+      pos++;
+      mantissaDigits++;
+    }
+    boolean integral = true;
+    if (pos < length && val.charAt(pos) == '.') {
+      integral = false;
+      pos++;
+      while (pos < length && isDigit(val.charAt(pos))) {
+        pos++;
+        mantissaDigits++;
+      }
+    }
+    if (mantissaDigits == 0) {
+      return CellKind.STRING;
+    }
+    if (pos == length) {
+      return integral ? CellKind.INTEGER : CellKind.DECIMAL;
+    }
+    c = val.charAt(pos);
+    if (c != 'e' && c != 'E') {
+      return CellKind.STRING;
+    }
+    pos++;
+    if (pos < length && (val.charAt(pos) == '+' || val.charAt(pos) == '-')) {
+      pos++;
+    }
+    int exponentDigits = 0;
+    int significantExponentDigits = 0;
+    while (pos < length && isDigit(val.charAt(pos))) {
+      if (significantExponentDigits > 0 || Character.digit(val.charAt(pos), 10) != 0) {
+        significantExponentDigits++;
+      }
+      pos++;
+      exponentDigits++;
+    }
+    if (exponentDigits == 0 || pos != length) {
+      return CellKind.STRING;
+    }
+    // BigDecimal rejects exponents that overflow an int; anything under a billion is fine, and
+    // anything larger is too unusual to be worth reimplementing BigDecimal's exact bounds
+    if (significantExponentDigits > 9 && !isBigDecimal(val)) {
+      return CellKind.STRING;
+    }
+    return CellKind.DECIMAL;
+  }
+
+  private static CellKind classifyTemporal(String val) {
+    int length = val.length();
+    if (length < 5 || !isAsciiDigits(val, 0, 4) || val.charAt(4) != '-') {
+      // signed and expanded years are legal in ISO dates, but rare enough to leave to the formatter
+      return isExpandedYear(val) ? parseTemporal(val) : CellKind.STRING;
+    }
+    // yyyy-MM-dd
+    if (length < 10
+        || !isAsciiDigits(val, 5, 7)
+        || val.charAt(7) != '-'
+        || !isAsciiDigits(val, 8, 10)) {
+      return CellKind.STRING;
+    }
+    int year = asciiValue(val, 0, 4);
+    int month = asciiValue(val, 5, 7);
+    int day = asciiValue(val, 8, 10);
+    if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+      return CellKind.STRING;
+    }
+    if (length == 10) {
+      return CellKind.DATE;
+    }
+    // 'T'HH:mm, parsed case-insensitively
+    if (length < 16
+        || (val.charAt(10) != 'T' && val.charAt(10) != 't')
+        || !isAsciiDigits(val, 11, 13)
+        || val.charAt(13) != ':'
+        || !isAsciiDigits(val, 14, 16)
+        || asciiValue(val, 11, 13) > 23
+        || asciiValue(val, 14, 16) > 59) {
+      return CellKind.STRING;
+    }
+    if (length == 16) {
+      return CellKind.DATE_TIME;
+    }
+    // :ss
+    if (length < 19
+        || val.charAt(16) != ':'
+        || !isAsciiDigits(val, 17, 19)
+        || asciiValue(val, 17, 19) > 59) {
+      return CellKind.STRING;
+    }
+    if (length == 19) {
+      return CellKind.DATE_TIME;
+    }
+    // .SSSSSSSSS
+    if (val.charAt(19) == '.' && length > 20 && length <= 29 && isAsciiDigits(val, 20, length)) {
+      return CellKind.DATE_TIME;
+    }
+    // anything else, e.g. a bare decimal point, is left to the formatter
+    return parseTemporal(val);
+  }
+
+  // [sign] at least four digits, then '-'
+  private static boolean isExpandedYear(String val) {
+    int start = val.charAt(0) == '+' || val.charAt(0) == '-' ? 1 : 0;
+    int pos = start;
+    while (pos < val.length() && isAsciiDigit(val.charAt(pos))) {
+      pos++;
+    }
+    return pos - start >= 4 && pos < val.length() && val.charAt(pos) == '-';
+  }
+
+  private static CellKind parseTemporal(String val) {
+    if (parses(val, DateTimeFormatter.ISO_LOCAL_DATE)) {
+      return CellKind.DATE;
+    }
+    if (parses(val, DateTimeFormatter.ISO_LOCAL_DATE_TIME)) {
+      return CellKind.DATE_TIME;
+    }
+    return CellKind.STRING;
+  }
+
+  private static boolean parses(String val, DateTimeFormatter formatter) {
+    try {
+      formatter.parse(val);
+      return true;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+
+  private static boolean isBigDecimal(String val) {
+    try {
+      new BigDecimal(val);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  // BigDecimal and BigInteger accept any Unicode decimal digit
+  private static boolean isDigit(char c) {
+    return isAsciiDigit(c) || (c >= 0x80 && Character.isDigit(c));
+  }
+
+  // DateTimeFormatter accepts only ASCII digits
+  private static boolean isAsciiDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isAsciiDigits(String val, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (!isAsciiDigit(val.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int asciiValue(String val, int from, int to) {
+    int value = 0;
+    for (int i = from; i < to; i++) {
+      value = value * 10 + (val.charAt(i) - '0');
+    }
+    return value;
+  }
+}
@@ -3,6 +3,9 @@ package org.databiosphere.workspacedataservice.service;
 import static org.databiosphere.workspacedataservice.dao.SqlUtils.quote;
 
 import bio.terra.common.db.WriteTransaction;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.List;
 import java.util.Optional;
 import java.util.Spliterator;
@@ -14,6 +17,7 @@ import org.databiosphere.workspacedataservice.activitylog.ActivityLogger;
 import org.databiosphere.workspacedataservice.config.TenancyProperties;
 import org.databiosphere.workspacedataservice.config.TwdsProperties;
 import org.databiosphere.workspacedataservice.dao.CollectionRepository;
+import org.databiosphere.workspacedataservice.dao.RecordTypeMetadataDao;
 import org.databiosphere.workspacedataservice.generated.CollectionRequestServerModel;
 import org.databiosphere.workspacedataservice.generated.CollectionServerModel;
 import org.databiosphere.workspacedataservice.rawls.RawlsException;
@@ -28,11 +32,17 @@ import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
 import org.databiosphere.workspacedataservice.workspace.DataTableTypeInspector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.relational.core.conversion.DbActionExecutionException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class CollectionService {
@@ -42,9 +52,14 @@ public class CollectionService {
   private final CollectionRepository collectionRepository;
   private final DataTableTypeInspector dataTableTypeInspector;
   private final NamedParameterJdbcTemplate namedTemplate;
+  private final RecordTypeMetadataDao recordTypeMetadataDao;
   private final TenancyProperties tenancyProperties;
   private final TwdsProperties twdsProperties;
 
+  // collection -> workspace, for collections in the sys_wds.collection table. A collection never
+  // moves between workspaces, so entries only need to be removed when a collection is deleted.
+  private final Cache<CollectionId, WorkspaceId> workspaceIds;
+
   // strings for use in error messages
   private static final String COLLECTION = "Collection";
   public static final String NAME_DEFAULT = "default";
@@ -54,14 +69,39 @@ public class CollectionService {
       CollectionRepository collectionRepository,
       DataTableTypeInspector dataTableTypeInspector,
       NamedParameterJdbcTemplate namedTemplate,
+      RecordTypeMetadataDao recordTypeMetadataDao,
       TenancyProperties tenancyProperties,
-      TwdsProperties twdsProperties) {
+      TwdsProperties twdsProperties,
+      @Value("${twds.collection-cache.max-size:10000}") long workspaceIdCacheSize) {
     this.activityLogger = activityLogger;
     this.collectionRepository = collectionRepository;
     this.dataTableTypeInspector = dataTableTypeInspector;
     this.namedTemplate = namedTemplate;
+    this.recordTypeMetadataDao = recordTypeMetadataDao;
     this.tenancyProperties = tenancyProperties;
     this.twdsProperties = twdsProperties;
+    this.workspaceIds = CacheBuilder.newBuilder().maximumSize(workspaceIdCacheSize).build();
+  }
+
+  /**
+   * In single-tenant deployments, load the workspace id of every collection in this WDS's
+   * workspace on startup, so that the first request to each collection needs no lookup.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  void warmWorkspaceIdCache() {
+    WorkspaceId workspaceId = twdsProperties.workspaceId();
+    if (!tenancyProperties.getRequireEnvWorkspace() || workspaceId == null) {
+      return;
+    }
+    try {
+      collectionRepository
+          .findByWorkspace(workspaceId)
+          .forEach(coll -> workspaceIds.put(coll.collectionId(), coll.workspaceId()));
+      LOGGER.info("Cached workspace id for {} collections", workspaceIds.size());
+    } catch (DataAccessException e) {
+      // not fatal; collections will be looked up as they are requested
+      LOGGER.warn("Failed to cache workspace ids for collections: {}", e.getMessage());
+    }
   }
 
   // ============================== v1 methods ==============================
@@ -181,8 +221,13 @@ public class CollectionService {
     namedTemplate
         .getJdbcTemplate()
         .update("drop schema " + quote(collectionId.toString()) + " cascade");
+    recordTypeMetadataDao.collectionDeleted(collectionId.id());
 
     collectionRepository.deleteById(collectionId);
+    // until this transaction commits, other threads can still read the collection and re-cache
+    // it, so invalidate again afterwards
+    workspaceIds.invalidate(collectionId);
+    invalidateAfterCommit(collectionId);
 
     activityLogger.saveEventForCurrentUser(
         user -> user.deleted().collection().withUuid(collectionId.id()));
@@ -346,6 +391,24 @@ public class CollectionService {
 
   // ============================== helpers ==============================
 
+  private void invalidateAfterCommit(CollectionId collectionId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            workspaceIds.invalidate(collectionId);
+          }
+        });
+  }
+
+  @VisibleForTesting
+  boolean isWorkspaceIdCached(CollectionId collectionId) {
+    return workspaceIds.getIfPresent(collectionId) != null;
+  }
+
   /**
    * Return the workspace that contains the specified collection, validating against the
    * twds.tenancy.enforce-collections-match-workspace-id configuration setting.
@@ -390,12 +453,20 @@ public class CollectionService {
    * @return the workspace containing the given collection.
    */
   private WorkspaceId calculateWorkspaceId(CollectionId collectionId) {
+    // this collection has been seen before
+    WorkspaceId cached = workspaceIds.getIfPresent(collectionId);
+    if (cached != null) {
+      return cached;
+    }
+
     // look up the workspaceId for this collection in the collection table
     Optional<WdsCollection> maybeCollection = collectionRepository.findById(collectionId);
 
     // row exists; this is the ideal case
     if (maybeCollection.isPresent()) {
-      return maybeCollection.get().workspaceId();
+      WorkspaceId workspaceId = maybeCollection.get().workspaceId();
+      workspaceIds.put(collectionId, workspaceId);
+      return workspaceId;
     }
 
     // row does not exist. handle the possibility that this is a virtual collection.
@@ -30,9 +30,6 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -40,6 +37,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import org.databiosphere.workspacedataservice.service.CellLexer.CellKind;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
 import org.databiosphere.workspacedataservice.service.model.Relation;
 import org.databiosphere.workspacedataservice.service.model.RelationCollection;
@@ -124,22 +122,14 @@ public class DataTypeInferer {
   // TODO: create an explicit deserialization step that creates dates, datetimes, etc. and simplify
   // here.
   private DataTypeMapping getTypeMappingFromString(String sVal) {
-    if (isValidDate(sVal)) {
-      return DATE;
-    }
-    if (isValidDateTime(sVal)) {
-      return DATE_TIME;
-    }
-    if (isValidBoolean(sVal)) {
-      return BOOLEAN;
-    }
-    if (tryJsonObject(sVal).isPresent()) {
-      return JSON;
-    }
-    if (isFileType(sVal)) {
-      return FILE;
-    }
-    return STRING;
+    return switch (CellLexer.classify(sVal)) {
+      case DATE -> DATE;
+      case DATE_TIME -> DATE_TIME;
+      case BOOLEAN -> BOOLEAN;
+      case JSON_OBJECT -> parseToJsonNode(sVal) instanceof ObjectNode ? JSON : STRING;
+      case FILE -> isFileType(sVal) ? FILE : STRING;
+      default -> STRING;
+    };
   }
 
   /**
@@ -192,12 +182,7 @@ public class DataTypeInferer {
   }
 
   public boolean isNumericValue(String sVal) {
-    try {
-      new BigDecimal(sVal);
-      return true;
-    } catch (NumberFormatException e) {
-      return false;
-    }
+    return CellLexer.classify(sVal).isNumber();
   }
 
   @Nullable
@@ -226,6 +211,9 @@ public class DataTypeInferer {
    * @return Optional of the ObjectNode, or empty if the input was not a json object
    */
   public Optional<ObjectNode> tryJsonObject(String val) {
+    if (CellLexer.classify(val) != CellKind.JSON_OBJECT) {
+      return Optional.empty();
+    }
     JsonNode jsonNode = parseToJsonNode(val);
     if (jsonNode instanceof ObjectNode objectNode) {
       return Optional.of(objectNode);
@@ -234,6 +222,9 @@ public class DataTypeInferer {
   }
 
   public boolean isArray(String val) {
+    if (CellLexer.classify(val) != CellKind.ARRAY) {
+      return false;
+    }
     JsonNode jsonNode = parseToJsonNode(val);
     return jsonNode != null && jsonNode.isArray();
   }
@@ -289,21 +280,11 @@ public class DataTypeInferer {
   }
 
   public boolean isValidDateTime(String val) {
-    try {
-      LocalDate.parse(val, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-    } catch (DateTimeParseException e) {
-      return false;
-    }
-    return true;
+    return CellLexer.classify(val) == CellKind.DATE_TIME;
   }
 
   public boolean isValidDate(String val) {
-    try {
-      LocalDate.parse(val, DateTimeFormatter.ISO_LOCAL_DATE);
-    } catch (DateTimeParseException e) {
-      return false;
-    }
-    return true;
+    return CellLexer.classify(val) == CellKind.DATE;
   }
 
   /**
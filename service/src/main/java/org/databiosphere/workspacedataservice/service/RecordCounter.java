@@ -0,0 +1,79 @@
+package org.databiosphere.workspacedataservice.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.dao.RecordDao;
+import org.databiosphere.workspacedataservice.service.model.RecordCount;
+import org.databiosphere.workspacedataservice.shared.model.CountMode;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts records, either exactly with count(*), or from Postgres' planner statistics
+ * (pg_class.reltuples). Exact counts scan the whole table, so get slower as a record type grows;
+ * estimates cost the same regardless of size, but are only as fresh as the last autovacuum/analyze.
+ *
+ * <p>When estimating, record types whose estimate is below {@code
+ * twds.record-count.exact-threshold} are counted exactly anyway: counting a small table is cheap,
+ * and a stale estimate is most noticeable when users have just added their first few records.
+ */
+@Component
+public class RecordCounter {
+
+  private final RecordDao recordDao;
+  private final long exactThreshold;
+
+  public RecordCounter(
+      RecordDao recordDao,
+      @Value("${twds.record-count.exact-threshold:100000}") long exactThreshold) {
+    this.recordDao = recordDao;
+    this.exactThreshold = exactThreshold;
+  }
+
+  /** Count the records of a single record type. */
+  public RecordCount count(UUID collectionId, RecordType recordType, CountMode countMode) {
+    if (countMode == CountMode.ESTIMATED) {
+      Optional<Integer> estimate = recordDao.estimateRecordCount(collectionId, recordType);
+      if (estimate.isPresent() && estimate.get() >= exactThreshold) {
+        return new RecordCount(estimate.get(), /* estimated= */ true);
+      }
+    }
+    return new RecordCount(
+        recordDao.countRecords(collectionId, recordType), /* estimated= */ false);
+  }
+
+  /**
+   * Count the records of several record types, given estimates already read from the catalog.
+   * Record types which need an exact count are all counted in a single query.
+   *
+   * @param estimatedCounts estimates for those record types which have them
+   */
+  public Map<RecordType, RecordCount> countAll(
+      UUID collectionId,
+      List<RecordType> recordTypes,
+      Map<RecordType, Long> estimatedCounts,
+      CountMode countMode) {
+    Map<RecordType, RecordCount> counts = new HashMap<>();
+    List<RecordType> toCount = new ArrayList<>();
+    for (RecordType recordType : recordTypes) {
+      Long estimate = estimatedCounts.get(recordType);
+      if (countMode == CountMode.ESTIMATED && estimate != null && estimate >= exactThreshold) {
+        int count = (int) Math.min(estimate, Integer.MAX_VALUE);
+        counts.put(recordType, new RecordCount(count, /* estimated= */ true));
+      } else {
+        toCount.add(recordType);
+      }
+    }
+    recordDao
+        .countRecords(collectionId, toCount)
+        .forEach(
+            (recordType, count) ->
+                counts.put(recordType, new RecordCount(count, /* estimated= */ false)));
+    return counts;
+  }
+}
@@ -21,6 +21,9 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.databiosphere.workspacedataservice.activitylog.ActivityLogger;
 import org.databiosphere.workspacedataservice.dao.RecordDao;
+import org.databiosphere.workspacedataservice.dao.RecordDao.RecordPage;
+import org.databiosphere.workspacedataservice.dao.RecordTypeMetadata;
+import org.databiosphere.workspacedataservice.dao.RecordTypeMetadataDao.CollectionCatalog;
 import org.databiosphere.workspacedataservice.generated.DeleteRecordsRequestServerModel;
 import org.databiosphere.workspacedataservice.generated.DeleteRecordsResponseServerModel;
 import org.databiosphere.workspacedataservice.recordsink.RecordSink;
@@ -32,7 +35,9 @@ import org.databiosphere.workspacedataservice.recordsource.TsvRecordSource;
 import org.databiosphere.workspacedataservice.service.model.AttributeSchema;
 import org.databiosphere.workspacedataservice.service.model.BatchWriteResult;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.RecordCount;
 import org.databiosphere.workspacedataservice.service.model.RecordTypeSchema;
+import org.databiosphere.workspacedataservice.service.model.SearchPageToken;
 import org.databiosphere.workspacedataservice.service.model.Relation;
 import org.databiosphere.workspacedataservice.service.model.exception.BadStreamingWriteRequestException;
 import org.databiosphere.workspacedataservice.service.model.exception.ConflictException;
@@ -40,8 +45,10 @@ import org.databiosphere.workspacedataservice.service.model.exception.DataImport
 import org.databiosphere.workspacedataservice.service.model.exception.MissingObjectException;
 import org.databiosphere.workspacedataservice.service.model.exception.ValidationException;
 import org.databiosphere.workspacedataservice.shared.model.CollectionId;
+import org.databiosphere.workspacedataservice.shared.model.CountMode;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordQueryResponse;
+import org.databiosphere.workspacedataservice.shared.model.RecordReference;
 import org.databiosphere.workspacedataservice.shared.model.RecordRequest;
 import org.databiosphere.workspacedataservice.shared.model.RecordResponse;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
@@ -73,6 +80,7 @@ public class RecordOrchestratorService { // TODO give me a better name
   private final ActivityLogger activityLogger;
   private final TsvSupport tsvSupport;
   private final ObservationRegistry observations;
+  private final RecordCounter recordCounter;
 
   public RecordOrchestratorService(
       RecordDao recordDao,
@@ -82,7 +90,8 @@ public class RecordOrchestratorService { // TODO give me a better name
       RecordService recordService,
       ActivityLogger activityLogger,
       TsvSupport tsvSupport,
-      ObservationRegistry observations) {
+      ObservationRegistry observations,
+      RecordCounter recordCounter) {
     this.recordDao = recordDao;
     this.recordSourceFactory = recordSourceFactory;
     this.recordSinkFactory = recordSinkFactory;
@@ -91,6 +100,7 @@ public class RecordOrchestratorService { // TODO give me a better name
     this.activityLogger = activityLogger;
     this.tsvSupport = tsvSupport;
     this.observations = observations;
+    this.recordCounter = recordCounter;
   }
 
   public RecordResponse updateSingleRecord(
@@ -120,6 +130,21 @@ public class RecordOrchestratorService { // TODO give me a better name
     return new RecordResponse(recordId, recordType, result.getAttributes());
   }
 
+  @ReadTransaction
+  public List<RecordReference> getReferringRecords(
+      UUID collectionId, String version, RecordType recordType, String recordId, int limit) {
+    validateVersion(version);
+    checkRecordTypeExists(collectionId, recordType);
+    if (limit > MAX_RECORDS || limit < 1) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Limit must be more than 0 and can't exceed " + MAX_RECORDS);
+    }
+    if (!recordDao.recordExists(collectionId, recordType, recordId)) {
+      throw new MissingObjectException("Record");
+    }
+    return recordDao.getReferringRecords(collectionId, recordType, recordId, limit);
+  }
+
   // N.B. transaction annotated in batchWriteService.batchWrite
   public int tsvUpload(
       UUID collectionId,
@@ -202,9 +227,46 @@ public class RecordOrchestratorService { // TODO give me a better name
         && !schema.containsKey(searchRequest.getSortAttribute())) {
       throw new MissingObjectException("Requested sort attribute");
     }
-    int totalRecords = recordDao.countRecords(collectionId, recordType);
-    if (searchRequest.getOffset() > totalRecords) {
-      return new RecordQueryResponse(searchRequest, Collections.emptyList(), totalRecords);
+
+    // validate page token
+    Optional<SearchPageToken> pageAfter = Optional.empty();
+    if (searchRequest.getPageToken() != null) {
+      if (searchRequest.getOffset() != 0) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST, "Offset cannot be combined with a page token.");
+      }
+      SearchPageToken pageToken = SearchPageToken.decode(searchRequest.getPageToken());
+      if (!pageToken.matchesSearch(
+          searchRequest.getSortAttribute(), searchRequest.getSort(), searchRequest.getFilter())) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST,
+            "Page token was issued for a different search; filter, sort and sortAttribute must "
+                + "not change between pages.");
+      }
+      pageAfter = Optional.of(pageToken);
+    }
+
+    // later pages report the first page's total, rather than counting the records again
+    int totalRecords;
+    boolean totalRecordsEstimated;
+    if (pageAfter.isPresent()) {
+      totalRecords = pageAfter.get().totalRecords();
+      totalRecordsEstimated = pageAfter.get().totalRecordsEstimated();
+    } else {
+      RecordCount recordCount =
+          recordCounter.count(collectionId, recordType, searchRequest.getCount());
+      totalRecords = recordCount.count();
+      totalRecordsEstimated = recordCount.estimated();
+    }
+
+    // an estimated count may be too low, so only short-circuit on exact counts
+    if (!totalRecordsEstimated && pageAfter.isEmpty() && searchRequest.getOffset() > totalRecords) {
+      return new RecordQueryResponse(
+          searchRequest,
+          Collections.emptyList(),
+          totalRecords,
+          totalRecordsEstimated,
+          /* nextPageToken= */ null);
     }
 
     Observation observation =
@@ -212,23 +274,41 @@ public class RecordOrchestratorService { // TODO give me a better name
             .lowCardinalityKeyValues(generateSearchFilterObservationKeyValues(searchRequest));
 
     LOGGER.info("queryForEntities: {}", recordType.getName());
-    List<Record> records =
-        recordDao.queryForRecords(
+    RecordPage page =
+        recordDao.queryForRecordPage(
             recordType,
             searchRequest.getLimit(),
             searchRequest.getOffset(),
             searchRequest.getSort().name().toLowerCase(),
             searchRequest.getSortAttribute(),
             searchRequest.getFilter(),
+            pageAfter,
             collectionId);
+    List<Record> records = page.records();
 
     List<RecordResponse> recordList =
         records.stream()
             .map(r -> new RecordResponse(r.getId(), r.getRecordType(), r.getAttributes()))
             .toList();
 
+    // a full page may be followed by more records; let the client continue from its last record
+    String nextPageToken = null;
+    if (!records.isEmpty() && records.size() == searchRequest.getLimit()) {
+      nextPageToken =
+          new SearchPageToken(
+                  searchRequest.getSortAttribute(),
+                  searchRequest.getSort(),
+                  SearchPageToken.fingerprint(searchRequest.getFilter()),
+                  page.lastSortValue(),
+                  records.get(records.size() - 1).getId(),
+                  totalRecords,
+                  totalRecordsEstimated)
+              .encode();
+    }
+
     observation.stop();
-    return new RecordQueryResponse(searchRequest, recordList, totalRecords);
+    return new RecordQueryResponse(
+        searchRequest, recordList, totalRecords, totalRecordsEstimated, nextPageToken);
   }
 
   private KeyValues generateSearchFilterObservationKeyValues(SearchRequest searchRequest) {
@@ -431,17 +511,42 @@ public class RecordOrchestratorService { // TODO give me a better name
   @ReadTransaction
   public RecordTypeSchema describeRecordType(
       UUID collectionId, String version, RecordType recordType) {
+    return describeRecordType(collectionId, version, recordType, CountMode.EXACT);
+  }
+
+  @ReadTransaction
+  public RecordTypeSchema describeRecordType(
+      UUID collectionId, String version, RecordType recordType, CountMode countMode) {
     validateVersion(version);
     checkRecordTypeExists(collectionId, recordType);
-    return getSchemaDescription(collectionId, recordType);
+    return getSchemaDescription(
+        collectionId, recordType, recordCounter.count(collectionId, recordType, countMode));
   }
 
   @ReadTransaction
   public List<RecordTypeSchema> describeAllRecordTypes(UUID collectionId, String version) {
+    return describeAllRecordTypes(collectionId, version, CountMode.EXACT);
+  }
+
+  /**
+   * Describe all record types in a collection. Reads the catalog for the whole collection at once,
+   * and counts all record types that need an exact count in a single query, so the number of
+   * queries does not grow with the number of record types.
+   */
+  @ReadTransaction
+  public List<RecordTypeSchema> describeAllRecordTypes(
+      UUID collectionId, String version, CountMode countMode) {
     validateVersion(version);
-    List<RecordType> allRecordTypes = recordDao.getAllRecordTypes(collectionId);
+    CollectionCatalog catalog = recordDao.getCollectionCatalog(collectionId);
+    List<RecordType> allRecordTypes = List.copyOf(catalog.metadata().keySet());
+    Map<RecordType, RecordCount> counts =
+        recordCounter.countAll(
+            collectionId, allRecordTypes, catalog.estimatedCounts(), countMode);
     return allRecordTypes.stream()
-        .map(recordType -> getSchemaDescription(collectionId, recordType))
+        .map(
+            recordType ->
+                toSchemaDescription(
+                    recordType, catalog.metadata().get(recordType), counts.get(recordType)))
         .toList();
   }
 
@@ -481,27 +586,40 @@ public class RecordOrchestratorService { // TODO give me a better name
     }
   }
 
+  // for validating attributes, where the count is irrelevant; avoids a full count of large tables
   private RecordTypeSchema getSchemaDescription(UUID collectionId, RecordType recordType) {
-    Map<String, DataTypeMapping> schema =
-        recordDao.getExistingTableSchema(collectionId, recordType);
-    List<Relation> relationCols = recordDao.getRelationArrayCols(collectionId, recordType);
-    relationCols.addAll(recordDao.getRelationCols(collectionId, recordType));
+    return getSchemaDescription(
+        collectionId,
+        recordType,
+        recordCounter.count(collectionId, recordType, CountMode.ESTIMATED));
+  }
+
+  private RecordTypeSchema getSchemaDescription(
+      UUID collectionId, RecordType recordType, RecordCount recordCount) {
+    return toSchemaDescription(
+        recordType, recordDao.getRecordTypeMetadata(collectionId, recordType), recordCount);
+  }
+
+  private RecordTypeSchema toSchemaDescription(
+      RecordType recordType, RecordTypeMetadata metadata, RecordCount recordCount) {
+    List<Relation> relationCols = new ArrayList<>(metadata.relationArrayCols());
+    relationCols.addAll(metadata.relationCols());
     Map<String, RecordType> relations =
         relationCols.stream()
             .collect(Collectors.toMap(Relation::relationColName, Relation::relationRecordType));
     List<AttributeSchema> attrSchema =
-        schema.entrySet().stream()
+        metadata.schema().entrySet().stream()
             .sorted(Map.Entry.comparingByKey())
             .map(
                 entry ->
                     new AttributeSchema(
                         entry.getKey(), entry.getValue().toString(), relations.get(entry.getKey())))
             .toList();
-    int recordCount = recordDao.countRecords(collectionId, recordType);
     return new RecordTypeSchema(
         recordType,
         attrSchema,
-        recordCount,
-        recordDao.getPrimaryKeyColumn(recordType, collectionId));
+        recordCount.count(),
+        metadata.primaryKey(),
+        recordCount.estimated());
   }
 }
@@ -3,20 +3,26 @@ package org.databiosphere.workspacedataservice.service;
 import static org.databiosphere.workspacedataservice.service.model.ReservedNames.RESERVED_NAME_PREFIX;
 
 import bio.terra.common.db.WriteTransaction;
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
 import io.micrometer.observation.Observation;
 import io.micrometer.observation.ObservationRegistry;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.databiosphere.workspacedataservice.dao.RecordDao;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
@@ -24,6 +30,9 @@ import org.databiosphere.workspacedataservice.service.model.Relation;
 import org.databiosphere.workspacedataservice.service.model.RelationCollection;
 import org.databiosphere.workspacedataservice.service.model.RelationValue;
 import org.databiosphere.workspacedataservice.service.model.ReservedNames;
+import org.databiosphere.workspacedataservice.service.model.SchemaChangePlan;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.ConflictingPrimaryKeysException;
 import org.databiosphere.workspacedataservice.service.model.exception.InvalidNameException;
 import org.databiosphere.workspacedataservice.service.model.exception.InvalidRelationException;
@@ -70,6 +79,16 @@ public class RecordService {
       List<Record> records,
       Map<String, DataTypeMapping> requestSchema,
       String primaryKey) {
+    prepareAndUpsert(collectionId, recordType, records, requestSchema, primaryKey, false);
+  }
+
+  private Optional<UpsertCounts> prepareAndUpsert(
+      UUID collectionId,
+      RecordType recordType,
+      List<Record> records,
+      Map<String, DataTypeMapping> requestSchema,
+      String primaryKey,
+      boolean useCopy) {
     // Identify relation arrays
     Map<String, DataTypeMapping> relationArrays =
         requestSchema.entrySet().stream()
@@ -77,16 +96,53 @@ public class RecordService {
             .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     Map<Relation, List<RelationValue>> relationArrayValues =
         getAllRelationArrayValues(records, relationArrays);
-    recordDao.batchUpsert(collectionId, recordType, records, requestSchema, primaryKey);
+    // batched inserts can't tell inserts from updates, or report rows they leave unchanged
+    Optional<UpsertCounts> counts = Optional.empty();
+    if (useCopy) {
+      counts =
+          Optional.of(
+              recordDao.copyUpsert(collectionId, recordType, records, requestSchema, primaryKey));
+    } else {
+      recordDao.batchUpsert(collectionId, recordType, records, requestSchema, primaryKey);
+    }
     for (Map.Entry<Relation, List<RelationValue>> rel : relationArrayValues.entrySet()) {
-      // remove existing values from join table and replace with new ones
-      recordDao.removeFromJoin(
-          collectionId,
-          rel.getKey(),
-          recordType,
-          rel.getValue().stream().map(relVal -> relVal.fromRecord().getId()).toList());
-      recordDao.insertIntoJoin(collectionId, rel.getKey(), recordType, rel.getValue());
+      // remove existing values from join table and replace with new ones, but only for records
+      // whose values changed; a re-import mostly leaves them as they were
+      List<RelationValue> changed =
+          changedRelationValues(collectionId, recordType, rel.getKey(), rel.getValue());
+      if (!changed.isEmpty()) {
+        recordDao.removeFromJoin(
+            collectionId,
+            rel.getKey(),
+            recordType,
+            changed.stream().map(relVal -> relVal.fromRecord().getId()).distinct().toList());
+        recordDao.insertIntoJoin(collectionId, rel.getKey(), recordType, changed);
+      }
     }
+    return counts;
+  }
+
+  // the values of records whose relations, in any order, differ from those in the join table
+  private List<RelationValue> changedRelationValues(
+      UUID collectionId, RecordType recordType, Relation relation, List<RelationValue> values) {
+    Map<String, Multiset<String>> wanted = new HashMap<>();
+    values.forEach(
+        relVal ->
+            wanted
+                .computeIfAbsent(relVal.fromRecord().getId(), id -> HashMultiset.create())
+                .add(relVal.toRecord().getId()));
+    Map<String, List<String>> existing =
+        recordDao.getJoinValues(collectionId, relation, recordType, wanted.keySet());
+    Set<String> changedIds = new HashSet<>();
+    wanted.forEach(
+        (id, toIds) -> {
+          if (!toIds.equals(HashMultiset.create(existing.getOrDefault(id, List.of())))) {
+            changedIds.add(id);
+          }
+        });
+    return values.stream()
+        .filter(relVal -> changedIds.contains(relVal.fromRecord().getId()))
+        .toList();
   }
 
   private Map<Relation, List<RelationValue>> getAllRelationArrayValues(
@@ -137,8 +193,25 @@ public class RecordService {
       List<Record> records,
       Map<String, DataTypeMapping> schema,
       String primaryKey) {
+    batchUpsert(collectionId, recordType, records, schema, primaryKey, false);
+  }
+
+  /**
+   * Upsert a batch of records, optionally via Postgres' COPY protocol.
+   *
+   * @param useCopy if true, write via {@link RecordDao#copyUpsert}, which is faster for large
+   *     imports; else via {@link RecordDao#batchUpsert}
+   * @return when written via COPY, how many records were inserted, updated or left unchanged
+   */
+  public Optional<UpsertCounts> batchUpsert(
+      UUID collectionId,
+      RecordType recordType,
+      List<Record> records,
+      Map<String, DataTypeMapping> schema,
+      String primaryKey,
+      boolean useCopy) {
     try {
-      prepareAndUpsert(collectionId, recordType, records, schema, primaryKey);
+      return prepareAndUpsert(collectionId, recordType, records, schema, primaryKey, useCopy);
     } catch (DataAccessException e) {
       if (isDataMismatchException(e)) {
         Map<String, DataTypeMapping> recordTypeSchemaWithoutId = new HashMap<>(schema);
@@ -206,8 +279,10 @@ public class RecordService {
             s -> {
               throw new InvalidNameException(InvalidNameException.NameType.ATTRIBUTE);
             });
-    validateRelationsAndAddColumns(
-        collectionId, recordType, schema, records, colsToAdd, existingTableSchema);
+    // plan every change before making any, so they can all be made in one statement
+    SchemaChangePlan plan = new SchemaChangePlan();
+    validateRelationsAndPlanColumns(
+        collectionId, recordType, schema, records, colsToAdd, existingTableSchema, plan);
     Map<String, MapDifference.ValueDifference<DataTypeMapping>> differenceMap =
         difference.entriesDiffering();
     for (Map.Entry<String, MapDifference.ValueDifference<DataTypeMapping>> entry :
@@ -222,21 +297,78 @@ public class RecordService {
       }
       DataTypeMapping updatedColType =
           inferer.selectBestType(valueDifference.leftValue(), valueDifference.rightValue());
-
-      // time the schema change and record some high cardinality tracing details
-      Observation.createNotStarted(METRIC_COL_CHANGE, observationRegistry)
-          .lowCardinalityKeyValue(TAG_OLD_DATATYPE, valueDifference.leftValue().toString())
-          .lowCardinalityKeyValue(TAG_NEW_DATATYPE, updatedColType.toString())
-          .highCardinalityKeyValue(TAG_RECORD_TYPE, recordType.getName())
-          .highCardinalityKeyValue(TAG_ATTRIBUTE_NAME, column)
-          .highCardinalityKeyValue(TAG_COLLECTION, collectionId.toString())
-          .observe(() -> recordDao.changeColumn(collectionId, recordType, column, updatedColType));
-
+      if (updatedColType != valueDifference.leftValue()) {
+        plan.changeColumnType(column, valueDifference.leftValue(), updatedColType);
+      }
       schema.put(column, updatedColType);
     }
+    applySchemaChanges(collectionId, recordType, plan);
     return schema;
   }
 
+  private void applySchemaChanges(UUID collectionId, RecordType recordType, SchemaChangePlan plan) {
+    if (plan.typeChanges().isEmpty()) {
+      recordDao.applySchemaChanges(collectionId, recordType, plan);
+      return;
+    }
+    observeTypeChanges(
+        collectionId,
+        recordType,
+        plan.typeChanges(),
+        () -> recordDao.applySchemaChanges(collectionId, recordType, plan));
+  }
+
+  /**
+   * Convert columns whose widening was deferred during a write to their final types, and drop their
+   * staging columns.
+   *
+   * @see org.databiosphere.workspacedataservice.service.model.StagedColumn
+   */
+  public void applyStagedColumns(
+      UUID collectionId, RecordType recordType, List<StagedColumn> stagedColumns) {
+    Map<String, SchemaChangePlan.TypeChange> typeChanges = new TreeMap<>();
+    stagedColumns.forEach(
+        staged ->
+            typeChanges.put(
+                staged.column(),
+                new SchemaChangePlan.TypeChange(staged.columnType(), staged.finalType())));
+    observeTypeChanges(
+        collectionId,
+        recordType,
+        typeChanges,
+        () -> recordDao.applyStagedColumns(collectionId, recordType, stagedColumns));
+  }
+
+  // changing a column's type rewrites the table; time that and record some high cardinality
+  // tracing details. When several columns change at once, each tag lists all their values.
+  private void observeTypeChanges(
+      UUID collectionId,
+      RecordType recordType,
+      Map<String, SchemaChangePlan.TypeChange> typeChanges,
+      Runnable change) {
+    Collection<SchemaChangePlan.TypeChange> changes = typeChanges.values();
+    Observation.createNotStarted(METRIC_COL_CHANGE, observationRegistry)
+        .lowCardinalityKeyValue(
+            TAG_OLD_DATATYPE, joinDistinct(changes, SchemaChangePlan.TypeChange::oldDataType))
+        .lowCardinalityKeyValue(
+            TAG_NEW_DATATYPE, joinDistinct(changes, SchemaChangePlan.TypeChange::newDataType))
+        .highCardinalityKeyValue(TAG_RECORD_TYPE, recordType.getName())
+        .highCardinalityKeyValue(TAG_ATTRIBUTE_NAME, String.join(",", typeChanges.keySet()))
+        .highCardinalityKeyValue(TAG_COLLECTION, collectionId.toString())
+        .observe(change);
+  }
+
+  private static String joinDistinct(
+      Collection<SchemaChangePlan.TypeChange> typeChanges,
+      Function<SchemaChangePlan.TypeChange, DataTypeMapping> dataType) {
+    return typeChanges.stream()
+        .map(dataType)
+        .map(DataTypeMapping::toString)
+        .distinct()
+        .sorted()
+        .collect(Collectors.joining(","));
+  }
+
   public void validateRelations(
       Set<Relation> existingRelations,
       Set<Relation> newRelations,
@@ -255,13 +387,18 @@ public class RecordService {
     }
   }
 
-  public void validateRelationsAndAddColumns(
+  /**
+   * Validate the relations in a write against the record type's existing relations, then add the
+   * new columns, with their foreign keys and join tables, to the given plan.
+   */
+  private void validateRelationsAndPlanColumns(
       UUID collectionId,
       RecordType recordType,
       Map<String, DataTypeMapping> requestSchema,
       List<Record> records,
       Map<String, DataTypeMapping> colsToAdd,
-      Map<String, DataTypeMapping> existingSchema) {
+      Map<String, DataTypeMapping> existingSchema,
+      SchemaChangePlan plan) {
     RelationCollection relations = inferer.findRelations(records, requestSchema);
     RelationCollection existingRelations =
         new RelationCollection(
@@ -296,10 +433,9 @@ public class RecordService {
       if (allRefCols.containsKey(col)) {
         referencedRecordType = allRefCols.get(col).get(0).relationRecordType();
       }
-      recordDao.addColumn(collectionId, recordType, col, dataType, referencedRecordType);
+      plan.addColumn(col, dataType, referencedRecordType);
       if (allRefArrCols.containsKey(col)) {
-        referencedRecordType = allRefArrCols.get(col).get(0).relationRecordType();
-        recordDao.createRelationJoinTable(collectionId, col, recordType, referencedRecordType);
+        plan.addJoinTable(col, allRefArrCols.get(col).get(0).relationRecordType());
       }
       requestSchema.put(col, dataType);
     }
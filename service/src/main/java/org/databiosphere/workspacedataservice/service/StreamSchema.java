@@ -0,0 +1,237 @@
+package org.databiosphere.workspacedataservice.service;
+
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.ARRAY_OF_RELATION;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.RELATION;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import org.databiosphere.workspacedataservice.recordsink.ColumnStaging;
+import org.databiosphere.workspacedataservice.recordsink.RecordSink;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.Relation;
+import org.databiosphere.workspacedataservice.service.model.RelationCollection;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+
+/**
+ * The schema of one record type, as established so far by the batches of a single write stream:
+ * every column, with its type, and every relation that {@link
+ * RecordSink#createOrModifyRecordType} has already created or validated.
+ *
+ * <p>A batch whose columns, types and relations all fit this schema needs no schema change, so
+ * {@link BatchWriteService} can write it without asking the sink, and Postgres, to compare it
+ * against the table again.
+ *
+ * <p>If the sink allows, a batch that needs an established column to widen doesn't widen it, but
+ * stages the column instead: the column keeps its type, and it and later batches write the
+ * column's values to a staging column. The widest type needed is tracked, and the column is
+ * converted to it, once, when the stream finishes. See {@link StagedColumn}.
+ */
+class StreamSchema {
+  private final Map<String, DataTypeMapping> columns = new HashMap<>();
+  private final Set<Relation> relations = new HashSet<>();
+  private final Set<Relation> relationArrays = new HashSet<>();
+  // staged columns, by the name of the column they stage for
+  private final Map<String, StagedColumn> staged = new LinkedHashMap<>();
+  private int stagingColumnsAdded;
+
+  /**
+   * How to write a batch.
+   *
+   * @param schema the schema to write the batch with, or, if the sink must be asked to create or
+   *     modify the record type, the schema to ask it with
+   * @param needsSink whether the sink must be asked to create or modify the record type
+   * @param staging the columns to stage, or whose staged type widens, as of this batch
+   */
+  record BatchPlan(
+      Map<String, DataTypeMapping> schema, boolean needsSink, List<StagedColumn> staging) {}
+
+  /**
+   * Plans how to write a batch. Established columns are written at their established type, if
+   * that's at least as wide as the batch's, or else staged, if the sink allows. Any other column,
+   * or a relation not yet known, needs the sink.
+   *
+   * @param inferred the schema inferred from the batch
+   * @param batchRelations the relations found in the batch
+   * @param inferer used to decide whether an established type is wide enough
+   * @param canDeferWidening whether the sink can defer widening a column from one type to another
+   * @return the plan, or empty if a column already staged can't widen to what this batch needs
+   *     without first being converted; see {@link #unstageAll}
+   */
+  Optional<BatchPlan> plan(
+      Map<String, DataTypeMapping> inferred,
+      RelationCollection batchRelations,
+      DataTypeInferer inferer,
+      BiPredicate<DataTypeMapping, DataTypeMapping> canDeferWidening) {
+    boolean needsSink =
+        !relations.containsAll(batchRelations.relations())
+            || !relationArrays.containsAll(batchRelations.relationArrays());
+    Map<String, DataTypeMapping> schema = new HashMap<>(inferred.size());
+    List<StagedColumn> staging = new ArrayList<>();
+    for (Map.Entry<String, DataTypeMapping> entry : inferred.entrySet()) {
+      String column = entry.getKey();
+      DataTypeMapping batchType = entry.getValue();
+      DataTypeMapping established = columns.get(column);
+      StagedColumn stagedColumn = staged.get(column);
+      if (stagedColumn != null) {
+        DataTypeMapping finalType = inferer.selectBestType(stagedColumn.finalType(), batchType);
+        if (isRelation(batchType)
+            || (finalType != stagedColumn.finalType()
+                && !canStage(stagedColumn, finalType, canDeferWidening))) {
+          return Optional.empty();
+        }
+        if (finalType != stagedColumn.finalType()) {
+          staging.add(withFinalType(stagedColumn, finalType));
+        }
+        schema.put(column, established);
+      } else if (established == null) {
+        // a new column
+        needsSink = true;
+        schema.put(column, batchType);
+      } else if (established == batchType) {
+        schema.put(column, established);
+      } else if (isRelation(established) || isRelation(batchType)) {
+        // relation columns can't change type; let the sink reject any attempt to
+        needsSink = true;
+        schema.put(column, batchType);
+      } else {
+        DataTypeMapping widest = inferer.selectBestType(established, batchType);
+        if (widest == established) {
+          schema.put(column, established);
+        } else if (canDeferWidening.test(established, widest)) {
+          staging.add(
+              new StagedColumn(
+                  column,
+                  established,
+                  StagedColumn.stagingColumnName(stagingColumnsAdded + staging.size()),
+                  StagedColumn.stagingTypeFor(widest),
+                  widest));
+          schema.put(column, established);
+        } else {
+          needsSink = true;
+          schema.put(column, batchType);
+        }
+      }
+    }
+    return Optional.of(new BatchPlan(schema, needsSink, staging));
+  }
+
+  /**
+   * Records the columns a batch's plan stages, or whose staged type it widens.
+   *
+   * @return the newly staged columns, whose staging columns the caller must add
+   */
+  List<StagedColumn> stage(List<StagedColumn> staging) {
+    List<StagedColumn> added = new ArrayList<>();
+    for (StagedColumn stagedColumn : staging) {
+      if (staged.put(stagedColumn.column(), stagedColumn) == null) {
+        added.add(stagedColumn);
+        stagingColumnsAdded++;
+      }
+    }
+    return added;
+  }
+
+  /**
+   * Records the outcome of {@link RecordSink#createOrModifyRecordType} for a batch.
+   *
+   * @param written the schema returned by the sink
+   * @param batchRelations the relations found in the batch, which the sink has now validated
+   */
+  void merge(Map<String, DataTypeMapping> written, RelationCollection batchRelations) {
+    columns.putAll(written);
+    relations.addAll(batchRelations.relations());
+    relationArrays.addAll(batchRelations.relationArrays());
+  }
+
+  /** Whether any column is staged. */
+  boolean hasStaged() {
+    return !staged.isEmpty();
+  }
+
+  /**
+   * Moves the values of staged columns to their staging columns, leaving the columns themselves
+   * null, so a record written before a column was staged, and written again since, takes its new
+   * value when the column is converted.
+   *
+   * @return the records to write
+   */
+  List<Record> stageValues(List<Record> records) {
+    if (staged.isEmpty()) {
+      return records;
+    }
+    return records.stream().map(this::stageValues).toList();
+  }
+
+  private Record stageValues(Record rec) {
+    if (staged.keySet().stream().noneMatch(rec.getAttributes()::containsAttribute)) {
+      return rec;
+    }
+    RecordAttributes attributes = RecordAttributes.empty().putAll(rec.getAttributes());
+    for (StagedColumn stagedColumn : staged.values()) {
+      if (attributes.containsAttribute(stagedColumn.column())) {
+        attributes.putAttribute(
+            stagedColumn.stagingColumn(), attributes.getAttributeValue(stagedColumn.column()));
+        attributes.putAttribute(stagedColumn.column(), null);
+      }
+    }
+    return new Record(rec.getId(), rec.getRecordType(), attributes);
+  }
+
+  /** Adds the staging columns for any staged columns in a schema to write with. */
+  Map<String, DataTypeMapping> withStagingColumns(Map<String, DataTypeMapping> schema) {
+    if (staged.isEmpty()) {
+      return schema;
+    }
+    Map<String, DataTypeMapping> withStaging = new HashMap<>(schema);
+    for (StagedColumn stagedColumn : staged.values()) {
+      if (schema.containsKey(stagedColumn.column())) {
+        withStaging.put(stagedColumn.stagingColumn(), stagedColumn.stagingType());
+      }
+    }
+    return withStaging;
+  }
+
+  /**
+   * Unstages every staged column, establishing it at its final type. The caller must convert the
+   * columns, with {@link ColumnStaging#applyStagedColumns}.
+   *
+   * @return the columns that were staged
+   */
+  List<StagedColumn> unstageAll() {
+    List<StagedColumn> unstaged = List.copyOf(staged.values());
+    unstaged.forEach(stagedColumn -> columns.put(stagedColumn.column(), stagedColumn.finalType()));
+    staged.clear();
+    return unstaged;
+  }
+
+  // whether a staged column can widen further, without its staged values changing type
+  private static boolean canStage(
+      StagedColumn stagedColumn,
+      DataTypeMapping finalType,
+      BiPredicate<DataTypeMapping, DataTypeMapping> canDeferWidening) {
+    return StagedColumn.stagingTypeFor(finalType) == stagedColumn.stagingType()
+        && canDeferWidening.test(stagedColumn.columnType(), finalType);
+  }
+
+  private static StagedColumn withFinalType(StagedColumn stagedColumn, DataTypeMapping finalType) {
+    return new StagedColumn(
+        stagedColumn.column(),
+        stagedColumn.columnType(),
+        stagedColumn.stagingColumn(),
+        stagedColumn.stagingType(),
+        finalType);
+  }
+
+  private static boolean isRelation(DataTypeMapping type) {
+    return type == RELATION || type == ARRAY_OF_RELATION;
+  }
+}
@@ -28,7 +28,7 @@ public class TsvSupport {
 
   private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-  private TsvSupport(ObjectMapper objectMapper) {
+  public TsvSupport(ObjectMapper objectMapper) {
     this.objectMapper = objectMapper;
   }
 
@@ -3,15 +3,19 @@ package org.databiosphere.workspacedataservice.service.model;
 import com.google.common.base.Preconditions;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
 
 /**
  * The result of a batch-write operation that can update multiple record types. Provides methods for
- * getting and setting the number of records that were written, grouped by record type.
+ * getting and setting the number of records that were written, grouped by record type. Where the
+ * sink can tell, it also reports how many of the upserted records were inserted, updated or left
+ * unchanged; see {@link UpsertCounts}.
  */
 public class BatchWriteResult {
   Map<RecordType, Integer> resultCounts;
+  private final Map<RecordType, UpsertCounts> upsertCounts = new HashMap<>();
 
   public BatchWriteResult(Map<RecordType, Integer> resultCounts) {
     this.resultCounts = resultCounts;
@@ -29,8 +33,22 @@ public class BatchWriteResult {
     return resultCounts.values().stream().reduce(0, Integer::sum);
   }
 
+  /**
+   * @return how many of the records of this type were inserted, updated or left unchanged, or empty
+   *     if the sink didn't report it
+   */
+  public Optional<UpsertCounts> getUpsertCounts(RecordType recordType) {
+    return Optional.ofNullable(upsertCounts.get(recordType));
+  }
+
+  /** Upsert counts summed across record types, for those whose sink reported them. */
+  public UpsertCounts getTotalUpsertCounts() {
+    return upsertCounts.values().stream().reduce(UpsertCounts.none(), UpsertCounts::plus);
+  }
+
   public void merge(BatchWriteResult other) {
     other.resultCounts.forEach((key, value) -> this.resultCounts.merge(key, value, Integer::sum));
+    other.upsertCounts.forEach(this::increaseUpsertCounts);
   }
 
   public void increaseCount(RecordType recordType, int count) {
@@ -38,6 +56,10 @@ public class BatchWriteResult {
     resultCounts.compute(recordType, (key, value) -> (value == null) ? count : value + count);
   }
 
+  public void increaseUpsertCounts(RecordType recordType, UpsertCounts counts) {
+    upsertCounts.merge(recordType, counts, UpsertCounts::plus);
+  }
+
   public void initialize(RecordType recordType) {
     resultCounts.putIfAbsent(recordType, 0);
   }
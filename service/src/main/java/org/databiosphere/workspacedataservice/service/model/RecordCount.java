@@ -0,0 +1,10 @@
+package org.databiosphere.workspacedataservice.service.model;
+
+/**
+ * Number of records in a record type.
+ *
+ * @param count the count
+ * @param estimated true if the count comes from Postgres' planner statistics rather than counting
+ *     rows, so may be stale
+ */
+public record RecordCount(int count, boolean estimated) {}
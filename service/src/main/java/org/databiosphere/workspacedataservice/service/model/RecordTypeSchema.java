@@ -3,8 +3,21 @@ package org.databiosphere.workspacedataservice.service.model;
 import java.util.List;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
 
+/**
+ * @param count number of records of this type
+ * @param countEstimated whether count is an estimate; see {@link RecordCount}
+ */
 public record RecordTypeSchema(
-    RecordType name, List<AttributeSchema> attributes, int count, String primaryKey) {
+    RecordType name,
+    List<AttributeSchema> attributes,
+    int count,
+    String primaryKey,
+    boolean countEstimated) {
+
+  public RecordTypeSchema(
+      RecordType name, List<AttributeSchema> attributes, int count, String primaryKey) {
+    this(name, attributes, count, primaryKey, /* countEstimated= */ false);
+  }
 
   public boolean isPrimaryKey(String attribute) {
     return attribute.equals(primaryKey);
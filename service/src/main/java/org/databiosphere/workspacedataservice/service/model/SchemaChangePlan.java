@@ -0,0 +1,62 @@
+package org.databiosphere.workspacedataservice.service.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.springframework.lang.Nullable;
+
+/**
+ * All the changes to make to one record type's columns for a write: columns to add, with their
+ * foreign keys, columns whose type must widen, and join tables for new relation-array columns.
+ * Collecting them first lets {@link org.databiosphere.workspacedataservice.dao.RecordDao} apply
+ * them in a single ALTER TABLE statement, so that the table is rewritten at most once, however many
+ * columns change.
+ */
+public class SchemaChangePlan {
+
+  /**
+   * @param dataType the new column's type
+   * @param referencedRecordType for relation columns, the record type they refer to
+   */
+  public record ColumnAddition(
+      DataTypeMapping dataType, @Nullable RecordType referencedRecordType) {}
+
+  public record TypeChange(DataTypeMapping oldDataType, DataTypeMapping newDataType) {}
+
+  // sorted, so the statement is the same however the plan was built
+  private final Map<String, ColumnAddition> additions = new TreeMap<>();
+  private final Map<String, TypeChange> typeChanges = new TreeMap<>();
+  private final Map<String, RecordType> joinTables = new TreeMap<>();
+
+  public void addColumn(
+      String column, DataTypeMapping dataType, @Nullable RecordType referencedRecordType) {
+    additions.put(column, new ColumnAddition(dataType, referencedRecordType));
+  }
+
+  public void changeColumnType(
+      String column, DataTypeMapping oldDataType, DataTypeMapping newDataType) {
+    typeChanges.put(column, new TypeChange(oldDataType, newDataType));
+  }
+
+  public void addJoinTable(String column, RecordType referencedRecordType) {
+    joinTables.put(column, referencedRecordType);
+  }
+
+  public Map<String, ColumnAddition> additions() {
+    return Collections.unmodifiableMap(additions);
+  }
+
+  public Map<String, TypeChange> typeChanges() {
+    return Collections.unmodifiableMap(typeChanges);
+  }
+
+  /** Join tables to create for new relation-array columns, by column name. */
+  public Map<String, RecordType> joinTables() {
+    return Collections.unmodifiableMap(joinTables);
+  }
+
+  public boolean isEmpty() {
+    return additions.isEmpty() && typeChanges.isEmpty() && joinTables.isEmpty();
+  }
+}
@@ -0,0 +1,159 @@
+package org.databiosphere.workspacedataservice.service.model;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.databiosphere.workspacedataservice.service.model.exception.ValidationException;
+import org.databiosphere.workspacedataservice.shared.model.SearchFilter;
+import org.databiosphere.workspacedataservice.shared.model.SortDirection;
+import org.springframework.lang.Nullable;
+
+/**
+ * Continuation token for keyset pagination of search results. Records the sort key and primary key
+ * of the last record on a page; the next page starts immediately after that record.
+ *
+ * <p>Clients treat the encoded token as opaque. The sort order and a fingerprint of the filter are
+ * included so that a token can't be replayed against a different search, which would silently skip
+ * or repeat records.
+ *
+ * <p>The first page's total is carried along too, so that later pages needn't count the records
+ * again; on every page, the total is that of the search's first page.
+ *
+ * @param sortAttribute the attribute sorted by, or null when sorting by primary key
+ * @param sortDirection the sort direction
+ * @param filterFingerprint the {@link #fingerprint} of the search's filter
+ * @param sortValue the last record's value of sortAttribute, in Postgres' text representation. Null
+ *     when sorting by primary key, or when the last record had no value for sortAttribute.
+ * @param lastRecordId the last record's primary key
+ * @param totalRecords the total reported with the search's first page
+ * @param totalRecordsEstimated whether totalRecords is an estimate
+ */
+public record SearchPageToken(
+    @Nullable String sortAttribute,
+    SortDirection sortDirection,
+    long filterFingerprint,
+    @Nullable String sortValue,
+    String lastRecordId,
+    int totalRecords,
+    boolean totalRecordsEstimated) {
+
+  private static final byte FORMAT_VERSION = 3;
+
+  /** Whether this token continues a search with the given sort order and filter. */
+  public boolean matchesSearch(
+      @Nullable String sortAttribute,
+      SortDirection sortDirection,
+      Optional<SearchFilter> searchFilter) {
+    return Objects.equals(this.sortAttribute, sortAttribute)
+        && this.sortDirection == sortDirection
+        && this.filterFingerprint == fingerprint(searchFilter);
+  }
+
+  /** A fingerprint of a search's filter, identifying the filter without storing it. */
+  public static long fingerprint(Optional<SearchFilter> searchFilter) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    Optional<List<String>> ids = searchFilter.flatMap(SearchFilter::ids);
+    Optional<String> query = searchFilter.flatMap(SearchFilter::query);
+    hasher.putBoolean(ids.isPresent());
+    ids.ifPresent(
+        idList -> {
+          hasher.putInt(idList.size());
+          idList.forEach(id -> hasher.putInt(id.length()).putString(id, StandardCharsets.UTF_8));
+        });
+    hasher.putBoolean(query.isPresent());
+    query.ifPresent(q -> hasher.putString(q, StandardCharsets.UTF_8));
+    return hasher.hash().asLong();
+  }
+
+  public String encode() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(FORMAT_VERSION);
+      writeNullable(out, sortAttribute);
+      writeString(out, sortDirection.name());
+      out.writeLong(filterFingerprint);
+      writeNullable(out, sortValue);
+      writeString(out, lastRecordId);
+      out.writeInt(totalRecords);
+      out.writeBoolean(totalRecordsEstimated);
+    } catch (IOException e) {
+      // ByteArrayOutputStream doesn't throw
+      throw new UncheckedIOException(e);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+  }
+
+  /**
+   * Decode a token previously produced by {@link #encode()}.
+   *
+   * @throws ValidationException if the token is malformed
+   */
+  public static SearchPageToken decode(String token) {
+    try (DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+      if (in.readByte() != FORMAT_VERSION) {
+        throw new ValidationException("Unrecognized page token");
+      }
+      String sortAttribute = readNullable(in);
+      SortDirection sortDirection = SortDirection.valueOf(readString(in));
+      long filterFingerprint = in.readLong();
+      String sortValue = readNullable(in);
+      String lastRecordId = readString(in);
+      int totalRecords = in.readInt();
+      boolean totalRecordsEstimated = in.readBoolean();
+      if (in.available() > 0) {
+        throw new ValidationException("Unrecognized page token");
+      }
+      return new SearchPageToken(
+          sortAttribute,
+          sortDirection,
+          filterFingerprint,
+          sortValue,
+          lastRecordId,
+          totalRecords,
+          totalRecordsEstimated);
+    } catch (IOException | IllegalArgumentException e) {
+      throw new ValidationException("Invalid page token", e);
+    }
+  }
+
+  // length-prefixed rather than DataOutputStream.writeUTF, which is limited to 64KB; sort values
+  // may be large, e.g. json attributes
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length > in.available()) {
+      throw new EOFException();
+    }
+    return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+  }
+
+  private static void writeNullable(DataOutputStream out, @Nullable String value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  @Nullable
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+}
@@ -0,0 +1,44 @@
+package org.databiosphere.workspacedataservice.service.model;
+
+import static org.databiosphere.workspacedataservice.service.model.ReservedNames.RESERVED_NAME_PREFIX;
+
+import java.util.regex.Pattern;
+
+/**
+ * A column whose type must widen during a write, but whose conversion is deferred until the write
+ * finishes. Meanwhile, new values for the column are written as text to a separate staging column,
+ * so the column itself is rewritten only once, however many batches widen it.
+ *
+ * @param column the column being widened
+ * @param columnType the column's current type
+ * @param stagingColumn the column holding values written since widening was deferred
+ * @param stagingType the staging column's type; see {@link #stagingTypeFor}
+ * @param finalType the type the column must widen to, to hold every value written
+ */
+public record StagedColumn(
+    String column,
+    DataTypeMapping columnType,
+    String stagingColumn,
+    DataTypeMapping stagingType,
+    DataTypeMapping finalType) {
+
+  // staging columns have reserved names, so they cannot clash with a user's columns
+  private static final String STAGING_COLUMN_PREFIX = RESERVED_NAME_PREFIX + "staged_";
+  private static final Pattern STAGING_COLUMN_PATTERN =
+      Pattern.compile(Pattern.quote(STAGING_COLUMN_PREFIX) + "\\d+");
+
+  /** The name of a write's staging column with the given index. */
+  public static String stagingColumnName(int index) {
+    return STAGING_COLUMN_PREFIX + index;
+  }
+
+  /** Whether the given name is one {@link #stagingColumnName} could have returned. */
+  public static boolean isStagingColumnName(String name) {
+    return STAGING_COLUMN_PATTERN.matcher(name).matches();
+  }
+
+  /** Values bound for a column of the given type are staged as text, or text arrays. */
+  public static DataTypeMapping stagingTypeFor(DataTypeMapping finalType) {
+    return finalType.isArrayType() ? DataTypeMapping.ARRAY_OF_STRING : DataTypeMapping.STRING;
+  }
+}
@@ -0,0 +1,17 @@
+package org.databiosphere.workspacedataservice.service.model;
+
+/**
+ * The outcome of upserting a batch of records: how many were new, how many changed an existing
+ * record, and how many matched an existing record exactly, so were not written.
+ */
+public record UpsertCounts(int inserted, int updated, int unchanged) {
+
+  public static UpsertCounts none() {
+    return new UpsertCounts(0, 0, 0);
+  }
+
+  public UpsertCounts plus(UpsertCounts other) {
+    return new UpsertCounts(
+        inserted + other.inserted, updated + other.updated, unchanged + other.unchanged);
+  }
+}
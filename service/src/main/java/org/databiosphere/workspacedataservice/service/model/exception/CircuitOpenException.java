@@ -0,0 +1,16 @@
+package org.databiosphere.workspacedataservice.service.model.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Indicates that a REST target, such as Sam or Rawls, has been failing or slow recently, so WDS is
+ * not calling it for now. Not retryable: retrying immediately would only add load to the target.
+ */
+public class CircuitOpenException extends RestException {
+
+  public CircuitOpenException(String target) {
+    super(
+        HttpStatus.SERVICE_UNAVAILABLE,
+        "%s is unavailable; please try again later".formatted(target));
+  }
+}
@@ -0,0 +1,9 @@
+package org.databiosphere.workspacedataservice.shared.model;
+
+/** How a search should count the records in a record type. */
+public enum CountMode {
+  /** Count every row; cost grows with the size of the record type. */
+  EXACT,
+  /** Use Postgres' planner statistics where available; constant cost, but may be stale. */
+  ESTIMATED
+}
@@ -2,18 +2,27 @@ package org.databiosphere.workspacedataservice.shared.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 /** Represents the attributes of a Record. */
 public class RecordAttributes {
 
   // internal representation is a sorted map, so json serialization
-  // is nicely sorted without additional work upon render
-  private final TreeMap<String, Object> attributes;
+  // is nicely sorted without additional work upon render. Attributes read from a table are held
+  // in a read-only SortedArrayMap over the row's values, and copied to a TreeMap only if modified.
+  private SortedMap<String, Object> attributes;
 
   // want to use Guava ImmutableMap, or even Java unmodifiable maps, but they
   // don't allow null values
@@ -43,6 +52,10 @@ public class RecordAttributes {
     this.attributes.putAll(attributes);
   }
 
+  private RecordAttributes(SortedMap<String, Object> attributes) {
+    this.attributes = attributes;
+  }
+
   /**
    * creates a RecordAttributes with no keys/values
    *
@@ -63,6 +76,28 @@ public class RecordAttributes {
     return new RecordAttributes(Collections.emptyMap(), primaryKeyAttributeName);
   }
 
+  /**
+   * Creates a RecordAttributes from attribute names that are already in primary-key-first order,
+   * i.e. sorted by an {@link AttributeComparator} for the given primary key. Holds the arrays as
+   * they are, without comparing any names or building a map, until the attributes are modified;
+   * callers creating many RecordAttributes with the same names, such as when reading rows of a
+   * table, need only sort the names once. The arrays must not be modified afterwards.
+   *
+   * @param primaryKeyAttributeName name of the attribute used as the primary key for the associated
+   *     record's record type.
+   * @param sortedNames attribute names, in primary-key-first order and without duplicates
+   * @param values attribute values, in the same order as sortedNames
+   * @return the populated RecordAttributes object
+   */
+  public static RecordAttributes fromSorted(
+      String primaryKeyAttributeName, String[] sortedNames, Object[] values) {
+    if (sortedNames.length != values.length) {
+      throw new IllegalArgumentException("Expected one value per attribute name");
+    }
+    return new RecordAttributes(
+        new SortedArrayMap(new AttributeComparator(primaryKeyAttributeName), sortedNames, values));
+  }
+
   // ========== accessors
 
   // when serializing to json, delegate to the internal map.
@@ -94,33 +129,183 @@ public class RecordAttributes {
   // ========== mutators
 
   public RecordAttributes putAll(RecordAttributes incoming) {
-    this.attributes.putAll(incoming.attributes);
+    mutableAttributes().putAll(incoming.attributes);
     return this;
   }
 
   public RecordAttributes putAttribute(String key, Object value) {
-    this.attributes.put(key, value);
+    mutableAttributes().put(key, value);
     return this;
   }
 
   public RecordAttributes putAttributeIfAbsent(String key, Object value) {
-    this.attributes.putIfAbsent(key, value);
+    mutableAttributes().putIfAbsent(key, value);
     return this;
   }
 
   public RecordAttributes removeAttribute(String key) {
-    this.attributes.remove(key);
+    mutableAttributes().remove(key);
     return this;
   }
 
   public RecordAttributes removeNullHeaders() {
     // There can only be one unique key so remove it.
-    attributes.remove("");
+    mutableAttributes().remove("");
     return this;
   }
 
+  private SortedMap<String, Object> mutableAttributes() {
+    if (attributes instanceof SortedArrayMap) {
+      // TreeMap's SortedMap constructor trusts the source's ordering and skips comparisons
+      attributes = new TreeMap<>(attributes);
+    }
+    return attributes;
+  }
+
   // ========== utils
 
+  /**
+   * Read-only SortedMap over a range of parallel arrays, whose names are already sorted by the
+   * comparator. Lookups, and views such as {@link #subMap}, share the arrays and find names by
+   * binary search.
+   */
+  @VisibleForTesting
+  static class SortedArrayMap extends AbstractMap<String, Object>
+      implements SortedMap<String, Object> {
+    private final Comparator<String> comparator;
+    private final String[] names;
+    private final Object[] values;
+    // this map is names[from] to names[to - 1]
+    private final int from;
+    private final int to;
+
+    SortedArrayMap(Comparator<String> comparator, String[] names, Object[] values) {
+      this(comparator, names, values, 0, names.length);
+    }
+
+    private SortedArrayMap(
+        Comparator<String> comparator, String[] names, Object[] values, int from, int to) {
+      this.comparator = comparator;
+      this.names = names;
+      this.values = values;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+      return comparator;
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+      int index = indexOf(key);
+      return index >= 0 ? values[index] : null;
+    }
+
+    // index of the given name in this map's range, or -1
+    private int indexOf(Object key) {
+      if (!(key instanceof String name) || from == to) {
+        return -1;
+      }
+      // AttributeComparator orders the primary key before every name, itself included, so a
+      // search never finds it; it can only be first
+      if (names[from].equals(name)) {
+        return from;
+      }
+      int index = Arrays.binarySearch(names, from, to, name, comparator);
+      return index >= 0 && names[index].equals(name) ? index : -1;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+          return new Iterator<>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+              return next < to;
+            }
+
+            @Override
+            public Entry<String, Object> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              // not Map.entry, which doesn't allow null values
+              Entry<String, Object> entry =
+                  new SimpleImmutableEntry<>(names[next], values[next]);
+              next++;
+              return entry;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return to - from;
+        }
+      };
+    }
+
+    @Override
+    public String firstKey() {
+      if (from == to) {
+        throw new NoSuchElementException();
+      }
+      return names[from];
+    }
+
+    @Override
+    public String lastKey() {
+      if (from == to) {
+        throw new NoSuchElementException();
+      }
+      return names[to - 1];
+    }
+
+    @Override
+    public SortedMap<String, Object> subMap(String fromKey, String toKey) {
+      if (comparator.compare(fromKey, toKey) > 0) {
+        throw new IllegalArgumentException("fromKey > toKey");
+      }
+      return range(lowerBound(fromKey), lowerBound(toKey));
+    }
+
+    @Override
+    public SortedMap<String, Object> headMap(String toKey) {
+      return range(from, lowerBound(toKey));
+    }
+
+    @Override
+    public SortedMap<String, Object> tailMap(String fromKey) {
+      return range(lowerBound(fromKey), to);
+    }
+
+    private SortedArrayMap range(int rangeFrom, int rangeTo) {
+      return new SortedArrayMap(comparator, names, values, rangeFrom, rangeTo);
+    }
+
+    // index of the first name in this map's range that is not less than the given name
+    private int lowerBound(String name) {
+      int index = Arrays.binarySearch(names, from, to, name, comparator);
+      return index >= 0 ? index : -index - 1;
+    }
+  }
+
   @Override
   public String toString() {
     return "RecordAttributes{" + "attributes=" + attributes + '}';
@@ -1,6 +1,19 @@
 package org.databiosphere.workspacedataservice.shared.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.List;
+import org.springframework.lang.Nullable;
 
+/**
+ * @param totalRecords number of records in the record type
+ * @param totalRecordsEstimated whether totalRecords is an estimate; see {@link CountMode}
+ * @param nextPageToken pass as {@link SearchRequest#getPageToken()} to fetch the next page. Null
+ *     when this page was not full, i.e. there are no more records.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record RecordQueryResponse(
-    SearchRequest searchRequest, List<RecordResponse> records, int totalRecords) {}
+    SearchRequest searchRequest,
+    List<RecordResponse> records,
+    int totalRecords,
+    boolean totalRecordsEstimated,
+    @Nullable String nextPageToken) {}
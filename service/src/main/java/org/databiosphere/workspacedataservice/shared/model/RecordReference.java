@@ -0,0 +1,17 @@
+package org.databiosphere.workspacedataservice.shared.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * A reference to a record, held by another record's relation or relation-array attribute.
+ *
+ * @param recordType type of the referring record
+ * @param recordId id of the referring record
+ * @param attribute the referring record's attribute which holds the reference
+ */
+@JsonPropertyOrder({"id", "type", "attribute"})
+public record RecordReference(
+    @JsonProperty("type") RecordType recordType,
+    @JsonProperty("id") String recordId,
+    @JsonProperty("attribute") String attribute) {}
@@ -2,7 +2,9 @@ package org.databiosphere.workspacedataservice.shared.model;
 
 import com.google.common.annotations.VisibleForTesting;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import org.quartz.Job;
 import org.quartz.JobBuilder;
 import org.quartz.JobDataMap;
@@ -65,12 +67,23 @@ public class Schedulable {
     return arguments;
   }
 
+  /**
+   * The auth token argument, if any. It is not part of the job's data, which Quartz persists; see
+   * {@link org.databiosphere.workspacedataservice.dao.JobTokenDao}.
+   */
+  public Optional<String> getToken() {
+    return Optional.ofNullable((String) arguments.get(ARG_TOKEN));
+  }
+
   public JobDetail getJobDetail() {
+    Map<String, Serializable> jobData = new HashMap<>(arguments);
+    jobData.remove(ARG_TOKEN);
     return JobBuilder.newJob()
         .ofType(getImplementation())
         .withIdentity(new JobKey(id, group))
-        .setJobData(new JobDataMap(arguments))
+        .setJobData(new JobDataMap(jobData))
         .storeDurably(false) // delete from the quartz table after the job finishes
+        .requestRecovery() // if the replica running the job dies, run it again on another
         .withDescription(getDescription())
         .build();
   }
@@ -10,6 +10,8 @@ public class SearchRequest {
   private SortDirection sort = SortDirection.ASC;
   @Nullable private String sortAttribute = null;
   private Optional<SearchFilter> filter = Optional.empty();
+  @Nullable private String pageToken = null;
+  private CountMode count = CountMode.EXACT;
 
   public SearchRequest(int limit, int offset, SortDirection sort) {
     this.limit = limit;
@@ -67,4 +69,22 @@ public class SearchRequest {
       @SuppressWarnings("OptionalUsedAsFieldOrParameterType") Optional<SearchFilter> filter) {
     this.filter = filter;
   }
+
+  /** Continuation token from a previous page's response; see {@link RecordQueryResponse}. */
+  @Nullable
+  public String getPageToken() {
+    return pageToken;
+  }
+
+  public void setPageToken(@Nullable String pageToken) {
+    this.pageToken = pageToken;
+  }
+
+  public CountMode getCount() {
+    return count;
+  }
+
+  public void setCount(CountMode count) {
+    this.count = count;
+  }
 }
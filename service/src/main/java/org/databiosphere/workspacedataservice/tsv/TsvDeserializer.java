@@ -25,6 +25,7 @@ import java.util.Spliterators;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.apache.commons.lang3.StringUtils;
+import org.databiosphere.workspacedataservice.service.CellLexer;
 import org.databiosphere.workspacedataservice.service.DataTypeInferer;
 import org.databiosphere.workspacedataservice.service.model.exception.UnexpectedTsvException;
 import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
@@ -118,58 +119,63 @@ public class TsvDeserializer extends StdDeserializer<RecordAttributes> {
     if (val.startsWith("\"") && val.endsWith("\"")) {
       return val.substring(1, val.length() - 1);
     }
-    // booleans
-    if (inferer.isValidBoolean(val)) {
-      return Boolean.parseBoolean(val);
-    }
-    // numbers
-    // TODO: change the "is*" methods in inferer to return their value so we don't parse twice?
-    if (inferer.isNumericValue(val)) {
-      try {
-        return new BigInteger(val);
-      } catch (NumberFormatException nfe) {
-        return new BigDecimal(val);
+    // classify the value in a single scan, so that only values which look like a number, json
+    // object or array are parsed - and parsed only once
+    return switch (CellLexer.classify(val)) {
+      case BOOLEAN -> Boolean.parseBoolean(val);
+      case INTEGER -> new BigInteger(val);
+      case DECIMAL -> new BigDecimal(val);
+      case JSON_OBJECT -> {
+        Optional<ObjectNode> maybeJsonObject = inferer.tryJsonObject(val);
+        yield maybeJsonObject.isPresent() ? new JsonAttribute(maybeJsonObject.get()) : val;
       }
-    }
-    // JSON objects
-    Optional<ObjectNode> maybeJsonObject = inferer.tryJsonObject(val);
-    if (maybeJsonObject.isPresent()) {
-      return new JsonAttribute(maybeJsonObject.get());
-    }
-
-    // arrays.
-    // pseudocode:
-    // if this string value looks like an array when lower-cased,
-    //    try to parse the array in its original case; use the result if parsing succeeds.
-    //    if parsing failed, try again to parse the array as lower-cased; only use this result if it
-    // is an array of booleans.
-    String smartQuotesRemoved = inferer.replaceLeftRightQuotes(val);
-    if (inferer.isArray(smartQuotesRemoved.toLowerCase())) {
-      return cellToArray(smartQuotesRemoved);
-    }
-    return val;
+      case ARRAY -> cellToArray(val);
+      default -> val;
+    };
   }
 
-  @SuppressWarnings(
-      "java:S1452") // until/unless we strongly type RecordAttributes values, this will be <?>
-  public List<?> cellToArray(String val) {
+  /**
+   * Given the String value of a TSV cell which begins with '[', return the List it represents, or
+   * the value itself if it is not an array.
+   *
+   * <p>The array is parsed in its original case; if that fails, it is parsed again lower-cased, and
+   * that result used only if it is an array of booleans. A value which is only an array when
+   * lower-cased, but not an array of booleans, returns null.
+   *
+   * @param val the String value of the TSV cell
+   * @return the deserialized List, the value itself, or null
+   */
+  @Nullable
+  private Object cellToArray(String val) {
+    String smartQuotesRemoved = inferer.replaceLeftRightQuotes(val);
     try {
-      return jsonStringToList(val);
+      return jsonStringToList(smartQuotesRemoved);
     } catch (JsonProcessingException e) {
       // We encountered an error parsing the JSON. This could be due to improperly-cased boolean
-      // values.
-      // Perform an extra expensive check specifically to parse those booleans.
-      // expensive detection of any-cased booleans
-      try {
-        List<?> lowerElements = jsonStringToList(val.toLowerCase());
-        if (lowerElements.stream().allMatch(Boolean.class::isInstance)) {
-          return lowerElements;
-        }
-      } catch (JsonProcessingException innerException) {
-        // noop; fall through to the logger/return null just below
+      // values, so try again lower-cased.
+      JsonNode lowerNode = tryReadTree(smartQuotesRemoved.toLowerCase());
+      if (!(lowerNode instanceof ArrayNode lowerArray)) {
+        return val;
+      }
+      List<?> lowerElements = arrayNodeToList(lowerArray);
+      if (lowerElements.stream().allMatch(Boolean.class::isInstance)) {
+        return lowerElements;
       }
       LOGGER.error(e.getMessage(), e);
       return null;
+    } catch (NumberFormatException e) {
+      // number format exceptions can occur if the input is scientific notation but too big
+      // e.g. 9623e89508858559
+      return val;
+    }
+  }
+
+  @Nullable
+  private JsonNode tryReadTree(String input) {
+    try {
+      return objectMapper.readTree(input);
+    } catch (JsonProcessingException | NumberFormatException e) {
+      return null;
     }
   }
 
@@ -178,19 +184,25 @@ public class TsvDeserializer extends StdDeserializer<RecordAttributes> {
   public List<?> jsonStringToList(String input) throws JsonProcessingException {
     JsonNode node = objectMapper.readTree(input);
     if (node instanceof ArrayNode arrayNode) {
-      // is this an empty array?
-      if (arrayNode.isEmpty()) {
-        return List.of();
-      }
-
-      if (isArrayOfJson(arrayNode)) {
-        return elementStream(arrayNode).map(JsonAttribute::new).toList();
-      } else {
-        return elementStream(arrayNode).map(this::arrayElementToObject).toList();
-      }
+      return arrayNodeToList(arrayNode);
     } else {
       throw new UnexpectedTsvException(
-          "DataTypeInferer.isArray returned true, but the parsed value did not resolve to ArrayNode");
+          "Value began with '[', but the parsed value did not resolve to ArrayNode");
+    }
+  }
+
+  @SuppressWarnings(
+      "java:S1452") // until/unless we strongly type RecordAttributes values, this will be <?>
+  private List<?> arrayNodeToList(ArrayNode arrayNode) {
+    // is this an empty array?
+    if (arrayNode.isEmpty()) {
+      return List.of();
+    }
+
+    if (isArrayOfJson(arrayNode)) {
+      return elementStream(arrayNode).map(JsonAttribute::new).toList();
+    } else {
+      return elementStream(arrayNode).map(this::arrayElementToObject).toList();
     }
   }
 
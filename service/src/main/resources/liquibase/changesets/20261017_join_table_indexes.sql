@@ -0,0 +1,29 @@
+-- Join tables are named sys_<fromType>_<attribute>, live in the schema of their collection, and
+-- have exactly two columns: from_<fromType>_key and to_<toType>_key.
+do $$
+declare
+  join_table record;
+begin
+  for join_table in
+    select n.nspname as schema_name, c.relname as table_name,
+           from_col.attname as from_col, to_col.attname as to_col
+    from pg_class c
+    join pg_namespace n on n.oid = c.relnamespace
+    join sys_wds.collection coll on coll.id::text = n.nspname
+    join pg_attribute from_col on from_col.attrelid = c.oid
+      and from_col.attnum > 0 and not from_col.attisdropped
+      and from_col.attname like 'from\_%\_key'
+    join pg_attribute to_col on to_col.attrelid = c.oid
+      and to_col.attnum > 0 and not to_col.attisdropped
+      and to_col.attname like 'to\_%\_key'
+    where c.relkind = 'r'
+      and c.relname like 'sys\_%'
+      and not exists (select from pg_index i where i.indrelid = c.oid)
+  loop
+    execute format('create index on %I.%I (%I, %I)',
+      join_table.schema_name, join_table.table_name, join_table.from_col, join_table.to_col);
+    execute format('create index on %I.%I (%I, %I)',
+      join_table.schema_name, join_table.table_name, join_table.to_col, join_table.from_col);
+  end loop;
+end;
+$$;
@@ -193,10 +193,10 @@ class GeneratedClientTests extends ControlPlaneTestBase {
     createRecord(new RecordsApi(apiClient), "id1", recordType + "_new");
     SchemaApi schemaApi = new SchemaApi(apiClient);
     RecordTypeSchema schema =
-        schemaApi.describeRecordType(collectionId.toString(), version, recordType);
+        schemaApi.describeRecordType(collectionId.toString(), version, recordType, null);
     assertThat(schema.getName()).isEqualTo(recordType);
     List<RecordTypeSchema> schemas =
-        schemaApi.describeAllRecordTypes(collectionId.toString(), version);
+        schemaApi.describeAllRecordTypes(collectionId.toString(), version, null);
     assertThat(schemas).hasSize(2);
     assertThat(schemas.get(0).getPrimaryKey()).isEqualTo("sys_name");
   }
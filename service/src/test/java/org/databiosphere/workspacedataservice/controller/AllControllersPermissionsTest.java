@@ -114,6 +114,14 @@ class AllControllersPermissionsTest extends DataPlaneTestBase {
                     collectionId,
                     RECORD_TYPE,
                     RECORD_ID))),
+        arguments(
+            named(
+                "GET /{instanceid}/records/v0.2/{type}/{id}/referrers",
+                get(
+                    "/{instanceid}/records/v0.2/{type}/{id}/referrers",
+                    collectionId,
+                    RECORD_TYPE,
+                    RECORD_ID))),
         arguments(
             named(
                 "POST /{instanceid}/search/v0.2/{type}",
@@ -1294,6 +1294,74 @@ class RecordControllerMockMvcTest extends MockMvcTestBase {
         .andExpect(jsonPath("$.attributes.rel-arr", is(relArr)));
   }
 
+  @Test
+  void getReferringRecords() throws Exception {
+    RecordType referencedType = RecordType.valueOf("ref_participants");
+    RecordType referringType = RecordType.valueOf("ref_samples");
+    createSomeRecords(referencedType, 3);
+    RecordAttributes attributes =
+        RecordAttributes.empty()
+            .putAttribute(
+                "rel-arr",
+                List.of(
+                    RelationUtils.createRelationString(referencedType, "record_0"),
+                    RelationUtils.createRelationString(referencedType, "record_1")));
+    mockMvc
+        .perform(
+            put(
+                    "/{instanceId}/records/{version}/{recordType}/{recordId}",
+                    instanceId,
+                    versionId,
+                    referringType,
+                    "sample_0")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(toJson(new RecordRequest(attributes))))
+        .andExpect(status().isCreated());
+
+    mockMvc
+        .perform(
+            get(
+                "/{instanceId}/records/{version}/{recordType}/{recordId}/referrers",
+                instanceId,
+                versionId,
+                referencedType,
+                "record_0"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].id", is("sample_0")))
+        .andExpect(jsonPath("$[0].type", is(referringType.getName())))
+        .andExpect(jsonPath("$[0].attribute", is("rel-arr")));
+    mockMvc
+        .perform(
+            get(
+                "/{instanceId}/records/{version}/{recordType}/{recordId}/referrers",
+                instanceId,
+                versionId,
+                referencedType,
+                "record_2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(0)));
+    mockMvc
+        .perform(
+            get(
+                "/{instanceId}/records/{version}/{recordType}/{recordId}/referrers",
+                instanceId,
+                versionId,
+                referencedType,
+                "missing"))
+        .andExpect(status().isNotFound());
+    mockMvc
+        .perform(
+            get(
+                    "/{instanceId}/records/{version}/{recordType}/{recordId}/referrers",
+                    instanceId,
+                    versionId,
+                    referencedType,
+                    "record_0")
+                .param("limit", "0"))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   void addReferenceArrayColumnToExistingType() throws Exception {
     RecordType referencedType = RecordType.valueOf("ref_participants");
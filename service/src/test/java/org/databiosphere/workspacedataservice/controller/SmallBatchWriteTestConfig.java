@@ -1,5 +1,6 @@
 package org.databiosphere.workspacedataservice.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.databiosphere.workspacedataservice.service.BatchWriteService;
 import org.databiosphere.workspacedataservice.service.DataTypeInferer;
 import org.springframework.boot.test.context.TestConfiguration;
@@ -13,7 +14,13 @@ import org.springframework.context.annotation.Bean;
 class SmallBatchWriteTestConfig {
 
   @Bean
-  public BatchWriteService batchWriteService(DataTypeInferer dataTypeInferer) {
-    return new BatchWriteService(/* batchSize= */ 1, dataTypeInferer);
+  public BatchWriteService batchWriteService(
+      DataTypeInferer dataTypeInferer, MeterRegistry meterRegistry) {
+    return new BatchWriteService(
+        /* batchSize= */ 1,
+        /* pipelineEnabled= */ false,
+        /* pipelineQueueCapacity= */ 2,
+        dataTypeInferer,
+        meterRegistry);
   }
 }
@@ -0,0 +1,52 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Test;
+
+class CopyTextEncoderTest {
+
+  @Test
+  void scalars() {
+    assertEquals("\\N", CopyTextEncoder.encodeField(null));
+    assertEquals("hello", CopyTextEncoder.encodeField("hello"));
+    assertEquals("1000", CopyTextEncoder.encodeField(new BigDecimal("1E+3")));
+    assertEquals("1.50", CopyTextEncoder.encodeField(new BigDecimal("1.50")));
+    assertEquals("true", CopyTextEncoder.encodeField(Boolean.TRUE));
+    assertEquals("2024-02-29", CopyTextEncoder.encodeField(LocalDate.of(2024, 2, 29)));
+    assertEquals(
+        "2024-02-29 13:45:01.5",
+        CopyTextEncoder.encodeField(LocalDateTime.of(2024, 2, 29, 13, 45, 1, 500_000_000)));
+  }
+
+  @Test
+  void escaping() {
+    assertEquals(
+        "tab\\there\\nnewline\\rreturn\\\\backslash",
+        CopyTextEncoder.encodeField("tab\there\nnewline\rreturn\\backslash"));
+    // "\N" as a literal string must not be read back as null
+    assertEquals("\\\\N", CopyTextEncoder.encodeField("\\N"));
+  }
+
+  @Test
+  void arrays() {
+    assertEquals("{}", CopyTextEncoder.encodeField(new String[0]));
+    assertEquals(
+        "{\"a\",NULL,\"c d\"}", CopyTextEncoder.encodeField(new String[] {"a", null, "c d"}));
+    assertEquals("{\"true\",\"false\"}", CopyTextEncoder.encodeField(new Boolean[] {true, false}));
+    // quotes and backslashes are escaped for the array literal, then backslashes again for COPY
+    assertEquals(
+        "{\"say \\\\\"hi\\\\\"\",\"back\\\\\\\\slash\"}",
+        CopyTextEncoder.encodeField(new String[] {"say \"hi\"", "back\\slash"}));
+  }
+
+  @Test
+  void rows() {
+    assertEquals(
+        "id1\t42\t\\N\n",
+        CopyTextEncoder.encodeRow(new Object[] {"id1", new BigDecimal("42"), null}));
+  }
+}
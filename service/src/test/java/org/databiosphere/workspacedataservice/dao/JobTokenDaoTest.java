@@ -0,0 +1,113 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
+import org.databiosphere.workspacedataservice.dataimport.ImportJobInput;
+import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel;
+import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel.TypeEnum;
+import org.databiosphere.workspacedataservice.shared.model.CollectionId;
+import org.databiosphere.workspacedataservice.shared.model.job.Job;
+import org.databiosphere.workspacedataservice.shared.model.job.JobInput;
+import org.databiosphere.workspacedataservice.shared.model.job.JobResult;
+import org.databiosphere.workspacedataservice.shared.model.job.JobType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+@DirtiesContext
+@SpringBootTest(properties = "twds.jobs.token-key=MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=")
+class JobTokenDaoTest extends ControlPlaneTestBase {
+
+  @Autowired NamedParameterJdbcTemplate namedTemplate;
+  @Autowired JobDao jobDao;
+  @Autowired JobTokenDao jobTokenDao;
+
+  @AfterEach
+  void afterEach() {
+    // deleting jobs deletes their tokens too
+    namedTemplate.getJdbcTemplate().update("delete from sys_wds.job;");
+  }
+
+  @Test
+  void savesEncryptedToken() {
+    UUID jobId = createJob();
+
+    jobTokenDao.save(jobId, "my-token");
+
+    assertThat(jobTokenDao.get(jobId)).contains("my-token");
+    byte[] stored =
+        namedTemplate.queryForObject(
+            "select sealed_token from sys_wds.job_token where job_id = :jobId",
+            new MapSqlParameterSource("jobId", jobId.toString()),
+            byte[].class);
+    assertThat(new String(stored, StandardCharsets.ISO_8859_1)).doesNotContain("my-token");
+  }
+
+  @Test
+  void deletesToken() {
+    UUID jobId = createJob();
+    jobTokenDao.save(jobId, "my-token");
+
+    jobTokenDao.delete(jobId);
+
+    assertThat(jobTokenDao.get(jobId)).isEmpty();
+  }
+
+  @Test
+  void otherKeyCannotReadToken() {
+    UUID jobId = createJob();
+    jobTokenDao.save(jobId, "my-token");
+
+    String otherKey = Base64.getEncoder().encodeToString(new byte[32]);
+    JobTokenDao otherReplica = new JobTokenDao(namedTemplate, otherKey, true);
+
+    assertThat(otherReplica.get(jobId)).isEmpty();
+  }
+
+  @Test
+  void requiresKeyWhenClustered() {
+    assertThatThrownBy(() -> new JobTokenDao(namedTemplate, "", true))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("twds.jobs.token-key");
+  }
+
+  @Test
+  void storesKeyWhenNotClustered() {
+    UUID jobId = createJob();
+    JobTokenDao singleReplica = new JobTokenDao(namedTemplate, "", false);
+    singleReplica.save(jobId, "my-token");
+
+    assertThat(singleReplica.get(jobId)).hasValue("my-token");
+    // after a restart, the same replica reads the token with the stored key
+    JobTokenDao restarted = new JobTokenDao(namedTemplate, "", false);
+    assertThat(restarted.get(jobId)).hasValue("my-token");
+    // a configured key is not the stored one
+    assertThat(jobTokenDao.get(jobId)).isEmpty();
+  }
+
+  @Test
+  void sealsWithFreshIv() {
+    assertThat(jobTokenDao.seal("my-token")).isNotEqualTo(jobTokenDao.seal("my-token"));
+  }
+
+  // tokens belong to jobs
+  private UUID createJob() {
+    ImportJobInput input =
+        ImportJobInput.from(
+            new ImportRequestServerModel(TypeEnum.PFB, URI.create("http://some/uri")));
+    Job<JobInput, JobResult> job =
+        Job.newJob(CollectionId.of(UUID.randomUUID()), JobType.DATA_IMPORT, input);
+    jobDao.createJob(job);
+    return job.getJobId();
+  }
+}
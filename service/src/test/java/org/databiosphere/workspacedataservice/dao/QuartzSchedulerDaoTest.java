@@ -1,15 +1,27 @@
 package org.databiosphere.workspacedataservice.dao;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.shared.model.Schedulable.ARG_TOKEN;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 
 import java.io.Serializable;
+import java.net.URI;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
+import org.databiosphere.workspacedataservice.dataimport.ImportJobInput;
+import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel;
+import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel.TypeEnum;
+import org.databiosphere.workspacedataservice.shared.model.CollectionId;
 import org.databiosphere.workspacedataservice.shared.model.Schedulable;
+import org.databiosphere.workspacedataservice.shared.model.job.Job;
+import org.databiosphere.workspacedataservice.shared.model.job.JobInput;
+import org.databiosphere.workspacedataservice.shared.model.job.JobResult;
+import org.databiosphere.workspacedataservice.shared.model.job.JobType;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.quartz.Job;
@@ -29,6 +41,8 @@ class QuartzSchedulerDaoTest extends ControlPlaneTestBase {
 
   @MockitoBean Scheduler scheduler;
   @Autowired SchedulerDao schedulerDao;
+  @Autowired JobDao jobDao;
+  @Autowired JobTokenDao jobTokenDao;
 
   // this test needs a valid implementation of Job, so here's a noop one:
   static class FakeJob implements Job {
@@ -77,4 +91,26 @@ class QuartzSchedulerDaoTest extends ControlPlaneTestBase {
         .as("actual trigger should be within the last 2 seconds")
         .isLessThan(2000);
   }
+
+  @Test
+  void keepsTokenOutOfJobData() throws SchedulerException {
+    // tokens belong to jobs
+    ImportJobInput input =
+        ImportJobInput.from(
+            new ImportRequestServerModel(TypeEnum.PFB, URI.create("http://some/uri")));
+    Job<JobInput, JobResult> job =
+        Job.newJob(CollectionId.of(UUID.randomUUID()), JobType.DATA_IMPORT, input);
+    jobDao.createJob(job);
+    Map<String, Serializable> arguments = Map.of(ARG_TOKEN, "my-token", "first", "one");
+    Schedulable schedulable =
+        new Schedulable(
+            "my-group", job.getJobId().toString(), FakeJob.class, "my-description", arguments);
+
+    schedulerDao.schedule(schedulable);
+
+    ArgumentCaptor<JobDetail> jobDetailArgument = ArgumentCaptor.forClass(JobDetail.class);
+    verify(scheduler).scheduleJob(jobDetailArgument.capture(), any(Trigger.class));
+    assertEquals(Set.of("first"), jobDetailArgument.getValue().getJobDataMap().keySet());
+    assertThat(jobTokenDao.get(job.getJobId())).contains("my-token");
+  }
 }
@@ -8,6 +8,7 @@ import static org.databiosphere.workspacedataservice.service.model.DataTypeMappi
 import static org.databiosphere.workspacedataservice.service.model.ReservedNames.RECORD_ID;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,10 +29,15 @@ import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
 import org.databiosphere.workspacedataservice.service.model.Relation;
 import org.databiosphere.workspacedataservice.service.model.RelationCollection;
 import org.databiosphere.workspacedataservice.service.model.RelationValue;
+import org.databiosphere.workspacedataservice.service.model.SchemaChangePlan;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.service.model.UpsertCounts;
 import org.databiosphere.workspacedataservice.service.model.exception.InvalidRelationException;
 import org.databiosphere.workspacedataservice.shared.model.CollectionId;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordColumn;
+import org.databiosphere.workspacedataservice.shared.model.RecordReference;
 import org.databiosphere.workspacedataservice.shared.model.RecordRequest;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
 import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
@@ -111,6 +117,168 @@ class RecordDaoTest extends ControlPlaneTestBase {
     assertEquals(none, Optional.empty());
   }
 
+  @Test
+  void copyUpsertMatchesBatchUpsert() {
+    assertCopyUpsertMatchesBatchUpsert();
+  }
+
+  // within a transaction, the staging table is reused by every batch and emptied between them
+  @Test
+  @Transactional
+  void copyUpsertMatchesBatchUpsertInTransaction() {
+    assertCopyUpsertMatchesBatchUpsert();
+  }
+
+  @Test
+  void stagingTableNameChangesWithColumns() {
+    String table = "\"schema\".\"table\"";
+    List<RecordColumn> cols = List.of(new RecordColumn("num", NUMBER));
+    String name = RecordDao.stagingTableName(table, cols, 1);
+    assertEquals(name, RecordDao.stagingTableName(table, cols, 1));
+    assertNotEquals(
+        name, RecordDao.stagingTableName(table, List.of(new RecordColumn("num", STRING)), 1));
+    assertNotEquals(name, RecordDao.stagingTableName(table, cols, 2));
+    assertNotEquals(name, RecordDao.stagingTableName("\"schema\".\"other\"", cols, 1));
+    assertThat(name).startsWith(RecordDao.stagingTablePrefix(table));
+  }
+
+  // in a transaction, so that every statement runs on the connection holding the temp tables
+  @Test
+  @Transactional
+  void dropsStaleAndFinishedStagingTables() {
+    RecordType stagedType = RecordType.valueOf("staged");
+    Map<String, DataTypeMapping> schema = Map.of("num", NUMBER);
+    recordDao.createRecordType(
+        collectionUuid, schema, stagedType, RelationCollection.empty(), PRIMARY_KEY);
+    Record record = new Record("1", stagedType, RecordAttributes.empty().putAttribute("num", 1));
+
+    recordDao.copyUpsert(collectionUuid, stagedType, List.of(record), schema, PRIMARY_KEY);
+    List<String> firstStaging = stagingTables();
+    assertThat(firstStaging).hasSize(1);
+
+    // the schema changes, so the next batch needs a new staging table, and drops the old one
+    recordDao.addColumn(collectionUuid, stagedType, "str", STRING);
+    Map<String, DataTypeMapping> widerSchema = Map.of("num", NUMBER, "str", STRING);
+    recordDao.copyUpsert(collectionUuid, stagedType, List.of(record), widerSchema, PRIMARY_KEY);
+    List<String> secondStaging = stagingTables();
+    assertThat(secondStaging).hasSize(1).doesNotContainAnyElementsOf(firstStaging);
+
+    // the write ends
+    recordDao.dropStagingTables(collectionUuid, stagedType);
+    assertThat(stagingTables()).isEmpty();
+  }
+
+  // this connection's staging tables
+  private List<String> stagingTables() {
+    return namedTemplate.queryForList(
+        "select relname from pg_class where relnamespace = pg_my_temp_schema() "
+            + "and relname like 'sys\\_copy\\_staging\\_%'",
+        Map.of(),
+        String.class);
+  }
+
+  private void assertCopyUpsertMatchesBatchUpsert() {
+    Map<String, DataTypeMapping> schema =
+        Map.of(
+            "str", STRING, "num", NUMBER, "bool", BOOLEAN, "arr", ARRAY_OF_STRING, "json", JSON);
+    RecordType batchType = RecordType.valueOf("viaBatch");
+    RecordType copyType = RecordType.valueOf("viaCopy");
+    recordDao.createRecordType(
+        collectionUuid, schema, batchType, RelationCollection.empty(), PRIMARY_KEY);
+    recordDao.createRecordType(
+        collectionUuid, schema, copyType, RelationCollection.empty(), PRIMARY_KEY);
+
+    RecordAttributes tricky =
+        RecordAttributes.empty()
+            .putAttribute("str", "tab\tnewline\n back\\slash \\N")
+            .putAttribute("num", new BigDecimal("1.50"))
+            .putAttribute("bool", true)
+            .putAttribute("arr", List.of("a", "b\"c", "{d}"))
+            .putAttribute("json", Map.of("key", "value"));
+    RecordAttributes sparse = RecordAttributes.empty().putAttribute("num", 7);
+    for (RecordType type : List.of(batchType, copyType)) {
+      List<Record> records = List.of(new Record("1", type, tricky), new Record("2", type, sparse));
+      if (type == copyType) {
+        recordDao.copyUpsert(collectionUuid, type, records, schema, PRIMARY_KEY);
+      } else {
+        recordDao.batchUpsert(collectionUuid, type, records, schema, PRIMARY_KEY);
+      }
+    }
+
+    for (String id : List.of("1", "2")) {
+      assertEquals(
+          recordDao.getSingleRecord(collectionUuid, batchType, id).orElseThrow().getAttributes(),
+          recordDao.getSingleRecord(collectionUuid, copyType, id).orElseThrow().getAttributes(),
+          "for record " + id);
+    }
+
+    // duplicate ids within a batch: the last one wins
+    recordDao.copyUpsert(
+        collectionUuid,
+        copyType,
+        List.of(
+            new Record("3", copyType, RecordAttributes.empty().putAttribute("str", "first")),
+            new Record("3", copyType, RecordAttributes.empty().putAttribute("str", "last"))),
+        schema,
+        PRIMARY_KEY);
+    assertEquals(
+        "last",
+        recordDao
+            .getSingleRecord(collectionUuid, copyType, "3")
+            .orElseThrow()
+            .getAttributeValue("str"));
+    assertEquals(3, recordDao.countRecords(collectionUuid, copyType));
+  }
+
+  @Test
+  @Transactional
+  void copyUpsertSkipsUnchangedRecords() {
+    RecordType reimported = RecordType.valueOf("reimported");
+    Map<String, DataTypeMapping> schema = Map.of("str", STRING, "arr", ARRAY_OF_STRING);
+    recordDao.createRecordType(
+        collectionUuid, schema, reimported, RelationCollection.empty(), PRIMARY_KEY);
+    RecordAttributes unchanged =
+        RecordAttributes.empty().putAttribute("str", "same").putAttribute("arr", List.of("a"));
+    List<Record> records =
+        List.of(
+            new Record("1", reimported, unchanged),
+            new Record("2", reimported, RecordAttributes.empty().putAttribute("str", "old")));
+    assertEquals(
+        new UpsertCounts(2, 0, 0),
+        recordDao.copyUpsert(collectionUuid, reimported, records, schema, PRIMARY_KEY));
+
+    List<Record> reimport =
+        List.of(
+            new Record("1", reimported, unchanged),
+            new Record("2", reimported, RecordAttributes.empty().putAttribute("str", "new")),
+            new Record("3", reimported, RecordAttributes.empty().putAttribute("str", "added")));
+    assertEquals(
+        new UpsertCounts(1, 1, 1),
+        recordDao.copyUpsert(collectionUuid, reimported, reimport, schema, PRIMARY_KEY));
+    assertEquals(
+        "new",
+        recordDao
+            .getSingleRecord(collectionUuid, reimported, "2")
+            .orElseThrow()
+            .getAttributeValue("str"));
+
+    // a null is a change from a value
+    assertEquals(
+        new UpsertCounts(0, 1, 0),
+        recordDao.copyUpsert(
+            collectionUuid,
+            reimported,
+            List.of(
+                new Record("1", reimported, RecordAttributes.empty().putAttribute("str", "same"))),
+            schema,
+            PRIMARY_KEY));
+    assertNull(
+        recordDao
+            .getSingleRecord(collectionUuid, reimported, "1")
+            .orElseThrow()
+            .getAttributeValue("arr"));
+  }
+
   @Test
   void testGetRecordAttributeCaseSensitivity() {
     // Arrange
@@ -1044,6 +1212,199 @@ class RecordDaoTest extends ControlPlaneTestBase {
     assertTrue(testDao.joinTableExists(collectionUuid, "refArray", secondRecordType));
   }
 
+  @Test
+  @Transactional
+  void joinTableIsIndexedInBothDirections() {
+    RecordType secondRecordType = RecordType.valueOf("secondRecordType");
+    recordDao.createRecordType(
+        collectionUuid, emptyMap(), secondRecordType, RelationCollection.empty(), RECORD_ID);
+
+    recordDao.createRelationJoinTable(collectionUuid, "refArray", secondRecordType, recordType);
+
+    // mixed-case column names are quoted in index definitions
+    List<String> indexDefs =
+        namedTemplate
+            .queryForList(
+                "select indexdef from pg_indexes where schemaname = :schema and tablename = :table",
+                Map.of(
+                    "schema", collectionUuid.toString(), "table", "sys_secondRecordType_refArray"),
+                String.class)
+            .stream()
+            .map(def -> def.replace("\"", ""))
+            .toList();
+    assertThat(indexDefs)
+        .hasSize(2)
+        .anyMatch(def -> def.endsWith("(from_secondRecordType_key, to_testRecordType_key)"))
+        .anyMatch(def -> def.endsWith("(to_testRecordType_key, from_secondRecordType_key)"));
+  }
+
+  @Test
+  @Transactional
+  void applySchemaChanges() {
+    recordDao.addColumn(collectionUuid, recordType, "count", NUMBER);
+    recordDao.addColumn(collectionUuid, recordType, "day", DATE);
+
+    SchemaChangePlan plan = new SchemaChangePlan();
+    plan.changeColumnType("count", NUMBER, STRING);
+    plan.changeColumnType("day", DATE, DATE_TIME);
+    plan.addColumn("label", STRING, null);
+    plan.addColumn("parent", RELATION, recordType);
+    plan.addColumn("children", ARRAY_OF_RELATION, null);
+    plan.addJoinTable("children", recordType);
+    recordDao.applySchemaChanges(collectionUuid, recordType, plan);
+
+    assertEquals(
+        Map.of(
+            PRIMARY_KEY,
+            STRING,
+            "count",
+            STRING,
+            "day",
+            DATE_TIME,
+            "label",
+            STRING,
+            "parent",
+            RELATION,
+            "children",
+            ARRAY_OF_RELATION),
+        recordDao.getExistingTableSchema(collectionUuid, recordType));
+    assertThat(recordDao.getRelationCols(collectionUuid, recordType))
+        .containsExactly(new Relation("parent", recordType));
+    assertThat(recordDao.getRelationArrayCols(collectionUuid, recordType))
+        .containsExactly(new Relation("children", recordType));
+  }
+
+  @Test
+  @Transactional
+  void applyStagedColumns() {
+    Map<String, DataTypeMapping> schema = Map.of("count", NUMBER);
+    recordDao.addColumn(collectionUuid, recordType, "count", NUMBER);
+    recordDao.batchUpsert(
+        collectionUuid,
+        recordType,
+        List.of(
+            new Record("one", recordType, RecordAttributes.empty().putAttribute("count", 1)),
+            new Record("two", recordType, RecordAttributes.empty().putAttribute("count", 2))),
+        schema);
+
+    // "two" is written again after "count" is staged, with a value "count" can't yet hold
+    StagedColumn staged = new StagedColumn("count", NUMBER, "sys_staged_0", STRING, STRING);
+    recordDao.addStagingColumn(collectionUuid, recordType, "sys_staged_0", STRING);
+    recordDao.batchUpsert(
+        collectionUuid,
+        recordType,
+        List.of(
+            new Record(
+                "two",
+                recordType,
+                RecordAttributes.empty()
+                    .putAttribute("count", null)
+                    .putAttribute("sys_staged_0", "many"))),
+        Map.of("count", NUMBER, "sys_staged_0", STRING));
+    recordDao.applyStagedColumns(collectionUuid, recordType, List.of(staged));
+
+    assertEquals(
+        Map.of(PRIMARY_KEY, STRING, "count", STRING),
+        recordDao.getExistingTableSchema(collectionUuid, recordType));
+    assertEquals(
+        "1",
+        recordDao
+            .getSingleRecord(collectionUuid, recordType, "one")
+            .orElseThrow()
+            .getAttributeValue("count"));
+    assertEquals(
+        "many",
+        recordDao
+            .getSingleRecord(collectionUuid, recordType, "two")
+            .orElseThrow()
+            .getAttributeValue("count"));
+  }
+
+  @Test
+  void addStagingColumnOnlyAcceptsStagingColumns() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> recordDao.addStagingColumn(collectionUuid, recordType, "sys_name", STRING));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> recordDao.addStagingColumn(collectionUuid, recordType, "staged_0", STRING));
+  }
+
+  @Test
+  void canConvertColumn() {
+    assertTrue(recordDao.canConvertColumn(NUMBER, STRING));
+    assertTrue(recordDao.canConvertColumn(DATE, DATE_TIME));
+    assertTrue(recordDao.canConvertColumn(NULL, NUMBER));
+    assertTrue(recordDao.canConvertColumn(ARRAY_OF_NUMBER, ARRAY_OF_STRING));
+    // changing whether a column holds arrays would change its values
+    assertFalse(recordDao.canConvertColumn(NUMBER, ARRAY_OF_STRING));
+    assertFalse(recordDao.canConvertColumn(ARRAY_OF_NUMBER, STRING));
+    assertFalse(recordDao.canConvertColumn(STRING, JSON));
+  }
+
+  @Test
+  @Transactional
+  void getReferringRecords() {
+    Record target = new Record("target", recordType, RecordAttributes.empty());
+    Record other = new Record("other", recordType, RecordAttributes.empty());
+    recordDao.batchUpsert(collectionUuid, recordType, List.of(target, other), emptyMap());
+
+    // "arrays" references via a relation array, "scalars" via a relation
+    RecordType arrays = RecordType.valueOf("arrays");
+    recordDao.createRecordType(
+        collectionUuid,
+        Map.of("refs", ARRAY_OF_RELATION),
+        arrays,
+        new RelationCollection(Set.of(), Set.of(new Relation("refs", recordType))),
+        RECORD_ID);
+    List<Record> arrayRecords =
+        Stream.of("a2", "a1", "a3")
+            .map(id -> new Record(id, arrays, RecordAttributes.empty()))
+            .toList();
+    recordDao.batchUpsert(collectionUuid, arrays, arrayRecords, emptyMap());
+    recordDao.insertIntoJoin(
+        collectionUuid,
+        new Relation("refs", recordType),
+        arrays,
+        List.of(
+            new RelationValue(arrayRecords.get(0), target),
+            new RelationValue(arrayRecords.get(1), target),
+            new RelationValue(arrayRecords.get(2), other)));
+
+    RecordType scalars = RecordType.valueOf("scalars");
+    recordDao.createRecordType(
+        collectionUuid,
+        Map.of("ref", RELATION),
+        scalars,
+        new RelationCollection(Set.of(new Relation("ref", recordType)), Set.of()),
+        RECORD_ID);
+    recordDao.batchUpsert(
+        collectionUuid,
+        scalars,
+        List.of(
+            new Record(
+                "s1",
+                scalars,
+                RecordAttributes.empty()
+                    .putAttribute("ref", RelationUtils.createRelationString(recordType, "target"))),
+            new Record(
+                "s2",
+                scalars,
+                RecordAttributes.empty()
+                    .putAttribute("ref", RelationUtils.createRelationString(recordType, "other")))),
+        Map.of("ref", RELATION));
+
+    assertThat(recordDao.getReferringRecords(collectionUuid, recordType, "target", 100))
+        .containsExactly(
+            new RecordReference(arrays, "a1", "refs"),
+            new RecordReference(arrays, "a2", "refs"),
+            new RecordReference(scalars, "s1", "ref"));
+    assertThat(recordDao.getReferringRecords(collectionUuid, recordType, "target", 2))
+        .containsExactly(
+            new RecordReference(arrays, "a1", "refs"), new RecordReference(arrays, "a2", "refs"));
+    assertThat(recordDao.getReferringRecords(collectionUuid, arrays, "a1", 100)).isEmpty();
+  }
+
   @Test
   @Transactional
   void testCreateRecordTypeWithRelationArray() {
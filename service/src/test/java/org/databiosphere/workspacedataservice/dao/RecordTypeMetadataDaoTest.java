@@ -0,0 +1,168 @@
+package org.databiosphere.workspacedataservice.dao;
+
+import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.dao.SqlUtils.getQualifiedTableName;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.dao.RecordTypeMetadataDao.CollectionCatalog;
+import org.databiosphere.workspacedataservice.TestUtils;
+import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
+import org.databiosphere.workspacedataservice.service.CollectionService;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.Relation;
+import org.databiosphere.workspacedataservice.service.model.RelationCollection;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
+import org.databiosphere.workspacedataservice.workspace.WorkspaceDataTableType;
+import org.databiosphere.workspacedataservice.workspace.WorkspaceRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+@SpringBootTest
+class RecordTypeMetadataDaoTest extends ControlPlaneTestBase {
+
+  private static final String PRIMARY_KEY = "row_id";
+  private static final RecordType RECORD_TYPE = RecordType.valueOf("metadataTest");
+
+  @Autowired RecordDao recordDao;
+  @Autowired RecordTypeMetadataDao recordTypeMetadataDao;
+  @Autowired CollectionService collectionService;
+  @Autowired WorkspaceRepository workspaceRepository;
+  @Autowired NamedParameterJdbcTemplate namedTemplate;
+
+  UUID collectionUuid;
+
+  @BeforeEach
+  void setUp() {
+    WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+    workspaceRepository.save(
+        new WorkspaceRecord(workspaceId, WorkspaceDataTableType.WDS, /* newFlag= */ true));
+    collectionUuid = collectionService.save(workspaceId, "name", "desc").getId();
+    recordDao.createRecordType(
+        collectionUuid, emptyMap(), RECORD_TYPE, RelationCollection.empty(), PRIMARY_KEY);
+  }
+
+  @AfterEach
+  void tearDown() {
+    TestUtils.cleanAllCollections(collectionService, namedTemplate);
+    TestUtils.cleanAllWorkspaces(namedTemplate);
+  }
+
+  @Test
+  void missingRecordTypeIsNotCached() {
+    RecordType missing = RecordType.valueOf("doesNotExist");
+    RecordTypeMetadata metadata = recordTypeMetadataDao.getMetadata(collectionUuid, missing);
+
+    assertThat(metadata.exists()).isFalse();
+    assertThat(metadata.schema()).isEmpty();
+    assertThat(recordTypeMetadataDao.getSchemaVersion(collectionUuid, missing)).isZero();
+  }
+
+  @Test
+  void cachedMetadataIsReusedUntilSchemaChanges() {
+    RecordTypeMetadata first = recordTypeMetadataDao.getMetadata(collectionUuid, RECORD_TYPE);
+    assertThat(first.primaryKey()).isEqualTo(PRIMARY_KEY);
+
+    // alter the table without recording a schema change, e.g. as another replica would have done
+    // before AJ-1242. The cached entry is still considered current.
+    alterTableDirectly("add column \"unversioned\" text");
+    assertThat(recordTypeMetadataDao.getMetadata(collectionUuid, RECORD_TYPE)).isSameAs(first);
+
+    // once the change is recorded, the next lookup sees it
+    recordTypeMetadataDao.schemaChanged(collectionUuid, RECORD_TYPE);
+    assertThat(recordTypeMetadataDao.getMetadata(collectionUuid, RECORD_TYPE).schema())
+        .containsEntry("unversioned", DataTypeMapping.STRING);
+  }
+
+  @Test
+  void schemaChangesViaRecordDaoAreVisibleImmediately() {
+    long before = recordTypeMetadataDao.getSchemaVersion(collectionUuid, RECORD_TYPE);
+    assertThat(recordDao.getExistingTableSchema(collectionUuid, RECORD_TYPE))
+        .doesNotContainKey("added");
+
+    recordDao.addColumn(collectionUuid, RECORD_TYPE, "added", DataTypeMapping.NUMBER);
+
+    assertThat(recordTypeMetadataDao.getSchemaVersion(collectionUuid, RECORD_TYPE))
+        .isGreaterThan(before);
+    assertThat(recordDao.getExistingTableSchema(collectionUuid, RECORD_TYPE))
+        .containsEntry("added", DataTypeMapping.NUMBER);
+
+    recordDao.deleteAttribute(collectionUuid, RECORD_TYPE, "added");
+    assertThat(recordDao.getExistingTableSchema(collectionUuid, RECORD_TYPE))
+        .doesNotContainKey("added");
+  }
+
+  @Test
+  void deletingRecordTypeEvictsMetadata() {
+    assertThat(recordTypeMetadataDao.getMetadata(collectionUuid, RECORD_TYPE).exists()).isTrue();
+
+    recordDao.deleteRecordType(collectionUuid, RECORD_TYPE);
+
+    assertThat(recordTypeMetadataDao.getMetadata(collectionUuid, RECORD_TYPE).exists()).isFalse();
+  }
+
+  @Test
+  void returnedSchemaIsACopy() {
+    recordDao.getExistingTableSchema(collectionUuid, RECORD_TYPE).put("bogus", DataTypeMapping.STRING);
+
+    assertThat(recordDao.getExistingTableSchema(collectionUuid, RECORD_TYPE))
+        .doesNotContainKey("bogus");
+  }
+
+  @Test
+  void collectionCatalogMatchesPerTypeMetadata() {
+    RecordType other = RecordType.valueOf("catalogTest");
+    Relation relation = new Relation("single", RECORD_TYPE);
+    Relation relationArray = new Relation("many", RECORD_TYPE);
+    Relation selfRelationArray = new Relation("siblings", other);
+    recordDao.createRecordType(
+        collectionUuid,
+        Map.of(
+            "single", DataTypeMapping.RELATION,
+            "many", DataTypeMapping.ARRAY_OF_RELATION,
+            "siblings", DataTypeMapping.ARRAY_OF_RELATION,
+            "count", DataTypeMapping.NUMBER),
+        other,
+        new RelationCollection(Set.of(relation), Set.of(relationArray, selfRelationArray)),
+        PRIMARY_KEY);
+
+    CollectionCatalog catalog = recordTypeMetadataDao.getCollectionCatalog(collectionUuid);
+
+    // record types only; join tables are not record types
+    assertThat(catalog.metadata().keySet()).containsExactly(other, RECORD_TYPE);
+    for (RecordType recordType : catalog.metadata().keySet()) {
+      RecordTypeMetadata fromCatalog = catalog.metadata().get(recordType);
+      recordTypeMetadataDao.schemaChanged(collectionUuid, recordType);
+      RecordTypeMetadata perType = recordTypeMetadataDao.getMetadata(collectionUuid, recordType);
+
+      assertThat(fromCatalog.primaryKey()).isEqualTo(perType.primaryKey());
+      assertThat(fromCatalog.schema()).isEqualTo(perType.schema());
+      assertThat(fromCatalog.relationCols())
+          .containsExactlyInAnyOrderElementsOf(perType.relationCols());
+      assertThat(fromCatalog.relationArrayCols())
+          .containsExactlyInAnyOrderElementsOf(perType.relationArrayCols());
+    }
+    assertThat(catalog.metadata().get(other).relationArrayCols())
+        .containsExactlyInAnyOrder(relationArray, selfRelationArray);
+  }
+
+  @Test
+  void collectionCatalogWarmsCache() {
+    CollectionCatalog catalog = recordTypeMetadataDao.getCollectionCatalog(collectionUuid);
+
+    assertThat(recordTypeMetadataDao.getMetadata(collectionUuid, RECORD_TYPE))
+        .isSameAs(catalog.metadata().get(RECORD_TYPE));
+  }
+
+  private void alterTableDirectly(String alteration) {
+    String table = getQualifiedTableName(RECORD_TYPE, collectionUuid);
+    namedTemplate.getJdbcTemplate().update("alter table " + table + " " + alteration);
+  }
+}
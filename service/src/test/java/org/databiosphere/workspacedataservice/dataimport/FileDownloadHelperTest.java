@@ -1,9 +1,17 @@
 package org.databiosphere.workspacedataservice.dataimport;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.time.Duration;
 import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
+import org.databiosphere.workspacedataservice.service.model.exception.TdrManifestImportException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -17,8 +25,29 @@ class FileDownloadHelperTest extends ControlPlaneTestBase {
 
   @Test
   void downloadEmptyFile() throws IOException {
-    FileDownloadHelper helper = new FileDownloadHelper("test");
+    FileDownloadHelper helper =
+        new FileDownloadHelper("test", Duration.ofSeconds(5), Duration.ofSeconds(5));
     assertDoesNotThrow(() -> helper.downloadFileFromURL("empty_table", emptyParquet.getURL()));
     assert helper.getFileMap().isEmpty();
   }
+
+  @Test
+  void downloadTimesOutWhenServerIsSilent() throws IOException {
+    FileDownloadHelper helper =
+        new FileDownloadHelper("test", Duration.ofSeconds(5), Duration.ofMillis(200));
+    // the OS accepts connections to this socket, but nothing ever responds
+    InetAddress loopback = InetAddress.getByName("127.0.0.1");
+    try (ServerSocket silentServer = new ServerSocket(0, 1, loopback)) {
+      URL url = new URL("http://127.0.0.1:%d/file.parquet".formatted(silentServer.getLocalPort()));
+
+      TdrManifestImportException thrown =
+          assertThrows(
+              TdrManifestImportException.class, () -> helper.downloadFileFromURL("table", url));
+
+      assertThat(thrown).hasCauseInstanceOf(SocketTimeoutException.class);
+      assertThat(helper.getFileMap().isEmpty()).isTrue();
+    } finally {
+      helper.deleteFileDirectory();
+    }
+  }
 }
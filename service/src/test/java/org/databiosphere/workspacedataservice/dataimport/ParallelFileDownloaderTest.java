@@ -0,0 +1,116 @@
+package org.databiosphere.workspacedataservice.dataimport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.dataimport.ParallelFileDownloader.isRetryable;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import org.databiosphere.workspacedataservice.dataimport.FileDownloadHelper.HttpStatusException;
+import org.databiosphere.workspacedataservice.dataimport.ParallelFileDownloader.Downloads;
+import org.databiosphere.workspacedataservice.service.model.exception.TdrManifestImportException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelFileDownloaderTest {
+
+  private MeterRegistry meterRegistry;
+  private ParallelFileDownloader downloader;
+  private FileDownloadHelper helper;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    meterRegistry = new SimpleMeterRegistry();
+    downloader =
+        new ParallelFileDownloader(
+            meterRegistry,
+            /* maxConcurrency= */ 4,
+            /* perHostConcurrency= */ 2,
+            /* maxAttempts= */ 2,
+            Duration.ofMillis(1));
+    helper = new FileDownloadHelper("test", Duration.ofSeconds(5), Duration.ofSeconds(5));
+  }
+
+  @AfterEach
+  void tearDown() {
+    helper.deleteFileDirectory();
+    downloader.shutdown();
+  }
+
+  @Test
+  void downloadsAllTables() {
+    ListMultimap<String, URL> urls = ArrayListMultimap.create();
+    urls.put("variant", resource("parquet/v2f/variant.parquet"));
+    urls.put("variant", resource("parquet/v2f/frequency_analysis.parquet"));
+    urls.put("person", resource("parquet/with-entity-reference-lists/person.parquet"));
+    urls.put("empty", resource("parquet/empty.parquet"));
+
+    Downloads downloads = downloader.startDownloads(helper, urls);
+
+    downloads.awaitTable("person");
+    assertThat(helper.getFiles("person")).hasSize(1);
+    downloads.awaitAll();
+    assertThat(helper.getFiles("variant")).hasSize(2).allMatch(File::isFile);
+    // empty files are skipped
+    assertThat(helper.getFiles("empty")).isEmpty();
+
+    assertThat(meterRegistry.get("wds.import.download.bytes").summary().count()).isEqualTo(4);
+    assertThat(meterRegistry.get("wds.import.download.duration").timer().count()).isEqualTo(4);
+  }
+
+  @Test
+  void failedDownloadSurfacesForItsTable() throws Exception {
+    ListMultimap<String, URL> urls = ArrayListMultimap.create();
+    urls.put("good", resource("parquet/numerics.parquet"));
+    urls.put("bad", new URL("file:/does/not/exist.parquet"));
+
+    Downloads downloads = downloader.startDownloads(helper, urls);
+
+    downloads.awaitTable("good");
+    assertThat(helper.getFiles("good")).hasSize(1);
+    assertThrows(TdrManifestImportException.class, () -> downloads.awaitTable("bad"));
+    assertThat(helper.getFiles("bad")).isEmpty();
+  }
+
+  @Test
+  void downloadsMoreFilesThanPerHostLimit() {
+    ListMultimap<String, URL> urls = ArrayListMultimap.create();
+    for (int i = 0; i < 10; i++) {
+      urls.put("numerics", resource("parquet/numerics.parquet"));
+    }
+
+    Downloads downloads = downloader.startDownloads(helper, urls);
+
+    downloads.awaitAll();
+    assertThat(helper.getFiles("numerics")).hasSize(10);
+  }
+
+  @Test
+  void retriesOnlyTransientFailures() {
+    assertThat(isRetryable(failure(new IOException("Connection reset")))).isTrue();
+    assertThat(isRetryable(failure(new HttpStatusException(503)))).isTrue();
+    assertThat(isRetryable(failure(new HttpStatusException(429)))).isTrue();
+    assertThat(isRetryable(failure(new HttpStatusException(403)))).isFalse();
+    assertThat(isRetryable(failure(new HttpStatusException(404)))).isFalse();
+    assertThat(isRetryable(failure(new FileNotFoundException("/does/not/exist")))).isFalse();
+    assertThat(isRetryable(new TdrManifestImportException("not an I/O error"))).isFalse();
+  }
+
+  private static TdrManifestImportException failure(IOException cause) {
+    return new TdrManifestImportException(cause.getMessage(), cause);
+  }
+
+  private URL resource(String path) {
+    URL url = getClass().getClassLoader().getResource(path);
+    assertThat(url).isNotNull();
+    return url;
+  }
+}
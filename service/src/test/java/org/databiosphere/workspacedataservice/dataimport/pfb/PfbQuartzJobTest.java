@@ -4,7 +4,9 @@ import static org.databiosphere.workspacedataservice.TestTags.SLOW;
 import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbTestUtils.stubJobContext;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -15,6 +17,13 @@ import static org.mockito.Mockito.when;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -22,6 +31,7 @@ import java.util.UUID;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
 import org.databiosphere.workspacedataservice.config.DataImportProperties;
 import org.databiosphere.workspacedataservice.dao.JobDao;
@@ -30,6 +40,7 @@ import org.databiosphere.workspacedataservice.rawls.RawlsClient;
 import org.databiosphere.workspacedataservice.service.BatchWriteService;
 import org.databiosphere.workspacedataservice.service.CollectionService;
 import org.databiosphere.workspacedataservice.service.model.BatchWriteResult;
+import org.databiosphere.workspacedataservice.service.model.exception.PfbParsingException;
 import org.databiosphere.workspacedataservice.shared.model.CollectionId;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
 import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
@@ -38,6 +49,7 @@ import org.databiosphere.workspacedataservice.workspace.WorkspaceDataTableType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -254,6 +266,30 @@ class PfbQuartzJobTest extends ControlPlaneTestBase {
     assertEquals(0, endingSnapshotsLinkedTotal - startingSnapshotsLinkedTotal);
   }
 
+  @Test
+  void inspectContentsMatchesSeparatePasses() throws IOException {
+    PfbQuartzJob pfbQuartzJob = testSupport.buildPfbQuartzJob();
+
+    for (Resource resource :
+        List.of(
+            minimalDataAvroResource,
+            testAvroResource,
+            consentNresResource,
+            consentAndSourceResource,
+            multiConsentResource)) {
+      PfbQuartzJob.PfbContents contents =
+          pfbQuartzJob.withPfbStream(resource.getURI(), pfbQuartzJob::inspectContents);
+      assertEquals(
+          pfbQuartzJob.withPfbStream(resource.getURI(), pfbQuartzJob::findSnapshots),
+          contents.snapshotIds(),
+          resource.getFilename());
+      assertEquals(
+          pfbQuartzJob.withPfbStream(resource.getURI(), pfbQuartzJob::hasNresConsentGroup),
+          contents.hasNresConsentGroup(),
+          resource.getFilename());
+    }
+  }
+
   @Test
   void hasNresConsentGroupReturnsCorrectValues() throws IOException {
     PfbQuartzJob pfbQuartzJob = testSupport.buildPfbQuartzJob();
@@ -393,4 +429,39 @@ class PfbQuartzJobTest extends ControlPlaneTestBase {
 
     verify(jobDao).running(jobId);
   }
+
+  @Test
+  void deletesTempFileWhenDownloadFails(@TempDir Path tempDir) throws IOException {
+    when(dataImportProperties.getTempDir()).thenReturn(tempDir.toString());
+    URI missing = tempDir.resolve("missing.avro").toUri();
+
+    PfbQuartzJob pfbQuartzJob = testSupport.buildPfbQuartzJob();
+    assertThrows(PfbParsingException.class, () -> pfbQuartzJob.downloadPfb(missing));
+
+    // the partial download was created in the configured directory, then deleted
+    try (Stream<Path> leftovers = Files.list(tempDir)) {
+      assertEquals(List.of(), leftovers.toList());
+    }
+  }
+
+  @Test
+  void downloadTimesOutWhenServerIsSilent(@TempDir Path tempDir) throws IOException {
+    when(dataImportProperties.getTempDir()).thenReturn(tempDir.toString());
+    when(dataImportProperties.getDownloadReadTimeout()).thenReturn(Duration.ofMillis(200));
+
+    PfbQuartzJob pfbQuartzJob = testSupport.buildPfbQuartzJob();
+    // the OS accepts connections to this socket, but nothing ever responds
+    try (ServerSocket silentServer = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+      URI silent =
+          URI.create("http://127.0.0.1:%d/file.avro".formatted(silentServer.getLocalPort()));
+
+      PfbParsingException thrown =
+          assertThrows(PfbParsingException.class, () -> pfbQuartzJob.downloadPfb(silent));
+
+      assertInstanceOf(SocketTimeoutException.class, thrown.getCause());
+    }
+    try (Stream<Path> leftovers = Files.list(tempDir)) {
+      assertEquals(List.of(), leftovers.toList());
+    }
+  }
 }
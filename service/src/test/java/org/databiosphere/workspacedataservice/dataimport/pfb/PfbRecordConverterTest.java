@@ -45,6 +45,7 @@ import org.springframework.test.annotation.DirtiesContext;
 class PfbRecordConverterTest extends ControlPlaneTestBase {
 
   @Autowired private PfbRecordConverter converter;
+  @Autowired private ObjectMapper objectMapper;
 
   // PFB "id" and "name" columns become the WDS Record id and type, respectively
   @Test
@@ -197,6 +198,121 @@ class PfbRecordConverterTest extends ControlPlaneTestBase {
         actual.getAttributeValue("embeddedObject"));
   }
 
+  // nested records and maps become the same JSON they would if rendered by GenericData and parsed
+  @Test
+  void nestedValuesAsGenericDataRendersThem() throws JsonProcessingException {
+    Schema fixedFourBytes =
+        Schema.createFixed("fixedFour", /* doc= */ null, /* space= */ null, /* size= */ 4);
+    Schema innerSchema =
+        Schema.createRecord(
+            "inner",
+            "doc",
+            "namespace",
+            false,
+            List.of(
+                new Schema.Field("anInt", Schema.create(Schema.Type.INT)),
+                new Schema.Field("aLong", Schema.create(Schema.Type.LONG)),
+                new Schema.Field("bigLong", Schema.create(Schema.Type.LONG)),
+                new Schema.Field("aFloat", Schema.create(Schema.Type.FLOAT)),
+                new Schema.Field("aDouble", Schema.create(Schema.Type.DOUBLE)),
+                new Schema.Field("fixed", fixedFourBytes),
+                new Schema.Field(
+                    "nothing",
+                    Schema.createUnion(
+                        Schema.create(Schema.Type.NULL), Schema.create(Schema.Type.STRING))),
+                new Schema.Field("strings", Schema.createArray(Schema.create(Schema.Type.STRING))),
+                new Schema.Field(
+                    "mapOfDoubles", Schema.createMap(Schema.create(Schema.Type.DOUBLE)))));
+    Schema outerSchema =
+        Schema.createRecord(
+            "outer",
+            "doc",
+            "namespace",
+            false,
+            List.of(
+                new Schema.Field("inner", innerSchema),
+                new Schema.Field("quote", Schema.create(Schema.Type.STRING))));
+    Schema objectSchema =
+        Schema.createRecord(
+            "withNested",
+            "doc",
+            "namespace",
+            false,
+            List.of(new Schema.Field("outer", outerSchema)));
+
+    GenericData.Record inner =
+        new GenericRecordBuilder(innerSchema)
+            .set("anInt", 7)
+            .set("aLong", 8L)
+            .set("bigLong", Long.MAX_VALUE)
+            .set("aFloat", 0.1F)
+            .set("aDouble", 1.0E10)
+            .set("fixed", new GenericData.Fixed(fixedFourBytes, new byte[] {1, -2, 3, 4}))
+            .set("nothing", null)
+            .set("strings", List.of("a", "b"))
+            .set("mapOfDoubles", Map.of("x", 2.5))
+            .build();
+    GenericData.Record outer =
+        new GenericRecordBuilder(outerSchema)
+            .set("inner", inner)
+            .set("quote", "say \"hi\"\n")
+            .build();
+    GenericRecord input =
+        PfbTestUtils.makeRecord(
+            "my-id", "mytype", new GenericRecordBuilder(objectSchema).set("outer", outer).build());
+
+    Record actual = converter.convert(input, ImportMode.BASE_ATTRIBUTES);
+
+    JsonAttribute actualJson =
+        assertInstanceOf(JsonAttribute.class, actual.getAttributeValue("outer"));
+    assertEquals(objectMapper.readTree(GenericData.get().toString(outer)), actualJson.jsonValue());
+  }
+
+  // one converter converts records of several schemas, as a PFB's tables have
+  @Test
+  void recordsOfSeveralSchemas() {
+    Schema numberSchema =
+        Schema.createRecord(
+            "numbers",
+            "doc",
+            "namespace",
+            false,
+            List.of(new Schema.Field("value", Schema.create(Schema.Type.LONG))));
+    Schema stringSchema =
+        Schema.createRecord(
+            "strings",
+            "doc",
+            "namespace",
+            false,
+            List.of(
+                new Schema.Field("other", Schema.create(Schema.Type.BOOLEAN)),
+                new Schema.Field("value", Schema.create(Schema.Type.STRING))));
+
+    for (int i = 0; i < 3; i++) {
+      Record number =
+          converter.convert(
+              PfbTestUtils.makeRecord(
+                  "n" + i,
+                  "numbers",
+                  new GenericRecordBuilder(numberSchema).set("value", 5L).build()),
+              ImportMode.BASE_ATTRIBUTES);
+      Record string =
+          converter.convert(
+              PfbTestUtils.makeRecord(
+                  "s" + i,
+                  "strings",
+                  new GenericRecordBuilder(stringSchema)
+                      .set("other", true)
+                      .set("value", "five")
+                      .build()),
+              ImportMode.BASE_ATTRIBUTES);
+
+      assertEquals(BigDecimal.valueOf(5L), number.getAttributeValue("value"));
+      assertEquals("five", string.getAttributeValue("value"));
+      assertEquals(Boolean.TRUE, string.getAttributeValue("other"));
+    }
+  }
+
   @Test
   void relationsInRecord() {
     GenericData.Record relation = new GenericData.Record(RELATION_SCHEMA);
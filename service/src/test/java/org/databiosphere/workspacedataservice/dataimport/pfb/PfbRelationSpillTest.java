@@ -0,0 +1,66 @@
+package org.databiosphere.workspacedataservice.dataimport.pfb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
+import org.databiosphere.workspacedataservice.shared.model.OperationType;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.databiosphere.workspacedataservice.shared.model.attributes.RelationAttribute;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PfbRelationSpillTest {
+
+  private static final RecordType SAMPLE = RecordType.valueOf("sample");
+  private static final RecordType SUBJECT = RecordType.valueOf("subject");
+  private static final RecordType PROJECT = RecordType.valueOf("project");
+
+  @TempDir Path tempDir;
+
+  @Test
+  void replaysSpilledRelationsInBatches() throws IOException {
+    Record first =
+        new Record(
+            "s1",
+            SAMPLE,
+            RecordAttributes.empty()
+                .putAttribute("subject", new RelationAttribute(SUBJECT, "subj-1"))
+                .putAttribute("project", new RelationAttribute(PROJECT, "proj-ü")));
+    Record noRelations = new Record("s2", SAMPLE, RecordAttributes.empty());
+    Record second =
+        new Record(
+            "subj-1",
+            SUBJECT,
+            RecordAttributes.empty().putAttribute("project", new RelationAttribute(PROJECT, "p")));
+
+    try (PfbRelationSpill spill = PfbRelationSpill.create(tempDir)) {
+      spill.write(first);
+      spill.write(noRelations);
+      spill.write(second);
+      // records without relations are not spilled
+      assertEquals(2, spill.getRecordCount());
+
+      try (RecordSource replay = spill.replay()) {
+        assertEquals(ImportMode.RELATIONS, replay.importMode());
+
+        RecordSource.WriteStreamInfo batch = replay.readRecords(1);
+        assertEquals(OperationType.UPSERT, batch.operationType());
+        assertEquals(List.of(first), batch.records());
+        assertEquals(first.getAttributes(), batch.records().get(0).getAttributes());
+
+        batch = replay.readRecords(5);
+        assertEquals(List.of(second), batch.records());
+        assertEquals(second.getAttributes(), batch.records().get(0).getAttributes());
+
+        assertTrue(replay.readRecords(5).records().isEmpty());
+      }
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.databiosphere.workspacedataservice.dataimport.ImportJobInput;
 import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel;
 import org.databiosphere.workspacedataservice.service.ImportService;
 import org.mockito.Mockito;
+import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.springframework.core.io.Resource;
@@ -178,7 +179,10 @@ public class PfbTestUtils {
                 .build());
 
     JobDetail jobDetail = schedulable.getJobDetail();
-    when(mockContext.getMergedJobDataMap()).thenReturn(jobDetail.getJobDataMap());
+    // JobTokenListener adds the job's auth token to its merged data when the job runs
+    JobDataMap mergedJobData = new JobDataMap(jobDetail.getJobDataMap());
+    schedulable.getToken().ifPresent(token -> mergedJobData.put(ARG_TOKEN, token));
+    when(mockContext.getMergedJobDataMap()).thenReturn(mergedJobData);
     when(mockContext.getJobDetail()).thenReturn(jobDetail);
 
     return mockContext;
@@ -20,6 +20,7 @@ import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel
 import org.databiosphere.workspacedataservice.pubsub.PubSub;
 import org.databiosphere.workspacedataservice.service.ImportService;
 import org.databiosphere.workspacedataservice.storage.GcsStorage;
+import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -65,7 +66,10 @@ public class RawlsJsonTestSupport {
                 .build());
 
     JobDetail jobDetail = schedulable.getJobDetail();
-    when(mockContext.getMergedJobDataMap()).thenReturn(jobDetail.getJobDataMap());
+    // JobTokenListener adds the job's auth token to its merged data when the job runs
+    JobDataMap mergedJobData = new JobDataMap(jobDetail.getJobDataMap());
+    schedulable.getToken().ifPresent(token -> mergedJobData.put(ARG_TOKEN, token));
+    when(mockContext.getMergedJobDataMap()).thenReturn(mergedJobData);
     when(mockContext.getJobDetail()).thenReturn(jobDetail);
 
     return mockContext;
@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import bio.terra.datarepo.model.RelationshipModel;
+import bio.terra.datarepo.model.RelationshipTermModel;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
@@ -14,6 +16,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.Schema.Type;
@@ -27,6 +30,7 @@ import org.apache.parquet.hadoop.util.HadoopInputFile;
 import org.apache.parquet.io.InputFile;
 import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
 import org.databiosphere.workspacedataservice.recordsource.RecordSource;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
 import org.databiosphere.workspacedataservice.service.model.TdrManifestImportTable;
 import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
@@ -334,6 +338,54 @@ class ParquetDataTypesTest extends ControlPlaneTestBase {
     }
   }
 
+  @Test
+  void relationsProjection() throws IOException {
+    TdrManifestImportTable testTable =
+        new TdrManifestImportTable(
+            RecordType.valueOf("person"),
+            "id",
+            /* dataFiles= */ List.of(),
+            List.of(
+                new RelationshipModel()
+                    .name("person_samples")
+                    .from(new RelationshipTermModel().table("person").column("samples"))
+                    .to(new RelationshipTermModel().table("sample").column("id"))));
+    ParquetRecordConverter converter = new ParquetRecordConverter(testTable, mapper);
+    InputFile arraysFile =
+        HadoopInputFile.fromPath(new Path(arraysParquet.getURL().toString()), new Configuration());
+
+    List<GenericRecord> projected =
+        readAll(TdrManifestQuartzJob.readerForColumns(arraysFile, Set.of("id", "samples")));
+    List<GenericRecord> full = readAll(TdrManifestQuartzJob.readerForFile(arraysFile));
+
+    // only the requested columns are read...
+    assertThat(full.get(0).getSchema().getFields()).hasSizeGreaterThan(2);
+    projected.forEach(
+        rec ->
+            assertThat(rec.getSchema().getFields())
+                .extracting(Field::name)
+                .containsExactlyInAnyOrder("id", "samples"));
+    // ...and they are enough to find the same relations
+    assertThat(projected.stream().map(rec -> relationsOf(converter, rec)))
+        .containsExactlyElementsOf(full.stream().map(rec -> relationsOf(converter, rec)).toList());
+  }
+
+  private static RecordAttributes relationsOf(
+      ParquetRecordConverter converter, GenericRecord genericRecord) {
+    return converter.convert(genericRecord, ImportMode.RELATIONS).getAttributes();
+  }
+
+  private static List<GenericRecord> readAll(ParquetReader<GenericRecord> reader)
+      throws IOException {
+    try (reader) {
+      List<GenericRecord> genericRecords = new ArrayList<>();
+      for (GenericRecord rec = reader.read(); rec != null; rec = reader.read()) {
+        genericRecords.add(rec);
+      }
+      return genericRecords;
+    }
+  }
+
   // This is set up to replicate the scenario detected by AJ-1844
   @Test
   void primaryKeyIsNormallyIncluded() {
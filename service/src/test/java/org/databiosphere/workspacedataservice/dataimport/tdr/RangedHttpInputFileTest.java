@@ -0,0 +1,145 @@
+package org.databiosphere.workspacedataservice.dataimport.tdr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Tests RangedHttpInputFile against a local HTTP server which honors Range headers. */
+class RangedHttpInputFileTest {
+
+  private static final Pattern RANGE = Pattern.compile("^bytes=(\\d+)-(\\d+)$");
+  private static final String PARQUET = "parquet/v2f/all_data_types.parquet";
+
+  private HttpServer server;
+  private final AtomicInteger rangeRequests = new AtomicInteger();
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::serve);
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @ParameterizedTest(name = "read-ahead of {0} bytes")
+  @ValueSource(ints = {16, 4096, RangedHttpInputFile.DEFAULT_READ_AHEAD_BYTES})
+  void readsSameRecordsAsLocalFile(int readAheadBytes) throws IOException {
+    URL local = resource(PARQUET);
+    InputFile localFile =
+        HadoopInputFile.fromPath(
+            new org.apache.hadoop.fs.Path(local.getPath()), new Configuration());
+    RangedHttpInputFile remoteFile = RangedHttpInputFile.open(serverUrl(PARQUET), readAheadBytes);
+
+    assertThat(remoteFile.getLength()).isEqualTo(localFile.getLength());
+    assertThat(readAll(remoteFile)).isEqualTo(readAll(localFile));
+  }
+
+  @Test
+  void readAheadBuffersSmallReads() throws IOException {
+    RangedHttpInputFile remoteFile = RangedHttpInputFile.open(serverUrl(PARQUET), 1024);
+    rangeRequests.set(0);
+    try (SeekableInputStream stream = remoteFile.newStream()) {
+      for (int i = 0; i < 100; i++) {
+        stream.read();
+      }
+      stream.seek(10);
+      stream.readFully(new byte[10]);
+      assertThat(stream.getPos()).isEqualTo(20);
+    }
+    assertThat(rangeRequests.get()).isEqualTo(1);
+  }
+
+  @Test
+  void emptyFileHasZeroLength() throws IOException {
+    assertThat(RangedHttpInputFile.open(serverUrl("parquet/empty.parquet")).getLength()).isZero();
+  }
+
+  @Test
+  void missingFile() {
+    assertThrows(IOException.class, () -> RangedHttpInputFile.open(serverUrl("does/not/exist")));
+  }
+
+  private List<String> readAll(InputFile inputFile) throws IOException {
+    List<String> records = new ArrayList<>();
+    try (ParquetReader<GenericRecord> reader = TdrManifestQuartzJob.readerForFile(inputFile)) {
+      for (GenericRecord record = reader.read(); record != null; record = reader.read()) {
+        records.add(record.toString());
+      }
+    }
+    return records;
+  }
+
+  private URL serverUrl(String path) throws IOException {
+    return new URL("http://localhost:%d/%s".formatted(server.getAddress().getPort(), path));
+  }
+
+  private URL resource(String path) {
+    URL url = getClass().getClassLoader().getResource(path);
+    assertThat(url).isNotNull();
+    return url;
+  }
+
+  private void serve(HttpExchange exchange) throws IOException {
+    String path = exchange.getRequestURI().getPath().substring(1);
+    URL resource = getClass().getClassLoader().getResource(path);
+    if (resource == null) {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+      return;
+    }
+    byte[] content;
+    try (InputStream in = resource.openStream()) {
+      content = in.readAllBytes();
+    }
+    String rangeHeader = exchange.getRequestHeaders().getFirst("Range");
+    Matcher range = RANGE.matcher(rangeHeader == null ? "" : rangeHeader);
+    if (!range.matches()) {
+      exchange.sendResponseHeaders(400, -1);
+      exchange.close();
+      return;
+    }
+    rangeRequests.incrementAndGet();
+    int start = Integer.parseInt(range.group(1));
+    if (start >= content.length) {
+      exchange.getResponseHeaders().add("Content-Range", "bytes */" + content.length);
+      exchange.sendResponseHeaders(416, -1);
+      exchange.close();
+      return;
+    }
+    int end = Math.min(Integer.parseInt(range.group(2)), content.length - 1);
+    exchange
+        .getResponseHeaders()
+        .add("Content-Range", "bytes %d-%d/%d".formatted(start, end, content.length));
+    exchange.sendResponseHeaders(206, end - start + 1);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(content, start, end - start + 1);
+    }
+  }
+}
@@ -15,6 +15,7 @@ import java.util.UUID;
 import org.databiosphere.workspacedataservice.dataimport.ImportJobInput;
 import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel.TypeEnum;
 import org.databiosphere.workspacedataservice.service.ImportService;
+import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.springframework.core.io.Resource;
@@ -58,7 +59,10 @@ public class TdrManifestTestUtils {
                 .build());
 
     JobDetail jobDetail = schedulable.getJobDetail();
-    when(mockContext.getMergedJobDataMap()).thenReturn(jobDetail.getJobDataMap());
+    // JobTokenListener adds the job's auth token to its merged data when the job runs
+    JobDataMap mergedJobData = new JobDataMap(jobDetail.getJobDataMap());
+    schedulable.getToken().ifPresent(token -> mergedJobData.put(ARG_TOKEN, token));
+    when(mockContext.getMergedJobDataMap()).thenReturn(mergedJobData);
     when(mockContext.getJobDetail()).thenReturn(jobDetail);
 
     return mockContext;
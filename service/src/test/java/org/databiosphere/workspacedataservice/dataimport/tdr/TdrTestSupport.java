@@ -8,6 +8,7 @@ import org.databiosphere.workspacedataservice.activitylog.ActivityLogger;
 import org.databiosphere.workspacedataservice.config.DataImportProperties;
 import org.databiosphere.workspacedataservice.dao.JobDao;
 import org.databiosphere.workspacedataservice.dataimport.ImportDetailsRetriever;
+import org.databiosphere.workspacedataservice.dataimport.ParallelFileDownloader;
 import org.databiosphere.workspacedataservice.dataimport.snapshotsupport.MultiCloudSnapshotSupportFactory;
 import org.databiosphere.workspacedataservice.metrics.ImportMetrics;
 import org.databiosphere.workspacedataservice.recordsink.RecordSinkFactory;
@@ -34,6 +35,7 @@ class TdrTestSupport {
   @Autowired private DataImportProperties dataImportProperties;
   @Autowired private MultiCloudSnapshotSupportFactory snapshotSupportFactory;
   @Autowired private InstantSource instantSource;
+  @Autowired private ParallelFileDownloader fileDownloader;
 
   /** Returns a TdrManifestQuartzJob that is capable of pulling parquet files from the classpath. */
   TdrManifestQuartzJob buildTdrManifestQuartzJob() {
@@ -50,7 +52,8 @@ class TdrTestSupport {
         snapshotSupportFactory,
         samDao,
         importDetailsRetriever,
-        instantSource) {
+        instantSource,
+        fileDownloader) {
       @Override
       protected URL parseUrl(String path) {
         if (path.startsWith("classpath:")) {
@@ -0,0 +1,178 @@
+package org.databiosphere.workspacedataservice.jobexec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.shared.model.Schedulable.ARG_COLLECTION;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Map;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
+import org.databiosphere.workspacedataservice.dao.JobDao;
+import org.databiosphere.workspacedataservice.dataimport.ImportJobInput;
+import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel;
+import org.databiosphere.workspacedataservice.generated.ImportRequestServerModel.TypeEnum;
+import org.databiosphere.workspacedataservice.shared.model.CollectionId;
+import org.databiosphere.workspacedataservice.shared.model.job.Job;
+import org.databiosphere.workspacedataservice.shared.model.job.JobInput;
+import org.databiosphere.workspacedataservice.shared.model.job.JobResult;
+import org.databiosphere.workspacedataservice.shared.model.job.JobType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+@DirtiesContext
+@SpringBootTest
+class CollectionConcurrencyLimiterTest extends ControlPlaneTestBase {
+
+  private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+  private static final Duration DEFERRAL = Duration.ofSeconds(30);
+
+  @Autowired NamedParameterJdbcTemplate namedTemplate;
+  @Autowired JobDao jobDao;
+
+  private final Scheduler scheduler = mock(Scheduler.class);
+
+  @AfterEach
+  void afterEach() {
+    namedTemplate.getJdbcTemplate().update("delete from sys_wds.qrtz_fired_triggers;");
+    namedTemplate.getJdbcTemplate().update("delete from sys_wds.job;");
+  }
+
+  @Test
+  void firstJobsRunWhenManyFireTogether() throws SchedulerException {
+    CollectionConcurrencyLimiter limiter = limiter(2);
+    UUID collectionId = UUID.randomUUID();
+    // three jobs for the same collection fire at the same moment
+    JobExecutionContext first = fire(collectionId, "entry-1", 1000);
+    JobExecutionContext second = fire(collectionId, "entry-2", 1000);
+    JobExecutionContext third = fire(collectionId, "entry-3", 1000);
+
+    // every job sees the same ranking, in whatever order they ask
+    assertThat(limiter.vetoJobExecution(triggerFor(third), third)).isTrue();
+    assertThat(limiter.vetoJobExecution(triggerFor(second), second)).isFalse();
+    assertThat(limiter.vetoJobExecution(triggerFor(first), first)).isFalse();
+
+    // the vetoed job is scheduled again, after the deferral plus up to the same again
+    ArgumentCaptor<Trigger> retry = ArgumentCaptor.forClass(Trigger.class);
+    verify(scheduler).scheduleJob(retry.capture());
+    assertThat(retry.getValue().getJobKey()).isEqualTo(third.getJobDetail().getKey());
+    assertThat(retry.getValue().getStartTime().toInstant())
+        .isBetween(NOW.plus(DEFERRAL), NOW.plus(DEFERRAL.multipliedBy(2)));
+  }
+
+  @Test
+  void earlierJobsKeepTheirPlaces() {
+    CollectionConcurrencyLimiter limiter = limiter(1);
+    UUID collectionId = UUID.randomUUID();
+    JobExecutionContext running = fire(collectionId, "entry-b", 1000);
+    JobExecutionContext later = fire(collectionId, "entry-a", 2000);
+
+    assertThat(limiter.vetoJobExecution(triggerFor(later), later)).isTrue();
+    assertThat(limiter.vetoJobExecution(triggerFor(running), running)).isFalse();
+  }
+
+  @Test
+  void otherCollectionsDoNotCount() throws SchedulerException {
+    CollectionConcurrencyLimiter limiter = limiter(1);
+    fire(UUID.randomUUID(), "entry-1", 1000);
+    fire(UUID.randomUUID(), "entry-2", 1000);
+    JobExecutionContext job = fire(UUID.randomUUID(), "entry-3", 1000);
+
+    assertThat(limiter.vetoJobExecution(triggerFor(job), job)).isFalse();
+    verify(scheduler, never()).scheduleJob(any(Trigger.class));
+  }
+
+  @Test
+  void noLimitWhenMaxIsZero() {
+    CollectionConcurrencyLimiter limiter = limiter(0);
+    UUID collectionId = UUID.randomUUID();
+    fire(collectionId, "entry-1", 1000);
+    JobExecutionContext job = fire(collectionId, "entry-2", 1000);
+
+    assertThat(limiter.vetoJobExecution(triggerFor(job), job)).isFalse();
+  }
+
+  @Test
+  void noLimitWithoutFiredTriggerRow() {
+    // e.g. with the in-memory job store
+    CollectionConcurrencyLimiter limiter = limiter(1);
+    UUID collectionId = UUID.randomUUID();
+    fire(collectionId, "entry-1", 1000);
+    JobExecutionContext job = context(createJob(collectionId), collectionId, "not-fired");
+
+    assertThat(limiter.vetoJobExecution(triggerFor(job), job)).isFalse();
+  }
+
+  private CollectionConcurrencyLimiter limiter(int maxConcurrentPerCollection) {
+    return new CollectionConcurrencyLimiter(
+        namedTemplate,
+        InstantSource.fixed(NOW),
+        new SimpleMeterRegistry(),
+        maxConcurrentPerCollection,
+        DEFERRAL);
+  }
+
+  // create a job for the collection, record it in Quartz's fired triggers as executing
+  private JobExecutionContext fire(UUID collectionId, String entryId, long firedTime) {
+    UUID jobId = createJob(collectionId);
+    namedTemplate.update(
+        "insert into sys_wds.qrtz_fired_triggers(sched_name, entry_id, trigger_name, "
+            + "trigger_group, instance_name, fired_time, sched_time, priority, state, job_name, "
+            + "job_group) values ('test', :entryId, :entryId, 'test', 'other-replica', "
+            + ":firedTime, :firedTime, 5, 'EXECUTING', :jobName, 'PFB')",
+        new MapSqlParameterSource("entryId", entryId)
+            .addValue("firedTime", firedTime)
+            .addValue("jobName", jobId.toString()));
+    return context(jobId, collectionId, entryId);
+  }
+
+  private UUID createJob(UUID collectionId) {
+    ImportJobInput input =
+        ImportJobInput.from(
+            new ImportRequestServerModel(TypeEnum.PFB, URI.create("http://some/uri")));
+    Job<JobInput, JobResult> job =
+        Job.newJob(CollectionId.of(collectionId), JobType.DATA_IMPORT, input);
+    jobDao.createJob(job);
+    return job.getJobId();
+  }
+
+  private JobExecutionContext context(UUID jobId, UUID collectionId, String entryId) {
+    JobExecutionContext context = mock(JobExecutionContext.class);
+    JobDetail jobDetail = mock(JobDetail.class);
+    when(jobDetail.getKey()).thenReturn(new JobKey(jobId.toString(), "PFB"));
+    when(context.getJobDetail()).thenReturn(jobDetail);
+    when(context.getMergedJobDataMap())
+        .thenReturn(new JobDataMap(Map.of(ARG_COLLECTION, collectionId.toString())));
+    when(context.getFireInstanceId()).thenReturn(entryId);
+    when(context.getScheduler()).thenReturn(scheduler);
+    return context;
+  }
+
+  private static Trigger triggerFor(JobExecutionContext context) {
+    Trigger trigger = mock(Trigger.class);
+    JobKey jobKey = context.getJobDetail().getKey();
+    when(trigger.getJobKey()).thenReturn(jobKey);
+    return trigger;
+  }
+}
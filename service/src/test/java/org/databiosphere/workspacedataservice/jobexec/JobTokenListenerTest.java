@@ -0,0 +1,95 @@
+package org.databiosphere.workspacedataservice.jobexec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.shared.model.Schedulable.ARG_TOKEN;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.dao.JobTokenDao;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.impl.JobDetailImpl;
+
+class JobTokenListenerTest {
+
+  private final JobTokenDao jobTokenDao = mock(JobTokenDao.class);
+  private final JobTokenListener listener = new JobTokenListener(jobTokenDao);
+
+  @Test
+  void restoresTokenBeforeJobRuns() {
+    UUID jobId = UUID.randomUUID();
+    when(jobTokenDao.get(jobId)).thenReturn(Optional.of("my-token"));
+    JobExecutionContext context = context(jobId.toString(), new JobDataMap());
+
+    listener.jobToBeExecuted(context);
+
+    assertThat(context.getMergedJobDataMap().getString(ARG_TOKEN)).isEqualTo("my-token");
+  }
+
+  @Test
+  void keepsTokenAlreadyInJobData() {
+    UUID jobId = UUID.randomUUID();
+    JobExecutionContext context =
+        context(jobId.toString(), new JobDataMap(Map.of(ARG_TOKEN, "in-memory-token")));
+
+    listener.jobToBeExecuted(context);
+
+    assertThat(context.getMergedJobDataMap().getString(ARG_TOKEN)).isEqualTo("in-memory-token");
+    verify(jobTokenDao, never()).get(any());
+  }
+
+  @Test
+  void leavesJobDataAloneWhenNoTokenFound() {
+    UUID jobId = UUID.randomUUID();
+    when(jobTokenDao.get(jobId)).thenReturn(Optional.empty());
+    JobExecutionContext context = context(jobId.toString(), new JobDataMap());
+
+    listener.jobToBeExecuted(context);
+
+    assertThat(context.getMergedJobDataMap().containsKey(ARG_TOKEN)).isFalse();
+  }
+
+  @Test
+  void deletesTokenAfterJobRuns() {
+    UUID jobId = UUID.randomUUID();
+
+    listener.jobWasExecuted(context(jobId.toString(), new JobDataMap()), null);
+
+    verify(jobTokenDao).delete(jobId);
+  }
+
+  @Test
+  void keepsTokenWhenJobIsVetoed() {
+    UUID jobId = UUID.randomUUID();
+
+    listener.jobExecutionVetoed(context(jobId.toString(), new JobDataMap()));
+
+    verify(jobTokenDao, never()).delete(any());
+  }
+
+  @Test
+  void ignoresJobsNotNamedByJobId() {
+    listener.jobToBeExecuted(context("not-a-uuid", new JobDataMap()));
+    listener.jobWasExecuted(context("not-a-uuid", new JobDataMap()), null);
+
+    verify(jobTokenDao, never()).get(any());
+    verify(jobTokenDao, never()).delete(any());
+  }
+
+  private static JobExecutionContext context(String jobName, JobDataMap mergedJobData) {
+    JobDetailImpl jobDetail = new JobDetailImpl();
+    jobDetail.setKey(new JobKey(jobName, "my-group"));
+    JobExecutionContext context = mock(JobExecutionContext.class);
+    when(context.getJobDetail()).thenReturn(jobDetail);
+    when(context.getMergedJobDataMap()).thenReturn(mergedJobData);
+    return context;
+  }
+}
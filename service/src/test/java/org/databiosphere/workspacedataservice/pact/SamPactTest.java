@@ -12,7 +12,9 @@ import au.com.dius.pact.consumer.junit5.PactTestFor;
 import au.com.dius.pact.core.model.PactSpecVersion;
 import au.com.dius.pact.core.model.RequestResponsePact;
 import au.com.dius.pact.core.model.annotations.Pact;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.micrometer.observation.tck.TestObservationRegistry;
+import java.time.Duration;
 import java.util.Map;
 import org.broadinstitute.dsde.workbench.client.sam.model.SystemStatus;
 import org.databiosphere.workspacedataservice.retry.RestClientRetry;
@@ -270,7 +272,9 @@ class SamPactTest {
   private SamAuthorizationDaoFactory samAuthorizationDaoFactory(MockServer mockServer) {
     return new SamAuthorizationDaoFactory(
         new HttpSamClientFactory(mockServer.getUrl()),
-        new RestClientRetry(TestObservationRegistry.create()));
+        new RestClientRetry(TestObservationRegistry.create()),
+        // every interaction must reach the mock server
+        new SamPermissionCache(Duration.ZERO, 0, new SimpleMeterRegistry()));
   }
 
   private WorkspaceId dummyWorkspaceId() {
@@ -0,0 +1,192 @@
+package org.databiosphere.workspacedataservice.recordsource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbRecordConverter.RELATIONS_ID;
+import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbRecordConverter.RELATIONS_NAME;
+import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbTestUtils.OBJECT_SCHEMA;
+import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbTestUtils.RECORD_SCHEMA;
+import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbTestUtils.RELATION_ARRAY_SCHEMA;
+import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbTestUtils.RELATION_SCHEMA;
+import static org.databiosphere.workspacedataservice.dataimport.pfb.PfbTestUtils.makeRecord;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.databiosphere.workspacedataservice.dataimport.pfb.PfbRelationSpill;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class BlockParallelPfbRecordSourceTest {
+
+  private static final int ROWS = 1000;
+
+  private final ObjectMapper objectMapper = new JsonConfig().objectMapper();
+  private final ExecutorService workers = Executors.newFixedThreadPool(3);
+
+  @TempDir Path tempDir;
+  private Path pfbFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    pfbFile = tempDir.resolve("many-blocks.avro");
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(RECORD_SCHEMA))) {
+      // small, compressed blocks, so the file has many
+      writer.setCodec(CodecFactory.deflateCodec(6));
+      writer.setSyncInterval(256);
+      writer.create(RECORD_SCHEMA, pfbFile.toFile());
+      for (int i = 0; i < ROWS; i++) {
+        if (i % 2 == 0) {
+          writer.append(makeRecord("sample" + i, "sample"));
+        } else {
+          GenericRecord relation =
+              new GenericRecordBuilder(RELATION_SCHEMA)
+                  .set(RELATIONS_ID, "sample" + (i - 1))
+                  .set(RELATIONS_NAME, "sample")
+                  .build();
+          writer.append(
+              makeRecord(
+                  "file" + i,
+                  "file",
+                  new GenericData.Record(OBJECT_SCHEMA),
+                  new GenericData.Array<>(RELATION_ARRAY_SCHEMA, List.of(relation))));
+        }
+      }
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    workers.shutdownNow();
+  }
+
+  @ParameterizedTest(name = "split size {0}")
+  @ValueSource(longs = {100, 1000, 4096, 1024 * 1024})
+  void readsTheSameRecordsAndRelationsInOrder(long splitBytes) throws IOException {
+    List<Record> expected;
+    List<Record> expectedRelations;
+    try (PfbRelationSpill spill = PfbRelationSpill.create(tempDir);
+        InputStream in = Files.newInputStream(pfbFile);
+        DataFileStream<GenericRecord> stream =
+            new DataFileStream<>(in, new GenericDatumReader<>())) {
+      expected = readAll(new PfbRecordSource(stream, objectMapper, spill), 64);
+      expectedRelations = readAll(spill.replay(), 64);
+    }
+
+    List<Record> actual;
+    List<Record> actualRelations;
+    try (PfbRelationSpill spill = PfbRelationSpill.create(tempDir)) {
+      try (RecordSource source =
+          new BlockParallelPfbRecordSource(
+              pfbFile, objectMapper, spill, workers, /* parallelism= */ 3, splitBytes)) {
+        // a batch size that doesn't divide the splits evenly
+        actual = readAll(source, 37);
+      }
+      actualRelations = readAll(spill.replay(), 64);
+    }
+
+    assertThat(actual).hasSize(ROWS);
+    assertThat(ids(actual)).containsExactlyElementsOf(ids(expected));
+    assertThat(actual)
+        .extracting(Record::getAttributes)
+        .containsExactlyElementsOf(expected.stream().map(Record::getAttributes).toList());
+    assertThat(actualRelations).hasSize(ROWS / 2);
+    assertThat(ids(actualRelations)).containsExactlyElementsOf(ids(expectedRelations));
+    assertThat(actualRelations)
+        .extracting(Record::getAttributes)
+        .containsExactlyElementsOf(expectedRelations.stream().map(Record::getAttributes).toList());
+  }
+
+  @Test
+  void emptyPfb() throws IOException {
+    Path empty = tempDir.resolve("empty.avro");
+    try (DataFileWriter<GenericRecord> writer =
+        new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(RECORD_SCHEMA))) {
+      writer.create(RECORD_SCHEMA, empty.toFile());
+    }
+
+    try (PfbRelationSpill spill = PfbRelationSpill.create(tempDir);
+        RecordSource source =
+            new BlockParallelPfbRecordSource(
+                empty, objectMapper, spill, workers, /* parallelism= */ 2, /* splitBytes= */ 16)) {
+      assertThat(source.readRecords(10).records()).isEmpty();
+      assertThat(spill.getRecordCount()).isZero();
+    }
+  }
+
+  @Test
+  void reusesReadersAcrossSplits() throws IOException {
+    try (PfbRelationSpill spill = PfbRelationSpill.create(tempDir);
+        BlockParallelPfbRecordSource source =
+            new BlockParallelPfbRecordSource(
+                pfbFile,
+                objectMapper,
+                spill,
+                workers,
+                /* parallelism= */ 2,
+                /* splitBytes= */ 100)) {
+      int read = 0;
+      List<Record> batch;
+      do {
+        batch = source.readRecords(50).records();
+        read += batch.size();
+        // never more readers than splits decoded at once
+        assertThat(source.idleReaderCount()).isLessThanOrEqualTo(2);
+      } while (!batch.isEmpty());
+
+      assertThat(read).isEqualTo(ROWS);
+      assertThat(source.idleReaderCount()).isPositive();
+      source.close();
+      assertThat(source.idleReaderCount()).isZero();
+    }
+  }
+
+  @Test
+  void splitBytesForFileSize() {
+    long mb = 1024L * 1024L;
+    // small files get the smallest split
+    assertThat(BlockParallelPfbRecordSource.splitBytesFor(10 * mb, 4)).isEqualTo(4 * mb);
+    // a few splits per worker
+    assertThat(BlockParallelPfbRecordSource.splitBytesFor(320 * mb, 4)).isEqualTo(20 * mb);
+    // huge files get the largest split
+    assertThat(BlockParallelPfbRecordSource.splitBytesFor(100_000 * mb, 4)).isEqualTo(32 * mb);
+    assertThat(BlockParallelPfbRecordSource.splitBytesFor(0, 0)).isEqualTo(4 * mb);
+  }
+
+  private static List<Record> readAll(RecordSource source, int batchSize) throws IOException {
+    try (source) {
+      List<Record> records = new ArrayList<>();
+      List<Record> batch;
+      do {
+        batch = source.readRecords(batchSize).records();
+        assertThat(batch.size()).isLessThanOrEqualTo(batchSize);
+        records.addAll(batch);
+      } while (!batch.isEmpty());
+      return records;
+    }
+  }
+
+  private static List<String> ids(List<Record> records) {
+    return records.stream().map(Record::getId).toList();
+  }
+}
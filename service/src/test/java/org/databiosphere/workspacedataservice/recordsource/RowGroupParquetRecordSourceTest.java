@@ -0,0 +1,161 @@
+package org.databiosphere.workspacedataservice.recordsource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.LocalOutputFile;
+import org.databiosphere.workspacedataservice.dataimport.tdr.ParquetRowGroups;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource.ImportMode;
+import org.databiosphere.workspacedataservice.service.JsonConfig;
+import org.databiosphere.workspacedataservice.service.model.TdrManifestImportTable;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RowGroupParquetRecordSourceTest {
+
+  private static final int ROWS = 2000;
+  private static final TdrManifestImportTable TABLE =
+      new TdrManifestImportTable(RecordType.valueOf("thing"), "id", List.of(), List.of());
+
+  private final ObjectMapper objectMapper = new JsonConfig().objectMapper();
+
+  private final ExecutorService workers = Executors.newFixedThreadPool(3);
+
+  @TempDir Path tempDir;
+  private InputFile inputFile;
+
+  @AfterEach
+  void tearDown() {
+    workers.shutdownNow();
+  }
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Path file = tempDir.resolve("things.parquet");
+    Schema schema =
+        SchemaBuilder.record("things")
+            .fields()
+            .requiredString("id")
+            .optionalLong("n")
+            .optionalString("name")
+            .endRecord();
+    // small row groups, so the file has several
+    try (ParquetWriter<GenericRecord> writer =
+        AvroParquetWriter.<GenericRecord>builder(new LocalOutputFile(file))
+            .withSchema(schema)
+            .withRowGroupSize(4096L)
+            .build()) {
+      for (int i = 0; i < ROWS; i++) {
+        GenericData.Record rec = new GenericData.Record(schema);
+        rec.put("id", "thing" + i);
+        rec.put("n", i % 3 == 0 ? null : (long) i);
+        rec.put("name", "name of thing " + i);
+        writer.write(rec);
+      }
+    }
+    inputFile = new LocalInputFile(file);
+  }
+
+  @Test
+  void readsTheSameRecordsInOrder() throws IOException {
+    ParquetRowGroups rowGroups = ParquetRowGroups.open(inputFile, null);
+    assertThat(rowGroups.size()).isGreaterThan(3);
+
+    List<Record> expected;
+    try (RecordSource source =
+        new ParquetRecordSource(
+            rowGroups.reader(), ImportMode.BASE_ATTRIBUTES, TABLE, objectMapper)) {
+      expected = readAll(source, 100);
+    }
+    List<Record> actual;
+    try (RecordSource source =
+        new RowGroupParquetRecordSource(
+            rowGroups,
+            ImportMode.BASE_ATTRIBUTES,
+            TABLE,
+            objectMapper,
+            workers,
+            /* parallelism= */ 3)) {
+      // a batch size that doesn't divide the row groups evenly
+      actual = readAll(source, 77);
+    }
+
+    assertThat(actual).hasSize(ROWS);
+    assertThat(actual).extracting(Record::getId).containsExactlyElementsOf(ids(expected));
+    assertThat(actual)
+        .extracting(Record::getAttributes)
+        .containsExactlyElementsOf(expected.stream().map(Record::getAttributes).toList());
+  }
+
+  @Test
+  void projectsColumns() throws IOException {
+    ParquetRowGroups rowGroups = ParquetRowGroups.open(inputFile, Set.of("id", "n"));
+
+    try (RecordSource source =
+        new RowGroupParquetRecordSource(
+            rowGroups,
+            ImportMode.BASE_ATTRIBUTES,
+            TABLE,
+            objectMapper,
+            workers,
+            /* parallelism= */ 2)) {
+      List<Record> records = readAll(source, 500);
+
+      assertThat(records).hasSize(ROWS);
+      records.forEach(rec -> assertThat(rec.getAttributes().containsAttribute("name")).isFalse());
+    }
+  }
+
+  @Test
+  void closesBeforeTheEnd() throws IOException {
+    ParquetRowGroups rowGroups = ParquetRowGroups.open(inputFile, null);
+
+    RecordSource source =
+        new RowGroupParquetRecordSource(
+            rowGroups,
+            ImportMode.BASE_ATTRIBUTES,
+            TABLE,
+            objectMapper,
+            workers,
+            /* parallelism= */ 2);
+    assertThat(source.readRecords(10).records()).extracting(Record::getId).startsWith("thing0");
+    source.close();
+
+    // the workers are shared, so closing a source leaves them running
+    assertThat(workers.isShutdown()).isFalse();
+  }
+
+  private static List<Record> readAll(RecordSource source, int batchSize) throws IOException {
+    List<Record> records = new ArrayList<>();
+    List<Record> batch;
+    do {
+      batch = source.readRecords(batchSize).records();
+      assertThat(batch.size()).isLessThanOrEqualTo(batchSize);
+      records.addAll(batch);
+    } while (!batch.isEmpty());
+    return records;
+  }
+
+  private static List<String> ids(List<Record> records) {
+    return records.stream().map(Record::getId).toList();
+  }
+}
@@ -0,0 +1,105 @@
+package org.databiosphere.workspacedataservice.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.databiosphere.workspacedataservice.retry.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  // window of 10 calls, at least 4 calls, opens at 50% failures or 80% slow calls, for 30s
+  private final CircuitBreaker breaker =
+      new CircuitBreaker(10, 4, 0.5, 0.8, Duration.ofSeconds(30), clock::get);
+
+  @Test
+  void staysClosedBelowMinimumCalls() {
+    record(3, true, false);
+
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void opensAtFailureRateThreshold() {
+    record(2, false, false);
+    record(1, true, false);
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+    record(1, true, false);
+
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void opensAtSlowCallRateThreshold() {
+    record(1, false, false);
+    record(4, false, true);
+
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  void oldOutcomesLeaveTheWindow() {
+    record(4, true, false);
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+    probe(false);
+
+    // 10 successes then 4 failures: the window holds 6 successes and 4 failures
+    record(10, false, false);
+    record(4, true, false);
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+
+    record(1, true, false);
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  void halfOpenAfterOpenDurationAllowsOneProbe() {
+    record(4, true, false);
+
+    clock.addAndGet(Duration.ofSeconds(29).toNanos());
+    assertThat(breaker.tryAcquire()).isFalse();
+
+    clock.addAndGet(Duration.ofSeconds(1).toNanos());
+    assertThat(breaker.tryAcquire()).isTrue();
+    assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void successfulProbeCloses() {
+    record(4, true, false);
+
+    probe(false);
+
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    assertThat(breaker.tryAcquire()).isTrue();
+  }
+
+  @Test
+  void slowProbeReopens() {
+    record(4, true, false);
+
+    probe(true);
+
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+    assertThat(breaker.tryAcquire()).isFalse();
+  }
+
+  private void probe(boolean slowCall) {
+    clock.addAndGet(Duration.ofSeconds(30).toNanos());
+    assertThat(breaker.tryAcquire()).isTrue();
+    breaker.record(false, slowCall);
+  }
+
+  private void record(int calls, boolean failure, boolean slowCall) {
+    for (int i = 0; i < calls; i++) {
+      assertThat(breaker.tryAcquire()).isTrue();
+      breaker.record(failure, slowCall);
+    }
+  }
+}
@@ -36,7 +36,9 @@ import org.springframework.test.annotation.DirtiesContext;
 @SpringBootTest(
     properties = {
       "rest.retry.maxAttempts=2",
-      "rest.retry.backoff.delay=10"
+      "rest.retry.backoff.delay=10",
+      // these tests fail many calls in a row; see RestResilienceTest for circuit breaking
+      "rest.circuitBreaker.enabled=false"
     }) // aggressive retry settings so unit test doesn't run too long
 @EnableRetry
 @WithTestObservationRegistry
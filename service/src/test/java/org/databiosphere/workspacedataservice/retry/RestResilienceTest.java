@@ -0,0 +1,235 @@
+package org.databiosphere.workspacedataservice.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.broadinstitute.dsde.workbench.client.sam.ApiException;
+import org.databiosphere.workspacedataservice.jobexec.JobContextHolder;
+import org.databiosphere.workspacedataservice.retry.RestClientRetry.RestCall;
+import org.databiosphere.workspacedataservice.retry.RestResilience.Settings;
+import org.databiosphere.workspacedataservice.service.model.exception.CircuitOpenException;
+import org.databiosphere.workspacedataservice.service.model.exception.RestException;
+import org.databiosphere.workspacedataservice.service.model.exception.RestRetryableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for RestResilience, as used by RestClientRetry. */
+class RestResilienceTest {
+
+  private static final int MAX_ATTEMPTS = 5;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  // circuit breaker over 10 calls; retry budget of one retry per second
+  private final RestResilience resilience =
+      new RestResilience(settings(true), meterRegistry, ObservationRegistry.NOOP, clock::get);
+  private final RestClientRetry restClientRetry =
+      new RestClientRetry(ObservationRegistry.NOOP, resilience, MAX_ATTEMPTS);
+
+  private static Settings settings(boolean circuitBreakerEnabled) {
+    return settings(circuitBreakerEnabled, 4);
+  }
+
+  private static Settings settings(boolean circuitBreakerEnabled, int hedgingMaxThreads) {
+    return new Settings(
+        circuitBreakerEnabled,
+        10,
+        10,
+        0.5,
+        Duration.ofSeconds(5),
+        0.8,
+        Duration.ofSeconds(30),
+        0,
+        1,
+        true,
+        Duration.ofMillis(50),
+        hedgingMaxThreads);
+  }
+
+  @AfterEach
+  void tearDown() {
+    resilience.shutdown();
+    JobContextHolder.destroy();
+  }
+
+  @Test
+  void rejectsCallsWhileCircuitIsOpen() {
+    AtomicInteger calls = new AtomicInteger();
+    RestCall<Boolean> failing =
+        () -> {
+          calls.incrementAndGet();
+          throw new ApiException(503, "unavailable");
+        };
+    for (int i = 0; i < 10; i++) {
+      assertThatThrownBy(() -> restClientRetry.withRetryAndErrorHandling(failing, "Sam.unittest"))
+          .isInstanceOf(RestRetryableException.class);
+    }
+
+    assertThatThrownBy(() -> restClientRetry.withRetryAndErrorHandling(failing, "Sam.other"))
+        .isInstanceOf(CircuitOpenException.class);
+    assertThat(calls).hasValue(10);
+    assertThat(meterRegistry.get("wds.outbound.circuit.state").tag("target", "Sam").gauge().value())
+        .isEqualTo(2);
+    assertThat(meterRegistry.get("wds.outbound.circuit.rejected").counter().count()).isEqualTo(1);
+
+    // other targets are unaffected
+    assertThat(restClientRetry.withRetryAndErrorHandling(() -> true, "Rawls.unittest")).isTrue();
+
+    // after the open duration, a successful probe closes the circuit
+    clock.addAndGet(Duration.ofSeconds(30).toNanos());
+    assertThat(restClientRetry.withRetryAndErrorHandling(() -> true, "Sam.unittest")).isTrue();
+    assertThat(meterRegistry.get("wds.outbound.circuit.state").tag("target", "Sam").gauge().value())
+        .isZero();
+  }
+
+  @Test
+  void stopsRetryingWhenBudgetIsExhausted() {
+    RestResilience withoutCircuitBreaker =
+        new RestResilience(settings(false), meterRegistry, ObservationRegistry.NOOP, clock::get);
+    RestClientRetry restClientRetry =
+        new RestClientRetry(ObservationRegistry.NOOP, withoutCircuitBreaker, MAX_ATTEMPTS);
+    RestCall<Boolean> failing =
+        () -> {
+          throw new ApiException(0, "connection refused");
+        };
+    // the budget floor allows one retry per second, i.e. ten over the window
+    for (int i = 0; i < 10; i++) {
+      assertThatThrownBy(() -> restClientRetry.withRetryAndErrorHandling(failing, "Rawls.unittest"))
+          .isInstanceOf(RestRetryableException.class);
+    }
+
+    assertThatThrownBy(() -> restClientRetry.withRetryAndErrorHandling(failing, "Rawls.unittest"))
+        .isInstanceOf(RestException.class)
+        .isNotInstanceOf(RestRetryableException.class);
+    assertThat(
+            meterRegistry
+                .get("wds.outbound.retry.budget.exhausted")
+                .tag("target", "Rawls")
+                .counter()
+                .count())
+        .isEqualTo(1);
+
+    // the budget recovers as the window moves on
+    clock.addAndGet(Duration.ofSeconds(10).toNanos());
+    assertThatThrownBy(() -> restClientRetry.withRetryAndErrorHandling(failing, "Rawls.unittest"))
+        .isInstanceOf(RestRetryableException.class);
+  }
+
+  @Test
+  void finalAttemptDoesNotSpendBudget() {
+    RestResilience withoutCircuitBreaker =
+        new RestResilience(settings(false), meterRegistry, ObservationRegistry.NOOP, clock::get);
+    // every call is its own final attempt
+    RestClientRetry restClientRetry =
+        new RestClientRetry(ObservationRegistry.NOOP, withoutCircuitBreaker, 1);
+    RestCall<Boolean> failing =
+        () -> {
+          throw new ApiException(0, "connection refused");
+        };
+    for (int i = 0; i < 20; i++) {
+      assertThatThrownBy(() -> restClientRetry.withRetryAndErrorHandling(failing, "Rawls.unittest"))
+          .isInstanceOf(RestRetryableException.class);
+    }
+
+    assertThat(
+            meterRegistry
+                .get("wds.outbound.retry.budget.exhausted")
+                .tag("target", "Rawls")
+                .counter()
+                .count())
+        .isZero();
+  }
+
+  @Test
+  void hedgesSlowCalls() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    JobContextHolder.init();
+    JobContextHolder.setAttribute("hint", "from the caller");
+    RestCall<Object> firstCallIsSlow =
+        () -> {
+          if (calls.incrementAndGet() == 1) {
+            release.await(10, TimeUnit.SECONDS);
+            return "slow";
+          }
+          return JobContextHolder.getAttribute("hint");
+        };
+
+    Object result =
+        restClientRetry.withHedgedRetryAndErrorHandling(firstCallIsSlow, "Sam.unittest");
+    release.countDown();
+
+    assertThat(result).isEqualTo("from the caller");
+    assertThat(calls).hasValue(2);
+    assertThat(hedgeCount("sent")).isEqualTo(1);
+    assertThat(hedgeCount("won")).isEqualTo(1);
+  }
+
+  @Test
+  void doesNotHedgeWhenNoThreadIsFree() {
+    RestResilience oneThread =
+        new RestResilience(settings(true, 1), meterRegistry, ObservationRegistry.NOOP, clock::get);
+    RestClientRetry restClientRetry =
+        new RestClientRetry(ObservationRegistry.NOOP, oneThread, MAX_ATTEMPTS);
+    AtomicInteger calls = new AtomicInteger();
+    RestCall<Object> slow =
+        () -> {
+          calls.incrementAndGet();
+          Thread.sleep(200);
+          return "slow";
+        };
+
+    try {
+      assertThat(restClientRetry.withHedgedRetryAndErrorHandling(slow, "Sam.unittest"))
+          .isEqualTo("slow");
+    } finally {
+      oneThread.shutdown();
+    }
+
+    assertThat(calls).hasValue(1);
+    assertThat(hedgeCount("sent")).isZero();
+  }
+
+  @Test
+  void doesNotHedgeFastCalls() {
+    AtomicInteger calls = new AtomicInteger();
+
+    boolean result =
+        restClientRetry.withHedgedRetryAndErrorHandling(
+            () -> calls.incrementAndGet() > 0, "Sam.unittest");
+
+    assertThat(result).isTrue();
+    assertThat(calls).hasValue(1);
+    assertThat(hedgeCount("sent")).isZero();
+  }
+
+  @Test
+  void hedgedCallFailureIsHandled() {
+    assertThatThrownBy(
+            () ->
+                restClientRetry.withHedgedRetryAndErrorHandling(
+                    () -> {
+                      throw new ApiException(404, "not found");
+                    },
+                    "Sam.unittest"))
+        .isInstanceOf(RestException.class)
+        .hasMessageContaining("not found");
+  }
+
+  private double hedgeCount(String result) {
+    return meterRegistry
+        .get("wds.outbound.hedge")
+        .tag("target", "Sam")
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+}
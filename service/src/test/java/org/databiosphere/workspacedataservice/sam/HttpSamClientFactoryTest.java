@@ -0,0 +1,147 @@
+package org.databiosphere.workspacedataservice.sam;
+
+import static io.micrometer.observation.tck.TestObservationRegistryAssert.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.sam.BearerTokenFilter.ATTRIBUTE_NAME_TOKEN;
+import static org.databiosphere.workspacedataservice.sam.OutboundHttpObservationInterceptor.OBSERVATION_NAME;
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import okhttp3.OkHttpClient;
+import org.broadinstitute.dsde.workbench.client.sam.ApiClient;
+import org.broadinstitute.dsde.workbench.client.sam.api.ResourcesApi;
+import org.databiosphere.workspacedataservice.retry.RestClientRetry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/** Tests for HttpSamClientFactory, against a local stand-in for Sam. */
+class HttpSamClientFactoryTest {
+
+  private final TestObservationRegistry observations = TestObservationRegistry.create();
+  // Authorization headers received by the stand-in
+  private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+  private HttpServer sam;
+  private HttpSamClientFactory clientFactory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    // answers every permission check with "true"
+    sam = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    sam.createContext(
+        "/",
+        exchange -> {
+          authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+          byte[] body = "true".getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    sam.start();
+
+    OkHttpClient httpClient =
+        new ApiClient()
+            .getHttpClient()
+            .newBuilder()
+            .addInterceptor(new OutboundHttpObservationInterceptor("sam", observations))
+            .build();
+    clientFactory =
+        new HttpSamClientFactory("http://localhost:" + sam.getAddress().getPort(), httpClient);
+  }
+
+  @AfterEach
+  void tearDown() {
+    sam.stop(0);
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void reusesApisPerToken() {
+    setToken("token-a");
+    ResourcesApi first = clientFactory.getResourcesApi();
+    assertThat(clientFactory.getResourcesApi()).isSameAs(first);
+
+    setToken("token-b");
+    assertThat(clientFactory.getResourcesApi()).isNotSameAs(first);
+
+    assertThat(clientFactory.cachedTokenCount()).isEqualTo(2);
+  }
+
+  @Test
+  void sendsEachTokensOwnAuthorization() throws Exception {
+    String workspaceId = UUID.randomUUID().toString();
+
+    setToken("token-a");
+    assertThat(
+            clientFactory.getResourcesApi().resourcePermissionV2("workspace", workspaceId, "read"))
+        .isTrue();
+    setToken("token-b");
+    assertThat(
+            clientFactory.getResourcesApi().resourcePermissionV2("workspace", workspaceId, "read"))
+        .isTrue();
+
+    assertThat(authorizations).containsExactly("Bearer token-a", "Bearer token-b");
+  }
+
+  @Test
+  void observesEachCall() throws Exception {
+    setToken("token-a");
+
+    clientFactory
+        .getResourcesApi()
+        .resourcePermissionV2("workspace", UUID.randomUUID().toString(), "read");
+
+    assertThat(observations)
+        .hasNumberOfObservationsWithNameEqualTo(OBSERVATION_NAME, 1)
+        .hasObservationWithNameEqualTo(OBSERVATION_NAME)
+        .that()
+        .hasLowCardinalityKeyValue("client", "sam")
+        .hasLowCardinalityKeyValue("method", "GET")
+        .hasLowCardinalityKeyValue("status", "200")
+        .hasLowCardinalityKeyValue("protocol", "http/1.1")
+        .hasLowCardinalityKeyValue("outcome", "SUCCEEDED");
+  }
+
+  @Test
+  void observesCallsWithinRestClientRetry() {
+    setToken("token-a");
+    RestClientRetry restClientRetry = new RestClientRetry(observations);
+
+    boolean permitted =
+        restClientRetry.withRetryAndErrorHandling(
+            () ->
+                clientFactory
+                    .getResourcesApi()
+                    .resourcePermissionV2("workspace", UUID.randomUUID().toString(), "read"),
+            "Sam.unittest");
+
+    assertThat(permitted).isTrue();
+    assertThat(observations)
+        .hasObservationWithNameEqualTo(OBSERVATION_NAME)
+        .that()
+        .hasParentObservationContextMatching(parent -> "wds.outbound".equals(parent.getName()));
+  }
+
+  private static void setToken(String token) {
+    RequestAttributes requestAttributes =
+        new ServletRequestAttributes(new MockHttpServletRequest());
+    requestAttributes.setAttribute(ATTRIBUTE_NAME_TOKEN, token, SCOPE_REQUEST);
+    RequestContextHolder.setRequestAttributes(requestAttributes);
+  }
+}
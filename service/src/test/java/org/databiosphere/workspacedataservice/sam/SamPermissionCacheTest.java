@@ -0,0 +1,163 @@
+package org.databiosphere.workspacedataservice.sam;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.sam.BearerTokenFilter.ATTRIBUTE_NAME_TOKEN;
+import static org.databiosphere.workspacedataservice.sam.SamAuthorizationDao.ACTION_READ;
+import static org.databiosphere.workspacedataservice.sam.SamAuthorizationDao.ACTION_WRITE;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.databiosphere.workspacedataservice.service.model.exception.AuthorizationException;
+import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class SamPermissionCacheTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final SamPermissionCache cache =
+      new SamPermissionCache(Duration.ofMinutes(1), 100, meterRegistry);
+  private final WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+
+  // calls made to Sam by the suppliers from sam(boolean)
+  private final AtomicInteger samCalls = new AtomicInteger();
+
+  @AfterEach
+  void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void cachesGrantsAndDenials() {
+    setToken("user-token");
+
+    assertThat(cache.hasPermission(workspaceId, ACTION_WRITE, sam(false))).isFalse();
+    assertThat(cache.hasPermission(workspaceId, ACTION_WRITE, sam(false))).isFalse();
+    assertThat(cache.hasPermission(workspaceId, ACTION_READ, sam(true))).isTrue();
+    assertThat(cache.hasPermission(workspaceId, ACTION_READ, sam(true))).isTrue();
+
+    assertThat(samCalls).hasValue(2);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(2);
+    assertThat(meterRegistry.get("wds.sam.permission.duration").timers())
+        .extracting(Timer::count)
+        .containsExactlyInAnyOrder(1L, 1L);
+  }
+
+  @Test
+  void keysByTokenWorkspaceAndAction() {
+    setToken("user-token");
+    cache.hasPermission(workspaceId, ACTION_READ, sam(true));
+    cache.hasPermission(workspaceId, ACTION_WRITE, sam(true));
+    cache.hasPermission(WorkspaceId.of(UUID.randomUUID()), ACTION_READ, sam(true));
+    setToken("another-user-token");
+    cache.hasPermission(workspaceId, ACTION_READ, sam(true));
+
+    assertThat(samCalls).hasValue(4);
+  }
+
+  @Test
+  void doesNotCacheWithoutToken() {
+    cache.hasPermission(workspaceId, ACTION_READ, sam(true));
+    cache.hasPermission(workspaceId, ACTION_READ, sam(true));
+
+    assertThat(samCalls).hasValue(2);
+  }
+
+  @Test
+  void doesNotCacheFailures() {
+    setToken("user-token");
+    Supplier<Boolean> failing =
+        () -> {
+          samCalls.incrementAndGet();
+          throw new AuthorizationException("nope");
+        };
+
+    assertThrows(
+        AuthorizationException.class, () -> cache.hasPermission(workspaceId, ACTION_READ, failing));
+    assertThat(cache.hasPermission(workspaceId, ACTION_READ, sam(true))).isTrue();
+
+    assertThat(samCalls).hasValue(2);
+  }
+
+  @Test
+  void zeroTtlDisablesCaching() {
+    SamPermissionCache disabled = new SamPermissionCache(Duration.ZERO, 100, meterRegistry);
+    setToken("user-token");
+
+    disabled.hasPermission(workspaceId, ACTION_READ, sam(true));
+    disabled.hasPermission(workspaceId, ACTION_READ, sam(true));
+
+    assertThat(samCalls).hasValue(2);
+  }
+
+  @Test
+  void coalescesConcurrentChecks() throws Exception {
+    int threads = 8;
+    CountDownLatch release = new CountDownLatch(1);
+    Supplier<Boolean> slowSam =
+        () -> {
+          samCalls.incrementAndGet();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return true;
+        };
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        results.add(
+            executor.submit(
+                () -> {
+                  setToken("user-token");
+                  return cache.hasPermission(workspaceId, ACTION_READ, slowSam);
+                }));
+      }
+      // give every thread time to reach the cache before Sam answers
+      Thread.sleep(200);
+      release.countDown();
+      for (Future<Boolean> result : results) {
+        assertThat(result.get(10, TimeUnit.SECONDS)).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(samCalls).hasValue(1);
+  }
+
+  private Supplier<Boolean> sam(boolean decision) {
+    return () -> {
+      samCalls.incrementAndGet();
+      return decision;
+    };
+  }
+
+  private static void setToken(String token) {
+    RequestAttributes requestAttributes =
+        new ServletRequestAttributes(new MockHttpServletRequest());
+    requestAttributes.setAttribute(ATTRIBUTE_NAME_TOKEN, token, SCOPE_REQUEST);
+    RequestContextHolder.setRequestAttributes(requestAttributes);
+  }
+}
@@ -0,0 +1,137 @@
+package org.databiosphere.workspacedataservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.stream.Stream;
+import org.databiosphere.workspacedataservice.service.CellLexer.CellKind;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class CellLexerTest {
+
+  static Stream<Arguments> cells() {
+    return Stream.of(
+        // numbers
+        Arguments.of("0", CellKind.INTEGER),
+        Arguments.of("-12345", CellKind.INTEGER),
+        Arguments.of("+12345", CellKind.INTEGER),
+        Arguments.of("123456789012345678901234567890", CellKind.INTEGER),
+        Arguments.of("\u0663\u0664", CellKind.INTEGER), // Arabic-Indic digits
+        Arguments.of("1.5", CellKind.DECIMAL),
+        Arguments.of("-.5", CellKind.DECIMAL),
+        Arguments.of("5.", CellKind.DECIMAL),
+        Arguments.of("3e4", CellKind.DECIMAL),
+        Arguments.of("3E-4", CellKind.DECIMAL),
+        Arguments.of("1.5e+0000000000004", CellKind.DECIMAL),
+        Arguments.of("9623e89508858559", CellKind.STRING),
+        Arguments.of("1e2147483648", CellKind.STRING),
+        Arguments.of("-", CellKind.STRING),
+        Arguments.of(".", CellKind.STRING),
+        Arguments.of("1e", CellKind.STRING),
+        Arguments.of("1e+", CellKind.STRING),
+        Arguments.of("1.2.3", CellKind.STRING),
+        Arguments.of("12345A", CellKind.STRING),
+        Arguments.of(" 5", CellKind.STRING),
+        Arguments.of("NaN", CellKind.STRING),
+        // booleans
+        Arguments.of("true", CellKind.BOOLEAN),
+        Arguments.of("FaLsE", CellKind.BOOLEAN),
+        Arguments.of("truthy", CellKind.STRING),
+        Arguments.of("t", CellKind.STRING),
+        // dates
+        Arguments.of("2020-01-01", CellKind.DATE),
+        Arguments.of("2020-02-29", CellKind.DATE),
+        Arguments.of("0000-02-29", CellKind.DATE),
+        Arguments.of("+12020-01-01", CellKind.DATE),
+        Arguments.of("-2020-01-01", CellKind.DATE),
+        Arguments.of("2021-02-29", CellKind.STRING),
+        Arguments.of("2020-13-01", CellKind.STRING),
+        Arguments.of("2020-00-01", CellKind.STRING),
+        Arguments.of("2020-1-1", CellKind.STRING),
+        Arguments.of("12020-01-01", CellKind.STRING),
+        Arguments.of("2020-01-01x", CellKind.STRING),
+        // datetimes
+        Arguments.of("2020-01-01T00:10", CellKind.DATE_TIME),
+        Arguments.of("2020-01-01T00:10:00", CellKind.DATE_TIME),
+        Arguments.of("2020-01-01t23:59:59", CellKind.DATE_TIME),
+        Arguments.of("2020-01-01T00:10:00.1", CellKind.DATE_TIME),
+        Arguments.of("2020-01-01T00:10:00.123456789", CellKind.DATE_TIME),
+        Arguments.of("2020-01-01T00:10:00.", CellKind.DATE_TIME),
+        Arguments.of("2020-01-01T00:10:00.1234567890", CellKind.STRING),
+        Arguments.of("2020-01-01T24:00", CellKind.STRING),
+        Arguments.of("2020-01-01T23:60", CellKind.STRING),
+        Arguments.of("2020-01-01T23:59:60", CellKind.STRING),
+        Arguments.of("2020-01-01 00:10:00", CellKind.STRING),
+        Arguments.of("2020-01-01T00:10:00Z", CellKind.STRING),
+        // json and arrays
+        Arguments.of("{\"foo\":\"bar\"}", CellKind.JSON_OBJECT),
+        Arguments.of(" \n{}", CellKind.JSON_OBJECT),
+        Arguments.of("[1,2,3]", CellKind.ARRAY),
+        Arguments.of("\t[", CellKind.ARRAY),
+        Arguments.of(" x", CellKind.STRING),
+        Arguments.of("   ", CellKind.STRING),
+        // files
+        Arguments.of("drs://example.org/id", CellKind.FILE),
+        Arguments.of("HTTPS://example.blob.core.windows.net/f", CellKind.FILE),
+        Arguments.of("http://example.org", CellKind.STRING),
+        Arguments.of("drsfoo", CellKind.STRING),
+        // strings
+        Arguments.of("", CellKind.STRING),
+        Arguments.of("Hello", CellKind.STRING),
+        Arguments.of("terra-wds:/type/id", CellKind.STRING));
+  }
+
+  @ParameterizedTest(name = "{0} is {1}")
+  @MethodSource("cells")
+  void classify(String val, CellKind expected) {
+    assertThat(CellLexer.classify(val)).isEqualTo(expected);
+  }
+
+  // the lexer must agree exactly with the parsers it replaces
+  @ParameterizedTest(name = "{0} agrees with parsing")
+  @MethodSource("cells")
+  void agreesWithParsers(String val, CellKind ignored) {
+    CellKind kind = CellLexer.classify(val);
+
+    assertThat(kind == CellKind.INTEGER).as("integer").isEqualTo(parsesAsBigInteger(val));
+    assertThat(kind.isNumber()).as("number").isEqualTo(parsesAsBigDecimal(val));
+    assertThat(kind == CellKind.DATE)
+        .as("date")
+        .isEqualTo(parses(val, DateTimeFormatter.ISO_LOCAL_DATE));
+    assertThat(kind == CellKind.DATE_TIME)
+        .as("datetime")
+        .isEqualTo(parses(val, DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+  }
+
+  private static boolean parsesAsBigInteger(String val) {
+    try {
+      new BigInteger(val);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static boolean parsesAsBigDecimal(String val) {
+    try {
+      new BigDecimal(val);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static boolean parses(String val, DateTimeFormatter formatter) {
+    try {
+      formatter.parse(val);
+      return true;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.databiosphere.workspacedataservice.TestUtils;
 import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
 import org.databiosphere.workspacedataservice.config.DataImportProperties;
@@ -32,6 +33,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /** Tests for CollectionService.getWorkspaceId() */
 @DirtiesContext
@@ -43,6 +45,7 @@ class CollectionServiceGetWorkspaceIdTest extends ControlPlaneTestBase {
 
   @Autowired private NamedParameterJdbcTemplate namedTemplate;
   @Autowired private WorkspaceRepository workspaceRepository;
+  @Autowired private TransactionTemplate transactionTemplate;
 
   @MockitoBean RawlsClient rawlsClient;
   @MockitoBean TenancyProperties tenancyProperties;
@@ -232,4 +235,93 @@ class CollectionServiceGetWorkspaceIdTest extends ControlPlaneTestBase {
     // Assert
     assertThat(actual).hasMessage("Unexpected error validating collection");
   }
+
+  // the workspace id of a collection in the collection table is cached until it is deleted
+  @Test
+  void cachesWorkspaceIdUntilDelete() {
+    WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+
+    when(twdsProperties.workspaceId()).thenReturn(null);
+    when(tenancyProperties.getAllowVirtualCollections()).thenReturn(false);
+    when(tenancyProperties.getEnforceCollectionsMatchWorkspaceId()).thenReturn(false);
+
+    workspaceRepository.save(new WorkspaceRecord(workspaceId, WDS, true));
+    CollectionId collectionId =
+        CollectionId.of(collectionService.save(workspaceId, "name", "desc").getId());
+    assertThat(collectionService.isWorkspaceIdCached(collectionId)).isFalse();
+
+    assertEquals(workspaceId, collectionService.getWorkspaceId(collectionId));
+    assertThat(collectionService.isWorkspaceIdCached(collectionId)).isTrue();
+    assertEquals(workspaceId, collectionService.getWorkspaceId(collectionId));
+
+    collectionService.delete(workspaceId, collectionId);
+    assertThat(collectionService.isWorkspaceIdCached(collectionId)).isFalse();
+    assertThrows(
+        MissingObjectException.class, () -> collectionService.getWorkspaceId(collectionId));
+  }
+
+  // a reader that re-caches the workspace id before the delete commits does not leave it cached
+  @Test
+  void invalidatesWorkspaceIdAfterDeleteCommits() {
+    WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+
+    when(twdsProperties.workspaceId()).thenReturn(null);
+    when(tenancyProperties.getAllowVirtualCollections()).thenReturn(false);
+    when(tenancyProperties.getEnforceCollectionsMatchWorkspaceId()).thenReturn(false);
+
+    workspaceRepository.save(new WorkspaceRecord(workspaceId, WDS, true));
+    CollectionId collectionId =
+        CollectionId.of(collectionService.save(workspaceId, "name", "desc").getId());
+
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          collectionService.delete(workspaceId, collectionId);
+          // another thread still sees the uncommitted collection, and caches it
+          assertEquals(
+              workspaceId,
+              CompletableFuture.supplyAsync(() -> collectionService.getWorkspaceId(collectionId))
+                  .join());
+          assertThat(collectionService.isWorkspaceIdCached(collectionId)).isTrue();
+        });
+
+    assertThat(collectionService.isWorkspaceIdCached(collectionId)).isFalse();
+  }
+
+  // virtual collections are never cached
+  @Test
+  void doesNotCacheVirtualCollections() {
+    WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+
+    when(twdsProperties.workspaceId()).thenReturn(null);
+    when(tenancyProperties.getAllowVirtualCollections()).thenReturn(true);
+    when(tenancyProperties.getEnforceCollectionsMatchWorkspaceId()).thenReturn(false);
+
+    workspaceRepository.save(new WorkspaceRecord(workspaceId, RAWLS, true));
+
+    CollectionId virtualCollectionId = CollectionId.of(workspaceId.id());
+    assertEquals(workspaceId, collectionService.getWorkspaceId(virtualCollectionId));
+    assertThat(collectionService.isWorkspaceIdCached(virtualCollectionId)).isFalse();
+  }
+
+  // single-tenant; startup caches the workspace id of every collection in the workspace
+  @Test
+  void warmsCacheForSingleTenant() {
+    WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+
+    when(twdsProperties.workspaceId()).thenReturn(workspaceId);
+    when(tenancyProperties.getRequireEnvWorkspace()).thenReturn(true);
+    when(tenancyProperties.getAllowVirtualCollections()).thenReturn(false);
+    when(tenancyProperties.getEnforceCollectionsMatchWorkspaceId()).thenReturn(true);
+
+    workspaceRepository.save(new WorkspaceRecord(workspaceId, WDS, true));
+    CollectionId first =
+        CollectionId.of(collectionService.save(workspaceId, "first", "desc").getId());
+    CollectionId second =
+        CollectionId.of(collectionService.save(workspaceId, "second", "desc").getId());
+
+    collectionService.warmWorkspaceIdCache();
+
+    assertThat(collectionService.isWorkspaceIdCached(first)).isTrue();
+    assertThat(collectionService.isWorkspaceIdCached(second)).isTrue();
+  }
 }
@@ -0,0 +1,129 @@
+package org.databiosphere.workspacedataservice.service;
+
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.NUMBER;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.STRING;
+import static org.databiosphere.workspacedataservice.service.model.ReservedNames.RECORD_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.TestUtils;
+import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
+import org.databiosphere.workspacedataservice.dao.RecordDao;
+import org.databiosphere.workspacedataservice.dao.WorkspaceRepository;
+import org.databiosphere.workspacedataservice.generated.CollectionServerModel;
+import org.databiosphere.workspacedataservice.recordsink.RecordSink;
+import org.databiosphere.workspacedataservice.recordsink.RecordSinkFactory;
+import org.databiosphere.workspacedataservice.recordsource.RecordSourceFactory;
+import org.databiosphere.workspacedataservice.shared.model.CollectionId;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
+import org.databiosphere.workspacedataservice.workspace.WorkspaceDataTableType;
+import org.databiosphere.workspacedataservice.workspace.WorkspaceRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+/** Writes through a real {@link RecordSink} and database, with deferred widening as configured. */
+@DirtiesContext
+@SpringBootTest
+@TestPropertySource(
+    properties = {
+      "twds.write.batch.size=1",
+      "twds.data-import.bulk-load-enabled=true",
+      "twds.data-import.defer-type-widening-enabled=true"
+    })
+class DeferredWideningBatchWriteTest extends ControlPlaneTestBase {
+
+  @Autowired private RecordSourceFactory recordSourceFactory;
+  @Autowired private RecordSinkFactory recordSinkFactory;
+  @Autowired private BatchWriteService batchWriteService;
+  @Autowired private CollectionService collectionService;
+  @Autowired private RecordDao recordDao;
+  @Autowired private NamedParameterJdbcTemplate namedTemplate;
+  @Autowired private WorkspaceRepository workspaceRepository;
+
+  private static final RecordType THING_TYPE = RecordType.valueOf("thing");
+
+  private CollectionId collectionId;
+
+  @BeforeEach
+  void setUp() {
+    WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+    workspaceRepository.save(
+        new WorkspaceRecord(workspaceId, WorkspaceDataTableType.WDS, /* newFlag= */ true));
+    CollectionServerModel collection = collectionService.save(workspaceId, "name", "desc");
+    collectionId = CollectionId.of(collection.getId());
+  }
+
+  @AfterEach
+  void tearDown() {
+    TestUtils.cleanAllCollections(collectionService, namedTemplate);
+    TestUtils.cleanAllWorkspaces(namedTemplate);
+  }
+
+  @Test
+  void widensStagedColumnWhenWriteFinishes() throws IOException {
+    // one record per batch: "count" is created as a number, then must widen to hold "many"
+    String streamContents =
+        """
+        [{"operation": "upsert", "record": {"id": "1", "type": "thing", "attributes": {"count": 1}}},
+         {"operation": "upsert", "record": {"id": "2", "type": "thing", "attributes": {"count": "many"}}},
+         {"operation": "upsert", "record": {"id": "3", "type": "thing", "attributes": {"count": 3}}}]
+        """;
+
+    try (RecordSink recordSink = recordSinkFactory.buildRecordSink(collectionId)) {
+      batchWriteService.batchWrite(
+          recordSourceFactory.forJson(
+              new ByteArrayInputStream(streamContents.getBytes(StandardCharsets.UTF_8))),
+          recordSink,
+          THING_TYPE,
+          RECORD_ID);
+    }
+
+    // the staging column is gone, and "count" holds every value written
+    assertEquals(
+        Map.of(RECORD_ID, STRING, "count", STRING),
+        recordDao.getExistingTableSchema(collectionId.id(), THING_TYPE));
+    assertEquals("1", countOf("1"));
+    assertEquals("many", countOf("2"));
+    assertEquals("3", countOf("3"));
+  }
+
+  @Test
+  void doesNotStageWhenNothingWidens() throws IOException {
+    String streamContents =
+        """
+        [{"operation": "upsert", "record": {"id": "1", "type": "thing", "attributes": {"count": 1}}},
+         {"operation": "upsert", "record": {"id": "2", "type": "thing", "attributes": {"count": 2}}}]
+        """;
+
+    try (RecordSink recordSink = recordSinkFactory.buildRecordSink(collectionId)) {
+      batchWriteService.batchWrite(
+          recordSourceFactory.forJson(
+              new ByteArrayInputStream(streamContents.getBytes(StandardCharsets.UTF_8))),
+          recordSink,
+          THING_TYPE,
+          RECORD_ID);
+    }
+
+    assertEquals(
+        Map.of(RECORD_ID, STRING, "count", NUMBER),
+        recordDao.getExistingTableSchema(collectionId.id(), THING_TYPE));
+  }
+
+  private Object countOf(String id) {
+    return recordDao
+        .getSingleRecord(collectionId.id(), THING_TYPE, id)
+        .orElseThrow()
+        .getAttributeValue("count");
+  }
+}
@@ -0,0 +1,190 @@
+package org.databiosphere.workspacedataservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.NUMBER;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.STRING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import org.databiosphere.workspacedataservice.recordsink.ColumnStaging;
+import org.databiosphere.workspacedataservice.recordsink.RecordSink;
+import org.databiosphere.workspacedataservice.recordsource.RecordSource;
+import org.databiosphere.workspacedataservice.service.model.BatchWriteResult;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.service.model.exception.BadStreamingWriteRequestException;
+import org.databiosphere.workspacedataservice.service.model.exception.DataImportException;
+import org.databiosphere.workspacedataservice.shared.model.OperationType;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+/** Exercises {@link BatchWriteService} with twds.write.pipeline.enabled set. */
+class PipelinedBatchWriteServiceTest {
+
+  private static final RecordType THING_TYPE = RecordType.valueOf("thing");
+
+  private SimpleMeterRegistry meterRegistry;
+  private BatchWriteService batchWriteService;
+  private RecordSink recordSink;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    batchWriteService =
+        new BatchWriteService(
+            /* batchSize= */ 2,
+            /* pipelineEnabled= */ true,
+            /* pipelineQueueCapacity= */ 1,
+            new DataTypeInferer(new JsonConfig().objectMapper()),
+            meterRegistry);
+    recordSink = mock(RecordSink.class);
+    when(recordSink.createOrModifyRecordType(any(), anyMap(), anyList(), anyString()))
+        .thenAnswer(invocation -> invocation.getArgument(1));
+  }
+
+  @Test
+  void writesEveryBatchInOrder() {
+    List<Record> records = things(7);
+
+    BatchWriteResult result =
+        batchWriteService.batchWrite(
+            new ListRecordSource(records, -1), recordSink, THING_TYPE, "id");
+
+    assertEquals(7, result.getUpdatedCount(THING_TYPE));
+    // every batch has the same schema, so only the first needs the sink to check the record type
+    verify(recordSink, times(1)).createOrModifyRecordType(any(), anyMap(), anyList(), anyString());
+    InOrder inOrder = inOrder(recordSink);
+    for (int i = 0; i < 7; i += 2) {
+      inOrder
+          .verify(recordSink)
+          .upsertBatch(
+              eq(THING_TYPE), anyMap(), eq(records.subList(i, Math.min(i + 2, 7))), eq("id"));
+    }
+    assertThat(meterRegistry.get("wds.write.batch.stage").tag("stage", "write").timer().count())
+        .isEqualTo(4);
+    assertThat(meterRegistry.get("wds.write.batch.queued").gauge().value()).isZero();
+  }
+
+  @Test
+  void rethrowsReaderFailures() {
+    RecordSource failingSource = new ListRecordSource(things(7), /* failAtBatch= */ 2);
+
+    assertThrows(
+        BadStreamingWriteRequestException.class,
+        () -> batchWriteService.batchWrite(failingSource, recordSink, THING_TYPE, "id"));
+    assertThat(meterRegistry.get("wds.write.batch.queued").gauge().value()).isZero();
+  }
+
+  @Test
+  void stopsReaderOnWriterFailures() {
+    ListRecordSource source = new ListRecordSource(things(100), -1);
+    doThrow(new DataImportException("boom"))
+        .when(recordSink)
+        .upsertBatch(any(), anyMap(), anyList(), anyString());
+
+    assertThrows(
+        DataImportException.class,
+        () -> batchWriteService.batchWrite(source, recordSink, THING_TYPE, "id"));
+    // the reader was stopped, and joined, before the source was closed
+    assertThat(source.closed).isTrue();
+    assertThat(source.readAfterClose).isFalse();
+    assertThat(source.position).isLessThan(100);
+    assertThat(meterRegistry.get("wds.write.batch.queued").gauge().value()).isZero();
+  }
+
+  @Test
+  void defersWideningUntilTheEndOfTheStream() {
+    ColumnStaging columnStaging = mock(ColumnStaging.class);
+    when(recordSink.columnStaging()).thenReturn(Optional.of(columnStaging));
+    when(columnStaging.canDeferWidening(NUMBER, STRING)).thenReturn(true);
+    List<Record> records = new ArrayList<>(things(4));
+    records.add(
+        new Record("thing4", THING_TYPE, RecordAttributes.empty().putAttribute("n", "four")));
+    records.add(new Record("thing5", THING_TYPE, RecordAttributes.empty().putAttribute("n", 5)));
+
+    batchWriteService.batchWrite(new ListRecordSource(records, -1), recordSink, THING_TYPE, "id");
+
+    verify(recordSink, times(1)).createOrModifyRecordType(any(), anyMap(), anyList(), anyString());
+    InOrder inOrder = inOrder(recordSink, columnStaging);
+    inOrder.verify(columnStaging).addStagingColumn(THING_TYPE, "sys_staged_0", STRING);
+    inOrder
+        .verify(recordSink)
+        .upsertBatch(
+            eq(THING_TYPE),
+            eq(Map.of("n", NUMBER, "sys_staged_0", STRING)),
+            argThat(
+                batch ->
+                    batch.get(0).getAttributeValue("n") == null
+                        && "four".equals(batch.get(0).getAttributeValue("sys_staged_0"))),
+            eq("id"));
+    inOrder
+        .verify(columnStaging)
+        .applyStagedColumns(
+            THING_TYPE, List.of(new StagedColumn("n", NUMBER, "sys_staged_0", STRING, STRING)));
+    verify(columnStaging, times(1)).addStagingColumn(any(), anyString(), any());
+  }
+
+  private static List<Record> things(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(
+            i ->
+                new Record(
+                    "thing" + i, THING_TYPE, RecordAttributes.empty().putAttribute("n", i)))
+        .toList();
+  }
+
+  private static class ListRecordSource implements RecordSource {
+    private final List<Record> records;
+    private final int failAtBatch;
+    private int batches;
+    volatile int position;
+    volatile boolean closed;
+    volatile boolean readAfterClose;
+
+    ListRecordSource(List<Record> records, int failAtBatch) {
+      this.records = records;
+      this.failAtBatch = failAtBatch;
+    }
+
+    @Override
+    public WriteStreamInfo readRecords(int numRecords) throws IOException {
+      if (closed) {
+        readAfterClose = true;
+      }
+      if (batches++ == failAtBatch) {
+        throw new IOException("unreadable");
+      }
+      int end = Math.min(position + numRecords, records.size());
+      List<Record> batch = new ArrayList<>(records.subList(position, end));
+      position = end;
+      return new WriteStreamInfo(batch, OperationType.UPSERT);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
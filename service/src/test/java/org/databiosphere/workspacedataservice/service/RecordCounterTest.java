@@ -0,0 +1,139 @@
+package org.databiosphere.workspacedataservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.databiosphere.workspacedataservice.service.RecordUtils.VERSION;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.databiosphere.workspacedataservice.TestUtils;
+import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
+import org.databiosphere.workspacedataservice.dao.WorkspaceRepository;
+import org.databiosphere.workspacedataservice.service.model.RecordCount;
+import org.databiosphere.workspacedataservice.service.model.RecordTypeSchema;
+import org.databiosphere.workspacedataservice.shared.model.CountMode;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordRequest;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.databiosphere.workspacedataservice.shared.model.WorkspaceId;
+import org.databiosphere.workspacedataservice.workspace.WorkspaceDataTableType;
+import org.databiosphere.workspacedataservice.workspace.WorkspaceRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+// estimate every record type's count, regardless of size
+@SpringBootTest
+@TestPropertySource(properties = {"twds.record-count.exact-threshold=0"})
+class RecordCounterTest extends ControlPlaneTestBase {
+
+  @Autowired private CollectionService collectionService;
+  @Autowired private NamedParameterJdbcTemplate namedTemplate;
+  @Autowired private RecordCounter recordCounter;
+  @Autowired private RecordOrchestratorService recordOrchestratorService;
+  @Autowired private WorkspaceRepository workspaceRepository;
+
+  private static final RecordType PARENT = RecordType.valueOf("parent");
+  private static final RecordType CHILD = RecordType.valueOf("child");
+
+  private UUID collectionId;
+
+  @BeforeEach
+  void setUp() {
+    WorkspaceId workspaceId = WorkspaceId.of(UUID.randomUUID());
+    workspaceRepository.save(
+        new WorkspaceRecord(workspaceId, WorkspaceDataTableType.WDS, /* newFlag= */ true));
+    collectionId = collectionService.save(workspaceId, "name", "desc").getId();
+
+    createRecord(PARENT, "p1", RecordAttributes.empty().putAttribute("name", "first"));
+    createRecord(PARENT, "p2", RecordAttributes.empty().putAttribute("name", "second"));
+    createRecord(
+        CHILD,
+        "c1",
+        RecordAttributes.empty()
+            .putAttribute("parent", RelationUtils.createRelationString(PARENT, "p1"))
+            .putAttribute(
+                "siblings",
+                List.of(
+                    RelationUtils.createRelationString(PARENT, "p1"),
+                    RelationUtils.createRelationString(PARENT, "p2"))));
+  }
+
+  @AfterEach
+  void tearDown() {
+    TestUtils.cleanAllCollections(collectionService, namedTemplate);
+    TestUtils.cleanAllWorkspaces(namedTemplate);
+  }
+
+  @Test
+  void countsExactlyWithoutStatistics() {
+    // never analyzed, so there is no estimate to use
+    assertThat(recordCounter.count(collectionId, PARENT, CountMode.ESTIMATED))
+        .isEqualTo(new RecordCount(2, /* estimated= */ false));
+  }
+
+  @Test
+  void estimatesFromStatistics() {
+    analyze(PARENT);
+
+    assertThat(recordCounter.count(collectionId, PARENT, CountMode.ESTIMATED))
+        .isEqualTo(new RecordCount(2, /* estimated= */ true));
+    assertThat(recordCounter.count(collectionId, PARENT, CountMode.EXACT))
+        .isEqualTo(new RecordCount(2, /* estimated= */ false));
+  }
+
+  @Test
+  void describeAllMatchesDescribeEach() {
+    analyze(PARENT);
+
+    for (CountMode countMode : CountMode.values()) {
+      List<RecordTypeSchema> all =
+          recordOrchestratorService.describeAllRecordTypes(collectionId, VERSION, countMode);
+      List<RecordTypeSchema> each =
+          List.of(CHILD, PARENT).stream()
+              .map(
+                  recordType ->
+                      recordOrchestratorService.describeRecordType(
+                          collectionId, VERSION, recordType, countMode))
+              .toList();
+
+      assertThat(all).isEqualTo(each);
+    }
+  }
+
+  @Test
+  void describeAllMixesEstimatedAndExactCounts() {
+    analyze(PARENT);
+
+    List<RecordTypeSchema> all =
+        recordOrchestratorService.describeAllRecordTypes(
+            collectionId, VERSION, CountMode.ESTIMATED);
+
+    assertThat(all)
+        .extracting(
+            RecordTypeSchema::name, RecordTypeSchema::count, RecordTypeSchema::countEstimated)
+        .containsExactly(tuple(CHILD, 1, false), tuple(PARENT, 2, true));
+  }
+
+  private void analyze(RecordType recordType) {
+    // populate planner statistics, as autovacuum would
+    namedTemplate
+        .getJdbcTemplate()
+        .execute("analyze \"%s\".\"%s\"".formatted(collectionId, recordType.getName()));
+  }
+
+  private void createRecord(RecordType recordType, String recordId, RecordAttributes attributes) {
+    recordOrchestratorService.upsertSingleRecord(
+        collectionId,
+        VERSION,
+        recordType,
+        recordId,
+        Optional.empty(),
+        new RecordRequest(attributes));
+  }
+}
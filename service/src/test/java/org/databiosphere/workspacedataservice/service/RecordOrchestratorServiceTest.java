@@ -5,13 +5,18 @@ import static org.databiosphere.workspacedataservice.service.RecordUtils.VERSION
 import static org.databiosphere.workspacedataservice.service.RecordUtils.validateVersion;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.micrometer.observation.tck.TestObservationRegistry;
 import jakarta.annotation.Nullable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -30,6 +35,7 @@ import org.databiosphere.workspacedataservice.service.model.exception.ConflictEx
 import org.databiosphere.workspacedataservice.service.model.exception.ConflictingPrimaryKeysException;
 import org.databiosphere.workspacedataservice.service.model.exception.MissingObjectException;
 import org.databiosphere.workspacedataservice.service.model.exception.ValidationException;
+import org.databiosphere.workspacedataservice.shared.model.CountMode;
 import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
 import org.databiosphere.workspacedataservice.shared.model.RecordQueryResponse;
 import org.databiosphere.workspacedataservice.shared.model.RecordRequest;
@@ -192,6 +198,197 @@ class RecordOrchestratorServiceTest extends ControlPlaneTestBase {
     assertEquals(List.of("two", "three", "one"), actualIds); // descending alpha sort on pk
   }
 
+  @ParameterizedTest(name = "keyset pagination sorted {0} by {1}")
+  @MethodSource("keysetPaginationArguments")
+  void keysetPaginationMatchesOffsetPagination(
+      SortDirection sortDirection, @Nullable String sortAttribute) {
+    // duplicate and missing sort values exercise the primary key tie-breaker and null ordering
+    String[] values = {"b", "a", "b", null, "c", "a", null, "b", "c", "a"};
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        testCreateRecord("r" + i, "other_key", "x");
+      } else {
+        testCreateRecord("r" + i, TEST_KEY, values[i]);
+      }
+    }
+
+    SearchRequest allAtOnce = new SearchRequest(100, 0, sortDirection);
+    allAtOnce.setSortAttribute(sortAttribute);
+    RecordQueryResponse expected =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, allAtOnce);
+    List<String> expectedIds = expected.records().stream().map(RecordResponse::recordId).toList();
+    assertEquals(values.length, expectedIds.size());
+    assertNull(expected.nextPageToken());
+
+    List<String> actualIds = new ArrayList<>();
+    String pageToken = null;
+    int pages = 0;
+    do {
+      SearchRequest page = new SearchRequest(3, 0, sortDirection);
+      page.setSortAttribute(sortAttribute);
+      page.setPageToken(pageToken);
+      RecordQueryResponse resp =
+          recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, page);
+      resp.records().forEach(r -> actualIds.add(r.recordId()));
+      pageToken = resp.nextPageToken();
+      pages++;
+    } while (pageToken != null && pages < 10);
+
+    assertEquals(expectedIds, actualIds);
+    assertEquals(4, pages);
+  }
+
+  static Stream<Arguments> keysetPaginationArguments() {
+    return Stream.of(
+        Arguments.of(SortDirection.ASC, TEST_KEY),
+        Arguments.of(SortDirection.DESC, TEST_KEY),
+        Arguments.of(SortDirection.ASC, null),
+        Arguments.of(SortDirection.DESC, null));
+  }
+
+  @Test
+  void pageTokenMustMatchSort() {
+    testCreateRecord("one", TEST_KEY, "value1");
+    testCreateRecord("two", TEST_KEY, "value2");
+
+    SearchRequest firstPage = new SearchRequest(1, 0, SortDirection.ASC, TEST_KEY);
+    RecordQueryResponse resp =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, firstPage);
+    assertNotNull(resp.nextPageToken());
+
+    SearchRequest differentSort = new SearchRequest(1, 0, SortDirection.DESC, TEST_KEY);
+    differentSort.setPageToken(resp.nextPageToken());
+    ResponseStatusException sortException =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                recordOrchestratorService.queryForRecords(
+                    collectionId, TEST_TYPE, VERSION, differentSort));
+    assertEquals(HttpStatus.BAD_REQUEST, sortException.getStatusCode());
+
+    SearchRequest withOffset = new SearchRequest(1, 1, SortDirection.ASC, TEST_KEY);
+    withOffset.setPageToken(resp.nextPageToken());
+    ResponseStatusException offsetException =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                recordOrchestratorService.queryForRecords(
+                    collectionId, TEST_TYPE, VERSION, withOffset));
+    assertEquals(HttpStatus.BAD_REQUEST, offsetException.getStatusCode());
+
+    SearchRequest garbage = new SearchRequest(1, 0, SortDirection.ASC, TEST_KEY);
+    garbage.setPageToken("not-a-token");
+    assertThrows(
+        ValidationException.class,
+        () -> recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, garbage));
+  }
+
+  @Test
+  void pageTokenMustMatchFilter() {
+    testCreateRecord("one", TEST_KEY, "value1");
+    testCreateRecord("two", TEST_KEY, "value2");
+    testCreateRecord("three", TEST_KEY, "value3");
+
+    SearchRequest firstPage = new SearchRequest(1, 0, SortDirection.ASC, TEST_KEY);
+    firstPage.setFilter(
+        Optional.of(new SearchFilter(Optional.of(List.of("one", "two")), Optional.empty())));
+    RecordQueryResponse resp =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, firstPage);
+    assertNotNull(resp.nextPageToken());
+
+    SearchRequest differentFilter = new SearchRequest(1, 0, SortDirection.ASC, TEST_KEY);
+    differentFilter.setFilter(
+        Optional.of(new SearchFilter(Optional.of(List.of("one", "three")), Optional.empty())));
+    differentFilter.setPageToken(resp.nextPageToken());
+    ResponseStatusException filterException =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                recordOrchestratorService.queryForRecords(
+                    collectionId, TEST_TYPE, VERSION, differentFilter));
+    assertEquals(HttpStatus.BAD_REQUEST, filterException.getStatusCode());
+
+    SearchRequest noFilter = new SearchRequest(1, 0, SortDirection.ASC, TEST_KEY);
+    noFilter.setPageToken(resp.nextPageToken());
+    assertThrows(
+        ResponseStatusException.class,
+        () ->
+            recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, noFilter));
+  }
+
+  // the token carries the last record's sort value, so that record may be deleted between pages
+  @Test
+  void pageTokenSurvivesDeletionOfLastRecord() {
+    testCreateRecord("one", TEST_KEY, "value1");
+    testCreateRecord("two", TEST_KEY, "value2");
+    testCreateRecord("three", TEST_KEY, "value3");
+
+    SearchRequest firstPage = new SearchRequest(2, 0, SortDirection.ASC, TEST_KEY);
+    RecordQueryResponse resp =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, firstPage);
+    assertEquals(
+        List.of("one", "two"), resp.records().stream().map(RecordResponse::recordId).toList());
+    // the sort value is used for paging, not returned as an attribute
+    assertFalse(resp.records().get(1).recordAttributes().containsAttribute("sys_page_sort_value"));
+
+    recordOrchestratorService.deleteSingleRecord(collectionId, VERSION, TEST_TYPE, "two");
+
+    SearchRequest secondPage = new SearchRequest(2, 0, SortDirection.ASC, TEST_KEY);
+    secondPage.setPageToken(resp.nextPageToken());
+    RecordQueryResponse next =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, secondPage);
+    assertEquals(List.of("three"), next.records().stream().map(RecordResponse::recordId).toList());
+  }
+
+  // pages after the first don't count the records again
+  @Test
+  void pageTokenCarriesFirstPageTotal() {
+    testCreateRecord("one", TEST_KEY, "value1");
+    testCreateRecord("two", TEST_KEY, "value2");
+    testCreateRecord("three", TEST_KEY, "value3");
+
+    SearchRequest firstPage = new SearchRequest(2, 0, SortDirection.ASC, TEST_KEY);
+    RecordQueryResponse resp =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, firstPage);
+    assertEquals(3, resp.totalRecords());
+
+    testCreateRecord("four", TEST_KEY, "value4");
+
+    SearchRequest secondPage = new SearchRequest(2, 0, SortDirection.ASC, TEST_KEY);
+    secondPage.setPageToken(resp.nextPageToken());
+    RecordQueryResponse next =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, secondPage);
+    assertEquals(
+        List.of("three", "four"), next.records().stream().map(RecordResponse::recordId).toList());
+    assertEquals(3, next.totalRecords());
+    assertEquals(resp.totalRecordsEstimated(), next.totalRecordsEstimated());
+  }
+
+  @Test
+  void estimatedCount() {
+    testCreateRecord("one", TEST_KEY, "value1");
+    testCreateRecord("two", TEST_KEY, "value2");
+
+    SearchRequest exact = new SearchRequest();
+    RecordQueryResponse exactResp =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, exact);
+    assertEquals(2, exactResp.totalRecords());
+    assertFalse(exactResp.totalRecordsEstimated());
+
+    // populate planner statistics, as autovacuum would
+    namedTemplate
+        .getJdbcTemplate()
+        .execute("analyze \"%s\".\"%s\"".formatted(collectionId, TEST_TYPE.getName()));
+
+    // record types below twds.record-count.exact-threshold are counted exactly; see RecordCounter
+    SearchRequest estimated = new SearchRequest();
+    estimated.setCount(CountMode.ESTIMATED);
+    RecordQueryResponse estimatedResp =
+        recordOrchestratorService.queryForRecords(collectionId, TEST_TYPE, VERSION, estimated);
+    assertEquals(2, estimatedResp.totalRecords());
+    assertFalse(estimatedResp.totalRecordsEstimated());
+  }
+
   @Test
   void sortPrimaryKeyExplicit() {
     // insert records out of any order to ensure native db order doesn't give false positives
@@ -8,12 +8,19 @@ import static org.databiosphere.workspacedataservice.service.RecordService.TAG_N
 import static org.databiosphere.workspacedataservice.service.RecordService.TAG_OLD_DATATYPE;
 import static org.databiosphere.workspacedataservice.service.RecordService.TAG_RECORD_TYPE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
+import com.google.common.collect.Maps;
 import io.micrometer.observation.tck.TestObservationRegistry;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.databiosphere.workspacedataservice.TestUtils;
 import org.databiosphere.workspacedataservice.annotations.WithTestObservationRegistry;
 import org.databiosphere.workspacedataservice.common.ControlPlaneTestBase;
@@ -21,6 +28,9 @@ import org.databiosphere.workspacedataservice.dao.RecordDao;
 import org.databiosphere.workspacedataservice.dao.WorkspaceRepository;
 import org.databiosphere.workspacedataservice.generated.CollectionServerModel;
 import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.Relation;
+import org.databiosphere.workspacedataservice.service.model.RelationCollection;
+import org.databiosphere.workspacedataservice.shared.model.Record;
 import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
 import org.databiosphere.workspacedataservice.shared.model.RecordRequest;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
@@ -113,4 +123,135 @@ class RecordServiceTest extends ControlPlaneTestBase {
         .hasBeenStarted()
         .hasBeenStopped();
   }
+
+  @Test
+  void schemaChangesForOneWriteAreObservedOnce() {
+    RecordService recordService = new RecordService(recordDao, inferer, observationRegistry);
+
+    // "count" is created as numeric and "day" as a date
+    RecordType recordType = RecordType.valueOf("myType");
+    recordService.upsertSingleRecord(
+        collectionId,
+        recordType,
+        "111",
+        Optional.of("pk"),
+        new RecordRequest(
+            new RecordAttributes(Map.of("count", BigDecimal.valueOf(123), "day", "2024-01-01"))));
+
+    // widen both columns, and add another, in a single write
+    recordService.upsertSingleRecord(
+        collectionId,
+        recordType,
+        "111",
+        Optional.of("pk"),
+        new RecordRequest(
+            new RecordAttributes(
+                Map.of("count", "many", "day", "2024-01-01T12:00:00", "label", "new"))));
+
+    assertEquals(
+        Map.of(
+            "pk",
+            DataTypeMapping.STRING,
+            "count",
+            DataTypeMapping.STRING,
+            "day",
+            DataTypeMapping.DATE_TIME,
+            "label",
+            DataTypeMapping.STRING),
+        recordDao.getExistingTableSchema(collectionId, recordType));
+
+    // both type changes were made, and timed, together
+    assertThat(observationRegistry)
+        .hasNumberOfObservationsWithNameEqualTo(METRIC_COL_CHANGE, 1)
+        .hasObservationWithNameEqualTo(METRIC_COL_CHANGE)
+        .that()
+        .hasLowCardinalityKeyValue(
+            TAG_OLD_DATATYPE,
+            DataTypeMapping.DATE.toString() + "," + DataTypeMapping.NUMBER.toString())
+        .hasLowCardinalityKeyValue(
+            TAG_NEW_DATATYPE,
+            DataTypeMapping.DATE_TIME.toString() + "," + DataTypeMapping.STRING.toString())
+        .hasHighCardinalityKeyValue(TAG_ATTRIBUTE_NAME, "count,day");
+  }
+
+  @Test
+  void reupsertOnlyRewritesChangedRelationArrays() {
+    RecordService recordService = new RecordService(recordDao, inferer, observationRegistry);
+    RecordType targetType = RecordType.valueOf("target");
+    RecordType sourceType = RecordType.valueOf("source");
+    recordDao.createRecordType(
+        collectionId, Map.of(), targetType, RelationCollection.empty(), "pk");
+    recordDao.batchUpsert(
+        collectionId,
+        targetType,
+        List.of(
+            new Record("t1", targetType, RecordAttributes.empty()),
+            new Record("t2", targetType, RecordAttributes.empty())),
+        Map.of(),
+        "pk");
+    Map<String, DataTypeMapping> schema = Map.of("targets", DataTypeMapping.ARRAY_OF_RELATION);
+    recordDao.createRecordType(
+        collectionId,
+        schema,
+        sourceType,
+        new RelationCollection(Set.of(), Set.of(new Relation("targets", targetType))),
+        "pk");
+
+    recordService.batchUpsert(
+        collectionId,
+        sourceType,
+        List.of(source("s1", targetType, "t1", "t2"), source("s2", targetType, "t1")),
+        schema,
+        "pk");
+    Map<String, List<String>> before = joinRowLocations(sourceType);
+
+    // s1 is unchanged, in a different order; s2 now refers to t2 instead
+    recordService.batchUpsert(
+        collectionId,
+        sourceType,
+        List.of(source("s1", targetType, "t2", "t1"), source("s2", targetType, "t2")),
+        schema,
+        "pk");
+    Map<String, List<String>> after = joinRowLocations(sourceType);
+
+    // rows that were not deleted and reinserted are where they were
+    assertEquals(before.get("s1"), after.get("s1"));
+    assertNotEquals(before.get("s2"), after.get("s2"));
+    assertEquals(
+        Map.of("s1", List.of("t1", "t2"), "s2", List.of("t2")),
+        Maps.transformValues(
+            recordDao.getJoinValues(
+                collectionId,
+                new Relation("targets", targetType),
+                sourceType,
+                List.of("s1", "s2")),
+            values -> values.stream().sorted().toList()));
+  }
+
+  private static Record source(String id, RecordType targetType, String... targetIds) {
+    return new Record(
+        id,
+        RecordType.valueOf("source"),
+        RecordAttributes.empty()
+            .putAttribute(
+                "targets",
+                Stream.of(targetIds)
+                    .map(targetId -> RelationUtils.createRelationString(targetType, targetId))
+                    .toList()));
+  }
+
+  // the physical location of each referring record's join rows
+  private Map<String, List<String>> joinRowLocations(RecordType sourceType) {
+    Map<String, List<String>> locations = new HashMap<>();
+    namedTemplate.query(
+        "select "
+            + recordDao.getFromColumnName(sourceType)
+            + ", ctid::text from "
+            + recordDao.getQualifiedJoinTableName(collectionId, "targets", sourceType)
+            + " order by ctid",
+        rs -> {
+          locations.computeIfAbsent(rs.getString(1), id -> new ArrayList<>()).add(rs.getString(2));
+        });
+    return locations;
+  }
 }
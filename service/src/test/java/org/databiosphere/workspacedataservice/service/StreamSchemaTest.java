@@ -0,0 +1,202 @@
+package org.databiosphere.workspacedataservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.ARRAY_OF_RELATION;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.DATE;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.DATE_TIME;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.NULL;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.NUMBER;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.RELATION;
+import static org.databiosphere.workspacedataservice.service.model.DataTypeMapping.STRING;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import org.databiosphere.workspacedataservice.service.model.DataTypeMapping;
+import org.databiosphere.workspacedataservice.service.model.Relation;
+import org.databiosphere.workspacedataservice.service.model.RelationCollection;
+import org.databiosphere.workspacedataservice.service.model.StagedColumn;
+import org.databiosphere.workspacedataservice.shared.model.Record;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes;
+import org.databiosphere.workspacedataservice.shared.model.RecordType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StreamSchemaTest {
+
+  private static final RelationCollection NO_RELATIONS = new RelationCollection(Set.of(), Set.of());
+  private static final Relation PARENT = new Relation("parent", RecordType.valueOf("thing"));
+
+  private static final BiPredicate<DataTypeMapping, DataTypeMapping> NO_DEFERRAL =
+      (from, to) -> false;
+  private static final BiPredicate<DataTypeMapping, DataTypeMapping> ANY_DEFERRAL =
+      (from, to) -> true;
+
+  private final DataTypeInferer inferer = new DataTypeInferer(new JsonConfig().objectMapper());
+  private StreamSchema streamSchema;
+
+  @BeforeEach
+  void setUp() {
+    streamSchema = new StreamSchema();
+    streamSchema.merge(
+        Map.of("id", STRING, "count", NUMBER, "day", DATE, "parent", RELATION),
+        new RelationCollection(Set.of(PARENT), Set.of()));
+  }
+
+  // the schema a batch can be written with, without the sink, if it needs no staging
+  private Optional<Map<String, DataTypeMapping>> accommodate(
+      Map<String, DataTypeMapping> inferred, RelationCollection relations, DataTypeInferer inf) {
+    return streamSchema
+        .plan(inferred, relations, inf, NO_DEFERRAL)
+        .filter(plan -> !plan.needsSink() && plan.staging().isEmpty())
+        .map(StreamSchema.BatchPlan::schema);
+  }
+
+  @Test
+  void accommodatesEstablishedColumns() {
+    assertThat(accommodate(Map.of("id", STRING, "count", NUMBER), NO_RELATIONS, inferer))
+        .contains(Map.of("id", STRING, "count", NUMBER));
+  }
+
+  @Test
+  void accommodatesNarrowerTypesAtTheEstablishedType() {
+    assertThat(accommodate(Map.of("id", NUMBER, "count", NULL), NO_RELATIONS, inferer))
+        .contains(Map.of("id", STRING, "count", NUMBER));
+  }
+
+  @Test
+  void accommodatesKnownRelations() {
+    assertThat(
+            accommodate(
+                Map.of("parent", RELATION),
+                new RelationCollection(Set.of(PARENT), Set.of()),
+                inferer))
+        .contains(Map.of("parent", RELATION));
+  }
+
+  @Test
+  void rejectsNewColumns() {
+    assertThat(accommodate(Map.of("color", STRING), NO_RELATIONS, inferer)).isEmpty();
+  }
+
+  @Test
+  void rejectsWiderTypes() {
+    assertThat(accommodate(Map.of("count", STRING), NO_RELATIONS, inferer)).isEmpty();
+    assertThat(accommodate(Map.of("day", DATE_TIME), NO_RELATIONS, inferer)).isEmpty();
+  }
+
+  @Test
+  void rejectsRelationTypeChanges() {
+    assertThat(accommodate(Map.of("parent", STRING), NO_RELATIONS, inferer)).isEmpty();
+    assertThat(
+            accommodate(
+                Map.of("parent", ARRAY_OF_RELATION),
+                new RelationCollection(Set.of(), Set.of(PARENT)),
+                inferer))
+        .isEmpty();
+  }
+
+  @Test
+  void rejectsNewRelationTargets() {
+    Relation otherParent = new Relation("parent", RecordType.valueOf("other"));
+    assertThat(
+            accommodate(
+                Map.of("parent", RELATION),
+                new RelationCollection(Set.of(otherParent), Set.of()),
+                inferer))
+        .isEmpty();
+  }
+
+  @Test
+  void mergesWidenedTypes() {
+    streamSchema.merge(Map.of("count", STRING), NO_RELATIONS);
+
+    assertThat(accommodate(Map.of("count", NUMBER), NO_RELATIONS, inferer))
+        .contains(Map.of("count", STRING));
+  }
+
+  @Test
+  void stagesWideningColumnsTheSinkCanDefer() {
+    StreamSchema.BatchPlan plan =
+        streamSchema.plan(Map.of("count", STRING), NO_RELATIONS, inferer, ANY_DEFERRAL).get();
+
+    assertThat(plan.needsSink()).isFalse();
+    assertThat(plan.schema()).isEqualTo(Map.of("count", NUMBER));
+    StagedColumn expected = new StagedColumn("count", NUMBER, "sys_staged_0", STRING, STRING);
+    assertThat(plan.staging()).containsExactly(expected);
+    assertThat(streamSchema.stage(plan.staging())).containsExactly(expected);
+    assertThat(streamSchema.withStagingColumns(plan.schema()))
+        .isEqualTo(Map.of("count", NUMBER, "sys_staged_0", STRING));
+  }
+
+  @Test
+  void widensStagedColumnsWithoutAddingStagingColumns() {
+    streamSchema.stage(
+        streamSchema
+            .plan(Map.of("day", DATE_TIME), NO_RELATIONS, inferer, ANY_DEFERRAL)
+            .get()
+            .staging());
+
+    StreamSchema.BatchPlan plan =
+        streamSchema.plan(Map.of("day", STRING), NO_RELATIONS, inferer, ANY_DEFERRAL).get();
+
+    assertThat(plan.staging())
+        .containsExactly(new StagedColumn("day", DATE, "sys_staged_0", STRING, STRING));
+    assertThat(streamSchema.stage(plan.staging())).isEmpty();
+  }
+
+  @Test
+  void cannotPlanWhenAStagedColumnCannotWidenFurther() {
+    BiPredicate<DataTypeMapping, DataTypeMapping> toDateTimeOnly = (from, to) -> to == DATE_TIME;
+    streamSchema.stage(
+        streamSchema
+            .plan(Map.of("day", DATE_TIME), NO_RELATIONS, inferer, toDateTimeOnly)
+            .get()
+            .staging());
+
+    assertThat(streamSchema.plan(Map.of("day", STRING), NO_RELATIONS, inferer, toDateTimeOnly))
+        .isEmpty();
+
+    assertThat(streamSchema.unstageAll())
+        .containsExactly(new StagedColumn("day", DATE, "sys_staged_0", STRING, DATE_TIME));
+    assertThat(streamSchema.hasStaged()).isFalse();
+    // once converted, the column is established at its final type
+    assertThat(accommodate(Map.of("day", DATE), NO_RELATIONS, inferer))
+        .contains(Map.of("day", DATE_TIME));
+  }
+
+  @Test
+  void asksTheSinkToWidenColumnsItCannotDefer() {
+    StreamSchema.BatchPlan plan =
+        streamSchema.plan(Map.of("count", STRING), NO_RELATIONS, inferer, NO_DEFERRAL).get();
+
+    assertThat(plan.needsSink()).isTrue();
+    assertThat(plan.schema()).isEqualTo(Map.of("count", STRING));
+    assertThat(plan.staging()).isEmpty();
+  }
+
+  @Test
+  void movesStagedValuesToStagingColumns() {
+    streamSchema.stage(
+        streamSchema
+            .plan(Map.of("count", STRING), NO_RELATIONS, inferer, ANY_DEFERRAL)
+            .get()
+            .staging());
+    RecordType thing = RecordType.valueOf("thing");
+    RecordAttributes attributes =
+        RecordAttributes.empty().putAttribute("count", "many").putAttribute("x", 1);
+    Record staged = new Record("a", thing, attributes);
+    Record untouched = new Record("b", thing, RecordAttributes.empty().putAttribute("x", 2));
+
+    List<Record> written = streamSchema.stageValues(List.of(staged, untouched));
+
+    assertThat(written.get(0).getAttributes().getAttributeValue("count")).isNull();
+    assertThat(written.get(0).getAttributes().getAttributeValue("sys_staged_0")).isEqualTo("many");
+    assertThat(written.get(0).getAttributes().getAttributeValue("x")).isEqualTo(1);
+    assertThat(written.get(1)).isSameAs(untouched);
+    // the original record is not modified
+    assertThat(staged.getAttributes().getAttributeValue("count")).isEqualTo("many");
+  }
+}
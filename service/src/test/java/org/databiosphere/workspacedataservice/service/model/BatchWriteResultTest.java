@@ -6,6 +6,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.databiosphere.workspacedataservice.shared.model.RecordType;
@@ -144,4 +145,23 @@ class BatchWriteResultTest {
 
     assertEquals(6, batchWriteResult.getTotalUpdatedCount());
   }
+
+  @Test
+  void upsertCounts() {
+    RecordType thing = RecordType.valueOf("thing");
+    RecordType other = RecordType.valueOf("other");
+    BatchWriteResult batchWriteResult = BatchWriteResult.empty();
+    batchWriteResult.increaseCount(thing, 6);
+    batchWriteResult.increaseUpsertCounts(thing, new UpsertCounts(1, 2, 3));
+    batchWriteResult.increaseCount(other, 1);
+
+    BatchWriteResult more = BatchWriteResult.empty();
+    more.increaseUpsertCounts(thing, new UpsertCounts(0, 0, 4));
+    batchWriteResult.merge(more);
+
+    assertEquals(Optional.of(new UpsertCounts(1, 2, 7)), batchWriteResult.getUpsertCounts(thing));
+    // the sink for "other" didn't report upsert counts
+    assertEquals(Optional.empty(), batchWriteResult.getUpsertCounts(other));
+    assertEquals(new UpsertCounts(1, 2, 7), batchWriteResult.getTotalUpsertCounts());
+  }
 }
@@ -2,11 +2,15 @@ package org.databiosphere.workspacedataservice.shared.model;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
+import org.databiosphere.workspacedataservice.shared.model.RecordAttributes.SortedArrayMap;
 import org.junit.jupiter.api.Test;
 
 class RecordAttributesTest {
@@ -36,4 +40,84 @@ class RecordAttributesTest {
     recordAttributes.removeNullHeaders();
     assertEquals(2, recordAttributes.attributeSet().size());
   }
+
+  @Test
+  void fromSortedMatchesPutAttribute() {
+    RecordAttributes expected = RecordAttributes.empty("Z");
+    expected.putAttribute("a", 11);
+    expected.putAttribute("A", null);
+    expected.putAttribute("B", "hello");
+    expected.putAttribute("Z", "1");
+
+    RecordAttributes fromSorted =
+        RecordAttributes.fromSorted(
+            "Z", new String[] {"Z", "a", "A", "B"}, new Object[] {"1", 11, null, "hello"});
+
+    // compare entries in order; not RecordAttributes.equals, since AttributeComparator never finds
+    // the primary key on lookup
+    assertThat(List.copyOf(fromSorted.attributeSet()))
+        .isEqualTo(List.copyOf(expected.attributeSet()));
+    assertEquals("hello", fromSorted.getAttributeValue("B"));
+    assertThat(fromSorted.containsAttribute("A")).isTrue();
+
+    // remains mutable, and ordered
+    fromSorted.putAttribute("C", LocalDate.of(2022, 11, 21));
+    assertThat(fromSorted.attributeSet().stream().map(Map.Entry::getKey))
+        .containsExactly("Z", "a", "A", "B", "C");
+  }
+
+  @Test
+  void fromSortedReadsAndCopiesOnWrite() {
+    String[] names = {"id", "a", "B", "c"};
+    Object[] values = {"1", 2, null, "four"};
+    RecordAttributes attributes = RecordAttributes.fromSorted("id", names, values);
+
+    // every name is found in the arrays, the primary key included
+    assertEquals("1", attributes.getAttributeValue("id"));
+    assertEquals("four", attributes.getAttributeValue("c"));
+    assertThat(attributes.containsAttribute("B")).isTrue();
+    assertThat(attributes.containsAttribute("b")).isFalse();
+    assertThat(attributes.getAttributeValue("missing")).isNull();
+
+    // writes go to a copy, leaving the arrays as they were
+    attributes.putAttribute("c", "changed").removeAttribute("a");
+    assertThat(attributes.attributeSet().stream().map(Map.Entry::getKey))
+        .containsExactly("id", "B", "c");
+    assertEquals("changed", attributes.getAttributeValue("c"));
+    assertThat(names).containsExactly("id", "a", "B", "c");
+    assertThat(values).containsExactly("1", 2, null, "four");
+  }
+
+  @Test
+  void sortedArrayMapViewsMatchTreeMap() {
+    AttributeComparator comparator = new AttributeComparator("id");
+    String[] names = {"id", "a", "B", "c", "D"};
+    Object[] values = {"1", 2, null, "four", 5.0};
+    SortedMap<String, Object> arrayMap = new SortedArrayMap(comparator, names, values);
+    TreeMap<String, Object> treeMap = new TreeMap<>(comparator);
+    for (int i = 0; i < names.length; i++) {
+      treeMap.put(names[i], values[i]);
+    }
+
+    assertThat(List.copyOf(arrayMap.entrySet())).isEqualTo(List.copyOf(treeMap.entrySet()));
+    for (String from : List.of("a", "b", "B", "c", "zzz")) {
+      assertThat(List.copyOf(arrayMap.tailMap(from).entrySet()))
+          .isEqualTo(List.copyOf(treeMap.tailMap(from).entrySet()));
+      assertThat(List.copyOf(arrayMap.headMap(from).entrySet()))
+          .isEqualTo(List.copyOf(treeMap.headMap(from).entrySet()));
+      for (String to : List.of("c", "D", "zzz")) {
+        if (comparator.compare(from, to) <= 0) {
+          SortedMap<String, Object> subMap = arrayMap.subMap(from, to);
+          assertThat(List.copyOf(subMap.entrySet()))
+              .isEqualTo(List.copyOf(treeMap.subMap(from, to).entrySet()));
+          if (!subMap.isEmpty()) {
+            assertThat(subMap.firstKey()).isEqualTo(treeMap.subMap(from, to).firstKey());
+            assertThat(subMap.lastKey()).isEqualTo(treeMap.subMap(from, to).lastKey());
+          }
+        }
+      }
+    }
+    assertThat(arrayMap.subMap("B", "D").headMap("c").keySet()).containsExactly("B");
+    assertThrows(IllegalArgumentException.class, () -> arrayMap.subMap("D", "a"));
+  }
 }